@@ -12,34 +12,50 @@ import org.beifengtz.jvmm.client.annotation.JvmmOptions;
 import org.beifengtz.jvmm.client.annotation.Order;
 import org.beifengtz.jvmm.client.cli.CmdParser;
 import org.beifengtz.jvmm.client.fomatter.TableFormatter;
-import org.beifengtz.jvmm.common.util.CodingUtil;
+import org.beifengtz.jvmm.common.exception.RpcStatusException;
 import org.beifengtz.jvmm.common.util.FileUtil;
+import org.beifengtz.jvmm.common.util.IOUtil;
 import org.beifengtz.jvmm.common.util.StringUtil;
 import org.beifengtz.jvmm.convey.entity.JvmmRequest;
 import org.beifengtz.jvmm.convey.entity.JvmmResponse;
 import org.beifengtz.jvmm.convey.enums.RpcType;
 import org.beifengtz.jvmm.convey.socket.JvmmConnector;
+import org.beifengtz.jvmm.core.StackProfile;
 import org.beifengtz.jvmm.core.contanstant.CollectionType;
 import org.beifengtz.jvmm.core.contanstant.Switches;
 import org.beifengtz.jvmm.core.entity.info.CPUInfo;
 import org.beifengtz.jvmm.core.entity.info.DiskIOInfo;
+import org.beifengtz.jvmm.core.entity.info.JfrRecordingInfo;
+import org.beifengtz.jvmm.core.entity.info.JfrSummaryInfo;
 import org.beifengtz.jvmm.core.entity.info.JvmClassLoaderInfo;
 import org.beifengtz.jvmm.core.entity.info.JvmClassLoadingInfo;
 import org.beifengtz.jvmm.core.entity.info.JvmCompilationInfo;
 import org.beifengtz.jvmm.core.entity.info.JvmGCInfo;
 import org.beifengtz.jvmm.core.entity.info.JvmMemoryManagerInfo;
 import org.beifengtz.jvmm.core.entity.info.JvmThreadDetailInfo;
+import org.beifengtz.jvmm.core.entity.info.ProfilerSessionInfo;
 import org.beifengtz.jvmm.core.entity.info.SysFileInfo;
 import org.beifengtz.jvmm.core.entity.info.SysInfo;
 import org.beifengtz.jvmm.core.entity.info.SysMemInfo;
 import org.beifengtz.jvmm.core.entity.info.ThreadTimedInfo;
 import org.beifengtz.jvmm.core.entity.result.JpsResult;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Description: TODO
@@ -56,8 +72,8 @@ public class ServerServiceImpl extends ServerService {
                     order = 1,
                     desc = "Collection type, optional values: \n- process\n- disk\n- disk_io\n- cpu" +
                             "\n- network\n- sys\n- sys_memory\n- sys_file\n- jvm_classloading\n- jvm_classloader" +
-                            "\n- jvm_compilation\n- jvm_gc\n- jvm_memory\n- jvm_memory_manager\n- jvm_memory_pool" +
-                            "\n- jvm_thread\n- jvm_thread_stack\n- jvm_thread_detail\n- jvm_thread_pool\n- port"
+                            "\n- jvm_compilation\n- jvm_gc\n- jvm_gc_pause\n- jvm_perf\n- jvm_native_memory\n- jvm_class_histogram\n- jvm_memory\n- jvm_buffer_pool\n- jvm_memory_manager\n- jvm_memory_pool" +
+                            "\n- jvm_thread\n- jvm_thread_stack\n- jvm_thread_detail\n- jvm_thread_pool\n- jvm_thread_cpu_top\n- jvm_thread_allocation\n- jvm_lock_contention\n- port"
             ),
             @JvmmOption(
                     name = "f",
@@ -113,6 +129,52 @@ public class ServerServiceImpl extends ServerService {
                     argName = "port(s)",
                     order = 8,
                     desc = "When querying info 'port', this option is used to specify the querying ports. Multiple ports are used ',' split."
+            ),
+            @JvmmOption(
+                    name = "top",
+                    argName = "top",
+                    order = 9,
+                    desc = "When querying info 'jvm_thread_cpu_top' or 'jvm_thread_allocation', this option is used to specify the number of threads returned, " +
+                            "when querying info 'jvm_lock_contention', it specifies the number of hot spots returned, default 10. " +
+                            "When querying info 'jvm_class_histogram', it specifies the number of classes returned, default 20"
+            ),
+            @JvmmOption(
+                    name = "window",
+                    argName = "seconds",
+                    order = 10,
+                    desc = "When querying info 'jvm_thread_cpu_top', this option is used to specify the statistics window in seconds. " +
+                            "If not filled, the window of server's thread cpu sampler will be used"
+            ),
+            @JvmmOption(
+                    name = "pid",
+                    argName = "pid",
+                    order = 11,
+                    desc = "When querying info 'jvm_perf', this option is used to specify another local jvm process on the server's machine. " +
+                            "If not filled, the jvm that the server runs in will be read"
+            ),
+            @JvmmOption(
+                    name = "prefix",
+                    argName = "prefix",
+                    order = 12,
+                    desc = "When querying info 'jvm_perf', list the raw hsperfdata counters whose names start with this prefix, " +
+                            "eg `sun.gc.`. Use `*` to list all counters"
+            ),
+            @JvmmOption(
+                    name = "baseline",
+                    order = 13,
+                    desc = "When querying info 'jvm_native_memory', reset the baseline to the current native memory usage before collecting. " +
+                            "When querying info 'jvm_class_histogram' with `-diff`, use this histogram as the new baseline after comparing"
+            ),
+            @JvmmOption(
+                    name = "diff",
+                    order = 14,
+                    desc = "When querying info 'jvm_class_histogram', compare with the baseline and list the fastest-growing classes"
+            ),
+            @JvmmOption(
+                    name = "all",
+                    order = 15,
+                    desc = "When querying info 'jvm_class_histogram', count all objects including unreachable ones. " +
+                            "If not filled, only live objects are counted and a full gc will be triggered"
             )
     })
     @JvmmCmdDesc(
@@ -175,9 +237,52 @@ public class ServerServiceImpl extends ServerService {
             case jvm_gc:
                 request.setType(RpcType.JVMM_COLLECT_JVM_GC_INFO);
                 break;
+            case jvm_gc_pause:
+                request.setType(RpcType.JVMM_COLLECT_JVM_GC_PAUSE_INFO);
+                break;
+            case jvm_perf: {
+                JsonObject data = new JsonObject();
+                if (cmd.hasArg("pid")) {
+                    data.addProperty("pid", Long.parseLong(cmd.getArg("pid")));
+                }
+                if (cmd.hasArg("prefix")) {
+                    request.setType(RpcType.JVMM_COLLECT_JVM_PERF_COUNTERS);
+                    String prefix = cmd.getArg("prefix");
+                    data.addProperty("prefix", "*".equals(prefix) ? "" : prefix);
+                } else {
+                    request.setType(RpcType.JVMM_COLLECT_JVM_PERF_INFO);
+                }
+                request.setData(data);
+                break;
+            }
+            case jvm_native_memory: {
+                request.setType(RpcType.JVMM_COLLECT_JVM_NATIVE_MEMORY);
+                JsonObject data = new JsonObject();
+                data.addProperty("baseline", cmd.hasArg("baseline"));
+                request.setData(data);
+                break;
+            }
+            case jvm_class_histogram: {
+                JsonObject data = new JsonObject();
+                if (cmd.hasArg("top")) {
+                    data.addProperty("top", cmd.getArgInt("top"));
+                }
+                data.addProperty("all", cmd.hasArg("all"));
+                if (cmd.hasArg("diff")) {
+                    request.setType(RpcType.JVMM_COLLECT_JVM_CLASS_HISTOGRAM_DIFF);
+                    data.addProperty("reset", cmd.hasArg("baseline"));
+                } else {
+                    request.setType(RpcType.JVMM_COLLECT_JVM_CLASS_HISTOGRAM);
+                }
+                request.setData(data);
+                break;
+            }
             case jvm_memory:
                 request.setType(RpcType.JVMM_COLLECT_JVM_MEMORY_INFO);
                 break;
+            case jvm_buffer_pool:
+                request.setType(RpcType.JVMM_COLLECT_JVM_BUFFER_POOL);
+                break;
             case jvm_memory_manager:
                 request.setType(RpcType.JVMM_COLLECT_JVM_MEMORY_MANAGER_INFO);
                 break;
@@ -207,6 +312,8 @@ public class ServerServiceImpl extends ServerService {
                     request.setData(data);
                 } else {
                     request.setType(RpcType.JVMM_COLLECT_JVM_DUMP_THREAD);
+                    dumpThread(connector, request, cmd.getArg("f"));
+                    return;
                 }
                 break;
             }
@@ -248,6 +355,36 @@ public class ServerServiceImpl extends ServerService {
                 request.setData(data);
                 break;
             }
+            case jvm_thread_cpu_top: {
+                request.setType(RpcType.JVMM_COLLECT_JVM_THREAD_CPU_TOP);
+                JsonObject data = new JsonObject();
+                if (cmd.hasArg("top")) {
+                    data.addProperty("top", cmd.getArgInt("top"));
+                }
+                if (cmd.hasArg("window")) {
+                    data.addProperty("window", cmd.getArgInt("window"));
+                }
+                request.setData(data);
+                break;
+            }
+            case jvm_thread_allocation: {
+                request.setType(RpcType.JVMM_COLLECT_JVM_THREAD_ALLOCATION);
+                JsonObject data = new JsonObject();
+                if (cmd.hasArg("top")) {
+                    data.addProperty("top", cmd.getArgInt("top"));
+                }
+                request.setData(data);
+                break;
+            }
+            case jvm_lock_contention: {
+                request.setType(RpcType.JVMM_COLLECT_JVM_LOCK_CONTENTION);
+                JsonObject data = new JsonObject();
+                if (cmd.hasArg("top")) {
+                    data.addProperty("top", cmd.getArgInt("top"));
+                }
+                request.setData(data);
+                break;
+            }
             case port: {
                 request.setType(RpcType.JVMM_COLLECT_PORT_STATUS);
                 if (!cmd.hasArg("p")) {
@@ -287,6 +424,50 @@ public class ServerServiceImpl extends ServerService {
         }
     }
 
+    /**
+     * 线程 dump 以流式分块返回，收到一块就写出一块
+     */
+    private static void dumpThread(JvmmConnector connector, JvmmRequest request, String filePath) {
+        OutputStream os = null;
+        File file = null;
+        try {
+            if (filePath == null) {
+                os = System.out;
+            } else {
+                file = new File(filePath);
+                if (file.getParentFile() != null && !file.getParentFile().exists()) {
+                    file.getParentFile().mkdirs();
+                }
+                os = new FileOutputStream(file);
+            }
+            OutputStream out = os;
+            connector.sendForStream(request, response -> {
+                try {
+                    out.write(response.getData().getAsString().getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }).get(60, TimeUnit.SECONDS);
+            os.flush();
+            if (file != null) {
+                System.out.println("Write server info to file successful, path is " + file.getAbsolutePath());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RpcStatusException) {
+                printErr(String.format("Wrong response status: '%s', msg: %s", ((RpcStatusException) cause).getStatus(), cause.getMessage()));
+            } else {
+                printErr("Request failed: " + cause.getMessage());
+            }
+        } catch (Exception e) {
+            printErr("Request failed: " + e.getMessage());
+        } finally {
+            if (os != null && os != System.out) {
+                IOUtil.close(os);
+            }
+        }
+    }
+
     private static String drawInfoResponse(CollectionType type, JsonElement data) {
         Gson gson = StringUtil.getGson();
         String result;
@@ -384,12 +565,13 @@ public class ServerServiceImpl extends ServerService {
         } else if (type == CollectionType.jvm_classloader) {
             JsonArray array = data.getAsJsonArray();
             TableFormatter table = new TableFormatter();
-            table.setHead("Name", "Hash", "Parents");
+            table.setHead("Name", "Hash", "Classes", "Parents");
             for (JsonElement json : array) {
                 JvmClassLoaderInfo info = gson.fromJson(json, JvmClassLoaderInfo.class);
                 table.addRow(
                         info.getName(),
                         String.valueOf(info.getHash()),
+                        String.valueOf(info.getClassCount()),
                         StringUtil.join(";", info.getParents())
                 );
             }
@@ -501,7 +683,8 @@ public class ServerServiceImpl extends ServerService {
                     name = "f",
                     argName = "file",
                     order = 5,
-                    desc = "Output file path, supported file type: html, txt, jfr. If not filled, will output text content"
+                    desc = "Output file path, supported file type: html, txt, jfr. Add the `.gz` suffix to transfer and save " +
+                            "it with gzip compression, such as `cpu.jfr.gz`. If not filled, will output text content"
             ),
             @JvmmOption(
                     name = "e",
@@ -533,30 +716,62 @@ public class ServerServiceImpl extends ServerService {
                     argName = "interval",
                     order = 9,
                     desc = "The time interval of the unit to collect samples, the unit is nanosecond, default: 10000000 ns."
+            ),
+            @JvmmOption(
+                    name = "m",
+                    argName = "merge",
+                    order = 10,
+                    desc = "Merge local jprof files separated by commas instead of sampling, such as the captures of many instances. " +
+                            "The output type is decided by the `file` parameter: html, txt, jprof. If not filled, will output the top frames"
+            ),
+            @JvmmOption(
+                    name = "b",
+                    argName = "base",
+                    order = 11,
+                    desc = "The base jprof file when merging, the output will be the diff of base and merged files, such as before and after a deploy"
+            ),
+            @JvmmOption(
+                    name = "sessions",
+                    order = 12,
+                    desc = "View the running, queued and recently finished profiling requests. Requests with the same event, " +
+                            "counter and interval share one sampling session, others wait in the queue"
             )
     })
     @JvmmCmdDesc(
-            headDesc = "Get server sampling report. Only supported on MacOS and Linux.",
+            headDesc = "Get server sampling report. When async-profiler is unavailable on the server, a pure Java sampling " +
+                    "profiler is used instead, which only supports cpu, itimer and wall events and no jfr format.",
             tailDesc = "eg 1: `profiler -status`\n" +
                     "eg 2: `profiler -start -e wall`\n" +
                     "eg 3: `profiler -stop -f wall.html`\n" +
                     "eg 4: `profiler -list`\n" +
                     "eg 5: `profiler -e cpu -t 5`\n" +
                     "eg 6: `profiler -f java_method.html -e java.lang.Object.wait -t 20`\n" +
-                    "eg 7: `profiler -f java_method.html -e Java_java_lang_Object_hashCode -t 20`"
+                    "eg 7: `profiler -f java_method.html -e Java_java_lang_Object_hashCode -t 20`\n" +
+                    "eg 8: `profiler -f cpu.jfr.gz -t 60`\n" +
+                    "eg 9: `profiler -f node1.jprof -t 30`\n" +
+                    "eg 10: `profiler -m node1.jprof,node2.jprof -b before.jprof -f diff.html`\n" +
+                    "eg 11: `profiler -sessions`"
     )
     @Order(2)
     public static void profiler(JvmmConnector connector, CmdParser cmd) {
+        if (cmd.hasArg("m")) {
+            mergeProfiles(cmd.getArg("m"), cmd.getArg("b"), cmd.getArg("f"));
+            return;
+        }
+        if (cmd.hasArg("sessions")) {
+            printProfilerSessions(connector);
+            return;
+        }
         JvmmRequest request = JvmmRequest.create();
         boolean needArg = false;
-        boolean responseForHex = false;
+        boolean responseForStream = false;
         if (cmd.hasArg("start")) {
             request.setType(RpcType.JVMM_PROFILER_SAMPLE_START);
             needArg = true;
         } else if (cmd.hasArg("stop")) {
             request.setType(RpcType.JVMM_PROFILER_SAMPLE_STOP);
             needArg = true;
-            responseForHex = true;
+            responseForStream = true;
         } else if (cmd.hasArg("status")) {
             request.setType(RpcType.JVMM_PROFILER_STATUS);
         } else if (cmd.hasArg("list")) {
@@ -564,7 +779,7 @@ public class ServerServiceImpl extends ServerService {
         } else {
             request.setType(RpcType.JVMM_PROFILER_SAMPLE);
             needArg = true;
-            responseForHex = true;
+            responseForStream = true;
         }
 
         long waitSecs = 20;
@@ -591,9 +806,14 @@ public class ServerServiceImpl extends ServerService {
 
             if (cmd.hasArg("f")) {
                 filePath = cmd.getArg("f");
-                int dotIdx = filePath.lastIndexOf(".");
-                if (dotIdx >= 0 && dotIdx < filePath.length() - 1) {
-                    data.addProperty("format", filePath.substring(dotIdx + 1));
+                String name = filePath;
+                if (name.endsWith(".gz")) {
+                    name = name.substring(0, name.length() - 3);
+                    data.addProperty("gzip", true);
+                }
+                int dotIdx = name.lastIndexOf(".");
+                if (dotIdx >= 0 && dotIdx < name.length() - 1) {
+                    data.addProperty("format", name.substring(dotIdx + 1));
                 }
             } else {
                 data.addProperty("format", "txt");
@@ -602,26 +822,24 @@ public class ServerServiceImpl extends ServerService {
             request.setData(data);
         }
 
+        if (responseForStream) {
+            //  额外预留文件传输的时间
+            receiveProfilerStream(connector, request, filePath, waitSecs + 60);
+            return;
+        }
+
         JvmmResponse response = request(connector, request, waitSecs, TimeUnit.SECONDS);
         if (response == null) {
             return;
         }
 
         String content = response.getData().getAsString();
-        byte[] bytes;
-        if (responseForHex) {
-            bytes = CodingUtil.hexStr2Bytes(content);
-            content = new String(bytes, StandardCharsets.UTF_8);
-        } else {
-            bytes = content.getBytes(StandardCharsets.UTF_8);
-        }
-
         try {
             if (filePath == null) {
                 System.out.println(content);
             } else {
                 File file = new File(filePath);
-                FileUtil.writeByteArrayToFile(file, bytes);
+                FileUtil.writeByteArrayToFile(file, content.getBytes(StandardCharsets.UTF_8));
                 System.out.println("Write profiler to file successful, path is " + file.getAbsolutePath());
             }
         } catch (IOException e) {
@@ -629,6 +847,371 @@ public class ServerServiceImpl extends ServerService {
         }
     }
 
+    private static void printProfilerSessions(JvmmConnector connector) {
+        JvmmResponse response = request(connector, JvmmRequest.create().setType(RpcType.JVMM_PROFILER_SESSIONS), 5, TimeUnit.SECONDS);
+        if (response == null) {
+            return;
+        }
+        Gson gson = StringUtil.getGson();
+        TableFormatter table = new TableFormatter();
+        table.setHead("ID", "State", "Position", "Session", "Event", "Output", "Duration(ms)", "Start", "End", "Message");
+        for (JsonElement json : response.getData().getAsJsonArray()) {
+            ProfilerSessionInfo info = gson.fromJson(json, ProfilerSessionInfo.class);
+            table.addRow(
+                    String.valueOf(info.getId()),
+                    info.getState(),
+                    info.getPosition() > 0 ? String.valueOf(info.getPosition()) : "-",
+                    info.getSessionId() > 0 ? String.valueOf(info.getSessionId()) : "-",
+                    info.getEvent(),
+                    info.getOutput(),
+                    String.valueOf(info.getDuration()),
+                    info.getStartTime() > 0 ? String.valueOf(info.getStartTime()) : "-",
+                    info.getEndTime() > 0 ? String.valueOf(info.getEndTime()) : "-",
+                    info.getMessage() == null ? "" : info.getMessage()
+            );
+        }
+        System.out.println(table);
+    }
+
+    /**
+     * 在本地合并多个 jprof 文件，指定基线文件时输出对比结果
+     */
+    private static void mergeProfiles(String files, String baseFile, String filePath) {
+        try {
+            StackProfile profile = new StackProfile();
+            for (String path : files.split(",")) {
+                if (!path.trim().isEmpty()) {
+                    profile.merge(readProfile(path.trim()));
+                }
+            }
+            String title = "Merged profile of " + files;
+            if (baseFile != null) {
+                profile = StackProfile.diff(readProfile(baseFile), profile);
+                title += " vs " + baseFile;
+            }
+            if (filePath == null) {
+                for (StackProfile.FrameStat stat : profile.top(20, true)) {
+                    System.out.println(stat);
+                }
+                return;
+            }
+            File file = new File(filePath);
+            if (file.getParentFile() != null && !file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            try (OutputStream os = new FileOutputStream(file)) {
+                if (filePath.endsWith(".jprof")) {
+                    profile.writeTo(os);
+                } else {
+                    Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+                    if (filePath.endsWith(".html")) {
+                        profile.writeFlameGraph(writer, title, StackProfile.DEFAULT_MIN_RATIO);
+                    } else {
+                        profile.writeCollapsed(writer);
+                    }
+                    writer.flush();
+                }
+            }
+            System.out.println("Write merged profile to file successful, path is " + file.getAbsolutePath());
+        } catch (IOException e) {
+            printErr("Merge failed, " + e.getMessage());
+        }
+    }
+
+    private static StackProfile readProfile(String path) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(path))) {
+            return StackProfile.readFrom(path.endsWith(".gz") ? new GZIPInputStream(is) : is);
+        }
+    }
+
+    /**
+     * 接收 profiler 文件的分块，直接写入文件，未指定文件时输出到控制台
+     */
+    private static void receiveProfilerStream(JvmmConnector connector, JvmmRequest request, String filePath, long waitSecs) {
+        File file = filePath == null ? null : new File(filePath);
+        if (file != null && file.getParentFile() != null && !file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try (OutputStream os = file == null ? new FilterOutputStream(System.out) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        } : new FileOutputStream(file)) {
+            connector.sendForStream(request, response -> {
+                try {
+                    //  二进制分块以 base64 编码传输
+                    os.write(Base64.getDecoder().decode(response.getData().getAsString()));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }).get(waitSecs, TimeUnit.SECONDS);
+            if (file != null) {
+                System.out.println("Write profiler to file successful, path is " + file.getAbsolutePath());
+            }
+        } catch (ExecutionException e) {
+            if (file != null) {
+                file.delete();
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RpcStatusException) {
+                printErr(String.format("Wrong response status: '%s', msg: %s", ((RpcStatusException) cause).getStatus(), cause.getMessage()));
+            } else {
+                printErr("Request failed: " + cause.getMessage());
+            }
+        } catch (Exception e) {
+            if (file != null) {
+                file.delete();
+            }
+            printErr("Request failed: " + e.getMessage());
+        }
+    }
+
+
+    @JvmmOptions({
+            @JvmmOption(
+                    name = "start",
+                    order = 1,
+                    desc = "Start a flight recording, the events can be adjusted by `s`, `a`, `m`, `g`, `io` and `custom` options"
+            ),
+            @JvmmOption(
+                    name = "stop",
+                    argName = "id",
+                    order = 2,
+                    desc = "Stop the recording, its data can still be dumped or summarized until it is closed"
+            ),
+            @JvmmOption(
+                    name = "close",
+                    argName = "id",
+                    order = 3,
+                    desc = "Close the recording and release its data on disk"
+            ),
+            @JvmmOption(
+                    name = "list",
+                    order = 4,
+                    desc = "List all recordings in the server, including the ones started by jvm options or other tools"
+            ),
+            @JvmmOption(
+                    name = "dump",
+                    argName = "id",
+                    order = 5,
+                    desc = "Download the recording data to the `file` in chunks, 0 means a snapshot of all recordings. " +
+                            "A running recording keeps running"
+            ),
+            @JvmmOption(
+                    name = "summary",
+                    argName = "id",
+                    order = 6,
+                    desc = "Summarize the recording in the server: top allocation sites, top contended monitors, " +
+                            "GC phase times and socket I/O, 0 means a snapshot of all recordings"
+            ),
+            @JvmmOption(
+                    name = "f",
+                    argName = "file",
+                    order = 7,
+                    desc = "The output file of `dump`, ends with .gz will be compressed by the server"
+            ),
+            @JvmmOption(
+                    name = "n",
+                    argName = "name",
+                    order = 8,
+                    desc = "Recording name"
+            ),
+            @JvmmOption(
+                    name = "s",
+                    argName = "settings",
+                    order = 9,
+                    desc = "Predefined settings, optional values: default, profile. Default value: default."
+            ),
+            @JvmmOption(
+                    name = "a",
+                    order = 10,
+                    desc = "Enable allocation sampling"
+            ),
+            @JvmmOption(
+                    name = "m",
+                    argName = "threshold",
+                    order = 11,
+                    desc = "Enable monitor enter events whose duration exceeds the threshold, the unit is millisecond"
+            ),
+            @JvmmOption(
+                    name = "g",
+                    order = 12,
+                    desc = "Enable GC phase events"
+            ),
+            @JvmmOption(
+                    name = "io",
+                    argName = "threshold",
+                    order = 13,
+                    desc = "Enable socket read and write events whose duration exceeds the threshold, the unit is millisecond"
+            ),
+            @JvmmOption(
+                    name = "custom",
+                    argName = "settings",
+                    order = 14,
+                    desc = "Custom event settings separated by commas, such as `jdk.ThreadSleep#enabled=true,jdk.ThreadSleep#threshold=10 ms`"
+            ),
+            @JvmmOption(
+                    name = "d",
+                    argName = "duration",
+                    order = 15,
+                    desc = "Recording duration, the unit is second, the recording stops automatically. Default: until stopped"
+            ),
+            @JvmmOption(
+                    name = "top",
+                    argName = "top",
+                    order = 16,
+                    desc = "The number of entries in each part of the summary. Default value: 10."
+            )
+    })
+    @JvmmCmdDesc(
+            headDesc = "Manage the flight recordings of the server by jdk.jfr, it does not need async-profiler but requires JDK 8u262+ or JDK 11+.",
+            tailDesc = "eg 1: `jfr -start -a -m 10 -g -io 20 -d 300`\n" +
+                    "eg 2: `jfr -list`\n" +
+                    "eg 3: `jfr -summary 1 -top 20`\n" +
+                    "eg 4: `jfr -dump 1 -f recording.jfr.gz`\n" +
+                    "eg 5: `jfr -stop 1`\n" +
+                    "eg 6: `jfr -close 1`"
+    )
+    @Order(2)
+    public static void jfr(JvmmConnector connector, CmdParser cmd) {
+        JvmmRequest request = JvmmRequest.create();
+        JsonObject data = new JsonObject();
+        if (cmd.hasArg("start")) {
+            request.setType(RpcType.JVMM_PROFILER_JFR_START);
+            if (cmd.hasArg("n")) {
+                data.addProperty("name", cmd.getArg("n"));
+            }
+            if (cmd.hasArg("s")) {
+                data.addProperty("settings", cmd.getArg("s"));
+            }
+            data.addProperty("allocation", cmd.hasArg("a"));
+            data.addProperty("gc", cmd.hasArg("g"));
+            if (cmd.hasArg("m")) {
+                data.addProperty("monitorThreshold", Long.parseLong(cmd.getArg("m")));
+            }
+            if (cmd.hasArg("io")) {
+                data.addProperty("socketThreshold", Long.parseLong(cmd.getArg("io")));
+            }
+            if (cmd.hasArg("d")) {
+                data.addProperty("duration", Long.parseLong(cmd.getArg("d")));
+            }
+            if (cmd.hasArg("custom")) {
+                JsonObject custom = new JsonObject();
+                for (String setting : cmd.getArg("custom").split(",")) {
+                    int idx = setting.indexOf('=');
+                    if (idx > 0) {
+                        custom.addProperty(setting.substring(0, idx).trim(), setting.substring(idx + 1).trim());
+                    }
+                }
+                data.add("custom", custom);
+            }
+        } else if (cmd.hasArg("stop")) {
+            request.setType(RpcType.JVMM_PROFILER_JFR_STOP);
+            data.addProperty("id", Long.parseLong(cmd.getArg("stop")));
+        } else if (cmd.hasArg("close")) {
+            request.setType(RpcType.JVMM_PROFILER_JFR_CLOSE);
+            data.addProperty("id", Long.parseLong(cmd.getArg("close")));
+        } else if (cmd.hasArg("dump")) {
+            String filePath = cmd.hasArg("f") ? cmd.getArg("f") : "recording-" + System.currentTimeMillis() + ".jfr";
+            data.addProperty("id", Long.parseLong(cmd.getArg("dump")));
+            data.addProperty("gzip", filePath.endsWith(".gz"));
+            receiveProfilerStream(connector, request.setType(RpcType.JVMM_PROFILER_JFR_DUMP).setData(data), filePath, 600);
+            return;
+        } else if (cmd.hasArg("summary")) {
+            printJfrSummary(connector, Long.parseLong(cmd.getArg("summary")), cmd.hasArg("top") ? Integer.parseInt(cmd.getArg("top")) : 10);
+            return;
+        } else {
+            request.setType(RpcType.JVMM_PROFILER_JFR_LIST);
+        }
+
+        JvmmResponse response = request(connector, request.setData(data), 10, TimeUnit.SECONDS);
+        if (response == null) {
+            return;
+        }
+        if (request.getType() == RpcType.JVMM_PROFILER_JFR_CLOSE) {
+            System.out.println(response.getData().getAsString());
+            return;
+        }
+        Gson gson = StringUtil.getGson();
+        JsonArray array = new JsonArray();
+        if (response.getData().isJsonArray()) {
+            array = response.getData().getAsJsonArray();
+        } else {
+            array.add(response.getData());
+        }
+        TableFormatter table = new TableFormatter();
+        table.setHead("ID", "Name", "State", "Start", "Stop", "Duration(ms)", "Size(bytes)", "Managed");
+        for (JsonElement json : array) {
+            JfrRecordingInfo info = gson.fromJson(json, JfrRecordingInfo.class);
+            table.addRow(
+                    String.valueOf(info.getId()),
+                    info.getName(),
+                    info.getState(),
+                    info.getStartTime() > 0 ? String.valueOf(info.getStartTime()) : "-",
+                    info.getStopTime() > 0 ? String.valueOf(info.getStopTime()) : "-",
+                    info.getDuration() > 0 ? String.valueOf(info.getDuration()) : "-",
+                    String.valueOf(info.getSize()),
+                    String.valueOf(info.isManaged())
+            );
+        }
+        System.out.println(table);
+    }
+
+    private static void printJfrSummary(JvmmConnector connector, long id, int top) {
+        JsonObject data = new JsonObject();
+        data.addProperty("id", id);
+        data.addProperty("top", top);
+        JvmmResponse response = request(connector, JvmmRequest.create().setType(RpcType.JVMM_PROFILER_JFR_SUMMARY).setData(data), 120, TimeUnit.SECONDS);
+        if (response == null) {
+            return;
+        }
+        JfrSummaryInfo info = StringUtil.getGson().fromJson(response.getData(), JfrSummaryInfo.class);
+        System.out.printf("Recording: %d, events: %d, from %d to %d%n", info.getRecordingId(), info.getEvents(), info.getStartTime(), info.getEndTime());
+        if (info.isTruncated()) {
+            System.out.println("Too many distinct entries, low-volume entries were evicted and the result is approximate");
+        }
+        System.out.println();
+
+        TableFormatter allocations = new TableFormatter();
+        allocations.setHead("Object Class", "Frame", "Count", "Bytes");
+        for (JfrSummaryInfo.AllocationSite site : info.getAllocations()) {
+            allocations.addRow(site.getObjectClass(), site.getFrame(), String.valueOf(site.getCount()), String.valueOf(site.getBytes()));
+        }
+        System.out.println("Top allocation sites:");
+        System.out.println(allocations);
+
+        TableFormatter monitors = new TableFormatter();
+        monitors.setHead("Monitor Class", "Frame", "Count", "Total(ms)", "Max(ms)");
+        for (JfrSummaryInfo.MonitorSite site : info.getMonitors()) {
+            monitors.addRow(site.getMonitorClass(), site.getFrame(), String.valueOf(site.getCount()),
+                    formatNanos(site.getTotalTime()), formatNanos(site.getMaxTime()));
+        }
+        System.out.println("Top contended monitors:");
+        System.out.println(monitors);
+
+        TableFormatter gcPhases = new TableFormatter();
+        gcPhases.setHead("Event", "Name", "Count", "Total(ms)", "Max(ms)");
+        for (JfrSummaryInfo.GcPhase phase : info.getGcPhases()) {
+            gcPhases.addRow(phase.getEvent(), phase.getName(), String.valueOf(phase.getCount()),
+                    formatNanos(phase.getTotalTime()), formatNanos(phase.getMaxTime()));
+        }
+        System.out.println("GC phase times:");
+        System.out.println(gcPhases);
+
+        TableFormatter sockets = new TableFormatter();
+        sockets.setHead("Address", "Operation", "Count", "Bytes", "Total(ms)");
+        for (JfrSummaryInfo.SocketSite site : info.getSockets()) {
+            sockets.addRow(site.getAddress(), site.getOperation(), String.valueOf(site.getCount()),
+                    String.valueOf(site.getBytes()), formatNanos(site.getTotalTime()));
+        }
+        System.out.println("Socket I/O:");
+        System.out.println(sockets);
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format("%.3f", nanos / 1000000.0);
+    }
 
     @JvmmOptions({
             @JvmmOption(
@@ -917,4 +1500,58 @@ public class ServerServiceImpl extends ServerService {
             table.print();
         }
     }
+
+    @Order(9)
+    @JvmmOptions({
+            @JvmmOption(
+                    name = "f",
+                    argName = "file",
+                    order = 1,
+                    desc = "Output file path, the content is gzip compressed hprof. Default is `heap-<timestamp>.hprof.gz` in the current directory"
+            ),
+            @JvmmOption(
+                    name = "all",
+                    order = 2,
+                    desc = "Dump all objects including unreachable ones. If not filled, only live objects are dumped and a full gc will be triggered"
+            )
+    })
+    @JvmmCmdDesc(
+            headDesc = "Dump the server's heap and download it with gzip compression.",
+            tailDesc = "eg 1: `heapdump`\n" +
+                    "eg 2: `heapdump -all -f /tmp/heap.hprof.gz`"
+    )
+    public static void heapdump(JvmmConnector connector, CmdParser cmd) {
+        File file = new File(cmd.getArg("f", "heap-" + System.currentTimeMillis() + ".hprof.gz"));
+        if (file.getParentFile() != null && !file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        JsonObject data = new JsonObject();
+        data.addProperty("all", cmd.hasArg("all"));
+        JvmmRequest request = JvmmRequest.create().setType(RpcType.JVMM_EXECUTE_DUMP_HEAP).setData(data);
+        try (OutputStream os = new FileOutputStream(file)) {
+            long[] received = new long[1];
+            connector.sendForStream(request, response -> {
+                try {
+                    //  二进制分块以 base64 编码传输
+                    byte[] chunk = Base64.getDecoder().decode(response.getData().getAsString());
+                    os.write(chunk);
+                    received[0] += chunk.length;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }).get(30, TimeUnit.MINUTES);
+            System.out.println("Heap dump has been downloaded to " + file.getAbsolutePath() + ", size " + received[0] + " bytes");
+        } catch (ExecutionException e) {
+            file.delete();
+            Throwable cause = e.getCause();
+            if (cause instanceof RpcStatusException) {
+                printErr(String.format("Wrong response status: '%s', msg: %s", ((RpcStatusException) cause).getStatus(), cause.getMessage()));
+            } else {
+                printErr("Request failed: " + cause.getMessage());
+            }
+        } catch (Exception e) {
+            file.delete();
+            printErr("Request failed: " + e.getMessage());
+        }
+    }
 }
@@ -6,9 +6,13 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.beifengtz.jvmm.common.util.StringUtil;
 import org.beifengtz.jvmm.common.util.SystemPropertyUtil;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -22,6 +26,8 @@ public class ExecutorFactory {
 
     private static volatile ScheduledExecutorService SCHEDULE_THREAD_POOL;
     private static volatile EventLoopGroup IO_THREAD_POOL;
+    private static volatile ExecutorService COLLECT_THREAD_POOL;
+    private static volatile ExecutorService STREAM_THREAD_POOL;
 
     private static ThreadFactory getThreadFactory(String name) {
         return new DefaultThreadFactory(StringUtil.isEmpty(name) ? "jvmm" : name);
@@ -46,6 +52,40 @@ public class ExecutorFactory {
         return SCHEDULE_THREAD_POOL;
     }
 
+    /**
+     * 并行执行采集项的有界线程池，队列满时拒绝提交，避免卡住的采集项无限堆积
+     */
+    public static ExecutorService getCollectThreadPool() {
+        if (COLLECT_THREAD_POOL == null) {
+            synchronized (ExecutorFactory.class) {
+                if (COLLECT_THREAD_POOL == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(getNThreads(), getNThreads(), 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(1024), getThreadFactory("jvmm-collect"));
+                    pool.allowCoreThreadTimeOut(true);
+                    COLLECT_THREAD_POOL = pool;
+                }
+            }
+        }
+        return COLLECT_THREAD_POOL;
+    }
+
+    /**
+     * 执行流式传输的有界线程池，传输会阻塞等待 channel 可写，可能持续数分钟，与定时任务、采集任务隔离，队列满时拒绝提交
+     */
+    public static ExecutorService getStreamThreadPool() {
+        if (STREAM_THREAD_POOL == null) {
+            synchronized (ExecutorFactory.class) {
+                if (STREAM_THREAD_POOL == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(getNThreads(), getNThreads(), 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(64), getThreadFactory("jvmm-stream"));
+                    pool.allowCoreThreadTimeOut(true);
+                    STREAM_THREAD_POOL = pool;
+                }
+            }
+        }
+        return STREAM_THREAD_POOL;
+    }
+
     public static EventLoopGroup getIOThreadPool() {
         if (IO_THREAD_POOL == null) {
             synchronized (ExecutorFactory.class) {
@@ -65,6 +105,16 @@ public class ExecutorFactory {
             InternalLoggerFactory.getInstance(ExecutorFactory.class).info("Jvmm thread pool has been shutdown");
         }
 
+        if (COLLECT_THREAD_POOL != null) {
+            COLLECT_THREAD_POOL.shutdown();
+            COLLECT_THREAD_POOL = null;
+        }
+
+        if (STREAM_THREAD_POOL != null) {
+            STREAM_THREAD_POOL.shutdown();
+            STREAM_THREAD_POOL = null;
+        }
+
         if (IO_THREAD_POOL != null) {
             IO_THREAD_POOL.shutdownGracefully();
             SCHEDULE_THREAD_POOL = null;
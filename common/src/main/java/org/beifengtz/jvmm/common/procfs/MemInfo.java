@@ -0,0 +1,73 @@
+package org.beifengtz.jvmm.common.procfs;
+
+/**
+ * <p>
+ * Description: /proc/meminfo 中的内存信息，单位均为 bytes
+ * </p>
+ * <p>
+ * Created in 14:20 2023/10/18
+ *
+ * @author beifengtz
+ */
+public class MemInfo {
+    long total;
+    long free;
+    long available;
+    long buffers;
+    long cached;
+    long sReclaimable;
+    long shmem;
+    long swapTotal;
+    long swapFree;
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getFree() {
+        return free;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+
+    public long getBuffers() {
+        return buffers;
+    }
+
+    public long getCached() {
+        return cached;
+    }
+
+    public long getSReclaimable() {
+        return sReclaimable;
+    }
+
+    public long getShmem() {
+        return shmem;
+    }
+
+    public long getSwapTotal() {
+        return swapTotal;
+    }
+
+    public long getSwapFree() {
+        return swapFree;
+    }
+
+    /**
+     * @return 与 free 命令一致的 buff/cache 大小
+     */
+    public long getBuffCache() {
+        return buffers + cached + sReclaimable;
+    }
+
+    /**
+     * @return 与 free 命令一致的 used 大小
+     */
+    public long getUsed() {
+        long used = total - free - getBuffCache();
+        return used < 0 ? total - free : used;
+    }
+}
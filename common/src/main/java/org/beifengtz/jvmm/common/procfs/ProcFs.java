@@ -0,0 +1,579 @@
+package org.beifengtz.jvmm.common.procfs;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.util.PlatformUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * <p>
+ * Description: Linux procfs 读取入口，直接读取 /proc 下的文件获取系统与进程指标，避免 fork 子进程执行 free、netstat、lsof 等命令。
+ * </p>
+ * <p>
+ * 所有读取共享同一个 {@link ProcFsReader}，方法之间互斥执行；调用方可以传入结果对象复用，解析过程不产生额外对象。
+ * 非 Linux 平台 {@link #isSupported()} 返回 false，调用方需要自行降级。
+ * </p>
+ * <p>
+ * Created in 14:30 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class ProcFs {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ProcFs.class);
+
+    private static final String PROC_MEMINFO = "/proc/meminfo";
+    private static final String PROC_NET_TCP = "/proc/net/tcp";
+    private static final String PROC_NET_TCP6 = "/proc/net/tcp6";
+    private static final String PROC_NET_UDP = "/proc/net/udp";
+    private static final String PROC_NET_UDP6 = "/proc/net/udp6";
+    private static final String PROC_NET_SNMP = "/proc/net/snmp";
+    private static final String PROC_NET_SNMP6 = "/proc/net/snmp6";
+    private static final String PROC_NET_SOCKSTAT = "/proc/net/sockstat";
+    private static final String PROC_NET_SOCKSTAT6 = "/proc/net/sockstat6";
+    private static final String PROC_SELF_STAT = "/proc/self/stat";
+    private static final String PROC_SELF_STATUS = "/proc/self/status";
+    private static final String PROC_SELF_IO = "/proc/self/io";
+
+    /**
+     * /proc/net/tcp 中 LISTEN 状态的值
+     */
+    private static final int TCP_LISTEN = 0x0A;
+
+    private static final boolean supported = PlatformUtil.isLinux() && new File(PROC_MEMINFO).canRead();
+
+    private static final ProcFsReader reader = new ProcFsReader();
+    private static final MemInfoHandler memInfoHandler = new MemInfoHandler();
+    private static final StatHandler statHandler = new StatHandler();
+    private static final StatusHandler statusHandler = new StatusHandler();
+    private static final IOHandler ioHandler = new IOHandler();
+    private static final ListenInodeHandler listenInodeHandler = new ListenInodeHandler();
+    private static final ConnectionHandler connectionHandler = new ConnectionHandler();
+    private static final SnmpHandler snmpHandler = new SnmpHandler();
+    private static final SockStatHandler sockStatHandler = new SockStatHandler();
+
+    private ProcFs() {
+    }
+
+    /**
+     * @return 当前平台是否支持读取 procfs
+     */
+    public static boolean isSupported() {
+        return supported;
+    }
+
+    public static MemInfo readMemInfo() throws IOException {
+        return readMemInfo(new MemInfo());
+    }
+
+    /**
+     * 读取 /proc/meminfo
+     *
+     * @param info 复用的结果对象
+     * @return 传入的结果对象
+     * @throws IOException 读取失败
+     */
+    public static synchronized MemInfo readMemInfo(MemInfo info) throws IOException {
+        memInfoHandler.target = info;
+        try {
+            reader.forEachLine(PROC_MEMINFO, memInfoHandler);
+        } finally {
+            memInfoHandler.target = null;
+        }
+        return info;
+    }
+
+    public static ProcStat readSelfStat() throws IOException {
+        return readSelfStat(new ProcStat());
+    }
+
+    /**
+     * 读取当前进程的 /proc/self/stat
+     *
+     * @param stat 复用的结果对象
+     * @return 传入的结果对象
+     * @throws IOException 读取失败
+     */
+    public static synchronized ProcStat readSelfStat(ProcStat stat) throws IOException {
+        statHandler.target = stat;
+        try {
+            reader.forEachLine(PROC_SELF_STAT, statHandler);
+        } finally {
+            statHandler.target = null;
+        }
+        return stat;
+    }
+
+    public static ProcStatus readSelfStatus() throws IOException {
+        return readSelfStatus(new ProcStatus());
+    }
+
+    /**
+     * 读取当前进程的 /proc/self/status
+     *
+     * @param status 复用的结果对象
+     * @return 传入的结果对象
+     * @throws IOException 读取失败
+     */
+    public static synchronized ProcStatus readSelfStatus(ProcStatus status) throws IOException {
+        statusHandler.target = status;
+        try {
+            reader.forEachLine(PROC_SELF_STATUS, statusHandler);
+        } finally {
+            statusHandler.target = null;
+        }
+        return status;
+    }
+
+    public static ProcIO readSelfIO() throws IOException {
+        return readSelfIO(new ProcIO());
+    }
+
+    /**
+     * 读取当前进程的 /proc/self/io，部分内核或容器环境下没有读取权限
+     *
+     * @param io 复用的结果对象
+     * @return 传入的结果对象
+     * @throws IOException 读取失败
+     */
+    public static synchronized ProcIO readSelfIO(ProcIO io) throws IOException {
+        ioHandler.target = io;
+        try {
+            reader.forEachLine(PROC_SELF_IO, ioHandler);
+        } finally {
+            ioHandler.target = null;
+        }
+        return io;
+    }
+
+    public static ProcNetStat readNetStat() throws IOException {
+        return readNetStat(new ProcNetStat());
+    }
+
+    /**
+     * 逐行扫描 /proc/net 下的连接表和协议计数，连接按协议和状态累加到原始类型计数器中，不为单个连接创建对象。
+     * 未开启 IPv6 时对应的文件不存在，相关计数为0。
+     *
+     * @param stat 复用的结果对象，读取前会被清零
+     * @return 传入的结果对象
+     * @throws IOException 读取失败
+     */
+    public static synchronized ProcNetStat readNetStat(ProcNetStat stat) throws IOException {
+        stat.reset();
+        connectionHandler.target = stat;
+        snmpHandler.target = stat;
+        sockStatHandler.target = stat;
+        try {
+            connectionHandler.tcp = true;
+            connectionHandler.v6 = false;
+            reader.forEachLine(PROC_NET_TCP, connectionHandler);
+            connectionHandler.v6 = true;
+            forEachLineIfExists(PROC_NET_TCP6, connectionHandler);
+            connectionHandler.tcp = false;
+            connectionHandler.v6 = false;
+            forEachLineIfExists(PROC_NET_UDP, connectionHandler);
+            connectionHandler.v6 = true;
+            forEachLineIfExists(PROC_NET_UDP6, connectionHandler);
+
+            snmpHandler.tcpValues = false;
+            snmpHandler.udpValues = false;
+            forEachLineIfExists(PROC_NET_SNMP, snmpHandler);
+            forEachLineIfExists(PROC_NET_SNMP6, snmpHandler);
+            forEachLineIfExists(PROC_NET_SOCKSTAT, sockStatHandler);
+            forEachLineIfExists(PROC_NET_SOCKSTAT6, sockStatHandler);
+        } finally {
+            connectionHandler.target = null;
+            snmpHandler.target = null;
+            sockStatHandler.target = null;
+        }
+        return stat;
+    }
+
+    private static void forEachLineIfExists(String path, ProcFsReader.LineHandler handler) throws IOException {
+        if (new File(path).exists()) {
+            reader.forEachLine(path, handler);
+        }
+    }
+
+    /**
+     * 在 /proc/net/tcp 和 /proc/net/tcp6 中查找监听指定端口的 socket inode
+     *
+     * @param port 端口
+     * @return socket inode，未找到返回-1
+     * @throws IOException 读取失败
+     */
+    public static synchronized long findListenSocketInode(int port) throws IOException {
+        listenInodeHandler.port = port;
+        listenInodeHandler.inode = -1;
+        reader.forEachLine(PROC_NET_TCP, listenInodeHandler);
+        if (listenInodeHandler.inode < 0 && new File(PROC_NET_TCP6).exists()) {
+            reader.forEachLine(PROC_NET_TCP6, listenInodeHandler);
+        }
+        return listenInodeHandler.inode;
+    }
+
+    /**
+     * 遍历 /proc/[pid]/fd 查找持有指定 socket inode 的进程，优先检查当前进程。
+     * 没有权限访问的进程会被跳过，因此返回-1并不代表 socket 一定没有被其他进程持有。
+     *
+     * @param inode socket inode
+     * @return 进程pid，未找到返回-1
+     */
+    public static long findPidBySocketInode(long inode) {
+        String target = "socket:[" + inode + "]";
+        Path self = Paths.get("/proc/self");
+        if (holdsSocket(self.resolve("fd"), target)) {
+            try {
+                return Long.parseLong(Files.readSymbolicLink(self).toString());
+            } catch (IOException | NumberFormatException ignored) {
+            }
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("/proc"))) {
+            for (Path proc : stream) {
+                String name = proc.getFileName().toString();
+                if (!isNumeric(name)) {
+                    continue;
+                }
+                if (holdsSocket(proc.resolve("fd"), target)) {
+                    return Long.parseLong(name);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Scan /proc for socket inode failed: {}", e.getMessage());
+        }
+        return -1;
+    }
+
+    private static boolean holdsSocket(Path fdDir, String target) {
+        try (DirectoryStream<Path> fds = Files.newDirectoryStream(fdDir)) {
+            for (Path fd : fds) {
+                try {
+                    if (target.equals(Files.readSymbolicLink(fd).toString())) {
+                        return true;
+                    }
+                } catch (IOException ignored) {
+                }
+            }
+        } catch (IOException | SecurityException ignored) {
+        }
+        return false;
+    }
+
+    private static boolean isNumeric(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class MemInfoHandler implements ProcFsReader.LineHandler {
+        private static final byte[] MEM_TOTAL = key("MemTotal:");
+        private static final byte[] MEM_FREE = key("MemFree:");
+        private static final byte[] MEM_AVAILABLE = key("MemAvailable:");
+        private static final byte[] BUFFERS = key("Buffers:");
+        private static final byte[] CACHED = key("Cached:");
+        private static final byte[] S_RECLAIMABLE = key("SReclaimable:");
+        private static final byte[] SHMEM = key("Shmem:");
+        private static final byte[] SWAP_TOTAL = key("SwapTotal:");
+        private static final byte[] SWAP_FREE = key("SwapFree:");
+
+        private MemInfo target;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            if (line.startsWith(MEM_TOTAL)) {
+                target.total = line.nextLong() << 10;
+            } else if (line.startsWith(MEM_FREE)) {
+                target.free = line.nextLong() << 10;
+            } else if (line.startsWith(MEM_AVAILABLE)) {
+                target.available = line.nextLong() << 10;
+            } else if (line.startsWith(BUFFERS)) {
+                target.buffers = line.nextLong() << 10;
+            } else if (line.startsWith(CACHED)) {
+                target.cached = line.nextLong() << 10;
+            } else if (line.startsWith(S_RECLAIMABLE)) {
+                target.sReclaimable = line.nextLong() << 10;
+            } else if (line.startsWith(SHMEM)) {
+                target.shmem = line.nextLong() << 10;
+            } else if (line.startsWith(SWAP_TOTAL)) {
+                target.swapTotal = line.nextLong() << 10;
+            } else if (line.startsWith(SWAP_FREE)) {
+                target.swapFree = line.nextLong() << 10;
+            }
+            return true;
+        }
+    }
+
+    private static final class StatHandler implements ProcFsReader.LineHandler {
+        private ProcStat target;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            //  进程名中可能包含空格和括号，从最后一个 ')' 之后开始解析，此时第一个字段为 state（第3个字段）
+            line.skipPastLast(')');
+            line.skipTokens(7);
+            target.minorFaults = line.nextLong();
+            line.skipToken();
+            target.majorFaults = line.nextLong();
+            line.skipToken();
+            target.userTicks = line.nextLong();
+            target.systemTicks = line.nextLong();
+            line.skipTokens(4);
+            target.threads = line.nextLong();
+            line.skipToken();
+            target.startTicks = line.nextLong();
+            target.virtualSize = line.nextLong();
+            target.residentPages = line.nextLong();
+            return false;
+        }
+    }
+
+    private static final class StatusHandler implements ProcFsReader.LineHandler {
+        private static final byte[] VM_PEAK = key("VmPeak:");
+        private static final byte[] VM_SIZE = key("VmSize:");
+        private static final byte[] VM_HWM = key("VmHWM:");
+        private static final byte[] VM_RSS = key("VmRSS:");
+        private static final byte[] VM_SWAP = key("VmSwap:");
+        private static final byte[] THREADS = key("Threads:");
+        private static final byte[] VOLUNTARY = key("voluntary_ctxt_switches:");
+        private static final byte[] NONVOLUNTARY = key("nonvoluntary_ctxt_switches:");
+
+        private ProcStatus target;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            if (line.startsWith(VM_PEAK)) {
+                target.vmPeak = line.nextLong() << 10;
+            } else if (line.startsWith(VM_SIZE)) {
+                target.vmSize = line.nextLong() << 10;
+            } else if (line.startsWith(VM_HWM)) {
+                target.vmHWM = line.nextLong() << 10;
+            } else if (line.startsWith(VM_RSS)) {
+                target.vmRSS = line.nextLong() << 10;
+            } else if (line.startsWith(VM_SWAP)) {
+                target.vmSwap = line.nextLong() << 10;
+            } else if (line.startsWith(THREADS)) {
+                target.threads = line.nextLong();
+            } else if (line.startsWith(VOLUNTARY)) {
+                target.voluntaryCtxtSwitches = line.nextLong();
+            } else if (line.startsWith(NONVOLUNTARY)) {
+                target.nonvoluntaryCtxtSwitches = line.nextLong();
+            }
+            return true;
+        }
+    }
+
+    private static final class IOHandler implements ProcFsReader.LineHandler {
+        private static final byte[] RCHAR = key("rchar:");
+        private static final byte[] WCHAR = key("wchar:");
+        private static final byte[] SYSCR = key("syscr:");
+        private static final byte[] SYSCW = key("syscw:");
+        private static final byte[] READ_BYTES = key("read_bytes:");
+        private static final byte[] WRITE_BYTES = key("write_bytes:");
+
+        private ProcIO target;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            if (line.startsWith(RCHAR)) {
+                target.readChars = line.nextLong();
+            } else if (line.startsWith(WCHAR)) {
+                target.writeChars = line.nextLong();
+            } else if (line.startsWith(SYSCR)) {
+                target.readSyscalls = line.nextLong();
+            } else if (line.startsWith(SYSCW)) {
+                target.writeSyscalls = line.nextLong();
+            } else if (line.startsWith(READ_BYTES)) {
+                target.readBytes = line.nextLong();
+            } else if (line.startsWith(WRITE_BYTES)) {
+                target.writeBytes = line.nextLong();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 解析 /proc/net/tcp{,6} 的行：
+     * <pre>
+     *   sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode
+     *    0: 0100007F:1F90 00000000:0000 0A 00000000:00000000 00:00000000 00000000  1000        0 12345 ...
+     * </pre>
+     */
+    private static final class ListenInodeHandler implements ProcFsReader.LineHandler {
+        private static final byte[] HEADER = key("  sl");
+
+        private int port;
+        private long inode;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            if (line.startsWith(HEADER)) {
+                return true;
+            }
+            line.skipPast(':');
+            line.skipPast(':');
+            long localPort = line.nextHexLong();
+            line.skipPast(':');
+            line.skipToken();
+            long state = line.nextHexLong();
+            if (localPort != port || state != TCP_LISTEN) {
+                return true;
+            }
+            line.skipTokens(5);
+            inode = line.nextLong();
+            return false;
+        }
+    }
+
+    /**
+     * 解析 /proc/net/{tcp,tcp6,udp,udp6} 的行，只读取第4列的状态，表头行不包含 ':'
+     */
+    private static final class ConnectionHandler implements ProcFsReader.LineHandler {
+        private ProcNetStat target;
+        private boolean tcp;
+        private boolean v6;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            line.skipPast(':');
+            if (!line.hasRemaining()) {
+                return true;
+            }
+            if (tcp) {
+                long state = line.skipTokens(2).nextHexLong();
+                if (state >= 0 && state < ProcNetStat.TCP_MAX_STATES) {
+                    target.tcpStates[(int) state]++;
+                }
+                if (v6) {
+                    target.tcpV6Connections++;
+                } else {
+                    target.tcpV4Connections++;
+                }
+            } else if (v6) {
+                target.udpV6Connections++;
+            } else {
+                target.udpV4Connections++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 解析 /proc/net/snmp 的 Tcp、Udp 行和 /proc/net/snmp6 的 Udp6 行。
+     * snmp 中每个协议由一行表头和一行数值组成，内核只会在末尾追加新列，因此按固定列序读取：
+     * <pre>
+     * Tcp: RtoAlgorithm RtoMin RtoMax MaxConn ActiveOpens PassiveOpens AttemptFails EstabResets CurrEstab InSegs OutSegs RetransSegs InErrs OutRsts ...
+     * Udp: InDatagrams NoPorts InErrors OutDatagrams ...
+     * </pre>
+     */
+    private static final class SnmpHandler implements ProcFsReader.LineHandler {
+        private static final byte[] TCP = key("Tcp:");
+        private static final byte[] UDP = key("Udp:");
+        private static final byte[] UDP6_IN_DATAGRAMS = key("Udp6InDatagrams");
+        private static final byte[] UDP6_NO_PORTS = key("Udp6NoPorts");
+        private static final byte[] UDP6_IN_ERRORS = key("Udp6InErrors");
+        private static final byte[] UDP6_OUT_DATAGRAMS = key("Udp6OutDatagrams");
+
+        private ProcNetStat target;
+        /**
+         * 下一行同名协议行是否为数值行
+         */
+        private boolean tcpValues;
+        private boolean udpValues;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            if (line.startsWith(TCP)) {
+                if (tcpValues) {
+                    line.skipToken().skipTokens(4);
+                    target.activeOpens = line.nextLong();
+                    target.passiveOpens = line.nextLong();
+                    target.attemptFails = line.nextLong();
+                    target.estabResets = line.nextLong();
+                    target.currEstab = line.nextLong();
+                    target.inSegs = line.nextLong();
+                    target.outSegs = line.nextLong();
+                    target.retransSegs = line.nextLong();
+                    target.inErrs = line.nextLong();
+                    target.outRsts = line.nextLong();
+                }
+                tcpValues = !tcpValues;
+            } else if (line.startsWith(UDP)) {
+                if (udpValues) {
+                    target.udpInDatagrams = line.nextLong();
+                    target.udpNoPorts = line.nextLong();
+                    target.udpInErrors = line.nextLong();
+                    target.udpOutDatagrams = line.nextLong();
+                }
+                udpValues = !udpValues;
+            } else if (line.startsWith(UDP6_IN_DATAGRAMS)) {
+                target.udp6InDatagrams = line.skipToken().nextLong();
+            } else if (line.startsWith(UDP6_NO_PORTS)) {
+                target.udp6NoPorts = line.skipToken().nextLong();
+            } else if (line.startsWith(UDP6_IN_ERRORS)) {
+                target.udp6InErrors = line.skipToken().nextLong();
+            } else if (line.startsWith(UDP6_OUT_DATAGRAMS)) {
+                target.udp6OutDatagrams = line.skipToken().nextLong();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 解析 /proc/net/sockstat{,6}：
+     * <pre>
+     * sockets: used 24
+     * TCP: inuse 10 orphan 0 tw 0 alloc 10 mem 0
+     * UDP: inuse 0 mem 0
+     * TCP6: inuse 0
+     * UDP6: inuse 0
+     * </pre>
+     */
+    private static final class SockStatHandler implements ProcFsReader.LineHandler {
+        private static final byte[] SOCKETS = key("sockets:");
+        private static final byte[] TCP = key("TCP:");
+        private static final byte[] UDP = key("UDP:");
+        private static final byte[] TCP6 = key("TCP6:");
+        private static final byte[] UDP6 = key("UDP6:");
+
+        private ProcNetStat target;
+
+        @Override
+        public boolean onLine(ProcFsReader line) {
+            if (line.startsWith(SOCKETS)) {
+                target.socketsUsed = line.nextLong();
+            } else if (line.startsWith(TCP)) {
+                target.tcpInUse = line.nextLong();
+                target.tcpOrphan = line.nextLong();
+                target.tcpTimeWait = line.nextLong();
+                target.tcpAlloc = line.nextLong();
+                target.tcpMemPages = line.nextLong();
+            } else if (line.startsWith(UDP)) {
+                target.udpInUse = line.nextLong();
+                target.udpMemPages = line.nextLong();
+            } else if (line.startsWith(TCP6)) {
+                target.tcp6InUse = line.skipToken().nextLong();
+            } else if (line.startsWith(UDP6)) {
+                target.udp6InUse = line.skipToken().nextLong();
+            }
+            return true;
+        }
+    }
+}
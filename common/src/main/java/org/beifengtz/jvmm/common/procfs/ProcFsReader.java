@@ -0,0 +1,238 @@
+package org.beifengtz.jvmm.common.procfs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * Description: procfs 文件读取器，使用可复用的直接内存缓冲区按行流式读取，并在当前行上提供不产生对象分配的数字解析方法。
+ * </p>
+ * <p>
+ * 实例不是线程安全的，同一个实例同一时间只能被一个线程使用。
+ * </p>
+ * <p>
+ * Created in 14:05 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class ProcFsReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * 行处理器
+     */
+    public interface LineHandler {
+        /**
+         * @param line 当前行游标，仅在本次回调中有效
+         * @return true-继续读取下一行 false-停止读取
+         */
+        boolean onLine(ProcFsReader line);
+    }
+
+    private final ByteBuffer buffer;
+    private int lineEnd;
+    private int pos;
+
+    public ProcFsReader() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public ProcFsReader(int bufferSize) {
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * 逐行读取文件，单行长度不能超过缓冲区大小，超出部分会被截断
+     *
+     * @param path    文件路径
+     * @param handler 行处理器
+     * @throws IOException 文件读取失败
+     */
+    public void forEachLine(String path, LineHandler handler) throws IOException {
+        forEachLine(Paths.get(path), handler);
+    }
+
+    public void forEachLine(Path path, LineHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer.clear();
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(buffer) < 0;
+                buffer.flip();
+                int start = 0;
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    if (buffer.get(i) == '\n') {
+                        if (!dispatch(handler, start, i)) {
+                            return;
+                        }
+                        start = i + 1;
+                    }
+                }
+                if (eof) {
+                    if (start < limit) {
+                        dispatch(handler, start, limit);
+                    }
+                } else if (start == 0 && limit == buffer.capacity()) {
+                    //  单行超出缓冲区，截断处理
+                    if (!dispatch(handler, 0, limit)) {
+                        return;
+                    }
+                    buffer.clear();
+                } else {
+                    buffer.position(start);
+                    buffer.compact();
+                }
+            }
+        }
+    }
+
+    private boolean dispatch(LineHandler handler, int start, int end) {
+        this.pos = start;
+        this.lineEnd = end;
+        return handler.onLine(this);
+    }
+
+    /**
+     * 当前行剩余部分是否以指定内容开头，不会移动游标
+     */
+    public boolean startsWith(byte[] prefix) {
+        if (lineEnd - pos < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(pos + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasRemaining() {
+        return pos < lineEnd;
+    }
+
+    /**
+     * 跳过空白字符后再跳过一个token
+     */
+    public ProcFsReader skipToken() {
+        skipSpaces();
+        while (pos < lineEnd && !isSpace(buffer.get(pos))) {
+            pos++;
+        }
+        return this;
+    }
+
+    public ProcFsReader skipTokens(int n) {
+        for (int i = 0; i < n; i++) {
+            skipToken();
+        }
+        return this;
+    }
+
+    /**
+     * 将游标移动到当前行最后一个指定字符之后，未找到时游标不变
+     */
+    public ProcFsReader skipPastLast(char c) {
+        for (int i = lineEnd - 1; i >= pos; i--) {
+            if (buffer.get(i) == c) {
+                pos = i + 1;
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 将游标移动到下一个指定字符之后，未找到时移动到行尾
+     */
+    public ProcFsReader skipPast(char c) {
+        while (pos < lineEnd) {
+            if (buffer.get(pos++) == c) {
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 跳过非数字字符后解析一个十进制数
+     *
+     * @return 解析结果，行内没有数字时返回-1
+     */
+    public long nextLong() {
+        while (pos < lineEnd) {
+            byte b = buffer.get(pos);
+            if ((b >= '0' && b <= '9') || b == '-') {
+                break;
+            }
+            pos++;
+        }
+        if (pos >= lineEnd) {
+            return -1;
+        }
+        boolean negative = buffer.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        while (pos < lineEnd) {
+            byte b = buffer.get(pos);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * 跳过空白和分隔符后解析一个十六进制数
+     *
+     * @return 解析结果，行内没有十六进制数时返回-1
+     */
+    public long nextHexLong() {
+        while (pos < lineEnd && hexValue(buffer.get(pos)) < 0) {
+            pos++;
+        }
+        if (pos >= lineEnd) {
+            return -1;
+        }
+        long value = 0;
+        int v;
+        while (pos < lineEnd && (v = hexValue(buffer.get(pos))) >= 0) {
+            value = (value << 4) | v;
+            pos++;
+        }
+        return value;
+    }
+
+    private void skipSpaces() {
+        while (pos < lineEnd && isSpace(buffer.get(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        return -1;
+    }
+}
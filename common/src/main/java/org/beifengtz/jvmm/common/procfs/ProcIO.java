@@ -0,0 +1,43 @@
+package org.beifengtz.jvmm.common.procfs;
+
+/**
+ * <p>
+ * Description: /proc/[pid]/io 中的进程IO统计信息
+ * </p>
+ * <p>
+ * Created in 14:26 2023/10/18
+ *
+ * @author beifengtz
+ */
+public class ProcIO {
+    long readChars;
+    long writeChars;
+    long readSyscalls;
+    long writeSyscalls;
+    long readBytes;
+    long writeBytes;
+
+    public long getReadChars() {
+        return readChars;
+    }
+
+    public long getWriteChars() {
+        return writeChars;
+    }
+
+    public long getReadSyscalls() {
+        return readSyscalls;
+    }
+
+    public long getWriteSyscalls() {
+        return writeSyscalls;
+    }
+
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    public long getWriteBytes() {
+        return writeBytes;
+    }
+}
@@ -0,0 +1,264 @@
+package org.beifengtz.jvmm.common.procfs;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Description: 由 /proc/net/{tcp,tcp6,udp,udp6}、/proc/net/snmp、/proc/net/snmp6、/proc/net/sockstat{,6} 汇总的网络连接统计。
+ * 连接只按协议和状态计数，不保存单个连接的信息。
+ * </p>
+ * <p>
+ * Created in 10:20 2023/10/20
+ *
+ * @author beifengtz
+ */
+public class ProcNetStat {
+    /**
+     * 内核 TCP 状态值，见 include/net/tcp_states.h
+     */
+    public static final int TCP_ESTABLISHED = 1;
+    public static final int TCP_SYN_SENT = 2;
+    public static final int TCP_SYN_RECV = 3;
+    public static final int TCP_FIN_WAIT1 = 4;
+    public static final int TCP_FIN_WAIT2 = 5;
+    public static final int TCP_TIME_WAIT = 6;
+    public static final int TCP_CLOSE = 7;
+    public static final int TCP_CLOSE_WAIT = 8;
+    public static final int TCP_LAST_ACK = 9;
+    public static final int TCP_LISTEN = 10;
+    public static final int TCP_CLOSING = 11;
+    public static final int TCP_NEW_SYN_RECV = 12;
+    public static final int TCP_MAX_STATES = 16;
+
+    long tcpV4Connections;
+    long tcpV6Connections;
+    long udpV4Connections;
+    long udpV6Connections;
+    /**
+     * 按内核状态值计数的 TCP 连接数（IPv4 + IPv6）
+     */
+    final long[] tcpStates = new long[TCP_MAX_STATES];
+
+    /**
+     * /proc/net/snmp 中的 Tcp 计数，内核中 IPv4 和 IPv6 共用
+     */
+    long activeOpens;
+    long passiveOpens;
+    long attemptFails;
+    long estabResets;
+    long currEstab;
+    long inSegs;
+    long outSegs;
+    long retransSegs;
+    long inErrs;
+    long outRsts;
+
+    /**
+     * /proc/net/snmp 和 /proc/net/snmp6 中的 Udp 计数
+     */
+    long udpInDatagrams;
+    long udpNoPorts;
+    long udpInErrors;
+    long udpOutDatagrams;
+    long udp6InDatagrams;
+    long udp6NoPorts;
+    long udp6InErrors;
+    long udp6OutDatagrams;
+
+    /**
+     * /proc/net/sockstat{,6} 中的 socket 数量，内存单位为页
+     */
+    long socketsUsed;
+    long tcpInUse;
+    long tcpOrphan;
+    long tcpTimeWait;
+    long tcpAlloc;
+    long tcpMemPages;
+    long udpInUse;
+    long udpMemPages;
+    long tcp6InUse;
+    long udp6InUse;
+
+    /**
+     * 清零所有计数，用于复用同一个对象
+     */
+    public ProcNetStat reset() {
+        tcpV4Connections = 0;
+        tcpV6Connections = 0;
+        udpV4Connections = 0;
+        udpV6Connections = 0;
+        activeOpens = 0;
+        passiveOpens = 0;
+        attemptFails = 0;
+        estabResets = 0;
+        currEstab = 0;
+        inSegs = 0;
+        outSegs = 0;
+        retransSegs = 0;
+        inErrs = 0;
+        outRsts = 0;
+        udpInDatagrams = 0;
+        udpNoPorts = 0;
+        udpInErrors = 0;
+        udpOutDatagrams = 0;
+        udp6InDatagrams = 0;
+        udp6NoPorts = 0;
+        udp6InErrors = 0;
+        udp6OutDatagrams = 0;
+        socketsUsed = 0;
+        tcpInUse = 0;
+        tcpOrphan = 0;
+        tcpTimeWait = 0;
+        tcpAlloc = 0;
+        tcpMemPages = 0;
+        udpInUse = 0;
+        udpMemPages = 0;
+        tcp6InUse = 0;
+        udp6InUse = 0;
+        Arrays.fill(tcpStates, 0);
+        return this;
+    }
+
+    /**
+     * @return 所有连接数，包含 TCP 和 UDP
+     */
+    public long getConnections() {
+        return tcpV4Connections + tcpV6Connections + udpV4Connections + udpV6Connections;
+    }
+
+    public long getTcpV4Connections() {
+        return tcpV4Connections;
+    }
+
+    public long getTcpV6Connections() {
+        return tcpV6Connections;
+    }
+
+    public long getUdpV4Connections() {
+        return udpV4Connections;
+    }
+
+    public long getUdpV6Connections() {
+        return udpV6Connections;
+    }
+
+    /**
+     * @param state 内核 TCP 状态值，如 {@link #TCP_ESTABLISHED}
+     * @return 处于该状态的 TCP 连接数
+     */
+    public long getTcpStateCount(int state) {
+        return state < 0 || state >= TCP_MAX_STATES ? 0 : tcpStates[state];
+    }
+
+    public long getActiveOpens() {
+        return activeOpens;
+    }
+
+    public long getPassiveOpens() {
+        return passiveOpens;
+    }
+
+    public long getAttemptFails() {
+        return attemptFails;
+    }
+
+    public long getEstabResets() {
+        return estabResets;
+    }
+
+    public long getCurrEstab() {
+        return currEstab;
+    }
+
+    public long getInSegs() {
+        return inSegs;
+    }
+
+    public long getOutSegs() {
+        return outSegs;
+    }
+
+    public long getRetransSegs() {
+        return retransSegs;
+    }
+
+    public long getInErrs() {
+        return inErrs;
+    }
+
+    public long getOutRsts() {
+        return outRsts;
+    }
+
+    public long getUdpInDatagrams() {
+        return udpInDatagrams;
+    }
+
+    public long getUdpNoPorts() {
+        return udpNoPorts;
+    }
+
+    public long getUdpInErrors() {
+        return udpInErrors;
+    }
+
+    public long getUdpOutDatagrams() {
+        return udpOutDatagrams;
+    }
+
+    public long getUdp6InDatagrams() {
+        return udp6InDatagrams;
+    }
+
+    public long getUdp6NoPorts() {
+        return udp6NoPorts;
+    }
+
+    public long getUdp6InErrors() {
+        return udp6InErrors;
+    }
+
+    public long getUdp6OutDatagrams() {
+        return udp6OutDatagrams;
+    }
+
+    public long getSocketsUsed() {
+        return socketsUsed;
+    }
+
+    public long getTcpInUse() {
+        return tcpInUse;
+    }
+
+    public long getTcpOrphan() {
+        return tcpOrphan;
+    }
+
+    public long getTcpTimeWait() {
+        return tcpTimeWait;
+    }
+
+    public long getTcpAlloc() {
+        return tcpAlloc;
+    }
+
+    public long getTcpMemPages() {
+        return tcpMemPages;
+    }
+
+    public long getUdpInUse() {
+        return udpInUse;
+    }
+
+    public long getUdpMemPages() {
+        return udpMemPages;
+    }
+
+    public long getTcp6InUse() {
+        return tcp6InUse;
+    }
+
+    public long getUdp6InUse() {
+        return udp6InUse;
+    }
+}
@@ -0,0 +1,59 @@
+package org.beifengtz.jvmm.common.procfs;
+
+/**
+ * <p>
+ * Description: /proc/[pid]/stat 中的进程统计信息，时间单位为 clock ticks
+ * </p>
+ * <p>
+ * Created in 14:22 2023/10/18
+ *
+ * @author beifengtz
+ */
+public class ProcStat {
+    long minorFaults;
+    long majorFaults;
+    long userTicks;
+    long systemTicks;
+    long threads;
+    long startTicks;
+    long virtualSize;
+    long residentPages;
+
+    public long getMinorFaults() {
+        return minorFaults;
+    }
+
+    public long getMajorFaults() {
+        return majorFaults;
+    }
+
+    public long getUserTicks() {
+        return userTicks;
+    }
+
+    public long getSystemTicks() {
+        return systemTicks;
+    }
+
+    public long getThreads() {
+        return threads;
+    }
+
+    public long getStartTicks() {
+        return startTicks;
+    }
+
+    /**
+     * @return 虚拟内存大小，单位 bytes
+     */
+    public long getVirtualSize() {
+        return virtualSize;
+    }
+
+    /**
+     * @return 常驻内存页数
+     */
+    public long getResidentPages() {
+        return residentPages;
+    }
+}
@@ -0,0 +1,53 @@
+package org.beifengtz.jvmm.common.procfs;
+
+/**
+ * <p>
+ * Description: /proc/[pid]/status 中的进程状态信息，内存单位为 bytes
+ * </p>
+ * <p>
+ * Created in 14:24 2023/10/18
+ *
+ * @author beifengtz
+ */
+public class ProcStatus {
+    long vmPeak;
+    long vmSize;
+    long vmHWM;
+    long vmRSS;
+    long vmSwap;
+    long threads;
+    long voluntaryCtxtSwitches;
+    long nonvoluntaryCtxtSwitches;
+
+    public long getVmPeak() {
+        return vmPeak;
+    }
+
+    public long getVmSize() {
+        return vmSize;
+    }
+
+    public long getVmHWM() {
+        return vmHWM;
+    }
+
+    public long getVmRSS() {
+        return vmRSS;
+    }
+
+    public long getVmSwap() {
+        return vmSwap;
+    }
+
+    public long getThreads() {
+        return threads;
+    }
+
+    public long getVoluntaryCtxtSwitches() {
+        return voluntaryCtxtSwitches;
+    }
+
+    public long getNonvoluntaryCtxtSwitches() {
+        return nonvoluntaryCtxtSwitches;
+    }
+}
@@ -1,5 +1,9 @@
 package org.beifengtz.jvmm.common.util;
 
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.procfs.ProcFs;
+
 import java.lang.management.ManagementFactory;
 import java.util.List;
 
@@ -13,6 +17,8 @@ import java.util.List;
  * @author beifengtz
  */
 public class PidUtil {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(PidUtil.class);
+
     private static long pid = -1;
 
     static {
@@ -49,14 +55,34 @@ public class PidUtil {
                     }
                 }
             }
-        } else if (PlatformUtil.isMac() || PlatformUtil.isLinux()) {
-            String command = "lsof -t -s -i:" + port;
-            String s = ExecuteNativeUtil.executeForFirstLine(command);
-            if (!StringUtil.isEmpty(s)) {
-                processId = Long.parseLong(s);
+        } else if (ProcFs.isSupported()) {
+            //  优先读取procfs，只有端口被监听但无权限定位到进程时才退回到lsof
+            try {
+                long inode = ProcFs.findListenSocketInode(port);
+                if (inode < 0) {
+                    return -1;
+                }
+                processId = ProcFs.findPidBySocketInode(inode);
+                if (processId >= 0) {
+                    return processId;
+                }
+            } catch (Exception e) {
+                logger.debug("Find process by port from procfs failed: {}", e.getMessage());
             }
+            processId = findProcessByLsof(port);
+        } else if (PlatformUtil.isMac() || PlatformUtil.isLinux()) {
+            processId = findProcessByLsof(port);
         }
 
         return processId;
     }
+
+    private static long findProcessByLsof(int port) {
+        String command = "lsof -t -s -i:" + port;
+        String s = ExecuteNativeUtil.executeForFirstLine(command);
+        if (!StringUtil.isEmpty(s)) {
+            return Long.parseLong(s);
+        }
+        return -1;
+    }
 }
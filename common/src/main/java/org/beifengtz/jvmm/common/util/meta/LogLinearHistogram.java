@@ -0,0 +1,119 @@
+package org.beifengtz.jvmm.common.util.meta;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Description: 无锁的对数-线性直方图，用于统计耗时这类跨多个数量级的非负整数分布。
+ * 小于 2^{@link #SUB_BUCKET_BITS} 的值精确记录，更大的值按 2 的幂分段，每段再线性切分为 2^{@link #SUB_BUCKET_BITS} 个桶，
+ * 分位数的相对误差不超过 1/2^{@link #SUB_BUCKET_BITS}。
+ * </p>
+ * <p>
+ * 记录只涉及几次原子加操作，可以在任意线程并发调用；读取得到的是近似一致的快照。
+ * </p>
+ * <p>
+ * Created in 14:32 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class LogLinearHistogram {
+
+    public static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    /**
+     * @return 桶内最大值（包含）
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long sub = index % SUB_BUCKET_COUNT;
+        long lower = (SUB_BUCKET_COUNT + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * 记录一个值，负数按0处理
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get())) {
+            if (max.compareAndSet(m, value)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 计算多个分位数
+     *
+     * @param quantiles 分位数，取值 (0, 1]，需要从小到大排列
+     * @return 与 quantiles 一一对应的值，没有记录时全部为0
+     */
+    public long[] getQuantiles(double... quantiles) {
+        long[] result = new long[quantiles.length];
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return result;
+        }
+        long maxValue = max.get();
+        int q = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && q < quantiles.length; i++) {
+            seen += snapshot[i];
+            while (q < quantiles.length && seen >= (long) Math.ceil(quantiles[q] * total)) {
+                result[q++] = Math.min(bucketUpperBound(i), maxValue);
+            }
+        }
+        while (q < quantiles.length) {
+            result[q++] = maxValue;
+        }
+        return result;
+    }
+
+    public long getQuantile(double quantile) {
+        return getQuantiles(quantile)[0];
+    }
+}
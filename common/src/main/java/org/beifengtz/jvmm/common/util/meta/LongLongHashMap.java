@@ -0,0 +1,235 @@
+package org.beifengtz.jvmm.common.util.meta;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Description: 基于开放寻址（线性探测）的 long -> long 映射，键值都以原始类型存放在数组中，读写过程不产生装箱和节点对象。
+ * 适合线程id、inode这类需要频繁重建的大量数字映射。
+ * </p>
+ * <p>
+ * 非线程安全。
+ * </p>
+ * <p>
+ * Created in 11:20 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class LongLongHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final long EMPTY_KEY = 0L;
+
+    /**
+     * get 未命中时的返回值
+     */
+    private final long missingValue;
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * 键 0 作为空槽标志，单独存放
+     */
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        this(16, -1L);
+    }
+
+    /**
+     * @param expectedSize 预期元素数量
+     * @param missingValue get 未命中时的返回值
+     */
+    public LongLongHashMap(int expectedSize, long missingValue) {
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 8;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public long getMissingValue() {
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return key 对应的值，不存在时返回 {@link #getMissingValue()}
+     */
+    public long get(long key) {
+        if (key == EMPTY_KEY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int idx = hash(key) & mask;
+        long k;
+        while ((k = keys[idx]) != EMPTY_KEY) {
+            if (k == key) {
+                return values[idx];
+            }
+            idx = (idx + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY_KEY) {
+            return hasZeroKey;
+        }
+        int idx = hash(key) & mask;
+        long k;
+        while ((k = keys[idx]) != EMPTY_KEY) {
+            if (k == key) {
+                return true;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return 旧值，不存在时返回 {@link #getMissingValue()}
+     */
+    public long put(long key, long value) {
+        if (key == EMPTY_KEY) {
+            long old = hasZeroKey ? zeroValue : missingValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int idx = hash(key) & mask;
+        long k;
+        while ((k = keys[idx]) != EMPTY_KEY) {
+            if (k == key) {
+                long old = values[idx];
+                values[idx] = value;
+                return old;
+            }
+            idx = (idx + 1) & mask;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return 被删除的值，不存在时返回 {@link #getMissingValue()}
+     */
+    public long remove(long key) {
+        if (key == EMPTY_KEY) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int idx = hash(key) & mask;
+        long k;
+        while ((k = keys[idx]) != EMPTY_KEY) {
+            if (k == key) {
+                long old = values[idx];
+                keys[idx] = EMPTY_KEY;
+                size--;
+                compactChain(idx);
+                return old;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * 删除后将后续探测链上的元素前移，保证线性探测查找不会提前中断
+     */
+    private void compactChain(int deleted) {
+        int idx = (deleted + 1) & mask;
+        long k;
+        while ((k = keys[idx]) != EMPTY_KEY) {
+            int home = hash(k) & mask;
+            if ((idx > deleted && (home <= deleted || home > idx)) || (idx < deleted && home <= deleted && home > idx)) {
+                keys[deleted] = k;
+                values[deleted] = values[idx];
+                keys[idx] = EMPTY_KEY;
+                deleted = idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    /**
+     * 清空映射，保留已分配的数组以便复用
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY_KEY);
+            hasZeroKey = false;
+            size = 0;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k != EMPTY_KEY) {
+                int idx = hash(k) & mask;
+                while (keys[idx] != EMPTY_KEY) {
+                    idx = (idx + 1) & mask;
+                }
+                keys[idx] = k;
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(EMPTY_KEY, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+}
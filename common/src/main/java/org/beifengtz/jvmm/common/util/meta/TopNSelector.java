@@ -0,0 +1,118 @@
+package org.beifengtz.jvmm.common.util.meta;
+
+/**
+ * <p>
+ * Description: 基于原始类型数组小顶堆的 top N 选择器，按 value 从大到小选出前 N 个元素，每个元素附带一个 id 和一个附加值。
+ * 选择过程的时间复杂度为 O(n log N)，不产生装箱对象。
+ * </p>
+ * <p>
+ * 用法：多次 {@link #offer(long, long, long)} 后调用一次 {@link #sortDescending()}，再按下标读取结果。非线程安全。
+ * </p>
+ * <p>
+ * Created in 16:05 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class TopNSelector {
+
+    private final long[] ids;
+    private final long[] values;
+    private final long[] attachments;
+    private int size;
+
+    /**
+     * @param capacity 需要选出的元素数量
+     */
+    public TopNSelector(int capacity) {
+        this.ids = new long[capacity];
+        this.values = new long[capacity];
+        this.attachments = new long[capacity];
+    }
+
+    public void offer(long id, long value, long attachment) {
+        if (ids.length == 0) {
+            return;
+        }
+        if (size < ids.length) {
+            set(size, id, value, attachment);
+            siftUp(size++);
+        } else if (value > values[0]) {
+            set(0, id, value, attachment);
+            siftDown(0, size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 将已选出的元素按 value 从大到小原地排序，之后不能再调用 {@link #offer(long, long, long)}
+     */
+    public void sortDescending() {
+        //  小顶堆每次把堆顶（最小值）交换到末尾，得到降序数组
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public long getValue(int index) {
+        return values[index];
+    }
+
+    public long getAttachment(int index) {
+        return attachments[index];
+    }
+
+    /**
+     * @return 已选出元素的 id 副本，{@link #sortDescending()} 之后调用即为降序
+     */
+    public long[] getIds() {
+        long[] result = new long[size];
+        System.arraycopy(ids, 0, result, 0, size);
+        return result;
+    }
+
+    private void set(int i, long id, long value, long attachment) {
+        ids[i] = id;
+        values[i] = value;
+        attachments[i] = attachment;
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i], value = values[i], attachment = attachments[i];
+        set(i, ids[j], values[j], attachments[j]);
+        set(j, id, value, attachment);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (values[parent] <= values[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int limit) {
+        while (true) {
+            int left = (i << 1) + 1;
+            if (left >= limit) {
+                break;
+            }
+            int min = left + 1 < limit && values[left + 1] < values[left] ? left + 1 : left;
+            if (values[i] <= values[min]) {
+                break;
+            }
+            swap(i, min);
+            i = min;
+        }
+    }
+}
@@ -1,12 +1,28 @@
 package org.beifengtz.jvmm.common.test;
 
+import org.beifengtz.jvmm.common.procfs.ProcFs;
+import org.beifengtz.jvmm.common.procfs.ProcFsReader;
+import org.beifengtz.jvmm.common.procfs.ProcNetStat;
 import org.beifengtz.jvmm.common.util.CodingUtil;
 import org.beifengtz.jvmm.common.util.FileUtil;
+import org.beifengtz.jvmm.common.util.meta.LogLinearHistogram;
+import org.beifengtz.jvmm.common.util.meta.LongLongHashMap;
+import org.beifengtz.jvmm.common.util.meta.TopNSelector;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.JarFile;
 
 /**
@@ -49,4 +65,127 @@ public class TestUtil {
             FileUtil.unJar(file, new File("E:\\Project\\jvmm-dev\\jvmm-agent-dir"));
         }
     }
+
+    @Test
+    public void testProcFsReader() throws Exception {
+        Path file = Files.createTempFile("jvmm", "tcp");
+        try {
+            StringBuilder sb = new StringBuilder("  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode\n");
+            for (int i = 0; i < 100; i++) {
+                sb.append(String.format("%4d: 0100007F:%04X 00000000:0000 0A 00000000:00000000 00:00000000 00000000  1000        0 %d 1 0000000000000000 100 0 0 10 0\n", i, 8000 + i, 10000 + i));
+            }
+            Files.write(file, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+            //  缓冲区小于文件大小，验证跨缓冲区的行拼接
+            ProcFsReader reader = new ProcFsReader(256);
+            AtomicLong lines = new AtomicLong();
+            AtomicLong inodeSum = new AtomicLong();
+            byte[] header = "  sl".getBytes(StandardCharsets.US_ASCII);
+            reader.forEachLine(file, line -> {
+                if (line.startsWith(header)) {
+                    return true;
+                }
+                line.skipPast(':').skipPast(':');
+                long port = line.nextHexLong();
+                line.skipPast(':').skipToken();
+                Assertions.assertEquals(0x0A, line.nextHexLong());
+                long inode = line.skipTokens(5).nextLong();
+                Assertions.assertEquals(port + 2000, inode);
+                lines.incrementAndGet();
+                inodeSum.addAndGet(inode);
+                return true;
+            });
+            Assertions.assertEquals(100, lines.get());
+            Assertions.assertEquals(100 * 10000 + 4950, inodeSum.get());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testProcNetStat() throws Exception {
+        if (!ProcFs.isSupported()) {
+            return;
+        }
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(server.getInetAddress(), server.getLocalPort());
+             Socket accepted = server.accept()) {
+            ProcNetStat stat = ProcFs.readNetStat();
+            System.out.println("connections=" + stat.getConnections() + ", sockets=" + stat.getSocketsUsed());
+            Assertions.assertTrue(stat.getTcpStateCount(ProcNetStat.TCP_LISTEN) >= 1);
+            Assertions.assertTrue(stat.getTcpStateCount(ProcNetStat.TCP_ESTABLISHED) >= 2);
+            Assertions.assertTrue(stat.getTcpV4Connections() + stat.getTcpV6Connections() >= 3);
+            Assertions.assertTrue(stat.getInSegs() > 0);
+            Assertions.assertTrue(stat.getSocketsUsed() > 0);
+
+            //  复用对象时计数会被清零而不是累加
+            long connections = stat.getConnections();
+            ProcFs.readNetStat(stat);
+            Assertions.assertTrue(stat.getConnections() < connections * 2);
+        }
+    }
+
+    @Test
+    public void testLongLongHashMap() {
+        LongLongHashMap map = new LongLongHashMap(4, -1L);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000);
+            int op = random.nextInt(3);
+            if (op == 0) {
+                Assertions.assertEquals((long) expected.getOrDefault(key, -1L), map.remove(key));
+                expected.remove(key);
+            } else {
+                long value = random.nextLong();
+                Assertions.assertEquals((long) expected.getOrDefault(key, -1L), map.put(key, value));
+                expected.put(key, value);
+            }
+        }
+        Assertions.assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2000; key++) {
+            Assertions.assertEquals((long) expected.getOrDefault(key, -1L), map.get(key));
+            Assertions.assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        map.clear();
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertEquals(-1L, map.get(0));
+    }
+
+    @Test
+    public void testLogLinearHistogram() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        Assertions.assertEquals(10000, histogram.getCount());
+        Assertions.assertEquals(50005000, histogram.getSum());
+        Assertions.assertEquals(10000, histogram.getMax());
+        long[] quantiles = histogram.getQuantiles(0.5, 0.99, 1);
+        double maxError = 1.0 / (1 << LogLinearHistogram.SUB_BUCKET_BITS);
+        Assertions.assertEquals(5000, quantiles[0], 5000 * maxError);
+        Assertions.assertEquals(9900, quantiles[1], 9900 * maxError);
+        Assertions.assertEquals(10000, quantiles[2]);
+        Assertions.assertEquals(0, new LogLinearHistogram().getQuantile(0.99));
+    }
+
+    @Test
+    public void testTopNSelector() {
+        TopNSelector selector = new TopNSelector(5);
+        Random random = new Random(2);
+        long[] values = new long[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100000);
+            selector.offer(i, values[i], -values[i]);
+        }
+        selector.sortDescending();
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        Assertions.assertEquals(5, selector.size());
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(sorted[sorted.length - 1 - i], selector.getValue(i));
+            Assertions.assertEquals(values[(int) selector.getId(i)], selector.getValue(i));
+            Assertions.assertEquals(-selector.getValue(i), selector.getAttachment(i));
+        }
+    }
 }
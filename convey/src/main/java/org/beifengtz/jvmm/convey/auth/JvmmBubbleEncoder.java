@@ -37,8 +37,8 @@ public class JvmmBubbleEncoder extends MessageToMessageEncoder<ByteBuf> {
 
         //  先对消息进行加密
         byte[] bytes = new byte[msg.readableBytes()];
+        //  msg 由 MessageToMessageEncoder 在 encode 之后释放，这里再释放会使写操作以异常结束
         msg.readBytes(bytes);
-        msg.release();
         ByteBuf safeMsg = Unpooled.wrappedBuffer(SignatureUtil.AESEncrypt(bytes, key));
 
         //  再记录步长
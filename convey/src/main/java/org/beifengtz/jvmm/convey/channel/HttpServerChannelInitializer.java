@@ -6,6 +6,7 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import org.beifengtz.jvmm.convey.handler.HandlerProvider;
 
@@ -41,6 +42,7 @@ public class HttpServerChannelInitializer extends ChannelInitializer<Channel> {
 
         p.addLast(ChannelUtil.HTTP_CODEC_HANDLER, new HttpServerCodec());
         p.addLast(ChannelUtil.AGGREGATOR_HANDLER, new HttpObjectAggregator(1048576));
+        p.addLast(ChannelUtil.CHUNKED_WRITE_HANDLER, new ChunkedWriteHandler());
         p.addLast(HTTP_SERVER_HANDLER_NAME, provider.getHandler());
     }
 }
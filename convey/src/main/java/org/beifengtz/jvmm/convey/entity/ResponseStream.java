@@ -0,0 +1,335 @@
+package org.beifengtz.jvmm.convey.entity;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>
+ * Description: 流式响应，与 {@link ResponseFuture} 一样可以作为 controller 方法参数注入。
+ * 写入的内容在缓冲区达到分块大小后立即作为一个分块发送出去，http 协议下为 chunked 响应，jvmm 协议下为同一个 contextId 的多个响应帧，
+ * 最后以 {@link #close()} 结束响应。
+ * </p>
+ * <p>
+ * 当 channel 不可写时写入方会阻塞等待上一个分块写出，因此不能在 channel 的 EventLoop 中写入，需要在其他线程中执行。
+ * </p>
+ * <p>
+ * 写入二进制内容前需要调用 {@link #setBinary(String, String)}，jvmm 协议下分块内容会以 base64 编码，http 协议下作为附件下载。
+ * 一次性写出全部内容时使用 {@link #writeAndClose(boolean, ContentWriter)}，写入中途失败时响应以异常结束，而不是把截断的内容当作完整响应。
+ * </p>
+ * <p>
+ * Created in 16:12 2023/10/18
+ *
+ * @author beifengtz
+ */
+public abstract class ResponseStream implements Appendable, Closeable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 32 * 1024;
+    private static final long WRITABLE_WAIT_SECONDS = 30;
+
+    protected final Channel channel;
+    private final int chunkSize;
+    private ByteBuf buffer;
+    private ChannelFuture lastWrite;
+    private boolean closed;
+    protected boolean binary;
+    protected String contentType;
+    protected String fileName;
+
+    protected ResponseStream(Channel channel) {
+        this(channel, DEFAULT_CHUNK_SIZE);
+    }
+
+    protected ResponseStream(Channel channel, int chunkSize) {
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 声明响应内容为二进制，需要在第一次写入前调用
+     *
+     * @param contentType http 响应的 Content-Type，例如 application/gzip
+     * @param fileName    http 响应的附件文件名，可为空
+     */
+    public synchronized ResponseStream setBinary(String contentType, String fileName) {
+        this.binary = true;
+        this.contentType = contentType;
+        this.fileName = fileName;
+        return this;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * @return 写入当前响应流的 {@link OutputStream}，关闭它等同于 {@link #close()}
+     */
+    public OutputStream asOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ResponseStream.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                ResponseStream.this.close();
+            }
+        };
+    }
+
+    @Override
+    public synchronized ResponseStream append(CharSequence csq) throws IOException {
+        ensureOpen();
+        ByteBufUtil.writeUtf8(buffer(), csq == null ? "null" : csq);
+        flushIfNecessary();
+        return this;
+    }
+
+    @Override
+    public synchronized ResponseStream append(CharSequence csq, int start, int end) throws IOException {
+        ensureOpen();
+        ByteBufUtil.writeUtf8(buffer(), csq == null ? "null" : csq, start, end);
+        flushIfNecessary();
+        return this;
+    }
+
+    @Override
+    public synchronized ResponseStream append(char c) throws IOException {
+        ensureOpen();
+        ByteBufUtil.writeUtf8(buffer(), String.valueOf(c));
+        flushIfNecessary();
+        return this;
+    }
+
+    /**
+     * 写入二进制内容
+     */
+    public synchronized ResponseStream write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        buffer().writeBytes(bytes, offset, length);
+        flushIfNecessary();
+        return this;
+    }
+
+    /**
+     * 写入全部内容并结束响应。写入成功后才结束 gzip 压缩并 {@link #close()}，写入过程抛出异常时只调用 {@link #fail(Throwable)}，
+     * 客户端不会收到一个看起来完整的截断内容。传给 writer 的 {@link OutputStream} 关闭时不会结束响应。
+     *
+     * @param gzip   是否以 gzip 压缩写入的内容
+     * @param writer 内容写入方
+     * @return 响应是否正常结束
+     */
+    public boolean writeAndClose(boolean gzip, ContentWriter writer) {
+        try {
+            OutputStream os = new UnclosableOutputStream(asOutputStream());
+            if (gzip) {
+                GZIPOutputStream gos = new GZIPOutputStream(os, chunkSize);
+                writer.writeTo(new UnclosableOutputStream(gos));
+                gos.finish();
+            } else {
+                writer.writeTo(os);
+            }
+            close();
+            return true;
+        } catch (Throwable e) {
+            fail(e);
+            return false;
+        }
+    }
+
+    /**
+     * 发送文件的全部内容，返回时文件已写出，调用方可以删除文件。
+     * 协议支持时直接由 channel 读取文件发送，不经过堆内存，否则按分块大小读取后写入
+     *
+     * @param file 文件
+     */
+    public synchronized ResponseStream transferFile(File file) throws IOException {
+        flush();
+        ChannelFuture future = writeFile(file);
+        if (future == null) {
+            byte[] bytes = new byte[chunkSize];
+            try (InputStream is = new FileInputStream(file)) {
+                int len;
+                while ((len = is.read(bytes)) > 0) {
+                    write(bytes, 0, len);
+                }
+            }
+            return this;
+        }
+        lastWrite = future;
+        try {
+            future.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (!future.isSuccess()) {
+            throw new IOException(future.cause());
+        }
+        return this;
+    }
+
+    /**
+     * 将已缓冲的内容作为一个分块立即发送
+     */
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        if (buffer != null && buffer.isReadable()) {
+            ByteBuf chunk = buffer;
+            buffer = null;
+            lastWrite = writeChunk(chunk);
+            awaitWritable();
+        }
+    }
+
+    /**
+     * 发送剩余内容并结束响应
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        writeEnd();
+    }
+
+    /**
+     * 以异常结束响应，已缓冲未发送的内容将被丢弃
+     *
+     * @param cause 异常原因
+     */
+    public synchronized void fail(Throwable cause) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        writeError(cause);
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private ByteBuf buffer() {
+        if (buffer == null) {
+            buffer = channel.alloc().buffer(chunkSize);
+        }
+        return buffer;
+    }
+
+    private void flushIfNecessary() throws IOException {
+        if (buffer != null && buffer.readableBytes() >= chunkSize) {
+            flush();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Response stream closed");
+        }
+        if (!channel.isActive()) {
+            closed = true;
+            if (buffer != null) {
+                buffer.release();
+                buffer = null;
+            }
+            throw new IOException("Channel is inactive: " + channel);
+        }
+    }
+
+    /**
+     * channel 写缓冲区超过高水位时等待上一个分块写出，避免写入速度超过网络速度导致内存堆积
+     */
+    private void awaitWritable() throws IOException {
+        if (channel.isWritable() || lastWrite == null) {
+            return;
+        }
+        if (channel.eventLoop().inEventLoop()) {
+            return;
+        }
+        try {
+            if (!lastWrite.await(WRITABLE_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Wait for channel writable timeout");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (!lastWrite.isSuccess()) {
+            throw new IOException(lastWrite.cause());
+        }
+    }
+
+    /**
+     * {@link #writeAndClose(boolean, ContentWriter)} 的内容写入方
+     */
+    public interface ContentWriter {
+        void writeTo(OutputStream os) throws Exception;
+    }
+
+    /**
+     * 关闭时只刷新不关闭的包装流，由 {@link #writeAndClose(boolean, ContentWriter)} 决定何时结束响应
+     */
+    private static final class UnclosableOutputStream extends FilterOutputStream {
+
+        private UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * 发送一个分块，实现方负责释放 chunk
+     */
+    protected abstract ChannelFuture writeChunk(ByteBuf chunk);
+
+    /**
+     * 直接发送文件，不支持时返回null，由 {@link #transferFile(File)} 按分块读取后发送
+     */
+    protected ChannelFuture writeFile(File file) throws IOException {
+        return null;
+    }
+
+    /**
+     * 发送结束标志
+     */
+    protected abstract void writeEnd();
+
+    /**
+     * 发送异常结束标志
+     */
+    protected abstract void writeError(Throwable cause);
+}
@@ -46,6 +46,7 @@ public enum RpcType {
     JVMM_EXECUTE_JVM_TOOL(20008),
     JVMM_EXECUTE_JAD(20009),
     JVMM_EXECUTE_LOAD_PATCH(20010),
+    JVMM_EXECUTE_DUMP_HEAP(20011),
 
     /**
      * 信息采集类协议
@@ -72,6 +73,19 @@ public enum RpcType {
     JVMM_COLLECT_JVM_DUMP_THREAD(30020),
     JVMM_COLLECT_JVM_THREAD_ORDERED_CPU_TIME(30021),
     JVMM_COLLECT_JVM_THREAD_POOL(30022),
+    JVMM_COLLECT_JVM_THREAD_CPU_TOP(30023),
+    JVMM_COLLECT_JVM_GC_PAUSE_INFO(30024),
+    JVMM_COLLECT_JVM_THREAD_ALLOCATION(30025),
+    JVMM_COLLECT_JVM_PERF_INFO(30026),
+    JVMM_COLLECT_JVM_PERF_COUNTERS(30027),
+    JVMM_COLLECT_CACHE_STATS(30028),
+    JVMM_COLLECT_JVM_REGISTERED_THREAD_POOL(30029),
+    JVMM_COLLECT_JVM_LOCK_CONTENTION(30030),
+    JVMM_COLLECT_JVM_NATIVE_MEMORY(30031),
+    JVMM_COLLECT_JVM_CLASS_HISTOGRAM(30032),
+    JVMM_COLLECT_JVM_CLASS_HISTOGRAM_DIFF(30033),
+    JVMM_COLLECT_JVM_BUFFER_POOL(30034),
+    JVMM_COLLECT_METRIC_HISTORY(30035),
 
     /**
      * Web端批量采集
@@ -86,7 +100,15 @@ public enum RpcType {
     JVMM_PROFILER_SAMPLE_START(40003),
     JVMM_PROFILER_SAMPLE_STOP(40004),
     JVMM_PROFILER_STATUS(40005),
-    JVMM_PROFILER_LIST_EVENTS(40006);
+    JVMM_PROFILER_LIST_EVENTS(40006),
+    JVMM_PROFILER_CONTINUOUS(40007),
+    JVMM_PROFILER_SESSIONS(40008),
+    JVMM_PROFILER_JFR_START(40009),
+    JVMM_PROFILER_JFR_STOP(40010),
+    JVMM_PROFILER_JFR_CLOSE(40011),
+    JVMM_PROFILER_JFR_LIST(40012),
+    JVMM_PROFILER_JFR_DUMP(40013),
+    JVMM_PROFILER_JFR_SUMMARY(40014);
 
     private final int value;
 
@@ -115,6 +137,7 @@ public enum RpcType {
             case 20008: return JVMM_EXECUTE_JVM_TOOL;
             case 20009: return JVMM_EXECUTE_JAD;
             case 20010: return JVMM_EXECUTE_LOAD_PATCH;
+            case 20011: return JVMM_EXECUTE_DUMP_HEAP;
             case 30001: return JVMM_COLLECT_SYS_INFO;
             case 30002: return JVMM_COLLECT_PROCESS_INFO;
             case 30003: return JVMM_COLLECT_CPU_INFO;
@@ -137,6 +160,19 @@ public enum RpcType {
             case 30020: return JVMM_COLLECT_JVM_DUMP_THREAD;
             case 30021: return JVMM_COLLECT_JVM_THREAD_ORDERED_CPU_TIME;
             case 30022: return JVMM_COLLECT_JVM_THREAD_POOL;
+            case 30023: return JVMM_COLLECT_JVM_THREAD_CPU_TOP;
+            case 30024: return JVMM_COLLECT_JVM_GC_PAUSE_INFO;
+            case 30025: return JVMM_COLLECT_JVM_THREAD_ALLOCATION;
+            case 30026: return JVMM_COLLECT_JVM_PERF_INFO;
+            case 30027: return JVMM_COLLECT_JVM_PERF_COUNTERS;
+            case 30028: return JVMM_COLLECT_CACHE_STATS;
+            case 30029: return JVMM_COLLECT_JVM_REGISTERED_THREAD_POOL;
+            case 30030: return JVMM_COLLECT_JVM_LOCK_CONTENTION;
+            case 30031: return JVMM_COLLECT_JVM_NATIVE_MEMORY;
+            case 30032: return JVMM_COLLECT_JVM_CLASS_HISTOGRAM;
+            case 30033: return JVMM_COLLECT_JVM_CLASS_HISTOGRAM_DIFF;
+            case 30034: return JVMM_COLLECT_JVM_BUFFER_POOL;
+            case 30035: return JVMM_COLLECT_METRIC_HISTORY;
             case 31011: return JVMM_COLLECT_BATCH;
             case 40001: return JVMM_PROFILER_EXECUTE;
             case 40002: return JVMM_PROFILER_SAMPLE;
@@ -144,6 +180,14 @@ public enum RpcType {
             case 40004: return JVMM_PROFILER_SAMPLE_STOP;
             case 40005: return JVMM_PROFILER_STATUS;
             case 40006: return JVMM_PROFILER_LIST_EVENTS;
+            case 40007: return JVMM_PROFILER_CONTINUOUS;
+            case 40008: return JVMM_PROFILER_SESSIONS;
+            case 40009: return JVMM_PROFILER_JFR_START;
+            case 40010: return JVMM_PROFILER_JFR_STOP;
+            case 40011: return JVMM_PROFILER_JFR_CLOSE;
+            case 40012: return JVMM_PROFILER_JFR_LIST;
+            case 40013: return JVMM_PROFILER_JFR_DUMP;
+            case 40014: return JVMM_PROFILER_JFR_SUMMARY;
             default: return null;
         }
     }
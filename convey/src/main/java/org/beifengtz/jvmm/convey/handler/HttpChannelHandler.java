@@ -37,6 +37,7 @@ import org.beifengtz.jvmm.convey.annotation.RequestBody;
 import org.beifengtz.jvmm.convey.annotation.RequestParam;
 import org.beifengtz.jvmm.convey.entity.JvmmResponse;
 import org.beifengtz.jvmm.convey.entity.ResponseFuture;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
 import org.beifengtz.jvmm.convey.enums.RpcStatus;
 import org.beifengtz.jvmm.convey.socket.HttpUtil;
 
@@ -284,6 +285,8 @@ public abstract class HttpChannelHandler extends SimpleChannelInboundHandler<Ful
                     parameter[i] = ctx;
                 } else if (getClass().isAssignableFrom(parameterType)) {
                     parameter[i] = this;
+                } else if (ResponseStream.class.isAssignableFrom(parameterType)) {
+                    parameter[i] = new HttpResponseStream(this, ctx);
                 } else if (ResponseFuture.class.isAssignableFrom(parameterType)) {
                     parameter[i] = new ResponseFuture(data -> {
                         if (data instanceof JvmmResponse) {
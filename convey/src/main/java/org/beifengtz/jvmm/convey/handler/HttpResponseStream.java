@@ -0,0 +1,109 @@
+package org.beifengtz.jvmm.convey.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedFile;
+import io.netty.util.AsciiString;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * <p>
+ * Description: http chunked 流式响应，第一个分块发送前先写出响应头，结束时发送 LastHttpContent 并关闭连接
+ * </p>
+ * <p>
+ * Created in 16:40 2023/10/18
+ *
+ * @author beifengtz
+ */
+class HttpResponseStream extends ResponseStream {
+
+    private final HttpChannelHandler handler;
+    private final ChannelHandlerContext ctx;
+    private boolean headerSent;
+
+    HttpResponseStream(HttpChannelHandler handler, ChannelHandlerContext ctx) {
+        super(ctx.channel());
+        this.handler = handler;
+        this.ctx = ctx;
+        this.contentType = "text/plain;charset=utf-8";
+    }
+
+    /**
+     * 设置响应的 Content-Type，需要在第一次写入前调用
+     */
+    public HttpResponseStream setContentType(String contentType) {
+        this.contentType = contentType;
+        return this;
+    }
+
+    private void sendHeaderIfNecessary() {
+        if (headerSent) {
+            return;
+        }
+        headerSent = true;
+        HttpResponse resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        resp.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        resp.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        if (fileName != null) {
+            resp.headers().set(HttpHeaderNames.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        }
+        resp.headers().set(HttpHeaderNames.DATE, new Date().toString());
+        for (Entry<AsciiString, List<String>> entry : HttpChannelHandler.globalHeaders.entrySet()) {
+            resp.headers().set(entry.getKey(), entry.getValue());
+        }
+        ctx.write(resp);
+    }
+
+    @Override
+    protected ChannelFuture writeChunk(ByteBuf chunk) {
+        sendHeaderIfNecessary();
+        return ctx.writeAndFlush(new DefaultHttpContent(chunk));
+    }
+
+    /**
+     * 文件以 chunked 编码发送，明文连接使用 {@link DefaultFileRegion} 零拷贝传输，SSL 连接需要加密只能由 ChunkedWriteHandler 分块读取
+     */
+    @Override
+    protected ChannelFuture writeFile(File file) throws IOException {
+        sendHeaderIfNecessary();
+        if (ctx.pipeline().get(SslHandler.class) != null) {
+            return ctx.writeAndFlush(new ChunkedFile(file, DEFAULT_CHUNK_SIZE));
+        }
+        return ctx.writeAndFlush(new DefaultFileRegion(file, 0, file.length()));
+    }
+
+    @Override
+    protected void writeEnd() {
+        sendHeaderIfNecessary();
+        ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    @Override
+    protected void writeError(Throwable cause) {
+        if (headerSent) {
+            //  响应头已经发出，只能通过断开连接告知客户端响应不完整
+            ctx.close();
+        } else {
+            headerSent = true;
+            handler.response500(ctx, cause.getClass().getName() + ": " + cause.getMessage());
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.beifengtz.jvmm.convey.channel.JvmmServerChannelInitializer;
 import org.beifengtz.jvmm.convey.entity.JvmmRequest;
 import org.beifengtz.jvmm.convey.entity.JvmmResponse;
 import org.beifengtz.jvmm.convey.entity.ResponseFuture;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
 import org.beifengtz.jvmm.convey.enums.RpcStatus;
 import org.beifengtz.jvmm.convey.enums.RpcType;
 
@@ -256,11 +257,16 @@ public abstract class JvmmChannelHandler extends SimpleChannelInboundHandler<Jvm
                     parameter[i] = ctx;
                 } else if (getClass().isAssignableFrom(parameterType)) {
                     parameter[i] = this;
+                } else if (ResponseStream.class.isAssignableFrom(parameterType)) {
+                    parameter[i] = new JvmmResponseStream(ctx, reqMsg);
                 } else if (ResponseFuture.class.isAssignableFrom(parameterType)) {
                     parameter[i] = new ResponseFuture(data -> {
                         JvmmResponse response;
                         if (data instanceof JvmmResponse) {
                             response = (JvmmResponse) data;
+                            if (response.getContextId() == 0) {
+                                response.setContextId(reqMsg.getContextId());
+                            }
                         } else {
                             response = JvmmResponse.create()
                                     .setStatus(RpcStatus.JVMM_STATUS_OK)
@@ -0,0 +1,69 @@
+package org.beifengtz.jvmm.convey.handler;
+
+import com.google.gson.JsonPrimitive;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import org.beifengtz.jvmm.convey.entity.JvmmRequest;
+import org.beifengtz.jvmm.convey.entity.JvmmResponse;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
+import org.beifengtz.jvmm.convey.enums.RpcStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * <p>
+ * Description: jvmm 协议的流式响应，每个分块作为一个与请求 contextId 相同的响应帧发送，data 为分块文本，二进制内容为分块的 base64 编码。
+ * 结束帧不携带 data，客户端收到后即认为响应结束，异常时结束帧状态码为 {@link RpcStatus#JVMM_STATUS_SERVER_ERROR}。
+ * </p>
+ * <p>
+ * Created in 16:52 2023/10/18
+ *
+ * @author beifengtz
+ */
+class JvmmResponseStream extends ResponseStream {
+
+    private final JvmmRequest request;
+
+    JvmmResponseStream(ChannelHandlerContext ctx, JvmmRequest request) {
+        super(ctx.channel());
+        this.request = request;
+    }
+
+    @Override
+    protected ChannelFuture writeChunk(ByteBuf chunk) {
+        try {
+            return channel.writeAndFlush(JvmmResponse.create()
+                    .setType(request.getType())
+                    .setStatus(RpcStatus.JVMM_STATUS_OK)
+                    .setData(new JsonPrimitive(binary ? encodeBase64(chunk) : chunk.toString(StandardCharsets.UTF_8)))
+                    .setContextId(request.getContextId()));
+        } finally {
+            chunk.release();
+        }
+    }
+
+    private static String encodeBase64(ByteBuf chunk) {
+        byte[] bytes = new byte[chunk.readableBytes()];
+        chunk.getBytes(chunk.readerIndex(), bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Override
+    protected void writeEnd() {
+        channel.writeAndFlush(JvmmResponse.create()
+                .setType(request.getType())
+                .setStatus(RpcStatus.JVMM_STATUS_OK)
+                .setContextId(request.getContextId()));
+    }
+
+    @Override
+    protected void writeError(Throwable cause) {
+        channel.writeAndFlush(JvmmResponse.create()
+                .setType(request.getType())
+                .setStatus(RpcStatus.JVMM_STATUS_SERVER_ERROR)
+                .setMessage(cause.getMessage() == null ? cause.getClass().getName() : cause.getMessage())
+                .setContextId(request.getContextId()));
+    }
+}
@@ -34,6 +34,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * <p>
@@ -270,6 +271,46 @@ public class JvmmConnector implements Closeable {
         return future;
     }
 
+    /**
+     * 发送请求并接收流式响应，服务端会返回多个相同 contextId 的响应帧，不携带 data 的帧表示响应结束
+     *
+     * @param request       {@link JvmmRequest}
+     * @param chunkConsumer 分块响应处理，在 channel 的 EventLoop 中调用
+     * @return 响应结束时完成，响应状态码错误时以 {@link RpcStatusException} 异常完成
+     */
+    public CompletableFuture<Void> sendForStream(JvmmRequest request, Consumer<JvmmResponse> chunkConsumer) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (isConnected()) {
+            long contextId = request.getContextId();
+            MsgReceiveListener listener = response -> {
+                if (response.getContextId() != contextId) {
+                    return;
+                }
+                if (RpcStatus.JVMM_STATUS_OK != response.getStatus()) {
+                    future.completeExceptionally(new RpcStatusException(response.getMessage(), response.getStatus().name()));
+                } else if (response.getData() == null) {
+                    future.complete(null);
+                } else {
+                    try {
+                        chunkConsumer.accept(response);
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            };
+            registerListener(listener);
+            channel.writeAndFlush(request).addListener(f -> {
+                if (!f.isSuccess()) {
+                    future.completeExceptionally(f.cause());
+                }
+            });
+            future.whenComplete((r, t) -> unregisterListener(listener));
+        } else {
+            future.completeExceptionally(new IllegalStateException("Jvmm socket has disconnected"));
+        }
+        return future;
+    }
+
     public String ping() {
         try {
             JvmmRequest request = JvmmRequest.create().setType(RpcType.JVMM_PING);
@@ -0,0 +1,304 @@
+package org.beifengtz.jvmm.convey.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.convey.entity.JvmmRequest;
+import org.beifengtz.jvmm.convey.entity.JvmmResponse;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
+import org.beifengtz.jvmm.convey.enums.RpcStatus;
+import org.beifengtz.jvmm.convey.enums.RpcType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>
+ * Description: 二进制流式响应测试，使用 EmbeddedChannel 检查 jvmm 协议和 http 协议下发出的分块以及结束方式
+ * </p>
+ * <p>
+ * Created in 10:20 2023/10/24
+ *
+ * @author beifengtz
+ */
+public class TestResponseStream {
+
+    private static final byte[] CONTENT = new byte[100 * 1024];
+
+    @BeforeAll
+    public static void init() {
+        new Random(20231024).nextBytes(CONTENT);
+        HttpChannelHandler.init();
+    }
+
+    @Test
+    public void testJvmmBinaryStream() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        JvmmRequest request = JvmmRequest.create().setType(RpcType.JVMM_EXECUTE_DUMP_HEAP).setContextId(7);
+        ResponseStream stream = new JvmmResponseStream(channel.pipeline().firstContext(), request);
+        stream.setBinary("application/gzip", "test.gz");
+        Assertions.assertTrue(stream.writeAndClose(true, os -> {
+            os.write(CONTENT, 0, CONTENT.length);
+            //  writer 关闭流不会提前结束响应
+            os.close();
+        }));
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int frames = 0;
+        JvmmResponse last = null;
+        JvmmResponse resp;
+        while ((resp = channel.readOutbound()) != null) {
+            Assertions.assertEquals(7, resp.getContextId());
+            last = resp;
+            if (resp.getData() != null) {
+                frames++;
+                received.write(Base64.getDecoder().decode(resp.getData().getAsString()));
+            }
+        }
+        Assertions.assertTrue(frames > 1);
+        Assertions.assertNotNull(last);
+        Assertions.assertNull(last.getData());
+        Assertions.assertEquals(RpcStatus.JVMM_STATUS_OK, last.getStatus());
+        Assertions.assertArrayEquals(CONTENT, gunzip(received.toByteArray()));
+    }
+
+    @Test
+    public void testJvmmBinaryStreamFailure() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        JvmmRequest request = JvmmRequest.create().setType(RpcType.JVMM_EXECUTE_DUMP_HEAP).setContextId(8);
+        ResponseStream stream = new JvmmResponseStream(channel.pipeline().firstContext(), request);
+        stream.setBinary("application/gzip", "test.gz");
+        Assertions.assertFalse(stream.writeAndClose(true, os -> {
+            os.write(CONTENT, 0, CONTENT.length);
+            throw new IOException("read dump file failed");
+        }));
+        Assertions.assertTrue(stream.isClosed());
+
+        JvmmResponse last = null;
+        JvmmResponse resp;
+        while ((resp = channel.readOutbound()) != null) {
+            //  失败时不能出现正常的结束帧
+            Assertions.assertFalse(resp.getStatus() == RpcStatus.JVMM_STATUS_OK && resp.getData() == null);
+            last = resp;
+        }
+        Assertions.assertNotNull(last);
+        Assertions.assertEquals(RpcStatus.JVMM_STATUS_SERVER_ERROR, last.getStatus());
+        Assertions.assertEquals("read dump file failed", last.getMessage());
+    }
+
+    @Test
+    public void testHttpBinaryStream() throws Exception {
+        TestHttpHandler handler = new TestHttpHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        ResponseStream stream = new HttpResponseStream(handler, channel.pipeline().context(handler));
+        stream.setBinary("application/gzip", "test.gz");
+        Assertions.assertTrue(stream.writeAndClose(true, os -> os.write(CONTENT, 0, CONTENT.length)));
+
+        HttpResponse header = channel.readOutbound();
+        Assertions.assertEquals("application/gzip", header.headers().get(HttpHeaderNames.CONTENT_TYPE));
+        Assertions.assertEquals("attachment; filename=\"test.gz\"", header.headers().get(HttpHeaderNames.CONTENT_DISPOSITION));
+        Assertions.assertArrayEquals(CONTENT, gunzip(readHttpBody(channel)));
+        Assertions.assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testHttpBinaryStreamFailure() {
+        TestHttpHandler handler = new TestHttpHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        ResponseStream stream = new HttpResponseStream(handler, channel.pipeline().context(handler));
+        stream.setBinary("application/gzip", "test.gz");
+        Assertions.assertFalse(stream.writeAndClose(true, os -> {
+            os.write(CONTENT, 0, CONTENT.length);
+            throw new IOException("read dump file failed");
+        }));
+
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            //  响应头已发出时只能断开连接，不能发送表示正常结束的 LastHttpContent
+            Assertions.assertFalse(msg instanceof LastHttpContent);
+            if (msg instanceof HttpContent) {
+                ((HttpContent) msg).release();
+            }
+        }
+        Assertions.assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testJvmmPlainStream() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        JvmmRequest request = JvmmRequest.create().setType(RpcType.JVMM_PROFILER_SAMPLE).setContextId(9);
+        ResponseStream stream = new JvmmResponseStream(channel.pipeline().firstContext(), request);
+        stream.setBinary("application/octet-stream", "test.jfr");
+        Assertions.assertTrue(stream.writeAndClose(false, os -> os.write(CONTENT, 0, CONTENT.length)));
+        Assertions.assertArrayEquals(CONTENT, readJvmmBody(channel));
+    }
+
+    @Test
+    public void testHttpPlainStream() throws Exception {
+        TestHttpHandler handler = new TestHttpHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        ResponseStream stream = new HttpResponseStream(handler, channel.pipeline().context(handler));
+        stream.setBinary("application/octet-stream", "test.jfr");
+        Assertions.assertTrue(stream.writeAndClose(false, os -> os.write(CONTENT, 0, CONTENT.length)));
+
+        HttpResponse header = channel.readOutbound();
+        Assertions.assertEquals("application/octet-stream", header.headers().get(HttpHeaderNames.CONTENT_TYPE));
+        Assertions.assertArrayEquals(CONTENT, readHttpBody(channel));
+        Assertions.assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testJvmmTransferFile() throws Exception {
+        File file = createContentFile();
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+            JvmmRequest request = JvmmRequest.create().setType(RpcType.JVMM_PROFILER_SAMPLE).setContextId(10);
+            ResponseStream stream = new JvmmResponseStream(channel.pipeline().firstContext(), request);
+            stream.setBinary("application/octet-stream", "test.html");
+            //  jvmm 协议不支持直接发送文件，按分块读取后以 base64 帧发送
+            Assertions.assertTrue(stream.writeAndClose(false, os -> stream.transferFile(file)));
+            Assertions.assertArrayEquals(CONTENT, readJvmmBody(channel));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testHttpTransferFile() throws Exception {
+        File file = createContentFile();
+        try {
+            TestHttpHandler handler = new TestHttpHandler();
+            EmbeddedChannel channel = new EmbeddedChannel(handler);
+            ResponseStream stream = new HttpResponseStream(handler, channel.pipeline().context(handler));
+            stream.setBinary("text/html;charset=utf-8", null);
+            Assertions.assertTrue(stream.writeAndClose(false, os -> stream.transferFile(file)));
+
+            HttpResponse header = channel.readOutbound();
+            Assertions.assertEquals("text/html;charset=utf-8", header.headers().get(HttpHeaderNames.CONTENT_TYPE));
+            //  没有 SslHandler 时整个文件作为一个 FileRegion 发送，随后是结束分块
+            FileRegion region = channel.readOutbound();
+            Assertions.assertEquals(0, region.position());
+            Assertions.assertEquals(file.length(), region.count());
+            region.release();
+            Object last = channel.readOutbound();
+            Assertions.assertTrue(last instanceof LastHttpContent);
+            ((LastHttpContent) last).release();
+            Assertions.assertFalse(channel.isOpen());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTransferMissingFile() {
+        TestHttpHandler handler = new TestHttpHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        ResponseStream stream = new HttpResponseStream(handler, channel.pipeline().context(handler));
+        stream.setBinary("application/gzip", "test.gz");
+        File missing = new File(System.getProperty("java.io.tmpdir"), "jvmm-missing-" + System.nanoTime());
+        Assertions.assertFalse(stream.writeAndClose(true, os -> Files.copy(missing.toPath(), os)));
+
+        //  读取失败时返回 500 而不是一个只有 gzip 头尾的空文件
+        HttpResponse resp = channel.readOutbound();
+        Assertions.assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, resp.status());
+        ReferenceCountUtil.release(resp);
+    }
+
+    static File createContentFile() throws IOException {
+        File file = File.createTempFile("jvmm-stream", ".tmp");
+        Files.write(file.toPath(), CONTENT);
+        return file;
+    }
+
+    /**
+     * 读取 jvmm 响应帧内容，最后一帧必须是没有数据的正常结束帧
+     */
+    static byte[] readJvmmBody(EmbeddedChannel channel) throws IOException {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        JvmmResponse last = null;
+        JvmmResponse resp;
+        while ((resp = channel.readOutbound()) != null) {
+            last = resp;
+            if (resp.getData() != null) {
+                received.write(Base64.getDecoder().decode(resp.getData().getAsString()));
+            }
+        }
+        if (last == null || last.getData() != null || last.getStatus() != RpcStatus.JVMM_STATUS_OK) {
+            throw new IOException("Jvmm response is not terminated with end frame");
+        }
+        return received.toByteArray();
+    }
+
+    /**
+     * 读取 http 分块内容直到 LastHttpContent，没有读到结束分块时失败
+     */
+    static byte[] readHttpBody(EmbeddedChannel channel) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            if (msg instanceof HttpContent) {
+                HttpContent content = (HttpContent) msg;
+                ByteBuf buf = content.content();
+                byte[] bytes = new byte[buf.readableBytes()];
+                buf.readBytes(bytes);
+                body.write(bytes);
+                content.release();
+                if (msg instanceof LastHttpContent) {
+                    return body.toByteArray();
+                }
+            }
+        }
+        throw new IOException("Http response is not terminated with LastHttpContent");
+    }
+
+    static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static class TestHttpHandler extends HttpChannelHandler {
+        private static final InternalLogger logger = InternalLoggerFactory.getInstance(TestHttpHandler.class);
+
+        @Override
+        public InternalLogger logger() {
+            return logger;
+        }
+
+        @Override
+        protected boolean handleBefore(ChannelHandlerContext ctx, String uri, FullHttpRequest msg) {
+            return true;
+        }
+
+        @Override
+        protected void handleFinally(ChannelHandlerContext ctx, FullHttpRequest msg) {
+        }
+    }
+}
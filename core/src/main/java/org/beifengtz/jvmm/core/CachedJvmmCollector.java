@@ -0,0 +1,469 @@
+package org.beifengtz.jvmm.core;
+
+import org.beifengtz.jvmm.core.contanstant.CollectionType;
+import org.beifengtz.jvmm.core.driver.OSRateSampler.RateWindow;
+import org.beifengtz.jvmm.core.entity.info.*;
+import org.beifengtz.jvmm.core.entity.info.CollectorCacheInfo.CacheItem;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Description: 带短期缓存的 {@link JvmmCollector}，HTTP、Jvmm、多个哨兵同时订阅时，同一采集项在 TTL 内只真正采集一次。
+ * </p>
+ * <p>
+ * 每个 {@link CollectionType} 单独配置 TTL（毫秒，小于等于0表示不缓存，默认全部不缓存）。缓存的是采集结果的
+ * {@link CompletableFuture}：采集未完成时并发的调用方共享同一个进行中的 future，完成后在 TTL 内直接复用结果，
+ * 采集失败的结果不缓存。只有无参数的采集方法参与缓存，带参数的方法直接透传。
+ * cpu、network、disk_io 共用的速率窗口 {@link #getRateWindow()} 以三者中最短的 TTL 缓存。
+ * </p>
+ * <p>
+ * 缓存期内返回的是同一个对象，调用方不能修改采集结果。
+ * </p>
+ * <p>
+ * Created in 16:30 2023/10/19
+ *
+ * @author beifengtz
+ */
+public final class CachedJvmmCollector implements JvmmCollector {
+
+    private static final CollectionType[] TYPES = CollectionType.values();
+    /**
+     * 速率窗口的缓存键，命中统计位于各采集项之后
+     */
+    private static final String RATE_WINDOW = "os_rate_window";
+    private static final int RATE_WINDOW_INDEX = TYPES.length;
+
+    private final JvmmCollector delegate;
+    private final long[] ttlNanos = new long[TYPES.length];
+    private final AtomicLongArray hits = new AtomicLongArray(TYPES.length + 1);
+    private final AtomicLongArray misses = new AtomicLongArray(TYPES.length + 1);
+    private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<>();
+
+    CachedJvmmCollector(JvmmCollector delegate) {
+        this.delegate = delegate;
+    }
+
+    public JvmmCollector getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 设置采集项的缓存时间，修改后已缓存的结果立即失效
+     *
+     * @param type   采集项
+     * @param millis 缓存时间，单位ms，小于等于0表示不缓存
+     */
+    public void setTtl(CollectionType type, long millis) {
+        ttlNanos[type.ordinal()] = Math.max(0, TimeUnit.MILLISECONDS.toNanos(millis));
+        flights.remove(type);
+        if (type == CollectionType.cpu || type == CollectionType.network || type == CollectionType.disk_io) {
+            flights.remove(RATE_WINDOW);
+        }
+    }
+
+    public void setTtl(long millis) {
+        for (CollectionType type : TYPES) {
+            setTtl(type, millis);
+        }
+    }
+
+    public long getTtl(CollectionType type) {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos[type.ordinal()]);
+    }
+
+    /**
+     * @return 各采集项的缓存配置及命中、未命中次数，等待进行中的采集也计为命中
+     */
+    public CollectorCacheInfo getCacheInfo() {
+        CollectorCacheInfo info = CollectorCacheInfo.create();
+        for (CollectionType type : TYPES) {
+            int i = type.ordinal();
+            long hit = hits.get(i), miss = misses.get(i);
+            if (ttlNanos[i] > 0 || hit > 0 || miss > 0) {
+                info.getItems().add(CacheItem.create()
+                        .setType(type.name())
+                        .setTtl(getTtl(type))
+                        .setHits(hit)
+                        .setMisses(miss));
+            }
+        }
+        long hit = hits.get(RATE_WINDOW_INDEX), miss = misses.get(RATE_WINDOW_INDEX);
+        if (getRateWindowTtl() > 0 || hit > 0 || miss > 0) {
+            info.getItems().add(CacheItem.create()
+                    .setType(RATE_WINDOW)
+                    .setTtl(TimeUnit.NANOSECONDS.toMillis(getRateWindowTtl()))
+                    .setHits(hit)
+                    .setMisses(miss));
+        }
+        return info;
+    }
+
+    public void clear() {
+        flights.clear();
+    }
+
+    /**
+     * 单次采集，expireAt 在 future 完成前写入
+     */
+    private static final class Flight {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private volatile long expireAt;
+
+        private boolean isValid(long now) {
+            return !future.isDone() || now - expireAt < 0;
+        }
+    }
+
+    private <T> CompletableFuture<T> cachedAsync(CollectionType type, Supplier<CompletableFuture<T>> loader) {
+        int i = type.ordinal();
+        return cachedAsync(type, i, ttlNanos[i], loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> cachedAsync(Object key, int i, long ttl, Supplier<CompletableFuture<T>> loader) {
+        if (ttl <= 0) {
+            return loader.get();
+        }
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight != null && flight.isValid(System.nanoTime())) {
+                hits.incrementAndGet(i);
+                return (CompletableFuture<T>) flight.future;
+            }
+            Flight created = new Flight();
+            boolean won = flight == null ? flights.putIfAbsent(key, created) == null : flights.replace(key, flight, created);
+            if (!won) {
+                continue;
+            }
+            misses.incrementAndGet(i);
+            CompletableFuture<T> source;
+            try {
+                source = loader.get();
+            } catch (Throwable e) {
+                source = new CompletableFuture<>();
+                source.completeExceptionally(e);
+            }
+            source.whenComplete((value, e) -> {
+                if (e == null) {
+                    created.expireAt = System.nanoTime() + ttl;
+                    created.future.complete(value);
+                } else {
+                    flights.remove(key, created);
+                    created.future.completeExceptionally(e);
+                }
+            });
+            return (CompletableFuture<T>) created.future;
+        }
+    }
+
+    private <T> T cached(CollectionType type, Supplier<T> loader) {
+        if (ttlNanos[type.ordinal()] <= 0) {
+            return loader.get();
+        }
+        try {
+            return cachedAsync(type, () -> CompletableFuture.completedFuture(loader.get())).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public SysInfo getSys() {
+        return cached(CollectionType.sys, delegate::getSys);
+    }
+
+    @Override
+    public SysMemInfo getSysMem() {
+        return cached(CollectionType.sys_memory, delegate::getSysMem);
+    }
+
+    /**
+     * @return cpu、network、disk_io 中配置了缓存的最短 TTL，单位ns，都不缓存时为0
+     */
+    private long getRateWindowTtl() {
+        long ttl = 0;
+        for (CollectionType type : new CollectionType[]{CollectionType.cpu, CollectionType.network, CollectionType.disk_io}) {
+            long t = ttlNanos[type.ordinal()];
+            if (t > 0 && (ttl == 0 || t < ttl)) {
+                ttl = t;
+            }
+        }
+        return ttl;
+    }
+
+    @Override
+    public CompletableFuture<RateWindow> getRateWindow() {
+        return cachedAsync(RATE_WINDOW, RATE_WINDOW_INDEX, getRateWindowTtl(), delegate::getRateWindow);
+    }
+
+    @Override
+    public CompletableFuture<CPUInfo> getCPU() {
+        return cachedAsync(CollectionType.cpu, delegate::getCPU);
+    }
+
+    @Override
+    public CompletableFuture<NetInfo> getNetwork() {
+        return cachedAsync(CollectionType.network, delegate::getNetwork);
+    }
+
+    @Override
+    public List<DiskInfo> getDisk() {
+        return cached(CollectionType.disk, delegate::getDisk);
+    }
+
+    @Override
+    public CompletableFuture<List<DiskIOInfo>> getDiskIO() {
+        return cachedAsync(CollectionType.disk_io, delegate::getDiskIO);
+    }
+
+    @Override
+    public CompletableFuture<DiskIOInfo> getDiskIO(String name) {
+        return delegate.getDiskIO(name);
+    }
+
+    @Override
+    public List<SysFileInfo> getSysFile() {
+        return cached(CollectionType.sys_file, delegate::getSysFile);
+    }
+
+    @Override
+    public ProcessInfo getProcess() {
+        return cached(CollectionType.process, delegate::getProcess);
+    }
+
+    @Override
+    public JvmClassLoadingInfo getJvmClassLoading() {
+        return cached(CollectionType.jvm_classloading, delegate::getJvmClassLoading);
+    }
+
+    @Override
+    public List<JvmClassLoaderInfo> getJvmClassLoaders() {
+        return cached(CollectionType.jvm_classloader, delegate::getJvmClassLoaders);
+    }
+
+    @Override
+    public List<JvmClassLoaderInfo> getJvmClassLoaderTree() {
+        return delegate.getJvmClassLoaderTree();
+    }
+
+    @Override
+    public JvmCompilationInfo getJvmCompilation() {
+        return cached(CollectionType.jvm_compilation, delegate::getJvmCompilation);
+    }
+
+    @Override
+    public List<JvmGCInfo> getJvmGC() {
+        return cached(CollectionType.jvm_gc, delegate::getJvmGC);
+    }
+
+    @Override
+    public JvmGCPauseInfo getJvmGCPause() {
+        return cached(CollectionType.jvm_gc_pause, delegate::getJvmGCPause);
+    }
+
+    @Override
+    public JvmPerfInfo getJvmPerf(long pid) throws IOException {
+        if (pid > 0) {
+            return delegate.getJvmPerf(pid);
+        }
+        try {
+            return cached(CollectionType.jvm_perf, () -> {
+                try {
+                    return delegate.getJvmPerf(pid);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getJvmPerfCounters(long pid, String prefix) throws IOException {
+        return delegate.getJvmPerfCounters(pid, prefix);
+    }
+
+    @Override
+    public JvmNativeMemoryInfo getJvmNativeMemory() throws Exception {
+        try {
+            return cached(CollectionType.jvm_native_memory, () -> {
+                try {
+                    return delegate.getJvmNativeMemory();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public JvmClassHistogramInfo getJvmClassHistogram(int top, boolean live) throws Exception {
+        return delegate.getJvmClassHistogram(top, live);
+    }
+
+    @Override
+    public JvmClassHistogramInfo getJvmClassHistogramDiff(int top, boolean live, boolean reset) throws Exception {
+        return delegate.getJvmClassHistogramDiff(top, live, reset);
+    }
+
+    @Override
+    public List<JvmMemoryManagerInfo> getJvmMemoryManager() {
+        return cached(CollectionType.jvm_memory_manager, delegate::getJvmMemoryManager);
+    }
+
+    @Override
+    public List<JvmMemoryPoolInfo> getJvmMemoryPool() {
+        return cached(CollectionType.jvm_memory_pool, delegate::getJvmMemoryPool);
+    }
+
+    @Override
+    public JvmMemoryInfo getJvmMemory() {
+        return cached(CollectionType.jvm_memory, delegate::getJvmMemory);
+    }
+
+    @Override
+    public JvmBufferPoolInfo getJvmBufferPool() {
+        return cached(CollectionType.jvm_buffer_pool, delegate::getJvmBufferPool);
+    }
+
+    @Override
+    public JvmThreadInfo getJvmThread() {
+        return cached(CollectionType.jvm_thread, delegate::getJvmThread);
+    }
+
+    @Override
+    public JvmThreadDetailInfo getJvmThreadDetailInfo(long id) {
+        return delegate.getJvmThreadDetailInfo(id);
+    }
+
+    @Override
+    public JvmThreadDetailInfo[] getJvmThreadDetailInfo(long... ids) {
+        return delegate.getJvmThreadDetailInfo(ids);
+    }
+
+    @Override
+    public JvmThreadDetailInfo[] getAllJvmThreadDetailInfo() {
+        return cached(CollectionType.jvm_thread_detail, delegate::getAllJvmThreadDetailInfo);
+    }
+
+    @Override
+    public String getJvmThreadStack(long id) {
+        return delegate.getJvmThreadStack(id);
+    }
+
+    @Override
+    public String[] getJvmThreadStack(long... ids) {
+        return delegate.getJvmThreadStack(ids);
+    }
+
+    @Override
+    public String getJvmThreadStack(long id, int maxDepth) {
+        return delegate.getJvmThreadStack(id, maxDepth);
+    }
+
+    @Override
+    public String[] getJvmThreadStack(long[] ids, int maxDepth) {
+        return delegate.getJvmThreadStack(ids, maxDepth);
+    }
+
+    @Override
+    public String[] getJvmDeadlockThreadStack() {
+        return delegate.getJvmDeadlockThreadStack();
+    }
+
+    @Override
+    public String[] dumpAllThreads() {
+        return cached(CollectionType.jvm_thread_stack, delegate::dumpAllThreads);
+    }
+
+    @Override
+    public void dumpAllThreads(Appendable out) throws IOException {
+        delegate.dumpAllThreads(out);
+    }
+
+    @Override
+    public ThreadPoolInfo getThreadPoolInfo(ThreadPoolExecutor threadPool) {
+        return delegate.getThreadPoolInfo(threadPool);
+    }
+
+    @Override
+    public ThreadPoolInfo getThreadPoolInfo(ClassLoader classLoader, String clazz, String filed) {
+        return delegate.getThreadPoolInfo(classLoader, clazz, filed);
+    }
+
+    @Override
+    public ThreadPoolInfo getThreadPoolInfo(ClassLoader classLoader, String clazz, String instanceField, String filed) {
+        return delegate.getThreadPoolInfo(classLoader, clazz, instanceField, filed);
+    }
+
+    @Override
+    public ThreadPoolInfo getThreadPoolInfo(String clazz, String filed) {
+        return delegate.getThreadPoolInfo(clazz, filed);
+    }
+
+    @Override
+    public ThreadPoolInfo getThreadPoolInfo(String clazz, String instanceField, String filed) {
+        return delegate.getThreadPoolInfo(clazz, instanceField, filed);
+    }
+
+    @Override
+    public PortInfo getPortInfo(int... ports) {
+        return delegate.getPortInfo(ports);
+    }
+
+    @Override
+    public PortInfo getPortInfo(Collection<Integer> portList) {
+        return delegate.getPortInfo(portList);
+    }
+
+    @Override
+    public CompletableFuture<List<ThreadTimedInfo>> getOrderedThreadTimedInfo(long time, TimeUnit unit) {
+        return delegate.getOrderedThreadTimedInfo(time, unit);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getOrderedThreadTimedStack(long time, TimeUnit unit) {
+        return delegate.getOrderedThreadTimedStack(time, unit);
+    }
+
+    @Override
+    public CompletableFuture<List<ThreadTimedInfo>> getThreadCpuTop(int windowSeconds, int top) {
+        return delegate.getThreadCpuTop(windowSeconds, top);
+    }
+
+    @Override
+    public CompletableFuture<JvmThreadAllocationInfo> getThreadAllocation(int top) {
+        return delegate.getThreadAllocation(top);
+    }
+
+    @Override
+    public CompletableFuture<JvmLockContentionInfo> getLockContention(int top) {
+        return delegate.getLockContention(top);
+    }
+}
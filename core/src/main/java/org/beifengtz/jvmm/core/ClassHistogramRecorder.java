@@ -0,0 +1,409 @@
+package org.beifengtz.jvmm.core;
+
+import org.beifengtz.jvmm.core.driver.DiagnosticCommandDriver;
+import org.beifengtz.jvmm.core.entity.info.JvmClassHistogramInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmClassHistogramInfo.ClassHistogramItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Description: 类直方图采集，在当前进程内执行 GC.class_histogram，不需要像 VMDriver#heapHisto 一样 attach 自身进程。
+ * </p>
+ * <p>
+ * 命令输出逐行扫描解析为列式的 {@link Snapshot}：类名只在第一次出现时登记到名称表并分配一个 id，
+ * 之后每个快照只保存 id、实例数、字节数三个数组，定时采集时保留多个快照的开销很小，对比时也只需要按 id 对齐。
+ * 名称表超过 {@link #MAX_CLASS_NAMES} 时（例如不断生成的 Lambda、代理类）在下一次解析前重建，只保留基线快照用到的类名，
+ * 重建前得到的其他快照不能再与之后的快照对比。
+ * </p>
+ * <p>
+ * 对比以首次对比时的快照为基线，按字节数增长量排序得到增长最快的类，可用于定时检测内存泄漏。
+ * </p>
+ * <p>
+ * Created in 15:40 2023/10/21
+ *
+ * @author beifengtz
+ */
+public final class ClassHistogramRecorder {
+
+    public static final int DEFAULT_TOP = 20;
+    /**
+     * 类名称表的最大数量
+     */
+    public static final int MAX_CLASS_NAMES = 1 << 16;
+
+    private final int maxClassNames;
+    private Map<String, Integer> nameIds = new HashMap<>();
+    private List<String> names = new ArrayList<>();
+    /**
+     * 名称表的版本，每次重建后加一，不同版本的快照之间 id 不能对齐
+     */
+    private int generation;
+    private volatile Snapshot baseline;
+
+    ClassHistogramRecorder() {
+        this(MAX_CLASS_NAMES);
+    }
+
+    ClassHistogramRecorder(int maxClassNames) {
+        this.maxClassNames = maxClassNames;
+    }
+
+    /**
+     * 采集一次类直方图快照
+     *
+     * @param live 为true时只统计存活对象，会触发一次 Full GC
+     * @return {@link Snapshot}
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    public Snapshot snapshot(boolean live) throws Exception {
+        DiagnosticCommandDriver driver = DiagnosticCommandDriver.get();
+        String output = live ? driver.gcClassHistogram() : driver.gcClassHistogram("-all");
+        return parse(output, live);
+    }
+
+    /**
+     * 获取实例占用字节数最多的 N 个类
+     *
+     * @param top  返回的类数量，小于等于0时返回全部
+     * @param live 为true时只统计存活对象，会触发一次 Full GC
+     * @return {@link JvmClassHistogramInfo}
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    public JvmClassHistogramInfo getHistogram(int top, boolean live) throws Exception {
+        Snapshot snapshot = snapshot(live);
+        JvmClassHistogramInfo info = toInfo(snapshot);
+        //  命令输出已按字节数从大到小排序
+        int n = top > 0 ? Math.min(top, snapshot.size) : snapshot.size;
+        for (int i = 0; i < n; i++) {
+            info.getItems().add(ClassHistogramItem.create()
+                    .setClassName(getClassName(snapshot.classIds[i]))
+                    .setInstances(snapshot.instances[i])
+                    .setBytes(snapshot.bytes[i]));
+        }
+        return info;
+    }
+
+    /**
+     * 采集新的快照并与基线对比，返回字节数增长最多的 N 个类。还没有基线时以本次快照作为基线，返回的列表为空
+     *
+     * @param top   返回的类数量，小于等于0时返回所有增长的类
+     * @param live  为true时只统计存活对象，会触发一次 Full GC
+     * @param reset 对比后是否以本次快照作为新的基线
+     * @return {@link JvmClassHistogramInfo}
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    public JvmClassHistogramInfo diff(int top, boolean live, boolean reset) throws Exception {
+        Snapshot current = snapshot(live);
+        Snapshot base;
+        synchronized (this) {
+            base = baseline;
+            if (base == null || reset) {
+                baseline = current;
+            }
+        }
+        if (base == null) {
+            return toInfo(current).setBaselineTime(current.timestamp);
+        }
+        return diff(base, current, top);
+    }
+
+    /**
+     * 对比两个快照，返回字节数增长最多的 N 个类
+     *
+     * @param base    基线快照
+     * @param current 当前快照
+     * @param top     返回的类数量，小于等于0时返回所有增长的类
+     * @return {@link JvmClassHistogramInfo}
+     * @throws IllegalArgumentException 两个快照采集期间类名称表被重建过
+     */
+    public JvmClassHistogramInfo diff(Snapshot base, Snapshot current, int top) {
+        if (base.generation != current.generation) {
+            throw new IllegalArgumentException("The class name table has been rebuilt between the two snapshots");
+        }
+        int idCount = Math.max(base.maxClassId(), current.maxClassId()) + 1;
+        long[] baseInstances = new long[idCount];
+        long[] baseBytes = new long[idCount];
+        for (int i = 0; i < base.size; i++) {
+            baseInstances[base.classIds[i]] = base.instances[i];
+            baseBytes[base.classIds[i]] = base.bytes[i];
+        }
+
+        //  只对字节数增长的类排序，基线中不存在的类以0为基准
+        Integer[] grown = new Integer[current.size];
+        int count = 0;
+        for (int i = 0; i < current.size; i++) {
+            if (current.bytes[i] > baseBytes[current.classIds[i]]) {
+                grown[count++] = i;
+            }
+        }
+        Arrays.sort(grown, 0, count, (o1, o2) -> Long.compare(
+                current.bytes[o2] - baseBytes[current.classIds[o2]],
+                current.bytes[o1] - baseBytes[current.classIds[o1]]));
+
+        JvmClassHistogramInfo info = toInfo(current)
+                .setBaselineTime(base.timestamp)
+                .setInstancesDiff(current.totalInstances - base.totalInstances)
+                .setBytesDiff(current.totalBytes - base.totalBytes);
+        int n = top > 0 ? Math.min(top, count) : count;
+        for (int i = 0; i < n; i++) {
+            int idx = grown[i];
+            int id = current.classIds[idx];
+            info.getItems().add(ClassHistogramItem.create()
+                    .setClassName(getClassName(id))
+                    .setInstances(current.instances[idx])
+                    .setBytes(current.bytes[idx])
+                    .setInstancesDiff(current.instances[idx] - baseInstances[id])
+                    .setBytesDiff(current.bytes[idx] - baseBytes[id]));
+        }
+        return info;
+    }
+
+    public Snapshot getBaseline() {
+        return baseline;
+    }
+
+    public synchronized void setBaseline(Snapshot baseline) {
+        if (baseline != null && baseline.generation != generation) {
+            throw new IllegalArgumentException("The class name table has been rebuilt since the snapshot was taken");
+        }
+        this.baseline = baseline;
+    }
+
+    public synchronized void clearBaseline() {
+        baseline = null;
+    }
+
+    public synchronized String getClassName(int classId) {
+        return classId >= 0 && classId < names.size() ? names.get(classId) : null;
+    }
+
+    synchronized int getClassNameCount() {
+        return names.size();
+    }
+
+    /**
+     * 名称表超出上限时重建，只保留基线快照用到的类名，并把基线快照转换为新表的 id
+     */
+    private synchronized void compactIfNecessary() {
+        if (names.size() <= maxClassNames) {
+            return;
+        }
+        List<String> oldNames = names;
+        names = new ArrayList<>();
+        nameIds = new HashMap<>();
+        generation++;
+        Snapshot base = baseline;
+        if (base != null) {
+            Snapshot remapped = new Snapshot(base.live, base.timestamp, generation);
+            for (int i = 0; i < base.size; i++) {
+                remapped.add(getClassId(oldNames.get(base.classIds[i])), base.instances[i], base.bytes[i]);
+            }
+            remapped.totalInstances = base.totalInstances;
+            remapped.totalBytes = base.totalBytes;
+            baseline = remapped;
+        }
+    }
+
+    private synchronized int getClassId(String className) {
+        Integer id = nameIds.get(className);
+        if (id == null) {
+            id = names.size();
+            names.add(className);
+            nameIds.put(className, id);
+        }
+        return id;
+    }
+
+    private static JvmClassHistogramInfo toInfo(Snapshot snapshot) {
+        return JvmClassHistogramInfo.create()
+                .setTimestamp(snapshot.timestamp)
+                .setLive(snapshot.live)
+                .setClasses(snapshot.size)
+                .setTotalInstances(snapshot.totalInstances)
+                .setTotalBytes(snapshot.totalBytes);
+    }
+
+    /**
+     * 逐行扫描 GC.class_histogram 的输出，兼容 JDK 9+ 类名后的 (module) 后缀：
+     * <pre>
+     *  num     #instances         #bytes  class name (module)
+     * -------------------------------------------------------
+     *    1:         12870         983048  [B (java.base@17.0.9)
+     * Total         74080        3596328
+     * </pre>
+     *
+     * @param output 命令输出
+     * @param live   是否只统计了存活对象
+     * @return {@link Snapshot}
+     */
+    synchronized Snapshot parse(CharSequence output, boolean live) {
+        //  整个解析过程持有锁，避免并发解析期间名称表被重建
+        compactIfNecessary();
+        Snapshot snapshot = new Snapshot(live, System.currentTimeMillis(), generation);
+        int len = output.length();
+        int pos = 0;
+        while (pos < len) {
+            int end = pos;
+            while (end < len && output.charAt(end) != '\n') {
+                end++;
+            }
+            parseLine(output, pos, end, snapshot);
+            pos = end + 1;
+        }
+        return snapshot;
+    }
+
+    private void parseLine(CharSequence s, int start, int end, Snapshot snapshot) {
+        int pos = skipSpaces(s, start, end);
+        if (pos >= end) {
+            return;
+        }
+        char c = s.charAt(pos);
+        if (c >= '0' && c <= '9') {
+            //  序号
+            pos = skipDigits(s, pos, end);
+            if (pos >= end || s.charAt(pos) != ':') {
+                return;
+            }
+            pos = skipSpaces(s, pos + 1, end);
+            int numEnd = skipDigits(s, pos, end);
+            long instances = parseLong(s, pos, numEnd);
+            pos = skipSpaces(s, numEnd, end);
+            numEnd = skipDigits(s, pos, end);
+            long bytes = parseLong(s, pos, numEnd);
+            pos = skipSpaces(s, numEnd, end);
+            int nameEnd = end;
+            while (nameEnd > pos && Character.isWhitespace(s.charAt(nameEnd - 1))) {
+                nameEnd--;
+            }
+            if (instances < 0 || bytes < 0 || nameEnd <= pos) {
+                return;
+            }
+            //  去掉 JDK 9+ 的模块后缀
+            if (s.charAt(nameEnd - 1) == ')') {
+                for (int i = nameEnd - 2; i > pos; i--) {
+                    if (s.charAt(i) == '(' && s.charAt(i - 1) == ' ') {
+                        nameEnd = i - 1;
+                        break;
+                    }
+                }
+            }
+            snapshot.add(getClassId(s.subSequence(pos, nameEnd).toString()), instances, bytes);
+        } else if (c == 'T' && end - pos > 5 && "Total".contentEquals(s.subSequence(pos, pos + 5))) {
+            pos = skipSpaces(s, pos + 5, end);
+            int numEnd = skipDigits(s, pos, end);
+            long instances = parseLong(s, pos, numEnd);
+            pos = skipSpaces(s, numEnd, end);
+            long bytes = parseLong(s, pos, skipDigits(s, pos, end));
+            if (instances >= 0 && bytes >= 0) {
+                snapshot.totalInstances = instances;
+                snapshot.totalBytes = bytes;
+            }
+        }
+    }
+
+    private static int skipSpaces(CharSequence s, int pos, int end) {
+        while (pos < end && (s.charAt(pos) == ' ' || s.charAt(pos) == '\t' || s.charAt(pos) == '\r')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipDigits(CharSequence s, int pos, int end) {
+        while (pos < end && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static long parseLong(CharSequence s, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        long v = 0;
+        for (int i = start; i < end; i++) {
+            v = v * 10 + (s.charAt(i) - '0');
+        }
+        return v;
+    }
+
+    /**
+     * 列式保存的类直方图快照，第 i 个类的名称 id、实例数、字节数分别为 classIds[i]、instances[i]、bytes[i]，
+     * 名称 id 通过 {@link ClassHistogramRecorder#getClassName(int)} 转换为类名
+     */
+    public static final class Snapshot {
+        private final long timestamp;
+        private final boolean live;
+        private final int generation;
+        private int[] classIds = new int[1024];
+        private long[] instances = new long[1024];
+        private long[] bytes = new long[1024];
+        private int size;
+        private long totalInstances;
+        private long totalBytes;
+
+        private Snapshot(boolean live, long timestamp, int generation) {
+            this.live = live;
+            this.timestamp = timestamp;
+            this.generation = generation;
+        }
+
+        private void add(int classId, long instance, long byteSize) {
+            if (size == classIds.length) {
+                int newLength = size << 1;
+                classIds = Arrays.copyOf(classIds, newLength);
+                instances = Arrays.copyOf(instances, newLength);
+                bytes = Arrays.copyOf(bytes, newLength);
+            }
+            classIds[size] = classId;
+            instances[size] = instance;
+            bytes[size] = byteSize;
+            size++;
+        }
+
+        private int maxClassId() {
+            int max = -1;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, classIds[i]);
+            }
+            return max;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean isLive() {
+            return live;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getClassId(int index) {
+            return classIds[index];
+        }
+
+        public long getInstances(int index) {
+            return instances[index];
+        }
+
+        public long getBytes(int index) {
+            return bytes[index];
+        }
+
+        public long getTotalInstances() {
+            return totalInstances;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+    }
+}
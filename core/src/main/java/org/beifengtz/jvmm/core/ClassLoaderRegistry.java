@@ -0,0 +1,391 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.core.entity.info.JvmClassLoaderInfo;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Description: ClassLoader 索引，按对象标识保存当前 JVM 中所有加载过类的 ClassLoader，以及每个 ClassLoader 定义的类数量。
+ * </p>
+ * <p>
+ * 安装时通过 {@link Instrumentation#getAllLoadedClasses()} 全量建立索引，之后由一个不修改字节码的 {@link ClassFileTransformer}
+ * 在类加载时增量登记，类卸载造成的计数偏差在查询时按 {@link #RESCAN_INTERVAL} 周期全量校正。
+ * 索引只持有 ClassLoader 的弱引用，不会阻止其被回收；hashcode 相同的不同 ClassLoader 各自保存，不会互相覆盖，
+ * 另有一份 hashcode 到弱引用列表的索引，按 hashcode 查找时不需要遍历所有 ClassLoader。
+ * </p>
+ * <p>
+ * 没有 {@link Instrumentation} 时（例如只使用 core 模块）退化为扫描所有线程的 ContextClassLoader，类数量为-1。
+ * </p>
+ * <p>
+ * Created in 14:10 2023/10/19
+ *
+ * @author beifengtz
+ */
+public final class ClassLoaderRegistry implements ClassFileTransformer {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ClassLoaderRegistry.class);
+
+    /**
+     * 全量校正的最小间隔，单位ms
+     */
+    private static final long RESCAN_INTERVAL = 60_000;
+
+    private final ConcurrentHashMap<LoaderKey, AtomicInteger> loaders = new ConcurrentHashMap<>();
+    /**
+     * ClassLoader hashcode -> 弱引用键，列表只在 compute 中整体替换，读取时不需要加锁
+     */
+    private final ConcurrentHashMap<Integer, List<LoaderKey>> hashes = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    private final AtomicInteger bootstrapClassCount = new AtomicInteger();
+    private volatile Instrumentation instrumentation;
+    private volatile long lastScanTime;
+
+    ClassLoaderRegistry() {
+    }
+
+    public boolean isInstalled() {
+        return instrumentation != null;
+    }
+
+    /**
+     * 注册类加载监听并全量建立索引，重复调用无副作用
+     *
+     * @param inst {@link Instrumentation}
+     */
+    public synchronized void install(Instrumentation inst) {
+        if (instrumentation != null || inst == null) {
+            return;
+        }
+        //  先注册监听再扫描，保证扫描期间加载的类不会遗漏
+        inst.addTransformer(this, false);
+        instrumentation = inst;
+        rescan();
+        logger.debug("Class loader registry installed, {} class loaders indexed", loaders.size());
+    }
+
+    public synchronized void uninstall() {
+        if (instrumentation == null) {
+            return;
+        }
+        instrumentation.removeTransformer(this);
+        instrumentation = null;
+        loaders.clear();
+        hashes.clear();
+        bootstrapClassCount.set(0);
+        logger.debug("Class loader registry uninstalled");
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        //  只登记新定义的类，redefine/retransform 不计数
+        if (classBeingRedefined == null) {
+            if (loader == null) {
+                bootstrapClassCount.incrementAndGet();
+            } else {
+                register(loader).incrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 登记 ClassLoader 及其父加载器链
+     *
+     * @return 该 ClassLoader 的类数量计数器
+     */
+    private AtomicInteger register(ClassLoader loader) {
+        expunge();
+        AtomicInteger count = loaders.get(new LoaderKey(loader, null));
+        if (count == null) {
+            AtomicInteger created = new AtomicInteger();
+            LoaderKey key = new LoaderKey(loader, queue);
+            count = loaders.putIfAbsent(key, created);
+            if (count == null) {
+                count = created;
+                hashes.compute(key.loaderHash, (h, keys) -> {
+                    List<LoaderKey> list = keys == null ? new ArrayList<>(1) : new ArrayList<>(keys);
+                    list.add(key);
+                    return list;
+                });
+                ClassLoader parent = loader.getParent();
+                if (parent != null) {
+                    register(parent);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 清理已被回收的 ClassLoader
+     */
+    private void expunge() {
+        Reference<? extends ClassLoader> ref;
+        while ((ref = queue.poll()) != null) {
+            LoaderKey key = (LoaderKey) ref;
+            loaders.remove(key);
+            hashes.computeIfPresent(key.loaderHash, (h, keys) -> {
+                List<LoaderKey> list = new ArrayList<>(keys);
+                list.remove(key);
+                return list.isEmpty() ? null : list;
+            });
+        }
+    }
+
+    /**
+     * 根据 {@link Instrumentation#getAllLoadedClasses()} 重新统计每个 ClassLoader 的类数量，并清理已被回收的 ClassLoader
+     */
+    public synchronized void rescan() {
+        Instrumentation inst = instrumentation;
+        if (inst == null) {
+            return;
+        }
+        Map<ClassLoader, int[]> counts = new IdentityHashMap<>();
+        int bootstrap = 0;
+        for (Class<?> clazz : inst.getAllLoadedClasses()) {
+            ClassLoader loader = clazz.getClassLoader();
+            if (loader == null) {
+                bootstrap++;
+            } else {
+                counts.computeIfAbsent(loader, o -> new int[1])[0]++;
+            }
+        }
+        for (Entry<ClassLoader, int[]> entry : counts.entrySet()) {
+            register(entry.getKey()).set(entry.getValue()[0]);
+        }
+        for (Entry<LoaderKey, AtomicInteger> entry : loaders.entrySet()) {
+            ClassLoader loader = entry.getKey().get();
+            if (loader != null && !counts.containsKey(loader)) {
+                entry.getValue().set(0);
+            }
+        }
+        bootstrapClassCount.set(bootstrap);
+        lastScanTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 查询前保证索引可用：已安装时按需全量校正计数，未安装时登记所有线程的 ContextClassLoader
+     *
+     * @param needCount 是否需要准确的类数量
+     */
+    private void prepare(boolean needCount) {
+        if (instrumentation == null) {
+            expunge();
+            for (Thread thread : Unsafe.getThreads()) {
+                ClassLoader loader = thread.getContextClassLoader();
+                if (loader != null) {
+                    register(loader).set(-1);
+                }
+            }
+        } else if (needCount && System.currentTimeMillis() - lastScanTime > RESCAN_INTERVAL) {
+            rescan();
+        }
+    }
+
+    /**
+     * 根据 hashcode 查找 ClassLoader
+     *
+     * @param hash ClassLoader 的 hashcode
+     * @return {@link ClassLoader}，不存在时返回null
+     */
+    public ClassLoader getClassLoader(int hash) {
+        if (hash == 0) {
+            return null;
+        }
+        ClassLoader loader = lookup(hash);
+        if (loader == null && instrumentation == null) {
+            prepare(false);
+            loader = lookup(hash);
+        }
+        return loader;
+    }
+
+    private ClassLoader lookup(int hash) {
+        List<LoaderKey> keys = hashes.get(hash);
+        if (keys != null) {
+            for (LoaderKey key : keys) {
+                ClassLoader loader = key.get();
+                if (loader != null) {
+                    return loader;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 当前所有存活的 ClassLoader，不包含 Bootstrap ClassLoader
+     */
+    public List<ClassLoader> getClassLoaders() {
+        prepare(false);
+        List<ClassLoader> result = new ArrayList<>(loaders.size());
+        for (LoaderKey key : loaders.keySet()) {
+            ClassLoader loader = key.get();
+            if (loader != null) {
+                result.add(loader);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Bootstrap ClassLoader 加载的类数量，未安装时返回-1
+     */
+    public int getBootstrapClassCount() {
+        prepare(true);
+        return instrumentation == null ? -1 : bootstrapClassCount.get();
+    }
+
+    /**
+     * 在指定 ClassLoader 中查找已加载的类
+     *
+     * @param hash      ClassLoader 的 hashcode
+     * @param className 类路径
+     * @return Class实例，不存在时返回null
+     * @throws Exception 调用异常
+     */
+    public Class<?> findLoadedClass(int hash, String className) throws Exception {
+        ClassLoader loader = getClassLoader(hash);
+        return loader == null ? null : Unsafe.findLoadedClass(loader, className);
+    }
+
+    /**
+     * 在所有 ClassLoader 中查找已加载的类，同一个类被多个 ClassLoader 委派加载过时只返回一次
+     *
+     * @param className 类路径
+     * @return Class 列表
+     * @throws Exception 调用异常
+     */
+    public List<Class<?>> findLoadedClasses(String className) throws Exception {
+        Map<Class<?>, Boolean> found = new IdentityHashMap<>();
+        for (ClassLoader loader : getClassLoaders()) {
+            Class<?> clazz = Unsafe.findLoadedClass(loader, className);
+            if (clazz != null) {
+                found.put(clazz, Boolean.TRUE);
+            }
+        }
+        return new ArrayList<>(found.keySet());
+    }
+
+    /**
+     * 查找加载过指定类的 ClassLoader
+     *
+     * @param className 类路径
+     * @return ClassLoader 列表
+     * @throws Exception 调用异常
+     */
+    public List<ClassLoader> findLoadedClassLoaders(String className) throws Exception {
+        List<ClassLoader> result = new ArrayList<>();
+        for (ClassLoader loader : getClassLoaders()) {
+            if (Unsafe.findLoadedClass(loader, className) != null) {
+                result.add(loader);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 所有 ClassLoader 信息，包含类数量和父加载器链
+     */
+    public List<JvmClassLoaderInfo> getClassLoaderInfos() {
+        prepare(true);
+        List<JvmClassLoaderInfo> list = new ArrayList<>(loaders.size());
+        for (Entry<LoaderKey, AtomicInteger> entry : loaders.entrySet()) {
+            ClassLoader loader = entry.getKey().get();
+            if (loader != null) {
+                list.add(toInfo(loader, entry.getValue()));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return 以 Bootstrap ClassLoader 的直接子加载器为根的 ClassLoader 树
+     */
+    public List<JvmClassLoaderInfo> getClassLoaderTree() {
+        prepare(true);
+        Map<ClassLoader, JvmClassLoaderInfo> infos = new IdentityHashMap<>();
+        for (Entry<LoaderKey, AtomicInteger> entry : loaders.entrySet()) {
+            ClassLoader loader = entry.getKey().get();
+            if (loader != null) {
+                infos.put(loader, toInfo(loader, entry.getValue()).setChildren(new ArrayList<>()));
+            }
+        }
+        List<JvmClassLoaderInfo> roots = new ArrayList<>();
+        for (Entry<ClassLoader, JvmClassLoaderInfo> entry : infos.entrySet()) {
+            ClassLoader parentLoader = entry.getKey().getParent();
+            JvmClassLoaderInfo parent = parentLoader == null ? null : infos.get(parentLoader);
+            if (parent == null) {
+                roots.add(entry.getValue());
+            } else {
+                parent.getChildren().add(entry.getValue());
+            }
+        }
+        return roots;
+    }
+
+    private static JvmClassLoaderInfo toInfo(ClassLoader loader, AtomicInteger classCount) {
+        JvmClassLoaderInfo info = JvmClassLoaderInfo.create(loader.hashCode())
+                .setName(loader.getClass().getName())
+                .setClassCount(classCount.get());
+        ClassLoader parent = loader.getParent();
+        if (parent != null) {
+            info.setParentHash(parent.hashCode());
+        }
+        while (parent != null) {
+            info.addParents(parent.getClass().getName());
+            parent = parent.getParent();
+        }
+        return info;
+    }
+
+    /**
+     * ClassLoader 的弱引用键，按对象标识比较。被回收后只与自身相等，由 {@link #expunge()} 移除
+     */
+    private static final class LoaderKey extends WeakReference<ClassLoader> {
+        private final int hash;
+        /**
+         * ClassLoader 对外展示的 hashcode，被回收后仍用于从 {@link #hashes} 中移除
+         */
+        private final int loaderHash;
+
+        private LoaderKey(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+            super(loader, queue);
+            this.hash = System.identityHashCode(loader);
+            this.loaderHash = queue == null ? 0 : loader.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LoaderKey)) {
+                return false;
+            }
+            ClassLoader loader = get();
+            return loader != null && loader == ((LoaderKey) o).get();
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.common.util.FileUtil;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerAction;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerCommander;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerCounter;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerEvent;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>
+ * Description: 持续性能分析，每隔固定时间重启一次 async-profiler 的采集，将上一段的结果压缩后写入磁盘上的定长环形目录，
+ * 事后可以按时间范围取出并合并对应的分段，例如查询事故发生时 14:02 ~ 14:05 的火焰图数据。
+ * </p>
+ * <p>
+ * 分段文件名为 profile-开始时间戳-结束时间戳.格式.gz，格式支持 collapsed 和 jfr：collapsed 分段合并时按调用栈累加样本数，
+ * jfr 文件本身由可拼接的 chunk 组成，合并时直接按顺序拼接。目录超过大小上限或分段超过保留时长时从最旧的分段开始删除，
+ * 目录中已有的分段在重启后仍可查询。
+ * </p>
+ * <p>
+ * Created in 10:20 2023/10/23
+ *
+ * @author beifengtz
+ */
+public final class ContinuousProfiler {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ContinuousProfiler.class);
+
+    public static final String FORMAT_COLLAPSED = "collapsed";
+    public static final String FORMAT_JFR = "jfr";
+    /**
+     * 默认分段时长，单位秒
+     */
+    public static final int DEFAULT_CHUNK = 60;
+    /**
+     * 默认目录大小上限，单位字节
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L << 20;
+    /**
+     * 默认保留时长，单位分钟
+     */
+    public static final int DEFAULT_MAX_AGE = 24 * 60;
+
+    private static final Pattern CHUNK_PATTERN = Pattern.compile("^profile-(\\d+)-(\\d+)\\.(\\w+)\\.gz$");
+
+    private File dir = new File(FileUtil.getTempPath(), "profile");
+    private String event = ProfilerEvent.cpu.name();
+    private long interval = 0;
+    private String format = FORMAT_COLLAPSED;
+    private int chunk = DEFAULT_CHUNK;
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private int maxAge = DEFAULT_MAX_AGE;
+
+    private volatile ScheduledFuture<?> task;
+    private long chunkStart;
+    private File recording;
+
+    ContinuousProfiler() {
+    }
+
+    public boolean isRunning() {
+        ScheduledFuture<?> task = this.task;
+        return task != null && !task.isDone();
+    }
+
+    /**
+     * 开始持续采集，如果已经启动则先结束当前分段并按新的配置重新启动。有按需采样的请求未结束时无法启动
+     *
+     * @throws IOException 创建目录失败
+     */
+    public synchronized void start() throws IOException {
+        ProfilerSessionManager manager = JvmmFactory.getProfilerSessionManager();
+        //  已经启动时沿用之前的占用，否则在会话管理器中原子地判断空闲并占用 profiler
+        if (!isRunning() && !manager.claimContinuous()) {
+            throw new IllegalStateException("Profiler is busy with on-demand profiling requests");
+        }
+        try {
+            finishTask();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Can not create continuous profile directory: " + dir.getAbsolutePath());
+            }
+            //  上次进程退出时未完成的 jfr 录制文件
+            File[] leftovers = dir.listFiles((d, name) -> name.startsWith("recording-") && name.endsWith(".jfr"));
+            if (leftovers != null) {
+                for (File file : leftovers) {
+                    file.delete();
+                }
+            }
+            startChunk();
+            task = ExecutorFactory.getThreadPool().scheduleAtFixedRate(this::rotate, chunk, chunk, TimeUnit.SECONDS);
+        } catch (Throwable e) {
+            task = null;
+            manager.releaseContinuous();
+            throw e;
+        }
+        logger.info("Continuous profiler started, event: {}, format: {}, chunk: {}s, dir: {}", event, format, chunk, dir.getAbsolutePath());
+    }
+
+    /**
+     * 停止持续采集，当前分段会被写入磁盘
+     */
+    public synchronized void stop() {
+        if (task == null) {
+            return;
+        }
+        finishTask();
+        JvmmFactory.getProfilerSessionManager().releaseContinuous();
+        logger.info("Continuous profiler stopped");
+    }
+
+    /**
+     * 结束定时任务并把当前分段写入磁盘，不释放对 profiler 的占用
+     */
+    private void finishTask() {
+        if (task == null) {
+            return;
+        }
+        task.cancel(false);
+        task = null;
+        try {
+            finishChunk();
+        } catch (Throwable e) {
+            logger.warn("Finish continuous profile chunk failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 结束当前分段并立即开始下一段，两段之间只有停止和启动 profiler 的间隙
+     */
+    synchronized void rotate() {
+        if (task == null) {
+            return;
+        }
+        try {
+            finishChunk();
+        } catch (Throwable e) {
+            logger.warn("Finish continuous profile chunk failed: " + e.getMessage(), e);
+        }
+        //  上一段失败时也要开始下一段，避免持续采集中断
+        try {
+            startChunk();
+        } catch (Throwable e) {
+            logger.warn("Start continuous profile chunk failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void startChunk() {
+        ProfilerCommander commander = ProfilerCommander.newInstance()
+                .setAction(ProfilerAction.start)
+                .setEvent(event)
+                .setCounter(ProfilerCounter.samples);
+        if (interval > 0) {
+            commander.setInterval(interval);
+        }
+        if (FORMAT_JFR.equals(format)) {
+            //  jfr 格式需要在启动时指定输出文件
+            recording = new File(dir, "recording-" + System.currentTimeMillis() + ".jfr");
+            commander.setFile(recording.getAbsolutePath());
+        }
+        JvmmFactory.getProfiler().execute(commander);
+        chunkStart = System.currentTimeMillis();
+    }
+
+    private void finishChunk() throws IOException {
+        JvmmProfiler profiler = JvmmFactory.getProfiler();
+        long chunkEnd = System.currentTimeMillis();
+        File to = new File(dir, "profile-" + chunkStart + "-" + chunkEnd + "." + format + ".gz");
+        if (FORMAT_JFR.equals(format)) {
+            File jfr = recording;
+            recording = null;
+            profiler.execute(ProfilerCommander.newInstance().setAction(ProfilerAction.stop).setFile(jfr.getAbsolutePath()));
+            try (InputStream is = new FileInputStream(jfr);
+                 OutputStream os = new GZIPOutputStream(new FileOutputStream(to))) {
+                copy(is, os);
+            } finally {
+                if (!jfr.delete()) {
+                    jfr.deleteOnExit();
+                }
+            }
+        } else {
+            profiler.execute(ProfilerCommander.newInstance().setAction(ProfilerAction.stop));
+            //  停止后 profiler 仍保留本次的数据，直到下一次启动
+            String collapsed = profiler.execute(ProfilerCommander.newInstance()
+                    .setAction(ProfilerAction.collapsed)
+                    .setCounter(ProfilerCounter.samples));
+            try (OutputStream os = new GZIPOutputStream(new FileOutputStream(to))) {
+                os.write(collapsed.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        evict();
+    }
+
+    /**
+     * 删除超过保留时长的分段，然后从最旧的分段开始删除直到目录大小不超过上限
+     */
+    synchronized void evict() {
+        List<Chunk> chunks = listChunks(null);
+        long expire = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(maxAge);
+        long total = 0;
+        for (Chunk c : chunks) {
+            total += c.file.length();
+        }
+        for (Chunk c : chunks) {
+            if (c.end >= expire && total <= maxSize) {
+                break;
+            }
+            total -= c.file.length();
+            if (!c.file.delete()) {
+                logger.warn("Delete continuous profile chunk failed: {}", c.file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * 列出目录中的分段，按开始时间从早到晚排序
+     *
+     * @param format 只列出指定格式的分段，为null时列出所有格式
+     */
+    private List<Chunk> listChunks(String format) {
+        List<Chunk> chunks = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return chunks;
+        }
+        for (File file : files) {
+            Matcher m = CHUNK_PATTERN.matcher(file.getName());
+            if (m.matches() && (format == null || format.equals(m.group(3)))) {
+                chunks.add(new Chunk(file, Long.parseLong(m.group(1)), Long.parseLong(m.group(2))));
+            }
+        }
+        chunks.sort(Comparator.comparingLong(o -> o.start));
+        return chunks;
+    }
+
+    /**
+     * 获取与时间范围有交集的已完成分段文件，不包含正在采集的分段
+     *
+     * @param from   起始时间戳，小于等于0时不限制
+     * @param to     结束时间戳，小于等于0时不限制
+     * @param format 分段格式，为null时使用当前配置的格式
+     * @return 按时间排序的分段文件
+     */
+    public synchronized List<File> getChunks(long from, long to, String format) {
+        String f = format == null || format.isEmpty() ? this.format : format;
+        List<File> files = new ArrayList<>();
+        for (Chunk c : listChunks(f)) {
+            if ((from <= 0 || c.end >= from) && (to <= 0 || c.start <= to)) {
+                files.add(c.file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 在同一次加锁中选出已完成的分段，并在查询范围包含正在采集的 collapsed 分段时通过 dump 读取其中已采集的数据。
+     * 不结束当前分段，频繁查询不会产生大量很短的分段挤掉历史数据，也不影响定时切分。
+     * jfr 格式正在写入的录制文件不完整，只返回已完成的分段
+     */
+    private synchronized Selection select(long from, long to, String format) {
+        Selection selection = new Selection(getChunks(from, to, format));
+        if (isRunning() && FORMAT_COLLAPSED.equals(format) && FORMAT_COLLAPSED.equals(this.format) && (to <= 0 || to >= chunkStart)) {
+            try {
+                selection.current = JvmmFactory.getProfiler().execute(ProfilerCommander.newInstance()
+                        .setAction(ProfilerAction.dump)
+                        .setCollapsed(true)
+                        .setCounter(ProfilerCounter.samples));
+            } catch (Throwable e) {
+                logger.warn("Dump current continuous profile chunk failed: " + e.getMessage(), e);
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * 合并时间范围内的分段并写入输出流，collapsed 格式按调用栈累加样本数并包含正在采集的分段，jfr 格式按顺序拼接已完成的分段
+     *
+     * @param from   起始时间戳，小于等于0时不限制
+     * @param to     结束时间戳，小于等于0时不限制
+     * @param format 分段格式，为null时使用当前配置的格式
+     * @param os     输出流，不会被关闭
+     * @return 合并的分段数量
+     * @throws IOException 读取分段或写入失败
+     */
+    public int merge(long from, long to, String format, OutputStream os) throws IOException {
+        String f = format == null || format.isEmpty() ? getFormat() : format;
+        Selection selection = select(from, to, f);
+        if (FORMAT_JFR.equals(f)) {
+            int merged = 0;
+            for (File file : selection.files) {
+                InputStream is;
+                try {
+                    is = new GZIPInputStream(new FileInputStream(file));
+                } catch (FileNotFoundException e) {
+                    //  选出分段后释放了锁，分段可能已经被淘汰
+                    logger.debug("Continuous profile chunk evicted: {}", file.getName());
+                    continue;
+                }
+                try {
+                    copy(is, os);
+                } finally {
+                    is.close();
+                }
+                merged++;
+            }
+            return merged;
+        }
+        StackProfile profile = new StackProfile();
+        int merged = readProfile(selection, profile);
+        Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+        profile.writeCollapsed(writer);
+        writer.flush();
+        return merged;
+    }
+
+    /**
+     * 将时间范围内 collapsed 格式的分段聚合为 {@link StackProfile}，包含正在采集的分段
+     *
+     * @param from 起始时间戳，小于等于0时不限制
+     * @param to   结束时间戳，小于等于0时不限制
+     * @return {@link StackProfile}
+     * @throws IOException 读取分段失败
+     */
+    public StackProfile getProfile(long from, long to) throws IOException {
+        StackProfile profile = new StackProfile();
+        readProfile(select(from, to, FORMAT_COLLAPSED), profile);
+        return profile;
+    }
+
+    /**
+     * 读取选出的 collapsed 分段，读取时不持有锁，已被淘汰的分段跳过
+     *
+     * @return 读取的分段数量
+     */
+    private static int readProfile(Selection selection, StackProfile profile) throws IOException {
+        int merged = 0;
+        for (File file : selection.files) {
+            InputStream is;
+            try {
+                is = new GZIPInputStream(new FileInputStream(file));
+            } catch (FileNotFoundException e) {
+                logger.debug("Continuous profile chunk evicted: {}", file.getName());
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    profile.addCollapsed(line);
+                }
+            }
+            merged++;
+        }
+        if (selection.current != null) {
+            profile.addCollapsed(selection.current);
+            merged++;
+        }
+        return merged;
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = is.read(buffer)) > 0) {
+            os.write(buffer, 0, len);
+        }
+    }
+
+    public synchronized File getDir() {
+        return dir;
+    }
+
+    public synchronized ContinuousProfiler setDir(File dir) {
+        this.dir = dir;
+        return this;
+    }
+
+    public synchronized String getEvent() {
+        return event;
+    }
+
+    public synchronized ContinuousProfiler setEvent(String event) {
+        this.event = event;
+        return this;
+    }
+
+    public synchronized long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @param interval 采样间隔，单位纳秒ns，小于等于0时使用 async-profiler 的默认值
+     */
+    public synchronized ContinuousProfiler setInterval(long interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    public synchronized String getFormat() {
+        return format;
+    }
+
+    /**
+     * @param format {@link #FORMAT_COLLAPSED} 或 {@link #FORMAT_JFR}
+     */
+    public synchronized ContinuousProfiler setFormat(String format) {
+        if (!FORMAT_COLLAPSED.equals(format) && !FORMAT_JFR.equals(format)) {
+            throw new IllegalArgumentException("Invalid continuous profile format: " + format + ", expected: collapsed, jfr");
+        }
+        this.format = format;
+        return this;
+    }
+
+    public synchronized int getChunk() {
+        return chunk;
+    }
+
+    /**
+     * @param chunk 分段时长，单位秒，最小10秒
+     */
+    public synchronized ContinuousProfiler setChunk(int chunk) {
+        this.chunk = Math.max(10, chunk);
+        return this;
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize 目录中所有分段的大小上限，单位字节
+     */
+    public synchronized ContinuousProfiler setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public synchronized int getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * @param maxAge 分段保留时长，单位分钟
+     */
+    public synchronized ContinuousProfiler setMaxAge(int maxAge) {
+        this.maxAge = Math.max(1, maxAge);
+        return this;
+    }
+
+    private static final class Selection {
+        private final List<File> files;
+        /**
+         * 正在采集的分段中已采集的 collapsed 数据
+         */
+        private String current;
+
+        private Selection(List<File> files) {
+            this.files = files;
+        }
+    }
+
+    private static final class Chunk {
+        private final File file;
+        private final long start;
+        private final long end;
+
+        private Chunk(File file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
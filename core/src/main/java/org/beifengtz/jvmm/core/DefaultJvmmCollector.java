@@ -4,18 +4,25 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.beifengtz.jvmm.common.exception.ExecutionException;
 import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.common.procfs.ProcFs;
+import org.beifengtz.jvmm.common.procfs.ProcIO;
+import org.beifengtz.jvmm.common.procfs.ProcStat;
+import org.beifengtz.jvmm.common.procfs.ProcStatus;
 import org.beifengtz.jvmm.common.util.IPUtil;
 import org.beifengtz.jvmm.common.util.PidUtil;
 import org.beifengtz.jvmm.common.util.PlatformUtil;
 import org.beifengtz.jvmm.common.util.SystemPropertyUtil;
 import org.beifengtz.jvmm.core.driver.OSDriver;
+import org.beifengtz.jvmm.core.driver.OSRateSampler.RateWindow;
+import org.beifengtz.jvmm.core.driver.PerfDataDriver;
 import org.beifengtz.jvmm.core.entity.info.*;
 import org.beifengtz.jvmm.core.entity.result.LinuxMemResult;
 
+import java.io.IOException;
 import java.lang.management.*;
-import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -37,6 +44,14 @@ import java.util.concurrent.TimeUnit;
 class DefaultJvmmCollector implements JvmmCollector {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(DefaultJvmmCollector.class);
+    /**
+     * 流式 dump 线程时每批获取的线程数
+     */
+    private static final int DUMP_BATCH_SIZE = 256;
+    /**
+     * 线程分配速率的最小统计窗口
+     */
+    private static final long MIN_ALLOCATION_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
 
     DefaultJvmmCollector() {
     }
@@ -82,6 +97,11 @@ class DefaultJvmmCollector implements JvmmCollector {
         return OSDriver.get().getCPUInfo();
     }
 
+    @Override
+    public CompletableFuture<RateWindow> getRateWindow() {
+        return OSDriver.get().getRateWindow();
+    }
+
     @Override
     public CompletableFuture<NetInfo> getNetwork() {
         return OSDriver.get().getNetInfo();
@@ -125,6 +145,23 @@ class DefaultJvmmCollector implements JvmmCollector {
                 .setVmSpecVersion(runtimeMXBean.getSpecVersion())
                 .setWorkDir(SystemPropertyUtil.get("user.dir"))
                 .setInputArgs(runtimeMXBean.getInputArguments());
+
+        if (ProcFs.isSupported()) {
+            try {
+                ProcStatus status = ProcFs.readSelfStatus();
+                info.setRss(status.getVmRSS())
+                        .setVmSize(status.getVmSize())
+                        .setSwap(status.getVmSwap());
+                ProcStat stat = ProcFs.readSelfStat();
+                info.setMinorFaults(stat.getMinorFaults())
+                        .setMajorFaults(stat.getMajorFaults());
+                ProcIO io = ProcFs.readSelfIO();
+                info.setIoReadBytes(io.getReadBytes())
+                        .setIoWriteBytes(io.getWriteBytes());
+            } catch (Throwable e) {
+                logger.debug("Read process info from procfs failed: {}", e.getMessage());
+            }
+        }
         return info;
     }
 
@@ -148,6 +185,11 @@ class DefaultJvmmCollector implements JvmmCollector {
         }
     }
 
+    @Override
+    public List<JvmClassLoaderInfo> getJvmClassLoaderTree() {
+        return JvmmFactory.getClassLoaderRegistry().getClassLoaderTree();
+    }
+
     @Override
     public JvmCompilationInfo getJvmCompilation() {
         JvmCompilationInfo info = JvmCompilationInfo.create();
@@ -177,6 +219,38 @@ class DefaultJvmmCollector implements JvmmCollector {
         return infos;
     }
 
+    @Override
+    public JvmGCPauseInfo getJvmGCPause() {
+        GCPauseRecorder recorder = JvmmFactory.getGCPauseRecorder();
+        recorder.install();
+        return recorder.getPauseInfo();
+    }
+
+    @Override
+    public JvmPerfInfo getJvmPerf(long pid) throws IOException {
+        return PerfDataDriver.open(pid).getPerfInfo();
+    }
+
+    @Override
+    public Map<String, Object> getJvmPerfCounters(long pid, String prefix) throws IOException {
+        return PerfDataDriver.open(pid).getCounters(prefix);
+    }
+
+    @Override
+    public JvmNativeMemoryInfo getJvmNativeMemory() throws Exception {
+        return JvmmFactory.getNativeMemoryTracker().getInfo();
+    }
+
+    @Override
+    public JvmClassHistogramInfo getJvmClassHistogram(int top, boolean live) throws Exception {
+        return JvmmFactory.getClassHistogramRecorder().getHistogram(top, live);
+    }
+
+    @Override
+    public JvmClassHistogramInfo getJvmClassHistogramDiff(int top, boolean live, boolean reset) throws Exception {
+        return JvmmFactory.getClassHistogramRecorder().diff(top, live, reset);
+    }
+
     @Override
     public List<JvmMemoryManagerInfo> getJvmMemoryManager() {
         List<MemoryManagerMXBean> memoryManagerMXBeans = ManagementFactory.getMemoryManagerMXBeans();
@@ -237,6 +311,20 @@ class DefaultJvmmCollector implements JvmmCollector {
         return info;
     }
 
+    @Override
+    public JvmBufferPoolInfo getJvmBufferPool() {
+        JvmBufferPoolInfo info = JvmBufferPoolInfo.create();
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            info.getPools().add(JvmBufferPoolInfo.BufferPool.create()
+                    .setName(pool.getName())
+                    .setCount(pool.getCount())
+                    .setMemoryUsed(pool.getMemoryUsed())
+                    .setTotalCapacity(pool.getTotalCapacity()));
+        }
+        info.setNetty(NettyMemoryReader.read());
+        return info;
+    }
+
     @Override
     public JvmThreadInfo getJvmThread() {
         ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
@@ -266,22 +354,44 @@ class DefaultJvmmCollector implements JvmmCollector {
 
     @Override
     public JvmThreadDetailInfo getJvmThreadDetailInfo(long id) {
-        return getJvmThreadDetailInfo(ManagementFactory.getThreadMXBean(), id);
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        ThreadInfo ti = threadMXBean.getThreadInfo(id);
+        if (ti == null) {
+            return null;
+        }
+        long allocatedBytes = getThreadAllocatedBytes(threadMXBean, new long[]{id})[0];
+        return threadInfo2Detail(ti, Unsafe.getThread(id), threadMXBean.getThreadCpuTime(id), threadMXBean.getThreadUserTime(id), allocatedBytes);
     }
 
     @Override
     public JvmThreadDetailInfo[] getJvmThreadDetailInfo(long... ids) {
-        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        ThreadInfo[] threadInfos = threadMXBean.getThreadInfo(ids);
+        long[] cpuTimes = getThreadCpuTime(threadMXBean, ids);
+        long[] userTimes = getThreadUserTime(threadMXBean, ids);
+        long[] allocatedBytes = getThreadAllocatedBytes(threadMXBean, ids);
+        Map<Long, Thread> threadIndex = Unsafe.getThreadIndex();
+
         JvmThreadDetailInfo[] res = new JvmThreadDetailInfo[ids.length];
         for (int i = 0; i < ids.length; i++) {
-            res[i] = getJvmThreadDetailInfo(mx, ids[i]);
+            ThreadInfo ti = threadInfos[i];
+            if (ti != null) {
+                res[i] = threadInfo2Detail(ti, threadIndex.get(ids[i]), cpuTimes[i], userTimes[i], allocatedBytes[i]);
+            }
         }
         return res;
     }
 
     @Override
     public JvmThreadDetailInfo[] getAllJvmThreadDetailInfo() {
-        return getJvmThreadDetailInfo(ManagementFactory.getThreadMXBean().getAllThreadIds());
+        JvmThreadDetailInfo[] infos = getJvmThreadDetailInfo(ManagementFactory.getThreadMXBean().getAllThreadIds());
+        int len = 0;
+        for (JvmThreadDetailInfo info : infos) {
+            if (info != null) {
+                infos[len++] = info;
+            }
+        }
+        return len == infos.length ? infos : Arrays.copyOf(infos, len);
     }
 
     @Override
@@ -298,18 +408,17 @@ class DefaultJvmmCollector implements JvmmCollector {
     public String getJvmThreadStack(long id, int maxDepth) {
         ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
         ThreadInfo info = threadMXBean.getThreadInfo(id, maxDepth);
-        return threadInfo2Str(threadMXBean, info);
+        if (info == null) {
+            return null;
+        }
+        return threadInfo2Str(info, Unsafe.getThread(id), threadMXBean.getThreadCpuTime(id), threadMXBean.getThreadUserTime(id));
     }
 
     @Override
     public String[] getJvmThreadStack(long[] ids, int maxDepth) {
         ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
         ThreadInfo[] threadInfo = threadMXBean.getThreadInfo(ids, maxDepth);
-        String[] res = new String[threadInfo.length];
-        for (int i = 0; i < threadInfo.length; i++) {
-            res[i] = threadInfo2Str(threadMXBean, threadInfo[i]);
-        }
-        return res;
+        return threadInfo2Str(threadMXBean, threadInfo);
     }
 
     @Override
@@ -319,11 +428,7 @@ class DefaultJvmmCollector implements JvmmCollector {
         if (deadlockedThreads == null) {
             return new String[0];
         }
-        String[] res = new String[deadlockedThreads.length];
-        for (int i = 0; i < deadlockedThreads.length; i++) {
-            res[i] = threadInfo2Str(threadMXBean, threadMXBean.getThreadInfo(deadlockedThreads[i], 10));
-        }
-        return res;
+        return threadInfo2Str(threadMXBean, threadMXBean.getThreadInfo(deadlockedThreads, 10));
     }
 
     @Override
@@ -338,25 +443,62 @@ class DefaultJvmmCollector implements JvmmCollector {
 
         String[] res = new String[len];
         int i = 0;
-        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
-        res[i++] = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z").format(new Date()) + "\r\n" + "Full thread dump "
-                + runtime.getVmName() + " " + runtime.getVmVendor() + " (" + runtime.getVmVersion() + "):\r\n";
+        res[i++] = threadDumpHeader();
 
-        for (ThreadInfo info : threadInfo) {
-            res[i++] = threadInfo2Str(threadMXBean, info);
-        }
+        String[] threadStr = threadInfo2Str(threadMXBean, threadInfo);
+        System.arraycopy(threadStr, 0, res, i, threadStr.length);
+        i += threadStr.length;
 
         if (deadlockedThreads != null) {
             res[i++] = "\r\nDeadlock found between the following threads: \r\n";
 
-            for (long deadlockedThread : deadlockedThreads) {
-                res[i++] = threadInfo2Str(threadMXBean, threadMXBean.getThreadInfo(deadlockedThread, 10));
-            }
+            String[] deadlockStr = threadInfo2Str(threadMXBean, threadMXBean.getThreadInfo(deadlockedThreads, 10));
+            System.arraycopy(deadlockStr, 0, res, i, deadlockStr.length);
         }
 
         return res;
     }
 
+    @Override
+    public void dumpAllThreads(Appendable out) throws IOException {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        out.append(threadDumpHeader());
+
+        Map<Long, Thread> threadIndex = Unsafe.getThreadIndex();
+        StringBuilder sb = new StringBuilder(4096);
+        long[] ids = threadMXBean.getAllThreadIds();
+        for (int from = 0; from < ids.length; from += DUMP_BATCH_SIZE) {
+            long[] batch = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + DUMP_BATCH_SIZE));
+            ThreadInfo[] infos = threadMXBean.getThreadInfo(batch, true, true);
+            long[] cpuTimes = getThreadCpuTime(threadMXBean, batch);
+            long[] userTimes = getThreadUserTime(threadMXBean, batch);
+            for (int i = 0; i < batch.length; i++) {
+                if (infos[i] == null) {
+                    continue;
+                }
+                sb.setLength(0);
+                appendThreadInfo(sb, infos[i], threadIndex.get(batch[i]), cpuTimes[i], userTimes[i]);
+                out.append(sb);
+            }
+        }
+
+        long[] deadlockedThreads = threadMXBean.findDeadlockedThreads();
+        if (deadlockedThreads != null) {
+            out.append("\r\nDeadlock found between the following threads: \r\n");
+            for (String str : threadInfo2Str(threadMXBean, threadMXBean.getThreadInfo(deadlockedThreads, 10))) {
+                if (str != null) {
+                    out.append(str);
+                }
+            }
+        }
+    }
+
+    private static String threadDumpHeader() {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z").format(new Date()) + "\r\n" + "Full thread dump "
+                + runtime.getVmName() + " " + runtime.getVmVendor() + " (" + runtime.getVmVersion() + "):\r\n";
+    }
+
     @Override
     public ThreadPoolInfo getThreadPoolInfo(ThreadPoolExecutor threadPool) {
         if (threadPool == null) {
@@ -389,71 +531,22 @@ class DefaultJvmmCollector implements JvmmCollector {
 
     @Override
     public ThreadPoolInfo getThreadPoolInfo(ClassLoader classLoader, String clazz, String filed) {
-        if (classLoader == null) {
-            classLoader = getClass().getClassLoader();
-        }
-        ThreadPoolExecutor pool = null;
-        try {
-            Class<?> aClass = Class.forName(clazz, false, classLoader);
-            Field f = aClass.getDeclaredField(filed);
-            f.setAccessible(true);
-            try {
-                Object targetPool = f.get(null);
-                if (targetPool == null) {
-                    return null;
-                }
-                if (targetPool instanceof ThreadPoolExecutor) {
-                    pool = (ThreadPoolExecutor) targetPool;
-                } else {
-                    throw new IllegalArgumentException("Target thread pool is not a ThreadPoolExecutor instance: " + targetPool.getClass());
-                }
-            } finally {
-                f.setAccessible(false);
-            }
-        } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException e) {
-            logger.error("Get thread pool info by invoke static failed error: " + e.getMessage(), e);
-        }
-
-        return getThreadPoolInfo(pool);
+        return getThreadPoolInfo(classLoader, clazz, null, filed);
     }
 
     @Override
     public ThreadPoolInfo getThreadPoolInfo(ClassLoader classLoader, String clazz, String instanceField, String filed) {
-        if (classLoader == null) {
-            classLoader = getClass().getClassLoader();
-        }
-        ThreadPoolExecutor pool = null;
+        Object pool;
         try {
-            Class<?> aClass = Class.forName(clazz, false, classLoader);
-            Field instanceF = aClass.getDeclaredField(instanceField);
-            Field f = aClass.getDeclaredField(filed);
-            if (aClass.isAssignableFrom(instanceF.getType())) {
-                instanceF.setAccessible(true);
-                try {
-                    Object instance = instanceF.get(null);
-                    f.setAccessible(true);
-                    try {
-                        Object targetPool = f.get(instance);
-                        if (targetPool == null) {
-                            return null;
-                        }
-                        if (targetPool instanceof ThreadPoolExecutor) {
-                            pool = (ThreadPoolExecutor) targetPool;
-                        } else {
-                            throw new IllegalArgumentException("Target thread pool is not a ThreadPoolExecutor instance: " + targetPool.getClass());
-                        }
-                    } finally {
-                        f.setAccessible(false);
-                    }
-                } finally {
-                    instanceF.setAccessible(false);
-                }
-            }
-        } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException | ClassCastException e) {
-            logger.error("Get thread pool info by invoke instance failed error: " + e.getMessage(), e);
+            pool = JvmmFactory.getThreadPoolRegistry().resolve(classLoader, clazz, instanceField, filed);
+        } catch (IllegalArgumentException e) {
+            logger.error("Get thread pool info by reflection failed: " + e.getMessage(), e);
+            return null;
         }
-
-        return getThreadPoolInfo(pool);
+        if (pool != null && !ThreadPoolRegistry.isSupported(pool)) {
+            throw new IllegalArgumentException("Target thread pool is not a supported instance: " + pool.getClass());
+        }
+        return ThreadPoolRegistry.snapshot(pool);
     }
 
     @Override
@@ -494,35 +587,55 @@ class DefaultJvmmCollector implements JvmmCollector {
 
     @Override
     public CompletableFuture<List<ThreadTimedInfo>> getOrderedThreadTimedInfo(long time, TimeUnit unit) {
-        JvmmExecutor executor = JvmmFactory.getExecutor();
-
-        boolean beforeFlag = executor.isThreadCpuTimeEnabled();
-        if (!beforeFlag) {
-            executor.setThreadCpuTimeEnabled(true);
+        //  后台采样器已经覆盖了该窗口，直接返回
+        long seconds = unit.toSeconds(time);
+        if (seconds > 0 && seconds <= ThreadCpuSampler.MAX_WINDOW && unit.toNanos(time) == TimeUnit.SECONDS.toNanos(seconds)) {
+            ThreadCpuSampler sampler = JvmmFactory.getThreadCpuSampler();
+            if (sampler.isReady()) {
+                List<ThreadTimedInfo> infos = sampler.getTopThreads((int) seconds, 0);
+                if (infos != null) {
+                    return CompletableFuture.completedFuture(infos);
+                }
+            }
         }
 
-        JvmThreadDetailInfo[] threads1 = getAllJvmThreadDetailInfo();
+        boolean retained = ThreadCpuSampler.retainCpuTime();
+
+        JvmThreadDetailInfo[] threads1;
+        try {
+            threads1 = getAllJvmThreadDetailInfo();
+        } catch (Throwable t) {
+            if (retained) {
+                ThreadCpuSampler.releaseCpuTime();
+            }
+            throw t;
+        }
         Map<Long, JvmThreadDetailInfo> threadMap = new HashMap<>(threads1.length);
         for (JvmThreadDetailInfo t : threads1) {
             threadMap.put(t.getId(), t);
         }
+        long begin = System.nanoTime();
 
         CompletableFuture<List<ThreadTimedInfo>> future = new CompletableFuture<>();
         ExecutorFactory.getThreadPool().schedule(() -> {
             List<ThreadTimedInfo> result = new ArrayList<>(threads1.length);
             try {
-                for (JvmThreadDetailInfo t2 : getAllJvmThreadDetailInfo()) {
+                JvmThreadDetailInfo[] threads2 = getAllJvmThreadDetailInfo();
+                long windowNanos = Math.max(1, System.nanoTime() - begin);
+                for (JvmThreadDetailInfo t2 : threads2) {
                     JvmThreadDetailInfo t1 = threadMap.get(t2.getId());
                     if (t1 == null) {
                         continue;
                     }
+                    long cpuTime = t2.getCpuTime() - t1.getCpuTime();
                     result.add(new ThreadTimedInfo()
                             .setId(t1.getId())
                             .setName(t1.getName())
                             .setGroup(t1.getGroup())
                             .setState(t1.getState())
                             .setUserTime(t2.getUserTime() - t1.getUserTime())
-                            .setCpuTime(t2.getCpuTime() - t1.getCpuTime()));
+                            .setCpuTime(cpuTime)
+                            .setCpuUsage(cpuTime * 100.0 / windowNanos));
                 }
 
                 result.sort((o1, o2) -> -Long.compare(o1.getCpuTime(), o2.getCpuTime()));
@@ -530,8 +643,8 @@ class DefaultJvmmCollector implements JvmmCollector {
             } catch (Throwable t) {
                 future.completeExceptionally(t);
             } finally {
-                if (!beforeFlag) {
-                    executor.setThreadCpuTimeEnabled(false);
+                if (retained) {
+                    ThreadCpuSampler.releaseCpuTime();
                 }
             }
         }, time, unit);
@@ -540,67 +653,139 @@ class DefaultJvmmCollector implements JvmmCollector {
 
     @Override
     public CompletableFuture<List<String>> getOrderedThreadTimedStack(long time, TimeUnit unit) {
-        JvmmExecutor executor = JvmmFactory.getExecutor();
+        return getOrderedThreadTimedInfo(time, unit).thenApply(infos -> {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
 
-        boolean beforeFlag = executor.isThreadCpuTimeEnabled();
-        if (!beforeFlag) {
-            executor.setThreadCpuTimeEnabled(true);
-        }
+            long[] ids = new long[infos.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = infos.get(i).getId();
+            }
+            List<String> result = new ArrayList<>(ids.length);
+            for (String str : threadInfo2Str(threadMXBean, threadMXBean.getThreadInfo(ids, true, true))) {
+                if (str != null) {
+                    result.add(str);
+                }
+            }
+            return result;
+        });
+    }
 
-        JvmThreadDetailInfo[] threads1 = getAllJvmThreadDetailInfo();
-        Map<Long, JvmThreadDetailInfo> threadMap = new HashMap<>(threads1.length);
-        for (JvmThreadDetailInfo t : threads1) {
-            threadMap.put(t.getId(), t);
+    @Override
+    public CompletableFuture<List<ThreadTimedInfo>> getThreadCpuTop(int windowSeconds, int top) {
+        //  超出后台采样器环形缓冲区的窗口取边界值，避免退化为长时间占用线程的临时采样
+        int window = Math.max(1, Math.min(ThreadCpuSampler.MAX_WINDOW, windowSeconds));
+        ThreadCpuSampler sampler = JvmmFactory.getThreadCpuSampler();
+        if (sampler.isReady()) {
+            List<ThreadTimedInfo> infos = sampler.getTopThreads(window, top);
+            if (infos != null) {
+                return CompletableFuture.completedFuture(infos);
+            }
         }
+        return getOrderedThreadTimedInfo(window, TimeUnit.SECONDS).thenApply(infos -> {
+            if (top > 0 && infos.size() > top) {
+                return new ArrayList<>(infos.subList(0, top));
+            }
+            return infos;
+        });
+    }
 
-        CompletableFuture<List<String>> future = new CompletableFuture<>();
-        ExecutorFactory.getThreadPool().schedule(() -> {
-            try {
+    @Override
+    public CompletableFuture<JvmThreadAllocationInfo> getThreadAllocation(int top) {
+        ThreadCpuSampler sampler = JvmmFactory.getThreadCpuSampler();
+        if (sampler.isReady()) {
+            JvmThreadAllocationInfo info = sampler.getTopAllocation(sampler.getWindow(), top);
+            if (info != null) {
+                return CompletableFuture.completedFuture(info);
+            }
+        }
+        return ThreadCpuSampler.measureAllocation(MIN_ALLOCATION_WINDOW_NANOS, top);
+    }
 
-                List<ThreadTimedInfo> infos = new ArrayList<>(threads1.length);
-                for (JvmThreadDetailInfo t2 : getAllJvmThreadDetailInfo()) {
-                    JvmThreadDetailInfo t1 = threadMap.get(t2.getId());
-                    if (t1 == null) {
-                        continue;
-                    }
-                    infos.add(new ThreadTimedInfo()
-                            .setId(t1.getId())
-                            .setCpuTime(t2.getCpuTime() - t1.getCpuTime()));
-                }
+    @Override
+    public CompletableFuture<JvmLockContentionInfo> getLockContention(int top) {
+        return JvmmFactory.getLockContentionSampler().collect(top);
+    }
 
-                infos.sort((o1, o2) -> -Long.compare(o1.getCpuTime(), o2.getCpuTime()));
-                List<String> result = new ArrayList<>(threads1.length);
+    /**
+     * 批量获取线程已分配的堆内存字节数，JVM 不支持时返回值均为 -1
+     */
+    private static long[] getThreadAllocatedBytes(ThreadMXBean threadMXBean, long[] ids) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(ids);
+            }
+        }
+        long[] bytes = new long[ids.length];
+        Arrays.fill(bytes, -1);
+        return bytes;
+    }
 
-                ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    /**
+     * 批量获取线程CPU时间，如果JVM支持 com.sun.management.ThreadMXBean 则一次调用获取所有线程的值
+     */
+    private static long[] getThreadCpuTime(ThreadMXBean threadMXBean, long[] ids) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadCpuTime(ids);
+        }
+        long[] times = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            times[i] = threadMXBean.getThreadCpuTime(ids[i]);
+        }
+        return times;
+    }
 
-                ThreadInfo[] threadInfos = threadMXBean.dumpAllThreads(true, true);
-                Map<Long, ThreadInfo> threadInfoMap = new HashMap<>(threadInfos.length);
-                for (ThreadInfo threadInfo : threadInfos) {
-                    threadInfoMap.put(threadInfo.getThreadId(), threadInfo);
-                }
-                for (ThreadTimedInfo info : infos) {
-                    ThreadInfo threadInfo = threadInfoMap.get(info.getId());
-                    if (threadInfo != null) {
-                        result.add(threadInfo2Str(threadMXBean, threadInfo));
-                    }
-                }
-                future.complete(result);
-            } catch (Throwable t) {
-                future.completeExceptionally(t);
-            } finally {
-                if (!beforeFlag) {
-                    executor.setThreadCpuTimeEnabled(false);
-                }
+    /**
+     * 批量获取线程用户态CPU时间，如果JVM支持 com.sun.management.ThreadMXBean 则一次调用获取所有线程的值
+     */
+    private static long[] getThreadUserTime(ThreadMXBean threadMXBean, long[] ids) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadUserTime(ids);
+        }
+        long[] times = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            times[i] = threadMXBean.getThreadUserTime(ids[i]);
+        }
+        return times;
+    }
+
+    /**
+     * 批量格式化线程信息，线程对象查找和CPU时间都是一次性获取，避免随线程数量增长产生平方级的开销
+     */
+    private static String[] threadInfo2Str(ThreadMXBean threadMXBean, ThreadInfo[] infos) {
+        //  已经退出的线程对应的ThreadInfo为null，批量查询时需要跳过
+        int[] positions = new int[infos.length];
+        long[] ids = new long[infos.length];
+        int len = 0;
+        for (int i = 0; i < infos.length; i++) {
+            if (infos[i] != null) {
+                positions[len] = i;
+                ids[len++] = infos[i].getThreadId();
             }
-        }, time, unit);
-        return future;
+        }
+        if (len < ids.length) {
+            ids = Arrays.copyOf(ids, len);
+        }
+        long[] cpuTimes = getThreadCpuTime(threadMXBean, ids);
+        long[] userTimes = getThreadUserTime(threadMXBean, ids);
+        Map<Long, Thread> threadIndex = Unsafe.getThreadIndex();
+
+        String[] res = new String[infos.length];
+        for (int i = 0; i < len; i++) {
+            ThreadInfo ti = infos[positions[i]];
+            res[positions[i]] = threadInfo2Str(ti, threadIndex.get(ids[i]), cpuTimes[i], userTimes[i]);
+        }
+        return res;
     }
 
-    private static String threadInfo2Str(ThreadMXBean threadMXBean, ThreadInfo ti) {
-        if (ti == null) return null;
+    private static String threadInfo2Str(ThreadInfo ti, Thread thread, long cpuTime, long userTime) {
+        StringBuilder sb = new StringBuilder(1024);
+        appendThreadInfo(sb, ti, thread, cpuTime, userTime);
+        return sb.toString();
+    }
 
-        StringBuilder sb = new StringBuilder("\r\n\"" + ti.getThreadName() + "\"");
-        Thread thread = Unsafe.getThread(ti.getThreadId());
+    private static void appendThreadInfo(StringBuilder sb, ThreadInfo ti, Thread thread, long cpuTime, long userTime) {
+        sb.append("\r\n\"").append(ti.getThreadName()).append("\"");
         if (thread != null) {
             if (thread.isDaemon()) {
                 sb.append(" daemon");
@@ -614,8 +799,8 @@ class DefaultJvmmCollector implements JvmmCollector {
             }
             sb.append(" pri=").append(thread.getPriority());
         }
-        sb.append(" cpu=").append(threadMXBean.getThreadCpuTime(ti.getThreadId())).append("(ns)");
-        sb.append(" usr=").append(threadMXBean.getThreadUserTime(ti.getThreadId())).append("(ns)");
+        sb.append(" cpu=").append(cpuTime).append("(ns)");
+        sb.append(" usr=").append(userTime).append("(ns)");
         sb.append(" blocked ").append(ti.getBlockedCount()).append(" times for ").append(ti.getBlockedTime()).append(" ms");
         sb.append(" waited ").append(ti.getWaitedCount()).append(" times for ").append(ti.getWaitedTime()).append(" ms");
 
@@ -667,23 +852,21 @@ class DefaultJvmmCollector implements JvmmCollector {
                         .append("\r\n");
             }
         }
-        return sb.toString();
     }
 
-    private static JvmThreadDetailInfo getJvmThreadDetailInfo(ThreadMXBean threadMXBean, long id) {
+    private static JvmThreadDetailInfo threadInfo2Detail(ThreadInfo ti, Thread thread, long cpuTime, long userTime, long allocatedBytes) {
         JvmThreadDetailInfo info = JvmThreadDetailInfo.create();
-        ThreadInfo ti = threadMXBean.getThreadInfo(id);
-        info.setId(id)
+        info.setId(ti.getThreadId())
                 .setName(ti.getThreadName())
                 .setState(ti.getThreadState())
-                .setUserTime(threadMXBean.getThreadUserTime(id))
-                .setCpuTime(threadMXBean.getThreadCpuTime(id))
+                .setUserTime(userTime)
+                .setCpuTime(cpuTime)
+                .setAllocatedBytes(allocatedBytes)
                 .setBlockedCount(ti.getBlockedCount())
                 .setBlockedTime(ti.getBlockedTime())
                 .setWaitedCount(ti.getWaitedCount())
                 .setWaitedTime(ti.getWaitedTime());
 
-        Thread thread = Unsafe.getThread(ti.getThreadId());
         if (thread != null) {
             ThreadGroup group = thread.getThreadGroup();
             if (group != null) {
@@ -1,12 +1,14 @@
 package org.beifengtz.jvmm.core;
 
 
+import com.sun.management.HotSpotDiagnosticMXBean;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.beifengtz.jvmm.common.util.CommonUtil;
 import org.beifengtz.jvmm.common.util.ExecuteNativeUtil;
 import org.beifengtz.jvmm.common.util.FileUtil;
 import org.beifengtz.jvmm.common.util.JavaEnvUtil;
+import org.beifengtz.jvmm.common.util.PidUtil;
 import org.beifengtz.jvmm.common.util.PlatformUtil;
 import org.beifengtz.jvmm.common.util.StringUtil;
 import org.beifengtz.jvmm.common.util.SystemPropertyUtil;
@@ -234,6 +236,23 @@ class DefaultJvmmExecutor implements JvmmExecutor {
         }
     }
 
+    @Override
+    public File dumpHeap(boolean live) throws IOException {
+        File file = new File(FileUtil.getTempPath(), "heap-" + PidUtil.currentPid() + "-" + System.currentTimeMillis() + ".hprof");
+        if (file.getParentFile() != null && !file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try {
+            //  目标文件已存在时 dumpHeap 会失败，文件名带时间戳避免冲突
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(file.getAbsolutePath(), live);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+        logger.info("Jvmm dumped heap to {}, live: {}, size: {} bytes", file.getAbsolutePath(), live, file.length());
+        return file;
+    }
+
     @Override
     public String jad(Instrumentation instrumentation, String className, String methodName) throws Exception {
         if (instrumentation == null) {
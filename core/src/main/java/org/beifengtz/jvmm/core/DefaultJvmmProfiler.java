@@ -2,7 +2,6 @@ package org.beifengtz.jvmm.core;
 
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
-import org.beifengtz.jvmm.common.exception.ProfilerNotSupportedException;
 import org.beifengtz.jvmm.common.factory.ExecutorFactory;
 import org.beifengtz.jvmm.common.util.meta.ListenableFuture;
 import org.beifengtz.jvmm.core.entity.profiler.ProfilerAction;
@@ -38,7 +37,8 @@ class DefaultJvmmProfiler implements JvmmProfiler {
     static {
         try {
             profiler = AsyncProfiler.getInstance();
-        } catch (IllegalStateException e) {
+        } catch (Throwable e) {
+            //  musl 等环境加载动态库时抛出 UnsatisfiedLinkError，此时使用纯 Java 采样
             profiler = null;
             if (log.isDebugEnabled()) {
                 log.debug(e.getMessage(), e);
@@ -63,7 +63,9 @@ class DefaultJvmmProfiler implements JvmmProfiler {
     @Override
     public String execute(String command) throws IOException {
         if (!isSystemSupported()) {
-            throw new ProfilerNotSupportedException("System not supported async-profiler");
+            //  async-profiler 不可用时使用纯 Java 采样，结果偏向安全点，但在任何环境下都可用
+            log.info("Execute java sampling profiler command: " + command);
+            return JvmmFactory.getJavaSamplingProfiler().execute(command);
         }
         log.info("Execute profiler command: " + command);
         try {
@@ -100,45 +102,43 @@ class DefaultJvmmProfiler implements JvmmProfiler {
 
     @Override
     public String start(String event, ProfilerCounter counter, long interval) {
-        return execute(ProfilerCommander.newInstance()
-                .setAction(ProfilerAction.start)
+        return JvmmFactory.getProfilerSessionManager().start(startCommander(event, counter, interval));
+    }
+
+    private static ProfilerCommander startCommander(String event, ProfilerCounter counter, long interval) {
+        return ProfilerCommander.newInstance()
                 .setEvent(event)
                 .setInterval(interval <= 1000 ? DEFAULT_INTERVAL : interval)
                 .setCounter(counter)
                 .setAllKernel(true)
                 .setAllUser(true)
-                .setThreads(true));
+                .setThreads(true);
     }
 
     @Override
     public String stop(File to) {
-        return execute(ProfilerCommander.newInstance()
-                .setAction(ProfilerAction.stop)
-                .setFile(to.getAbsolutePath()));
+        return JvmmFactory.getProfilerSessionManager().stop(ProfilerCommander.newInstance().setFile(to.getAbsolutePath()));
     }
 
     @Override
     public ListenableFuture<String> sample(ScheduledExecutorService executor, File to, String event, ProfilerCounter counter, long interval, long time, TimeUnit timeUnit) {
         int dotIdx = to.getName().lastIndexOf(".");
-        if (dotIdx >= 0) {
-            String format = to.getName().substring(dotIdx + 1);
-            if ("csv".equalsIgnoreCase(format)) {
+        String format = dotIdx >= 0 ? to.getName().substring(dotIdx + 1).toLowerCase() : null;
+        if (format != null) {
+            if ("csv".equals(format)) {
                 throw new IllegalArgumentException("SVG format is obsolete, use .html for FlameGraph");
-            } else if (!format.toLowerCase().matches("(txt|html|jfr)")) {
+            } else if (!format.matches("(txt|html|jfr)")) {
                 throw new IllegalArgumentException("Invalid flame graph format: " + format + ", expected: txt, html, jfr");
             }
         }
 
-        start(event, counter, interval);
-        ListenableFuture<String> future = new ListenableFuture<>();
-        executor.schedule(() -> {
-            try {
-                future.complete(stop(to));
-            } catch (Throwable t) {
-                future.cause(t);
-            }
-        }, time <= 0 ? 10 : time, timeUnit);
-        return future;
+        ProfilerCommander commander = startCommander(event, counter, interval);
+        if ("jfr".equals(format)) {
+            //  jfr 格式需要在启动时指定输出文件，否则结束时不会生成文件
+            commander.setFile(to.getAbsolutePath());
+        }
+        return JvmmFactory.getProfilerSessionManager().submit(executor, commander,
+                ProfilerCommander.newInstance().setFile(to.getAbsolutePath()), time <= 0 ? 10 : time, timeUnit);
     }
 
     @Override
@@ -168,24 +168,9 @@ class DefaultJvmmProfiler implements JvmmProfiler {
 
     @Override
     public ListenableFuture<String> dumpCollapsed(ScheduledExecutorService executor, ProfilerCounter counter, String event, long interval, long time, TimeUnit timeUnit) {
-        execute(ProfilerCommander.newInstance()
-                .setAction(ProfilerAction.start)
-                .setEvent(event)
-                .setInterval(interval)
-                .setCounter(counter));
-        ListenableFuture<String> future = new ListenableFuture<>();
-
-        executor.schedule(() -> {
-            try {
-                future.complete(execute(
-                        ProfilerCommander.newInstance().setAction(ProfilerAction.collapsed).setCounter(counter)
-                ));
-            } catch (Throwable t) {
-                future.cause(t);
-            }
-        }, time, timeUnit);
-
-        return future;
+        return JvmmFactory.getProfilerSessionManager().submit(executor,
+                ProfilerCommander.newInstance().setEvent(event).setInterval(interval).setCounter(counter),
+                ProfilerCommander.newInstance().setCollapsed(true).setCounter(counter), time, timeUnit);
     }
 
     @Override
@@ -205,21 +190,9 @@ class DefaultJvmmProfiler implements JvmmProfiler {
 
     @Override
     public ListenableFuture<String> dumpTraces(ScheduledExecutorService executor, int maxTraces, String event, long interval, long time, TimeUnit timeUnit) {
-        execute(ProfilerCommander.newInstance()
-                .setAction(ProfilerAction.start)
-                .setEvent(event)
-                .setInterval(interval));
-        ListenableFuture<String> future = new ListenableFuture<>();
-        executor.schedule(() -> {
-            try {
-                future.complete(execute(
-                        ProfilerCommander.newInstance().setAction(ProfilerAction.summary).setTraces(maxTraces)
-                ));
-            } catch (Throwable t) {
-                future.cause(t);
-            }
-        }, time, timeUnit);
-        return future;
+        return JvmmFactory.getProfilerSessionManager().submit(executor,
+                ProfilerCommander.newInstance().setEvent(event).setInterval(interval),
+                ProfilerCommander.newInstance().setTraces(maxTraces), time, timeUnit);
     }
 
     @Override
@@ -239,22 +212,9 @@ class DefaultJvmmProfiler implements JvmmProfiler {
 
     @Override
     public ListenableFuture<String> dumpFlat(ScheduledExecutorService executor, int maxMethods, String event, long interval, long time, TimeUnit timeUnit) {
-        execute(ProfilerCommander.newInstance()
-                .setAction(ProfilerAction.start)
-                .setEvent(event)
-                .setInterval(interval));
-
-        ListenableFuture<String> future = new ListenableFuture<>();
-        executor.schedule(() -> {
-            try {
-                future.complete(execute(
-                        ProfilerCommander.newInstance().setAction(ProfilerAction.summary).setFlat(maxMethods)
-                ));
-            } catch (Throwable t) {
-                future.cause(t);
-            }
-        }, time, timeUnit);
-        return future;
+        return JvmmFactory.getProfilerSessionManager().submit(executor,
+                ProfilerCommander.newInstance().setEvent(event).setInterval(interval),
+                ProfilerCommander.newInstance().setFlat(maxMethods), time, timeUnit);
     }
 
     @Override
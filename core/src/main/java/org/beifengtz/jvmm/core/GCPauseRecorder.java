@@ -0,0 +1,238 @@
+package org.beifengtz.jvmm.core;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.util.meta.LogLinearHistogram;
+import org.beifengtz.jvmm.core.entity.info.JvmGCPauseInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmGCPauseInfo.PauseInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Description: 监听 {@link GarbageCollectionNotificationInfo}，按回收器和触发原因把每次GC的停顿时间记录到 {@link LogLinearHistogram}，
+ * 同时根据GC前后的内存池使用量推算分配量和晋升量：
+ * </p>
+ * <ul>
+ *     <li>分配量 = 本次GC前堆使用量 - 上次GC后堆使用量</li>
+ *     <li>晋升量 = 本次GC后老年代使用量 - 本次GC前老年代使用量（仅计正数）</li>
+ * </ul>
+ * <p>
+ * 并发回收器（G1 Concurrent GC、ZGC/Shenandoah Cycles、CMS）通知中的耗时是整个并发周期的时长，单独记录，不计入停顿统计。
+ * </p>
+ * <p>
+ * Created in 15:10 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class GCPauseRecorder implements NotificationListener {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(GCPauseRecorder.class);
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ConcurrentHashMap<PauseKey, LogLinearHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<PauseKey, LogLinearHistogram> cycleHistograms = new ConcurrentHashMap<>();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong promotedBytes = new AtomicLong();
+    private final Set<String> heapPools = new HashSet<>();
+    private final Set<String> oldPools = new HashSet<>();
+
+    /**
+     * 以下字段只在 JMX 通知线程中写入
+     */
+    private long lastHeapAfterGc = -1;
+    private long lastGcEndTime = -1;
+    private volatile double allocationRate;
+    private volatile double promotionRate;
+
+    private boolean installed = false;
+
+    GCPauseRecorder() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+                String name = pool.getName();
+                if (name.contains("Old") || name.contains("Tenured")) {
+                    oldPools.add(name);
+                }
+            }
+        }
+    }
+
+    public synchronized boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * 在所有支持通知的垃圾回收器上注册监听，重复调用无副作用
+     */
+    public synchronized void install() {
+        if (installed) {
+            return;
+        }
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (bean instanceof NotificationEmitter) {
+                ((NotificationEmitter) bean).addNotificationListener(this, null, null);
+            }
+        }
+        installed = true;
+        logger.debug("GC pause recorder installed");
+    }
+
+    public synchronized void uninstall() {
+        if (!installed) {
+            return;
+        }
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (bean instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) bean).removeNotificationListener(this);
+                } catch (ListenerNotFoundException ignored) {
+                }
+            }
+        }
+        installed = false;
+        logger.debug("GC pause recorder uninstalled");
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            GcInfo gcInfo = info.getGcInfo();
+
+            PauseKey key = new PauseKey(info.getGcName(), info.getGcCause(), info.getGcAction());
+            Map<PauseKey, LogLinearHistogram> target = isConcurrentCycle(info.getGcName(), info.getGcAction()) ? cycleHistograms : histograms;
+            target.computeIfAbsent(key, o -> new LogLinearHistogram()).record(gcInfo.getDuration());
+
+            recordMemory(gcInfo);
+        } catch (Throwable t) {
+            logger.debug("Handle gc notification failed: " + t.getMessage(), t);
+        }
+    }
+
+    /**
+     * 判断一次GC通知是否为并发周期：G1 的 "G1 Concurrent GC"、ZGC/Shenandoah 的 "xxx Cycles"、CMS 的 "ConcurrentMarkSweep"，
+     * 以及动作为 "end of concurrent GC"、"end of GC cycle" 的通知，它们的耗时不是停顿时间
+     */
+    static boolean isConcurrentCycle(String gcName, String gcAction) {
+        String name = gcName == null ? "" : gcName.toLowerCase();
+        String action = gcAction == null ? "" : gcAction.toLowerCase();
+        return name.contains("concurrent") || name.contains("cycles") || action.contains("concurrent") || action.contains("cycle");
+    }
+
+    private void recordMemory(GcInfo gcInfo) {
+        Map<String, MemoryUsage> before = gcInfo.getMemoryUsageBeforeGc();
+        Map<String, MemoryUsage> after = gcInfo.getMemoryUsageAfterGc();
+        long heapBefore = 0, heapAfter = 0, oldBefore = 0, oldAfter = 0;
+        for (Entry<String, MemoryUsage> entry : before.entrySet()) {
+            if (heapPools.contains(entry.getKey())) {
+                heapBefore += entry.getValue().getUsed();
+                if (oldPools.contains(entry.getKey())) {
+                    oldBefore += entry.getValue().getUsed();
+                }
+            }
+        }
+        for (Entry<String, MemoryUsage> entry : after.entrySet()) {
+            if (heapPools.contains(entry.getKey())) {
+                heapAfter += entry.getValue().getUsed();
+                if (oldPools.contains(entry.getKey())) {
+                    oldAfter += entry.getValue().getUsed();
+                }
+            }
+        }
+
+        long allocated = lastHeapAfterGc < 0 ? 0 : Math.max(0, heapBefore - lastHeapAfterGc);
+        long promoted = Math.max(0, oldAfter - oldBefore);
+        allocatedBytes.addAndGet(allocated);
+        promotedBytes.addAndGet(promoted);
+
+        //  GcInfo 的时间为 JVM 启动以来的毫秒数
+        if (lastGcEndTime >= 0 && gcInfo.getEndTime() > lastGcEndTime) {
+            double seconds = (gcInfo.getEndTime() - lastGcEndTime) / 1000.0;
+            allocationRate = allocated / seconds;
+            promotionRate = promoted / seconds;
+        }
+        lastHeapAfterGc = heapAfter;
+        lastGcEndTime = gcInfo.getEndTime();
+    }
+
+    /**
+     * @return 当前统计快照，未注册监听时停顿列表为空
+     */
+    public JvmGCPauseInfo getPauseInfo() {
+        JvmGCPauseInfo info = JvmGCPauseInfo.create()
+                .setAllocatedBytes(allocatedBytes.get())
+                .setPromotedBytes(promotedBytes.get())
+                .setAllocationRate(allocationRate)
+                .setPromotionRate(promotionRate);
+        fillPauses(histograms, info.getPauses());
+        fillPauses(cycleHistograms, info.getConcurrentCycles());
+        return info;
+    }
+
+    private static void fillPauses(Map<PauseKey, LogLinearHistogram> histograms, List<PauseInfo> pauses) {
+        for (Entry<PauseKey, LogLinearHistogram> entry : histograms.entrySet()) {
+            LogLinearHistogram histogram = entry.getValue();
+            long[] quantiles = histogram.getQuantiles(QUANTILES);
+            pauses.add(PauseInfo.create()
+                    .setName(entry.getKey().name)
+                    .setCause(entry.getKey().cause)
+                    .setAction(entry.getKey().action)
+                    .setCount(histogram.getCount())
+                    .setTotalTime(histogram.getSum())
+                    .setMax(histogram.getMax())
+                    .setP50(quantiles[0])
+                    .setP90(quantiles[1])
+                    .setP99(quantiles[2])
+                    .setP999(quantiles[3]));
+        }
+    }
+
+    private static final class PauseKey {
+        private final String name;
+        private final String cause;
+        private final String action;
+
+        private PauseKey(String name, String cause, String action) {
+            this.name = name;
+            this.cause = cause;
+            this.action = action;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PauseKey)) return false;
+            PauseKey that = (PauseKey) o;
+            return name.equals(that.name) && cause.equals(that.cause) && action.equals(that.action);
+        }
+
+        @Override
+        public int hashCode() {
+            return (name.hashCode() * 31 + cause.hashCode()) * 31 + action.hashCode();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.exception.ProfilerNotSupportedException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Description: 纯 Java 实现的采样 profiler，在 async-profiler 不可用时（例如 musl、部分 arm 镜像、受限的容器）代替它执行 profiler 命令。
+ * </p>
+ * <p>
+ * 按采样间隔通过 {@link ThreadMXBean#dumpAllThreads(boolean, boolean)} 读取所有线程的调用栈，栈帧在第一次出现时登记为 int id，
+ * 之后直接以 id 累加到 {@link StackProfile} 中，不再拼接字符串。cpu、itimer 事件只统计 RUNNABLE 状态的线程，wall 事件统计所有线程，
+ * 其他事件不支持。
+ * </p>
+ * <p>
+ * 接收与 async-profiler 相同格式的命令，支持 start、resume、stop、dump、collapsed、summary、status、list、version、check，
+ * 输出支持 collapsed、html 火焰图、traces 和 flat 文本，不支持 jfr。线程栈只能在安全点获取，结果会偏向安全点附近的代码，
+ * 采样间隔也不宜过小，但在任何环境下都能给出可用的结果。采样在每次启动时创建的独立守护线程中执行，不占用 jvmm 的共享线程池。
+ * </p>
+ * <p>
+ * Created in 10:30 2023/10/25
+ *
+ * @author beifengtz
+ */
+public final class JavaSamplingProfiler {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(JavaSamplingProfiler.class);
+
+    public static final String VERSION = "java-sampling-1.0";
+    /**
+     * 默认采样间隔，单位ms
+     */
+    public static final int DEFAULT_INTERVAL = 50;
+    /**
+     * 最小采样间隔，单位ms，每次采样都需要进入安全点并遍历所有线程栈，间隔过小会明显增加停顿
+     */
+    public static final int MIN_INTERVAL = 20;
+    /**
+     * 默认调用栈最大深度，超出时保留栈顶的帧
+     */
+    public static final int DEFAULT_MAX_DEPTH = 256;
+    /**
+     * 以文件或 summary 输出时默认的调用栈和帧数量
+     */
+    private static final int DEFAULT_SUMMARY_SIZE = 200;
+    private static final byte FRAME_INCLUDED = 1;
+    private static final byte FRAME_EXCLUDED = 2;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private Pattern threadFilter;
+
+    private StackProfile profile = new StackProfile();
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+    private final Map<Long, Integer> threadFrameIds = new HashMap<>();
+    //  帧 id -> 是否匹配 include、exclude
+    private byte[] frameFlags = new byte[256];
+    private int[] path = new int[64];
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> task;
+    private long startTime;
+    private long stopTime;
+    private long samples;
+    private boolean runnableOnly;
+    private boolean threads;
+    private long weight;
+    private int sessionMaxDepth;
+    private List<Pattern> includes;
+    private List<Pattern> excludes;
+
+    JavaSamplingProfiler() {
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param maxDepth 调用栈最大深度，超出时保留栈顶的帧，可以在命令中通过 jstackdepth 参数覆盖
+     * @return this
+     */
+    public synchronized JavaSamplingProfiler setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, maxDepth);
+        return this;
+    }
+
+    /**
+     * @param threadFilter 线程名的正则表达式，只采样匹配的线程，为空时采样所有线程
+     * @return this
+     */
+    public synchronized JavaSamplingProfiler setThreadFilter(String threadFilter) {
+        this.threadFilter = threadFilter == null || threadFilter.isEmpty() ? null : Pattern.compile(threadFilter);
+        return this;
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null && !task.isDone();
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    /**
+     * 执行 async-profiler 格式的命令，例如 start,event=cpu,interval=10000000 或 stop,file=/tmp/cpu.html
+     *
+     * @param command 以逗号分隔的 action 和参数
+     * @return 命令输出，输出到文件时为 OK
+     * @throws IOException 写文件失败
+     */
+    public synchronized String execute(String command) throws IOException {
+        String[] args = command.split(",");
+        String action = args[0].trim();
+        Map<String, String> options = new HashMap<>();
+        List<String> includeArgs = new ArrayList<>();
+        List<String> excludeArgs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i].trim();
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? "" : arg.substring(eq + 1);
+            if ("include".equals(key)) {
+                includeArgs.add(value);
+            } else if ("exclude".equals(key)) {
+                excludeArgs.add(value);
+            } else if (!key.isEmpty()) {
+                options.put(key, value);
+            }
+        }
+
+        switch (action) {
+            case "start":
+                start(options, includeArgs, excludeArgs, true);
+                return "Profiling started\n";
+            case "resume":
+                start(options, includeArgs, excludeArgs, false);
+                return "Profiling started\n";
+            case "stop":
+                if (!isRunning()) {
+                    throw new IllegalStateException("Profiler is not active");
+                }
+                stop();
+                if (hasOutput(options)) {
+                    return dump(options, false);
+                }
+                return "Profiling stopped after " + (stopTime - startTime) / 1000 + " seconds. No dump options specified\n";
+            case "dump":
+                return dump(options, false);
+            case "collapsed":
+                return dump(options, true);
+            case "summary":
+                if (!options.containsKey("traces") && !options.containsKey("flat")) {
+                    options.put("flat", String.valueOf(DEFAULT_SUMMARY_SIZE));
+                }
+                return dump(options, false);
+            case "status":
+                return isRunning() ? "Profiling is running for " + (System.currentTimeMillis() - startTime) / 1000 + " seconds\n"
+                        : "Profiler is not active\n";
+            case "list":
+                return "Basic events:\n  cpu\n  itimer\n  wall\n";
+            case "version":
+                return VERSION + "\n";
+            case "check":
+                checkEvent(options.get("event"));
+                return "OK\n";
+            default:
+                throw new ProfilerNotSupportedException("Action " + action + " is not supported by the java sampling profiler");
+        }
+    }
+
+    private static void checkEvent(String event) {
+        if (event != null && !"cpu".equals(event) && !"itimer".equals(event) && !"wall".equals(event)) {
+            throw new ProfilerNotSupportedException("Event " + event + " is not supported by the java sampling profiler, expected: cpu, itimer, wall");
+        }
+    }
+
+    private void start(Map<String, String> options, List<String> includeArgs, List<String> excludeArgs, boolean reset) {
+        if (isRunning()) {
+            throw new IllegalStateException("Profiler already started");
+        }
+        String file = options.get("file");
+        if (file != null && file.endsWith(".jfr")) {
+            throw new ProfilerNotSupportedException("JFR format is not supported by the java sampling profiler");
+        }
+        String event = options.getOrDefault("event", "cpu");
+        checkEvent(event);
+        long intervalNs = options.containsKey("interval") ? Long.parseLong(options.get("interval")) : DEFAULT_INTERVAL * 1000000L;
+        long intervalMs = Math.max(MIN_INTERVAL, intervalNs / 1000000);
+
+        if (reset) {
+            profile = new StackProfile();
+            samples = 0;
+            startTime = System.currentTimeMillis();
+        }
+        includes = compile(includeArgs);
+        excludes = compile(excludeArgs);
+        //  过滤条件可能变化，帧的匹配结果在重新登记时计算
+        frameIds.clear();
+        threadFrameIds.clear();
+        frameFlags = new byte[256];
+        runnableOnly = !"wall".equals(event);
+        threads = options.containsKey("threads");
+        //  counter 为 total 时以采样间隔的纳秒数作为每个样本的权重，与 async-profiler 的 cpu total 相近
+        weight = "total".equals(options.get("counter")) ? intervalMs * 1000000L : 1;
+        sessionMaxDepth = options.containsKey("jstackdepth") ? Math.max(1, Integer.parseInt(options.get("jstackdepth"))) : maxDepth;
+        //  上一次采样任务异常结束时线程还未释放
+        if (executor != null) {
+            executor.shutdown();
+        }
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "jvmm-java-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        task = executor.scheduleAtFixedRate(this::sample, 0, intervalMs, TimeUnit.MILLISECONDS);
+        logger.debug("Java sampling profiler started, event: {}, interval: {}ms", event, intervalMs);
+    }
+
+    private void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        stopTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 将 async-profiler 的通配符过滤条件转换为正则表达式，例如 org/beifengtz/*
+     */
+    private static List<Pattern> compile(List<String> globs) {
+        if (globs.isEmpty()) {
+            return null;
+        }
+        List<Pattern> patterns = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            StringBuilder regex = new StringBuilder();
+            for (String part : glob.split("\\*", -1)) {
+                if (regex.length() > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(part));
+            }
+            patterns.add(Pattern.compile(regex.toString()));
+        }
+        return patterns;
+    }
+
+    private static boolean hasOutput(Map<String, String> options) {
+        return options.containsKey("file") || options.containsKey("collapsed") || options.containsKey("traces")
+                || options.containsKey("flat");
+    }
+
+    /**
+     * 输出已采集的数据，采样过程中可以多次输出
+     */
+    private String dump(Map<String, String> options, boolean collapsed) throws IOException {
+        String file = options.get("file");
+        if (file != null) {
+            String name = file.toLowerCase();
+            if (name.endsWith(".jfr")) {
+                throw new ProfilerNotSupportedException("JFR format is not supported by the java sampling profiler");
+            }
+            File to = new File(file);
+            if (to.getParentFile() != null && !to.getParentFile().exists()) {
+                to.getParentFile().mkdirs();
+            }
+            try (OutputStream os = new FileOutputStream(to)) {
+                if (name.endsWith(".jprof")) {
+                    profile.writeTo(os);
+                } else {
+                    Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+                    if (name.endsWith(".html")) {
+                        profile.writeFlameGraph(writer, options.getOrDefault("title", "Java sampling profile"), StackProfile.DEFAULT_MIN_RATIO);
+                    } else if (collapsed || options.containsKey("collapsed") || name.endsWith(".collapsed") || name.endsWith(".folded")) {
+                        profile.writeCollapsed(writer);
+                    } else {
+                        profile.writeSummary(writer, intOption(options, "traces", DEFAULT_SUMMARY_SIZE), intOption(options, "flat", DEFAULT_SUMMARY_SIZE));
+                    }
+                    writer.flush();
+                }
+            }
+            return "OK";
+        }
+        StringWriter writer = new StringWriter();
+        if (collapsed || options.containsKey("collapsed")) {
+            profile.writeCollapsed(writer);
+        } else {
+            profile.writeSummary(writer, intOption(options, "traces", 0), intOption(options, "flat", 0));
+        }
+        return writer.toString();
+    }
+
+    private static int intOption(Map<String, String> options, String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    private void sample() {
+        try {
+            ThreadInfo[] infos = threadMXBean.dumpAllThreads(false, false);
+            long current = Thread.currentThread().getId();
+            synchronized (this) {
+                if (!isRunning()) {
+                    return;
+                }
+                for (ThreadInfo info : infos) {
+                    if (info == null || info.getThreadId() == current) {
+                        continue;
+                    }
+                    if (runnableOnly && info.getThreadState() != Thread.State.RUNNABLE) {
+                        continue;
+                    }
+                    if (threadFilter != null && !threadFilter.matcher(info.getThreadName()).matches()) {
+                        continue;
+                    }
+                    record(info);
+                }
+                samples++;
+            }
+        } catch (Throwable e) {
+            logger.warn("Java sampling profiler sample failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void record(ThreadInfo info) {
+        StackTraceElement[] stack = info.getStackTrace();
+        if (stack.length == 0) {
+            return;
+        }
+        int depth = Math.min(stack.length, sessionMaxDepth);
+        if (path.length < depth + 1) {
+            path = new int[Math.max(depth + 1, path.length << 1)];
+        }
+        int n = 0;
+        if (threads) {
+            path[n++] = threadFrame(info);
+        }
+        boolean included = includes == null;
+        //  ThreadInfo 中栈顶在前，StackProfile 中栈底在前，超出深度时丢弃栈底的帧
+        for (int i = depth - 1; i >= 0; i--) {
+            int id = frameId(stack[i]);
+            byte flags = frameFlags[id];
+            if ((flags & FRAME_EXCLUDED) != 0) {
+                return;
+            }
+            included |= (flags & FRAME_INCLUDED) != 0;
+            path[n++] = id;
+        }
+        if (included) {
+            profile.add(path, n, weight);
+        }
+    }
+
+    private int threadFrame(ThreadInfo info) {
+        Integer id = threadFrameIds.get(info.getThreadId());
+        if (id == null) {
+            id = intern("[" + info.getThreadName() + " tid=" + info.getThreadId() + "]");
+            threadFrameIds.put(info.getThreadId(), id);
+        }
+        return id;
+    }
+
+    private int frameId(StackTraceElement element) {
+        Integer id = frameIds.get(element);
+        if (id == null) {
+            //  与 async-profiler 的帧名保持一致，两者的采集可以合并
+            id = intern(element.getClassName().replace('.', '/') + "." + element.getMethodName());
+            frameIds.put(element, id);
+        }
+        return id;
+    }
+
+    private int intern(String frame) {
+        int id = profile.intern(frame);
+        if (id >= frameFlags.length) {
+            frameFlags = Arrays.copyOf(frameFlags, Math.max(id + 1, frameFlags.length << 1));
+        }
+        frameFlags[id] = 0;
+        if (matches(includes, frame)) {
+            frameFlags[id] |= FRAME_INCLUDED;
+        }
+        if (matches(excludes, frame)) {
+            frameFlags[id] |= FRAME_EXCLUDED;
+        }
+        return id;
+    }
+
+    private static boolean matches(List<Pattern> patterns, String frame) {
+        if (patterns != null) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(frame).matches()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
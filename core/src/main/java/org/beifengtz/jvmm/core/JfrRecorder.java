@@ -0,0 +1,509 @@
+package org.beifengtz.jvmm.core;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.beifengtz.jvmm.common.util.FileUtil;
+import org.beifengtz.jvmm.core.entity.info.JfrRecordingInfo;
+import org.beifengtz.jvmm.core.entity.info.JfrSummaryInfo;
+import org.beifengtz.jvmm.core.entity.info.JfrSummaryInfo.AllocationSite;
+import org.beifengtz.jvmm.core.entity.info.JfrSummaryInfo.GcPhase;
+import org.beifengtz.jvmm.core.entity.info.JfrSummaryInfo.MonitorSite;
+import org.beifengtz.jvmm.core.entity.info.JfrSummaryInfo.SocketSite;
+import org.beifengtz.jvmm.core.entity.profiler.JfrOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * <p>
+ * Description: 基于 JDK 自带的 Flight Recorder（jdk.jfr）管理当前进程中的录制，不依赖 async-profiler。
+ * 支持以自定义配置开启、停止、关闭录制，以分块流的方式导出 .jfr，以及在服务端逐个事件解析录制生成摘要。
+ * </p>
+ * <p>
+ * 导出和摘要都作用于录制的一份副本：运行中的录制会先复制出截至当前的数据，不传录制id时对所有录制做快照，
+ * 副本使用后立即关闭，不影响原录制继续运行。
+ * </p>
+ * <p>
+ * 没有作为 {@link JvmmProfiler} 的一种实现：JvmmProfiler 面向 async-profiler 的命令模型，sample 和 dumpCollapsed、dumpTraces、
+ * dumpFlat 都要求一次采样直接产出火焰图或文本结果，而 JFR 的产物是可长时间运行、可多路并存的录制，
+ * 需要按 id 管理生命周期并在结束后导出或解析。强行套进 start/stop/sample 会丢掉多录制和自定义配置，
+ * 也无法满足 collapsed、traces、flat 等输出，所以单独对外提供，由 {@link JvmmFactory#getJfrRecorder()} 获取。
+ * </p>
+ * <p>
+ * 该类直接引用 jdk.jfr，只能在 {@link JvmmFactory#isJfrAvailable()} 为 true 时加载，需要 JDK 8u262 及以上或 JDK 11 及以上。
+ * </p>
+ * <p>
+ * Created in 11:10 2023/10/26
+ *
+ * @author beifengtz
+ */
+public final class JfrRecorder {
+
+    public static final int DEFAULT_TOP = 10;
+    /**
+     * jvmm 同时管理的录制数上限，防止录制无限增长占满磁盘
+     */
+    private static final int MAX_RECORDINGS = 8;
+    /**
+     * 摘要中每一类聚合保留的最大条目数，条目数达到两倍时淘汰总量最小的条目，摘要标记为不完整
+     */
+    private static final int MAX_ENTRIES = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String ALLOCATION_IN_TLAB = "jdk.ObjectAllocationInNewTLAB";
+    private static final String ALLOCATION_OUTSIDE_TLAB = "jdk.ObjectAllocationOutsideTLAB";
+    private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    private static final String SOCKET_READ = "jdk.SocketRead";
+    private static final String SOCKET_WRITE = "jdk.SocketWrite";
+    private static final String GARBAGE_COLLECTION = "jdk.GarbageCollection";
+    private static final List<String> GC_PHASE_EVENTS = Arrays.asList("jdk.GCPhasePause", "jdk.GCPhasePauseLevel1",
+            "jdk.GCPhasePauseLevel2", "jdk.GCPhasePauseLevel3", "jdk.GCPhasePauseLevel4", "jdk.GCPhaseConcurrent",
+            "jdk.GCPhaseConcurrentLevel1");
+
+    /**
+     * 由 jvmm 开启的录制id
+     */
+    private final Set<Long> managed = Collections.synchronizedSet(new HashSet<>());
+
+    JfrRecorder() {
+    }
+
+    /**
+     * 在预置配置的基础上按参数开启事件并开始录制
+     *
+     * @param options 录制参数
+     * @return 开始后的录制状态
+     * @throws IOException    读取预置配置失败
+     * @throws ParseException 预置配置格式错误
+     */
+    public synchronized JfrRecordingInfo start(JfrOptions options) throws IOException, ParseException {
+        managed.retainAll(recordingIds());
+        if (managed.size() >= MAX_RECORDINGS) {
+            throw new IllegalStateException("Too many recordings, at most " + MAX_RECORDINGS + " recordings can be started by jvmm");
+        }
+        String preset = options.getSettings() == null || options.getSettings().isEmpty() ? "default" : options.getSettings();
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration(preset).getSettings());
+
+        if (options.isAllocation()) {
+            //  JDK 16 开始提供开销可控的分配采样事件，更低的版本只能开启 TLAB 内外的分配事件
+            if (hasEventType(ALLOCATION_SAMPLE)) {
+                enable(settings, ALLOCATION_SAMPLE, null, true);
+            } else {
+                enable(settings, ALLOCATION_IN_TLAB, null, true);
+                enable(settings, ALLOCATION_OUTSIDE_TLAB, null, true);
+            }
+        }
+        if (options.getMonitorThreshold() != null) {
+            enable(settings, MONITOR_ENTER, options.getMonitorThreshold(), true);
+        }
+        if (options.isGc()) {
+            for (String event : GC_PHASE_EVENTS) {
+                enable(settings, event, 0L, false);
+            }
+            enable(settings, GARBAGE_COLLECTION, 0L, false);
+        }
+        if (options.getSocketThreshold() != null) {
+            enable(settings, SOCKET_READ, options.getSocketThreshold(), true);
+            enable(settings, SOCKET_WRITE, options.getSocketThreshold(), true);
+        }
+        if (options.getCustom() != null) {
+            settings.putAll(options.getCustom());
+        }
+
+        Recording recording = new Recording(settings);
+        try {
+            recording.setName(options.getName() == null || options.getName().isEmpty() ? "jvmm-" + recording.getId() : options.getName());
+            recording.setToDisk(true);
+            if (options.getMaxAge() > 0) {
+                recording.setMaxAge(Duration.ofSeconds(options.getMaxAge()));
+            }
+            if (options.getMaxSize() > 0) {
+                recording.setMaxSize(options.getMaxSize());
+            }
+            if (options.getDuration() > 0) {
+                recording.setDuration(Duration.ofSeconds(options.getDuration()));
+            }
+            recording.start();
+        } catch (RuntimeException e) {
+            recording.close();
+            throw e;
+        }
+        managed.add(recording.getId());
+        return toInfo(recording);
+    }
+
+    /**
+     * 停止由 jvmm 开启的录制，停止后的数据仍然可以导出或生成摘要，直到录制被关闭。
+     * 应用自己开启的录制不允许通过 jvmm 停止
+     */
+    public JfrRecordingInfo stop(long id) {
+        Recording recording = findManaged(id);
+        if (recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED) {
+            recording.stop();
+        }
+        return toInfo(recording);
+    }
+
+    /**
+     * 关闭由 jvmm 开启的录制并释放磁盘上的数据，应用自己开启的录制不允许通过 jvmm 关闭
+     */
+    public void close(long id) {
+        Recording recording = findManaged(id);
+        managed.remove(id);
+        recording.close();
+    }
+
+    public List<JfrRecordingInfo> list() {
+        List<JfrRecordingInfo> list = new ArrayList<>();
+        for (Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            list.add(toInfo(recording));
+        }
+        return list;
+    }
+
+    /**
+     * 把录制数据以 .jfr 格式分块写入输出流，不会关闭输出流
+     *
+     * @param id 录制id，为 null 或小于等于0时对所有录制做快照
+     * @param os 输出流
+     * @throws IOException 没有录制数据或写入失败
+     */
+    public void dump(Long id, OutputStream os) throws IOException {
+        Recording recording = open(id);
+        try (InputStream is = recording.getStream(null, null)) {
+            if (is == null) {
+                throw new IOException("No data recorded");
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = is.read(buffer)) > 0) {
+                os.write(buffer, 0, len);
+            }
+        } finally {
+            release(id, recording);
+        }
+    }
+
+    /**
+     * 在服务端解析录制数据生成摘要
+     *
+     * @param id  录制id，为 null 或小于等于0时对所有录制做快照
+     * @param top 每一类聚合保留的条目数
+     * @return 摘要
+     * @throws IOException 没有录制数据或解析失败
+     */
+    public JfrSummaryInfo summary(Long id, int top) throws IOException {
+        Recording recording = open(id);
+        File file = new File(FileUtil.getTempPath(), UUID.randomUUID() + ".jfr");
+        try {
+            if (file.getParentFile() != null && !file.getParentFile().exists()) {
+                file.getParentFile().mkdirs();
+            }
+            recording.dump(file.toPath());
+            if (!file.exists()) {
+                throw new IOException("No data recorded");
+            }
+            return summarize(file.toPath(), top).setRecordingId(id == null || id <= 0 ? 0 : id);
+        } finally {
+            release(id, recording);
+            file.delete();
+        }
+    }
+
+    /**
+     * 逐个事件解析 .jfr 文件并聚合，内存占用只与聚合条目数有关，与文件大小无关
+     *
+     * @param file .jfr 文件
+     * @param top  每一类聚合保留的条目数
+     * @return 摘要
+     * @throws IOException 读取或解析失败
+     */
+    public static JfrSummaryInfo summarize(Path file, int top) throws IOException {
+        StatTable samples = new StatTable();
+        StatTable tlabs = new StatTable();
+        StatTable monitors = new StatTable();
+        StatTable gcPhases = new StatTable();
+        StatTable sockets = new StatTable();
+        long events = 0, startTime = Long.MAX_VALUE, endTime = 0;
+
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                events++;
+                long time = event.getStartTime().toEpochMilli();
+                startTime = Math.min(startTime, time);
+                endTime = Math.max(endTime, event.getEndTime().toEpochMilli());
+
+                String name = event.getEventType().getName();
+                switch (name) {
+                    case ALLOCATION_SAMPLE:
+                        samples.get(className(event, "objectClass"), topFrame(event)).add(longValue(event, "weight"));
+                        break;
+                    case ALLOCATION_IN_TLAB:
+                        tlabs.get(className(event, "objectClass"), topFrame(event)).add(longValue(event, "tlabSize"));
+                        break;
+                    case ALLOCATION_OUTSIDE_TLAB:
+                        tlabs.get(className(event, "objectClass"), topFrame(event)).add(longValue(event, "allocationSize"));
+                        break;
+                    case MONITOR_ENTER:
+                        monitors.get(className(event, "monitorClass"), topFrame(event)).add(event.getDuration().toNanos());
+                        break;
+                    case GARBAGE_COLLECTION:
+                        //  一次 GC 的停顿总时长，最长时长取单次最长停顿
+                        Stat gc = gcPhases.get(name, event.hasField("name") ? event.getString("name") : "");
+                        if (event.hasField("sumOfPauses")) {
+                            gc.count++;
+                            gc.total += event.getDuration("sumOfPauses").toNanos();
+                            gc.max = Math.max(gc.max, event.hasField("longestPause") ? event.getDuration("longestPause").toNanos() : 0);
+                        }
+                        break;
+                    case SOCKET_READ:
+                    case SOCKET_WRITE:
+                        boolean read = SOCKET_READ.equals(name);
+                        Stat socket = sockets.get(address(event), read ? "read" : "write");
+                        socket.add(event.getDuration().toNanos());
+                        socket.bytes += longValue(event, read ? "bytesRead" : "bytesWritten");
+                        break;
+                    default:
+                        if (GC_PHASE_EVENTS.contains(name)) {
+                            gcPhases.get(name, event.hasField("name") ? event.getString("name") : "").add(event.getDuration().toNanos());
+                        }
+                }
+            }
+        }
+
+        //  同时存在采样事件和 TLAB 事件时只使用采样事件，避免重复统计
+        StatTable allocations = samples.isEmpty() ? tlabs : samples;
+        JfrSummaryInfo info = JfrSummaryInfo.create()
+                .setEvents(events)
+                .setStartTime(events == 0 ? 0 : startTime)
+                .setEndTime(endTime)
+                .setTruncated(allocations.truncated || monitors.truncated || gcPhases.truncated || sockets.truncated);
+        for (Stat stat : allocations.top(top)) {
+            info.getAllocations().add(AllocationSite.create().setObjectClass(stat.key1).setFrame(stat.key2)
+                    .setCount(stat.count).setBytes(stat.total));
+        }
+        for (Stat stat : monitors.top(top)) {
+            info.getMonitors().add(MonitorSite.create().setMonitorClass(stat.key1).setFrame(stat.key2)
+                    .setCount(stat.count).setTotalTime(stat.total).setMaxTime(stat.max));
+        }
+        for (Stat stat : gcPhases.top(top)) {
+            info.getGcPhases().add(GcPhase.create().setEvent(stat.key1).setName(stat.key2)
+                    .setCount(stat.count).setTotalTime(stat.total).setMaxTime(stat.max));
+        }
+        for (Stat stat : sockets.top(top)) {
+            info.getSockets().add(SocketSite.create().setAddress(stat.key1).setOperation(stat.key2)
+                    .setCount(stat.count).setBytes(stat.bytes).setTotalTime(stat.total));
+        }
+        return info;
+    }
+
+    private Recording findManaged(long id) {
+        if (!managed.contains(id)) {
+            throw new IllegalArgumentException("Recording " + id + " is not started by jvmm");
+        }
+        return find(id);
+    }
+
+    private Recording find(long id) {
+        for (Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (recording.getId() == id) {
+                return recording;
+            }
+        }
+        throw new IllegalArgumentException("Recording not found: " + id);
+    }
+
+    /**
+     * 获取要读取的录制，运行中的录制返回截至当前的副本，未指定录制时返回所有录制的快照
+     */
+    private Recording open(Long id) {
+        if (id == null || id <= 0) {
+            return FlightRecorder.getFlightRecorder().takeSnapshot();
+        }
+        Recording recording = find(id);
+        switch (recording.getState()) {
+            case RUNNING:
+                return recording.copy(true);
+            case STOPPED:
+                return recording;
+            default:
+                throw new IllegalStateException("Recording " + id + " has no data, state: " + recording.getState());
+        }
+    }
+
+    /**
+     * 关闭 {@link #open(Long)} 产生的副本
+     */
+    private static void release(Long id, Recording recording) {
+        if (id == null || id <= 0 || recording.getId() != id) {
+            recording.close();
+        }
+    }
+
+    private static Set<Long> recordingIds() {
+        Set<Long> ids = new HashSet<>();
+        for (Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            ids.add(recording.getId());
+        }
+        return ids;
+    }
+
+    private static boolean hasEventType(String name) {
+        for (EventType type : FlightRecorder.getFlightRecorder().getEventTypes()) {
+            if (type.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void enable(Map<String, String> settings, String event, Long thresholdMillis, boolean stackTrace) {
+        settings.put(event + "#enabled", "true");
+        if (thresholdMillis != null) {
+            settings.put(event + "#threshold", Math.max(0, thresholdMillis) + " ms");
+        }
+        if (stackTrace) {
+            settings.put(event + "#stackTrace", "true");
+        }
+    }
+
+    private JfrRecordingInfo toInfo(Recording recording) {
+        Instant start = recording.getStartTime();
+        Instant stop = recording.getStopTime();
+        Duration duration = recording.getDuration();
+        Duration maxAge = recording.getMaxAge();
+        return JfrRecordingInfo.create()
+                .setId(recording.getId())
+                .setName(recording.getName())
+                .setState(recording.getState().name())
+                .setStartTime(start == null ? 0 : start.toEpochMilli())
+                .setStopTime(stop == null ? 0 : stop.toEpochMilli())
+                .setDuration(duration == null ? 0 : duration.toMillis())
+                .setSize(recording.getSize())
+                .setMaxAge(maxAge == null ? 0 : maxAge.toMillis())
+                .setMaxSize(recording.getMaxSize())
+                .setManaged(managed.contains(recording.getId()));
+    }
+
+    private static String topFrame(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "";
+        }
+        RecordedFrame frame = stackTrace.getFrames().get(0);
+        if (frame.getMethod() == null) {
+            return "";
+        }
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static String className(RecordedEvent event, String field) {
+        RecordedClass clazz = event.hasField(field) ? event.getClass(field) : null;
+        return clazz == null ? "" : clazz.getName();
+    }
+
+    private static long longValue(RecordedEvent event, String field) {
+        return event.hasField(field) ? event.getLong(field) : 0;
+    }
+
+    private static String address(RecordedEvent event) {
+        String host = event.hasField("host") ? event.getString("host") : null;
+        if (host == null || host.isEmpty()) {
+            host = event.hasField("address") ? event.getString("address") : "";
+        }
+        return host + ":" + (event.hasField("port") ? event.getInt("port") : 0);
+    }
+
+    /**
+     * 按两个键聚合的条目表。条目数达到 {@link #MAX_ENTRIES} 的两倍时只保留总量最大的 {@link #MAX_ENTRIES} 个，
+     * 录制后期才出现的热点仍然可以进入结果，被淘汰条目此前的累计值会丢失，因此标记为不完整
+     */
+    private static final class StatTable {
+        private static final Comparator<Stat> BY_TOTAL = (o1, o2) -> Long.compare(o2.total, o1.total);
+
+        final Map<String, Stat> map = new HashMap<>();
+        boolean truncated;
+
+        Stat get(String key1, String key2) {
+            String key = key1 + '\n' + key2;
+            Stat stat = map.get(key);
+            if (stat == null) {
+                if (map.size() >= MAX_ENTRIES * 2) {
+                    compact();
+                }
+                stat = new Stat(key1, key2);
+                map.put(key, stat);
+            }
+            return stat;
+        }
+
+        boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        List<Stat> top(int top) {
+            List<Stat> list = new ArrayList<>(map.values());
+            list.sort(BY_TOTAL);
+            return list.size() > top ? list.subList(0, top) : list;
+        }
+
+        private void compact() {
+            for (Stat stat : top(map.size()).subList(MAX_ENTRIES, map.size())) {
+                map.remove(stat.key1 + '\n' + stat.key2);
+            }
+            truncated = true;
+        }
+    }
+
+    private static final class Stat {
+        final String key1;
+        final String key2;
+        long count;
+        long total;
+        long max;
+        /**
+         * Socket 读写的字节数
+         */
+        long bytes;
+
+        Stat(String key1, String key2) {
+            this.key1 = key1;
+            this.key2 = key2;
+        }
+
+        /**
+         * 累加一次事件，分配事件累加的是字节数，其他事件累加的是耗时
+         */
+        void add(long value) {
+            count++;
+            total += value;
+            max = Math.max(max, value);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package org.beifengtz.jvmm.core;
 
+import org.beifengtz.jvmm.core.driver.OSRateSampler.RateWindow;
 import org.beifengtz.jvmm.core.entity.info.*;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +43,14 @@ public interface JvmmCollector {
      */
     CompletableFuture<CPUInfo> getCPU();
 
+    /**
+     * 获取一个 CPU、网卡、磁盘IO 共用的速率窗口，开启后台速率采样时返回最近的窗口，否则等待一次1秒的窗口。
+     * 需要同时获取多项速率时使用同一个窗口，只需要等待一次
+     *
+     * @return {@link RateWindow} of {@link CompletableFuture}
+     */
+    CompletableFuture<RateWindow> getRateWindow();
+
     /**
      * 获取网卡、网络IO信息，异步执行
      *
@@ -97,6 +108,13 @@ public interface JvmmCollector {
      */
     List<JvmClassLoaderInfo> getJvmClassLoaders();
 
+    /**
+     * 获取JVM Class Loader树，根节点为 Bootstrap ClassLoader 的直接子加载器
+     *
+     * @return 根节点 {@link JvmClassLoaderInfo} 列表，子节点在 {@link JvmClassLoaderInfo#getChildren()} 中
+     */
+    List<JvmClassLoaderInfo> getJvmClassLoaderTree();
+
     /**
      * 获取JVM JNI编译信息
      *
@@ -111,6 +129,62 @@ public interface JvmmCollector {
      */
     List<JvmGCInfo> getJvmGC();
 
+    /**
+     * 获取GC停顿分布以及分配、晋升速率，数据来自 {@link GCPauseRecorder}，首次调用时才开始监听GC事件
+     *
+     * @return {@link JvmGCPauseInfo}
+     */
+    JvmGCPauseInfo getJvmGCPause();
+
+    /**
+     * 从 hsperfdata 读取 safepoint、类加载、JIT、各代容量等性能计数器，不经过 JMX
+     *
+     * @param pid 本机 JVM 进程id，小于等于0表示当前 JVM
+     * @return {@link JvmPerfInfo}
+     * @throws IOException 目标 JVM 不存在或没有发布 hsperfdata
+     */
+    JvmPerfInfo getJvmPerf(long pid) throws IOException;
+
+    /**
+     * 获取 hsperfdata 中的原始计数器
+     *
+     * @param pid    本机 JVM 进程id，小于等于0表示当前 JVM
+     * @param prefix 计数器名前缀，例如 sun.gc.，为空时返回全部
+     * @return 计数器名 -> 值，值为数字或字符串
+     * @throws IOException 目标 JVM 不存在或没有发布 hsperfdata
+     */
+    Map<String, Object> getJvmPerfCounters(long pid, String prefix) throws IOException;
+
+    /**
+     * 在当前进程内执行 VM.native_memory summary，获取 Native Memory Tracking 各分类的内存使用以及相对基线的变化量。
+     * 需要以 -XX:NativeMemoryTracking=summary 或 detail 启动 JVM，否则返回的 {@link JvmNativeMemoryInfo#isEnabled()} 为 false
+     *
+     * @return {@link JvmNativeMemoryInfo}
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    JvmNativeMemoryInfo getJvmNativeMemory() throws Exception;
+
+    /**
+     * 在当前进程内执行 GC.class_histogram，获取实例占用字节数最多的 N 个类
+     *
+     * @param top  返回的类数量，小于等于0时返回全部
+     * @param live 为true时只统计存活对象，会触发一次 Full GC
+     * @return {@link JvmClassHistogramInfo}
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    JvmClassHistogramInfo getJvmClassHistogram(int top, boolean live) throws Exception;
+
+    /**
+     * 采集类直方图并与基线对比，获取字节数增长最多的 N 个类，首次调用时以本次结果作为基线
+     *
+     * @param top   返回的类数量，小于等于0时返回所有增长的类
+     * @param live  为true时只统计存活对象，会触发一次 Full GC
+     * @param reset 对比后是否以本次结果作为新的基线
+     * @return {@link JvmClassHistogramInfo}
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    JvmClassHistogramInfo getJvmClassHistogramDiff(int top, boolean live, boolean reset) throws Exception;
+
     /**
      * 获取JVM 各个内存管理器信息
      *
@@ -132,6 +206,13 @@ public interface JvmmCollector {
      */
     JvmMemoryInfo getJvmMemory();
 
+    /**
+     * 获取 JVM 直接内存和 mapped 缓冲池的使用信息，以及进程中各个 Netty 的直接内存和池化分配器统计
+     *
+     * @return {@link JvmBufferPoolInfo}
+     */
+    JvmBufferPoolInfo getJvmBufferPool();
+
     /**
      * 获取 JVM 线程运行数
      *
@@ -201,6 +282,14 @@ public interface JvmmCollector {
      */
     String[] dumpAllThreads();
 
+    /**
+     * dump JVM当前运行的所有线程堆栈信息，每格式化完一个线程就写入到 out 中，不会在内存中保留完整的 dump 内容
+     *
+     * @param out 输出目标
+     * @throws IOException 写入失败
+     */
+    void dumpAllThreads(Appendable out) throws IOException;
+
     /**
      * 获取线程池信息
      *
@@ -211,46 +300,47 @@ public interface JvmmCollector {
     ThreadPoolInfo getThreadPoolInfo(ThreadPoolExecutor threadPool);
 
     /**
-     * 根据提供的类加载器、类路径、变量信息反射获取 {@link ThreadPoolExecutor} 对象并采集其信息，仅支持静态属性！
+     * 根据提供的类加载器、类路径、变量信息反射获取线程池对象并采集其信息，仅支持静态属性！
+     * 支持 {@link ThreadPoolExecutor}、{@link java.util.concurrent.ForkJoinPool} 和 Netty EventExecutorGroup，字段解析结果会被缓存
      *
      * @param classLoader 类加载器
      * @param clazz       类全路径，比如 org.beifengtz.jvmm.common.factory.ExecutorFactory
      * @param filed       属性名，仅支持静态属性！比如 SCHEDULE_THREAD_POOL
      * @return {@link ThreadPoolInfo}，如果反射未找到相应的 threadPool 或其值为 null 将返回 null
-     * @throws IllegalArgumentException 如果获取的线程池不是一个 {@link ThreadPoolExecutor}实例，将会抛出此异常
+     * @throws IllegalArgumentException 如果获取的线程池不是支持的线程池类型，将会抛出此异常
      */
     ThreadPoolInfo getThreadPoolInfo(ClassLoader classLoader, String clazz, String filed);
 
     /**
-     * 根据提供的类加载器、类路径、变量信息反射获取 {@link ThreadPoolExecutor} 对象并采集其信息
+     * 根据提供的类加载器、类路径、变量信息反射获取线程池对象并采集其信息，支持的类型同上
      *
      * @param classLoader   类加载器
      * @param clazz         类全路径，比如 org.beifengtz.jvmm.common.factory.ExecutorFactory
      * @param instanceField 指定类实例对象的属性名，比如单例模式中的 INSTANCE
      * @param filed         实例对象中的属性名
      * @return {@link ThreadPoolInfo}，如果反射未找到相应的 threadPool 或其值为 null 将返回 null
-     * @throws IllegalArgumentException 如果获取的线程池不是一个 {@link ThreadPoolExecutor}实例，将会抛出此异常
+     * @throws IllegalArgumentException 如果获取的线程池不是支持的线程池类型，将会抛出此异常
      */
     ThreadPoolInfo getThreadPoolInfo(ClassLoader classLoader, String clazz, String instanceField, String filed);
 
     /**
-     * 根据提供的类、变量信息反射获取 {@link ThreadPoolExecutor} 对象并采集其信息
+     * 根据提供的类、变量信息反射获取线程池对象并采集其信息
      *
      * @param clazz 类全路径，比如 org.beifengtz.jvmm.common.factory.ExecutorFactory
      * @param filed 属性名，仅支持静态属性！比如 SCHEDULE_THREAD_POOL
      * @return {@link ThreadPoolInfo}，如果反射未找到相应的 threadPool 或其值为 null 将返回 null
-     * @throws IllegalArgumentException 如果获取的线程池不是一个 {@link ThreadPoolExecutor}实例，将会抛出此异常
+     * @throws IllegalArgumentException 如果获取的线程池不是支持的线程池类型，将会抛出此异常
      */
     ThreadPoolInfo getThreadPoolInfo(String clazz, String filed);
 
     /**
-     * 根据提供的类路径、变量信息反射获取 {@link ThreadPoolExecutor} 对象并采集其信息
+     * 根据提供的类路径、变量信息反射获取线程池对象并采集其信息
      *
      * @param clazz         类全路径，比如 org.beifengtz.jvmm.common.factory.ExecutorFactory
      * @param instanceField 指定类实例对象的属性名，比如单例模式中的 INSTANCE
      * @param filed         实例对象中的属性名
      * @return {@link ThreadPoolInfo}，如果反射未找到相应的 threadPool 或其值为 null 将返回 null
-     * @throws IllegalArgumentException 如果获取的线程池不是一个 {@link ThreadPoolExecutor}实例，将会抛出此异常
+     * @throws IllegalArgumentException 如果获取的线程池不是支持的线程池类型，将会抛出此异常
      */
     ThreadPoolInfo getThreadPoolInfo(String clazz, String instanceField, String filed);
 
@@ -290,4 +380,34 @@ public interface JvmmCollector {
      * @return 根据 CPU Time 从大到小排序的线程堆栈列表，它将以 {@link CompletableFuture} 返回
      */
     CompletableFuture<List<String>> getOrderedThreadTimedStack(long time, TimeUnit unit);
+
+    /**
+     * 获取最近一段时间内 CPU Time 最高的 N 个线程。
+     * 如果后台线程采样器 {@link ThreadCpuSampler} 已启动将立即返回，否则退化为 {@link #getOrderedThreadTimedInfo(long, TimeUnit)}，
+     * 需要等待一个窗口的时间。
+     *
+     * @param windowSeconds 统计窗口，单位秒，超出 [1, {@link ThreadCpuSampler#MAX_WINDOW}] 时取边界值
+     * @param top           返回的线程数量，小于等于0时返回所有线程
+     * @return 根据 CPU Time 从大到小排序的 {@link ThreadTimedInfo} 列表，它将以 {@link CompletableFuture} 返回
+     */
+    CompletableFuture<List<ThreadTimedInfo>> getThreadCpuTop(int windowSeconds, int top);
+
+    /**
+     * 计算最近一个窗口内每个线程的堆内存分配速率，返回分配最多的 N 个线程以及进程整体分配速率。
+     * 后台线程采样器运行时直接使用其默认窗口立即返回，否则以本次调用为起点等待 1 秒后返回，多个调用方之间互不影响。
+     * 需要 JVM 支持 {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long[])}。
+     *
+     * @param top 返回的线程数量，小于等于0时返回所有线程
+     * @return {@link JvmThreadAllocationInfo}，它将以 {@link CompletableFuture} 返回
+     */
+    CompletableFuture<JvmThreadAllocationInfo> getThreadAllocation(int top);
+
+    /**
+     * 获取锁竞争热点和线程间的等待关系。
+     * 如果后台锁竞争采样器 {@link LockContentionSampler} 已启动将立即返回其启动以来的统计，否则临时采样约 1 秒后返回。
+     *
+     * @param top 返回的热点和等待关系数量，小于等于0时返回全部
+     * @return {@link JvmLockContentionInfo}，它将以 {@link CompletableFuture} 返回
+     */
+    CompletableFuture<JvmLockContentionInfo> getLockContention(int top);
 }
@@ -52,6 +52,15 @@ public interface JvmmExecutor {
 
     void flameProfile(File to, int pid, int sampleSeconds, String mode) throws IOException;
 
+    /**
+     * 通过 HotSpotDiagnosticMXBean 在临时目录生成当前 JVM 的堆转储文件，文件由调用方使用完后删除
+     *
+     * @param live 是否只转储存活对象，为true时会触发一次 Full GC
+     * @return hprof 文件
+     * @throws IOException 生成失败
+     */
+    File dumpHeap(boolean live) throws IOException;
+
     /**
      * 代码反编译
      * @param instrumentation   Agent提供的探针
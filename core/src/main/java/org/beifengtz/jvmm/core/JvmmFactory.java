@@ -1,5 +1,7 @@
 package org.beifengtz.jvmm.core;
 
+import org.beifengtz.jvmm.common.exception.ProfilerNotSupportedException;
+
 /**
  * <p>
  * Description: TODO
@@ -11,15 +13,34 @@ package org.beifengtz.jvmm.core;
  */
 public class JvmmFactory {
 
-    private static volatile JvmmCollector jvmmCollector = null;
+    private static volatile CachedJvmmCollector jvmmCollector = null;
     private static volatile JvmmExecutor jvmmExecutor = null;
     private static volatile JvmmProfiler jvmmProfiler = null;
+    private static volatile ThreadCpuSampler threadCpuSampler = null;
+    private static volatile GCPauseRecorder gcPauseRecorder = null;
+    private static volatile ClassLoaderRegistry classLoaderRegistry = null;
+    private static volatile ThreadPoolRegistry threadPoolRegistry = null;
+    private static volatile LockContentionSampler lockContentionSampler = null;
+    private static volatile NativeMemoryTracker nativeMemoryTracker = null;
+    private static volatile ClassHistogramRecorder classHistogramRecorder = null;
+    private static volatile MetricHistory metricHistory = null;
+    private static volatile ContinuousProfiler continuousProfiler = null;
+    private static volatile ProfilerSessionManager profilerSessionManager = null;
+    private static volatile JavaSamplingProfiler javaSamplingProfiler = null;
+    private static volatile JfrRecorder jfrRecorder = null;
 
     public static JvmmCollector getCollector() {
+        return getCachedCollector();
+    }
+
+    /**
+     * @return {@link #getCollector()} 的实际实例，用于配置各采集项的缓存时间
+     */
+    public static CachedJvmmCollector getCachedCollector() {
         if (jvmmCollector == null) {
             synchronized (JvmmFactory.class) {
                 if (jvmmCollector == null) {
-                    jvmmCollector = new DefaultJvmmCollector();
+                    jvmmCollector = new CachedJvmmCollector(new DefaultJvmmCollector());
                 }
                 return jvmmCollector;
             }
@@ -50,4 +71,167 @@ public class JvmmFactory {
         }
         return jvmmProfiler;
     }
+
+    public static ThreadCpuSampler getThreadCpuSampler() {
+        if (threadCpuSampler == null) {
+            synchronized (JvmmFactory.class) {
+                if (threadCpuSampler == null) {
+                    threadCpuSampler = new ThreadCpuSampler();
+                }
+                return threadCpuSampler;
+            }
+        }
+        return threadCpuSampler;
+    }
+
+    public static GCPauseRecorder getGCPauseRecorder() {
+        if (gcPauseRecorder == null) {
+            synchronized (JvmmFactory.class) {
+                if (gcPauseRecorder == null) {
+                    gcPauseRecorder = new GCPauseRecorder();
+                }
+                return gcPauseRecorder;
+            }
+        }
+        return gcPauseRecorder;
+    }
+
+    public static ClassLoaderRegistry getClassLoaderRegistry() {
+        if (classLoaderRegistry == null) {
+            synchronized (JvmmFactory.class) {
+                if (classLoaderRegistry == null) {
+                    classLoaderRegistry = new ClassLoaderRegistry();
+                }
+                return classLoaderRegistry;
+            }
+        }
+        return classLoaderRegistry;
+    }
+
+    public static ThreadPoolRegistry getThreadPoolRegistry() {
+        if (threadPoolRegistry == null) {
+            synchronized (JvmmFactory.class) {
+                if (threadPoolRegistry == null) {
+                    threadPoolRegistry = new ThreadPoolRegistry();
+                }
+                return threadPoolRegistry;
+            }
+        }
+        return threadPoolRegistry;
+    }
+
+    public static LockContentionSampler getLockContentionSampler() {
+        if (lockContentionSampler == null) {
+            synchronized (JvmmFactory.class) {
+                if (lockContentionSampler == null) {
+                    lockContentionSampler = new LockContentionSampler();
+                }
+                return lockContentionSampler;
+            }
+        }
+        return lockContentionSampler;
+    }
+
+    public static NativeMemoryTracker getNativeMemoryTracker() {
+        if (nativeMemoryTracker == null) {
+            synchronized (JvmmFactory.class) {
+                if (nativeMemoryTracker == null) {
+                    nativeMemoryTracker = new NativeMemoryTracker();
+                }
+                return nativeMemoryTracker;
+            }
+        }
+        return nativeMemoryTracker;
+    }
+
+    public static ClassHistogramRecorder getClassHistogramRecorder() {
+        if (classHistogramRecorder == null) {
+            synchronized (JvmmFactory.class) {
+                if (classHistogramRecorder == null) {
+                    classHistogramRecorder = new ClassHistogramRecorder();
+                }
+                return classHistogramRecorder;
+            }
+        }
+        return classHistogramRecorder;
+    }
+
+    public static MetricHistory getMetricHistory() {
+        if (metricHistory == null) {
+            synchronized (JvmmFactory.class) {
+                if (metricHistory == null) {
+                    metricHistory = new MetricHistory();
+                }
+                return metricHistory;
+            }
+        }
+        return metricHistory;
+    }
+
+    public static ContinuousProfiler getContinuousProfiler() {
+        if (continuousProfiler == null) {
+            synchronized (JvmmFactory.class) {
+                if (continuousProfiler == null) {
+                    continuousProfiler = new ContinuousProfiler();
+                }
+                return continuousProfiler;
+            }
+        }
+        return continuousProfiler;
+    }
+
+    public static ProfilerSessionManager getProfilerSessionManager() {
+        if (profilerSessionManager == null) {
+            synchronized (JvmmFactory.class) {
+                if (profilerSessionManager == null) {
+                    profilerSessionManager = new ProfilerSessionManager(getProfiler());
+                }
+                return profilerSessionManager;
+            }
+        }
+        return profilerSessionManager;
+    }
+
+    public static JavaSamplingProfiler getJavaSamplingProfiler() {
+        if (javaSamplingProfiler == null) {
+            synchronized (JvmmFactory.class) {
+                if (javaSamplingProfiler == null) {
+                    javaSamplingProfiler = new JavaSamplingProfiler();
+                }
+                return javaSamplingProfiler;
+            }
+        }
+        return javaSamplingProfiler;
+    }
+
+    /**
+     * 获取 JFR 录制管理器，当前 JVM 不支持 Flight Recorder 时抛出 {@link ProfilerNotSupportedException}
+     */
+    public static JfrRecorder getJfrRecorder() {
+        if (jfrRecorder == null) {
+            synchronized (JvmmFactory.class) {
+                if (jfrRecorder == null) {
+                    //  JfrRecorder 直接引用 jdk.jfr，必须先确认可用再加载
+                    if (!isJfrAvailable()) {
+                        throw new ProfilerNotSupportedException("Flight Recorder is not available in this JVM, it requires JDK 8u262+ or JDK 11+");
+                    }
+                    jfrRecorder = new JfrRecorder();
+                }
+                return jfrRecorder;
+            }
+        }
+        return jfrRecorder;
+    }
+
+    /**
+     * @return 当前 JVM 是否可以使用 Flight Recorder，低版本的 JDK 8 没有 jdk.jfr，也可能被 -XX:-FlightRecorder 禁用
+     */
+    public static boolean isJfrAvailable() {
+        try {
+            Class<?> clazz = Class.forName("jdk.jfr.FlightRecorder");
+            return (boolean) clazz.getMethod("isAvailable").invoke(null);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
 }
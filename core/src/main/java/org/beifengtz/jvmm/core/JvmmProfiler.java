@@ -23,6 +23,9 @@ import java.util.concurrent.TimeUnit;
  */
 public interface JvmmProfiler {
 
+    /**
+     * @return async-profiler 是否可用，不可用时所有命令由 {@link JavaSamplingProfiler} 执行
+     */
     boolean isSystemSupported();
 
     String execute(String command) throws IOException;
@@ -0,0 +1,381 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.common.util.meta.LongLongHashMap;
+import org.beifengtz.jvmm.core.entity.info.JvmLockContentionInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmLockContentionInfo.LockHotSpot;
+import org.beifengtz.jvmm.core.entity.info.JvmLockContentionInfo.WaitEdge;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Description: 锁竞争采样器，周期性读取所有线程的 {@link ThreadInfo}（只取栈顶一帧），把正在等待锁的线程按 锁 + 栈顶方法 聚合为热点表，
+ * 同时按 等待线程 -> 持有线程 聚合出等待关系图。
+ * </p>
+ * <p>
+ * 只统计 BLOCKED 状态（等待进入 synchronized）以及等待有持有者的 j.u.c 锁的线程，Object.wait、Condition.await、
+ * 空闲线程池在队列上的等待没有持有者，不属于锁竞争，不会被统计。开启线程竞争监控后额外累计等待线程的 BLOCKED 时间增量。
+ * </p>
+ * <p>
+ * Created in 14:35 2023/10/20
+ *
+ * @author beifengtz
+ */
+public final class LockContentionSampler {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(LockContentionSampler.class);
+
+    public static final int DEFAULT_INTERVAL = 200;
+    public static final int DEFAULT_TOP = 10;
+    /**
+     * 采样器未启动时临时采样的次数和间隔
+     */
+    private static final int TEMPORARY_SAMPLES = 10;
+    private static final int TEMPORARY_INTERVAL = 100;
+    /**
+     * 热点表和等待关系图的最大条目数，超出后新的条目被丢弃
+     */
+    private static final int MAX_ENTRIES = 4096;
+    private static final int MAX_OWNERS = 16;
+
+    private static int contentionHolders = 0;
+    private static boolean contentionEnabledByHolder = false;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Map<HotSpotKey, HotSpot> hotSpots = new HashMap<>();
+    private final Map<EdgeKey, long[]> edges = new HashMap<>();
+    private LongLongHashMap blockedTimes = new LongLongHashMap(256, -1L);
+    private LongLongHashMap preBlockedTimes = new LongLongHashMap(256, -1L);
+    private long samples;
+    private long startTime = System.currentTimeMillis();
+    private int interval = DEFAULT_INTERVAL;
+    private boolean contentionRetained;
+
+    private ScheduledFuture<?> task;
+
+    LockContentionSampler() {
+    }
+
+    /**
+     * 申请开启线程竞争监控，全部释放后恢复原状态，与 {@link ThreadCpuSampler} 的 CPU Time 开关处理方式一致
+     */
+    private static synchronized boolean retainContentionMonitoring() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!mx.isThreadContentionMonitoringSupported()) {
+            return false;
+        }
+        if (contentionHolders++ == 0 && !mx.isThreadContentionMonitoringEnabled()) {
+            mx.setThreadContentionMonitoringEnabled(true);
+            contentionEnabledByHolder = true;
+        }
+        return true;
+    }
+
+    private static synchronized void releaseContentionMonitoring() {
+        if (contentionHolders <= 0) {
+            return;
+        }
+        if (--contentionHolders == 0 && contentionEnabledByHolder) {
+            ManagementFactory.getThreadMXBean().setThreadContentionMonitoringEnabled(false);
+            contentionEnabledByHolder = false;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null && !task.isDone();
+    }
+
+    /**
+     * 启动采样器并清空已有统计，如果已经启动仅修改采样间隔
+     *
+     * @param interval 采样间隔，单位ms，最小10ms
+     */
+    public synchronized void start(int interval) {
+        int newInterval = Math.max(10, interval);
+        if (isRunning()) {
+            if (newInterval == this.interval) {
+                return;
+            }
+            task.cancel(false);
+        } else {
+            reset();
+            contentionRetained = retainContentionMonitoring();
+        }
+        this.interval = newInterval;
+        task = ExecutorFactory.getThreadPool().scheduleAtFixedRate(this::sample, 0, newInterval, TimeUnit.MILLISECONDS);
+        logger.debug("Lock contention sampler started with interval {}ms", newInterval);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            if (contentionRetained) {
+                releaseContentionMonitoring();
+                contentionRetained = false;
+            }
+            logger.debug("Lock contention sampler stopped");
+        }
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public synchronized void reset() {
+        hotSpots.clear();
+        edges.clear();
+        samples = 0;
+        startTime = System.currentTimeMillis();
+    }
+
+    synchronized void sample() {
+        try {
+            ThreadInfo[] infos = threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 1);
+            boolean contention = threadMXBean.isThreadContentionMonitoringEnabled();
+            LongLongHashMap current = preBlockedTimes;
+            current.clear();
+            long sampleId = ++samples;
+            for (ThreadInfo ti : infos) {
+                if (ti == null) {
+                    continue;
+                }
+                long blockedDelta = 0;
+                if (contention && ti.getBlockedTime() >= 0) {
+                    current.put(ti.getThreadId(), ti.getBlockedTime());
+                    long pre = blockedTimes.get(ti.getThreadId());
+                    if (pre >= 0) {
+                        blockedDelta = Math.max(0, ti.getBlockedTime() - pre);
+                    }
+                }
+                String lockName = ti.getLockName();
+                Thread.State state = ti.getThreadState();
+                if (lockName == null || (state != Thread.State.BLOCKED && ti.getLockOwnerId() < 0)) {
+                    continue;
+                }
+                StackTraceElement[] stack = ti.getStackTrace();
+                String frame = stack.length == 0 ? null : stack[0].toString();
+                record(sampleId, ti, lockName, state, frame, blockedDelta);
+            }
+            preBlockedTimes = blockedTimes;
+            blockedTimes = current;
+        } catch (Throwable t) {
+            logger.warn("Lock contention sampler sample failed: " + t.getMessage(), t);
+        }
+    }
+
+    private void record(long sampleId, ThreadInfo ti, String lockName, Thread.State state, String frame, long blockedDelta) {
+        HotSpotKey key = new HotSpotKey(lockName, frame);
+        HotSpot hotSpot = hotSpots.get(key);
+        if (hotSpot == null) {
+            if (hotSpots.size() >= MAX_ENTRIES) {
+                return;
+            }
+            hotSpot = new HotSpot(state.name());
+            hotSpots.put(key, hotSpot);
+        }
+        if (hotSpot.lastSample != sampleId) {
+            hotSpot.lastSample = sampleId;
+            hotSpot.waiters = 0;
+        }
+        hotSpot.samples++;
+        hotSpot.maxWaiters = Math.max(hotSpot.maxWaiters, ++hotSpot.waiters);
+        hotSpot.blockedTime += blockedDelta;
+
+        String owner = ti.getLockOwnerName();
+        if (owner != null) {
+            long[] count = hotSpot.owners.get(owner);
+            if (count == null && hotSpot.owners.size() < MAX_OWNERS) {
+                count = new long[1];
+                hotSpot.owners.put(owner, count);
+            }
+            if (count != null) {
+                count[0]++;
+            }
+
+            EdgeKey edgeKey = new EdgeKey(ti.getThreadId(), ti.getThreadName(), ti.getLockOwnerId(), owner, lockName);
+            long[] edge = edges.get(edgeKey);
+            if (edge == null && edges.size() < MAX_ENTRIES) {
+                edge = new long[1];
+                edges.put(edgeKey, edge);
+            }
+            if (edge != null) {
+                edge[0]++;
+            }
+        }
+    }
+
+    /**
+     * 获取采样器启动（或上次重置）以来的锁竞争统计
+     *
+     * @param top   返回的热点和等待关系数量，小于等于0时返回全部
+     * @param reset 读取后是否清空统计
+     * @return {@link JvmLockContentionInfo}
+     */
+    public synchronized JvmLockContentionInfo getContention(int top, boolean reset) {
+        long now = System.currentTimeMillis();
+        JvmLockContentionInfo info = JvmLockContentionInfo.create()
+                .setStartTime(startTime)
+                .setDuration(now - startTime)
+                .setSamples(samples)
+                .setInterval(interval)
+                .setContentionMonitoring(threadMXBean.isThreadContentionMonitoringEnabled());
+
+        List<LockHotSpot> spots = info.getHotSpots();
+        for (Entry<HotSpotKey, HotSpot> entry : hotSpots.entrySet()) {
+            HotSpot hotSpot = entry.getValue();
+            LockHotSpot spot = LockHotSpot.create()
+                    .setLockName(entry.getKey().lockName)
+                    .setFrame(entry.getKey().frame)
+                    .setState(hotSpot.state)
+                    .setSamples(hotSpot.samples)
+                    .setAvgWaiters(samples == 0 ? 0 : (double) hotSpot.samples / samples)
+                    .setMaxWaiters(hotSpot.maxWaiters)
+                    .setBlockedTime(hotSpot.blockedTime);
+            long ownerSamples = 0;
+            for (Entry<String, long[]> owner : hotSpot.owners.entrySet()) {
+                if (owner.getValue()[0] > ownerSamples) {
+                    ownerSamples = owner.getValue()[0];
+                    spot.setTopOwner(owner.getKey());
+                }
+            }
+            spots.add(spot.setTopOwnerSamples(ownerSamples));
+        }
+        spots.sort((o1, o2) -> Long.compare(o2.getSamples(), o1.getSamples()));
+
+        List<WaitEdge> waitsFor = info.getWaitsFor();
+        for (Entry<EdgeKey, long[]> entry : edges.entrySet()) {
+            EdgeKey key = entry.getKey();
+            waitsFor.add(WaitEdge.create()
+                    .setWaiterId(key.waiterId)
+                    .setWaiter(key.waiter)
+                    .setOwnerId(key.ownerId)
+                    .setOwner(key.owner)
+                    .setLockName(key.lockName)
+                    .setSamples(entry.getValue()[0]));
+        }
+        waitsFor.sort((o1, o2) -> Long.compare(o2.getSamples(), o1.getSamples()));
+
+        if (top > 0) {
+            info.setHotSpots(new ArrayList<>(spots.subList(0, Math.min(top, spots.size()))));
+            info.setWaitsFor(new ArrayList<>(waitsFor.subList(0, Math.min(top, waitsFor.size()))));
+        }
+        if (reset) {
+            reset();
+        }
+        return info;
+    }
+
+    /**
+     * 采样器已启动时直接返回已有统计，否则使用一个临时采样器以 {@value TEMPORARY_INTERVAL}ms 间隔采样 {@value TEMPORARY_SAMPLES} 次后返回
+     *
+     * @param top 返回的热点和等待关系数量
+     * @return {@link JvmLockContentionInfo}
+     */
+    public CompletableFuture<JvmLockContentionInfo> collect(int top) {
+        if (isRunning()) {
+            return CompletableFuture.completedFuture(getContention(top, false));
+        }
+        LockContentionSampler temporary = new LockContentionSampler();
+        temporary.interval = TEMPORARY_INTERVAL;
+        CompletableFuture<JvmLockContentionInfo> future = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(TEMPORARY_SAMPLES);
+        ScheduledFuture<?>[] holder = new ScheduledFuture<?>[1];
+        synchronized (holder) {
+            holder[0] = ExecutorFactory.getThreadPool().scheduleAtFixedRate(() -> {
+                temporary.sample();
+                if (remaining.decrementAndGet() == 0) {
+                    future.complete(temporary.getContention(top, false));
+                    synchronized (holder) {
+                        holder[0].cancel(false);
+                    }
+                }
+            }, 0, TEMPORARY_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    private static final class HotSpot {
+        private final String state;
+        private final Map<String, long[]> owners = new HashMap<>();
+        private long samples;
+        private long blockedTime;
+        private int maxWaiters;
+        /**
+         * 当前采样中的等待线程数，lastSample 变化时清零
+         */
+        private int waiters;
+        private long lastSample;
+
+        private HotSpot(String state) {
+            this.state = state;
+        }
+    }
+
+    private static final class HotSpotKey {
+        private final String lockName;
+        private final String frame;
+
+        private HotSpotKey(String lockName, String frame) {
+            this.lockName = lockName;
+            this.frame = frame;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof HotSpotKey)) return false;
+            HotSpotKey that = (HotSpotKey) o;
+            return lockName.equals(that.lockName) && Objects.equals(frame, that.frame);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * lockName.hashCode() + Objects.hashCode(frame);
+        }
+    }
+
+    private static final class EdgeKey {
+        private final long waiterId;
+        private final String waiter;
+        private final long ownerId;
+        private final String owner;
+        private final String lockName;
+
+        private EdgeKey(long waiterId, String waiter, long ownerId, String owner, String lockName) {
+            this.waiterId = waiterId;
+            this.waiter = waiter;
+            this.ownerId = ownerId;
+            this.owner = owner;
+            this.lockName = lockName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof EdgeKey)) return false;
+            EdgeKey that = (EdgeKey) o;
+            return waiterId == that.waiterId && ownerId == that.ownerId && lockName.equals(that.lockName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(waiterId, ownerId, lockName);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.core.entity.info.JvmMetricHistoryInfo;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * <p>
+ * Description: 进程内的指标历史存储，后台按固定间隔读取已注册的指标，保存最近一段时间的数据供范围查询。
+ * </p>
+ * <p>
+ * 数据按列保存：所有指标共用一列 long 时间戳，每个指标一列 double 值，均为定长的基本类型数组组成的环形缓冲区，
+ * 稳定运行时采样不产生新的对象，GC 也不需要扫描其中的内容。指标在某次采样时还未注册或读取失败时记为 NaN，查询结果中为 null。
+ * </p>
+ * <p>
+ * 默认注册堆内存、直接内存、线程、类加载、GC、CPU 等 MXBean 指标，应用也可以通过 {@link #register(String, DoubleSupplier)} 注册自定义指标。
+ * </p>
+ * <p>
+ * Created in 15:20 2023/10/22
+ *
+ * @author beifengtz
+ */
+public final class MetricHistory {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MetricHistory.class);
+
+    /**
+     * 默认采样间隔，单位秒
+     */
+    public static final int DEFAULT_INTERVAL = 1;
+    /**
+     * 默认保留时长，单位分钟
+     */
+    public static final int DEFAULT_RETENTION = 10;
+    /**
+     * 环形缓冲区最大可保存的采样次数
+     */
+    public static final int MAX_CAPACITY = 86400;
+
+    private final Map<String, DoubleSupplier> gauges = new LinkedHashMap<>();
+    private final Map<String, double[]> columns = new LinkedHashMap<>();
+    private long[] timestamps = new long[0];
+    private int capacity = 0;
+    private long count = 0;
+    private int interval = DEFAULT_INTERVAL;
+
+    private ScheduledFuture<?> task;
+
+    MetricHistory() {
+        registerDefaults();
+    }
+
+    private void registerDefaults() {
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        register("jvm_heap_used", () -> memoryMXBean.getHeapMemoryUsage().getUsed());
+        register("jvm_heap_committed", () -> memoryMXBean.getHeapMemoryUsage().getCommitted());
+        register("jvm_non_heap_used", () -> memoryMXBean.getNonHeapMemoryUsage().getUsed());
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            register("jvm_buffer_pool_used[" + pool.getName() + "]", pool::getMemoryUsed);
+        }
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        register("jvm_thread_count", threadMXBean::getThreadCount);
+        register("jvm_thread_daemon_count", threadMXBean::getDaemonThreadCount);
+
+        ClassLoadingMXBean classLoadingMXBean = ManagementFactory.getClassLoadingMXBean();
+        register("jvm_class_loaded", classLoadingMXBean::getLoadedClassCount);
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            register("jvm_gc_count[" + gc.getName() + "]", gc::getCollectionCount);
+            register("jvm_gc_time[" + gc.getName() + "]", gc::getCollectionTime);
+        }
+
+        OperatingSystemMXBean osMXBean = ManagementFactory.getOperatingSystemMXBean();
+        register("system_load_average", osMXBean::getSystemLoadAverage);
+        if (osMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean sunOsMXBean = (com.sun.management.OperatingSystemMXBean) osMXBean;
+            register("system_cpu_load", sunOsMXBean::getSystemCpuLoad);
+            register("process_cpu_load", sunOsMXBean::getProcessCpuLoad);
+        }
+    }
+
+    /**
+     * 注册一个指标，已存在同名指标时替换读取方法并保留历史数据。注册之前的采样中该指标为 NaN
+     *
+     * @param name  指标名
+     * @param gauge 读取指标当前值的方法，应当足够轻量，会在采样线程中执行
+     */
+    public synchronized void register(String name, DoubleSupplier gauge) {
+        gauges.put(name, gauge);
+        if (!columns.containsKey(name)) {
+            double[] column = new double[capacity];
+            Arrays.fill(column, Double.NaN);
+            columns.put(name, column);
+        }
+    }
+
+    /**
+     * 移除指标及其历史数据
+     *
+     * @param name 指标名
+     */
+    public synchronized void unregister(String name) {
+        gauges.remove(name);
+        columns.remove(name);
+    }
+
+    public synchronized List<String> getMetricNames() {
+        return new ArrayList<>(columns.keySet());
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null && !task.isDone();
+    }
+
+    public synchronized int getInterval() {
+        return interval;
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 启动后台采样，如果已经启动则按新的参数重新启动。容量发生变化时丢弃已有的历史数据
+     *
+     * @param interval  采样间隔，单位秒，最小1秒
+     * @param retention 保留时长，单位分钟，最小1分钟，保存的采样次数不超过 {@link #MAX_CAPACITY}
+     */
+    public synchronized void start(int interval, int retention) {
+        stop();
+        interval = Math.max(1, interval);
+        int newCapacity = (int) Math.max(2, Math.min(MAX_CAPACITY, Math.max(1, retention) * 60L / interval));
+        if (newCapacity != capacity || interval != this.interval) {
+            resize(newCapacity);
+        }
+        this.interval = interval;
+        task = ExecutorFactory.getThreadPool().scheduleAtFixedRate(this::sample, 0, interval, TimeUnit.SECONDS);
+        logger.debug("Metric history started with interval {}s and capacity {}", interval, capacity);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            logger.debug("Metric history stopped");
+        }
+    }
+
+    /**
+     * 清空所有历史数据并按新容量重新分配缓冲区
+     *
+     * @param capacity 可保存的采样次数
+     */
+    synchronized void resize(int capacity) {
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.count = 0;
+        for (Entry<String, double[]> entry : columns.entrySet()) {
+            double[] column = new double[capacity];
+            Arrays.fill(column, Double.NaN);
+            entry.setValue(column);
+        }
+    }
+
+    private void sample() {
+        try {
+            record(System.currentTimeMillis());
+        } catch (Throwable t) {
+            logger.warn("Metric history sample failed: " + t.getMessage(), t);
+        }
+    }
+
+    /**
+     * 读取所有已注册指标的当前值，以指定时间戳写入一次采样
+     *
+     * @param timestamp 采样时间戳，需要单调递增
+     */
+    synchronized void record(long timestamp) {
+        if (capacity == 0) {
+            return;
+        }
+        int slot = (int) (count % capacity);
+        timestamps[slot] = timestamp;
+        for (Entry<String, double[]> entry : columns.entrySet()) {
+            DoubleSupplier gauge = gauges.get(entry.getKey());
+            double value;
+            try {
+                value = gauge == null ? Double.NaN : gauge.getAsDouble();
+            } catch (Throwable t) {
+                value = Double.NaN;
+            }
+            entry.getValue()[slot] = value;
+        }
+        count++;
+    }
+
+    /**
+     * 查询时间范围内的历史数据
+     *
+     * @param from    起始时间戳（包含），小于等于0时从最早的采样开始
+     * @param to      结束时间戳（包含），小于等于0时到最新的采样为止
+     * @param metrics 需要的指标名，为空时返回所有指标，不存在的指标忽略
+     * @return {@link JvmMetricHistoryInfo}
+     */
+    public synchronized JvmMetricHistoryInfo query(long from, long to, String... metrics) {
+        JvmMetricHistoryInfo info = JvmMetricHistoryInfo.create()
+                .setInterval(interval * 1000L)
+                .setCapacity(capacity);
+        long first = Math.max(0, count - capacity);
+        //  环形缓冲区中按逻辑下标时间戳单调递增，二分定位范围
+        long begin = from <= 0 ? first : lowerBound(first, count, from);
+        long end = to <= 0 ? count : lowerBound(begin, count, to + 1);
+        int n = (int) Math.max(0, end - begin);
+
+        long[] ts = new long[n];
+        for (int i = 0; i < n; i++) {
+            ts[i] = timestamps[(int) ((begin + i) % capacity)];
+        }
+        info.setTimestamps(ts);
+
+        List<String> names = metrics == null || metrics.length == 0 ? new ArrayList<>(columns.keySet()) : Arrays.asList(metrics);
+        for (String name : names) {
+            double[] column = columns.get(name);
+            if (column == null) {
+                continue;
+            }
+            Double[] values = new Double[n];
+            for (int i = 0; i < n; i++) {
+                double v = column[(int) ((begin + i) % capacity)];
+                values[i] = Double.isNaN(v) ? null : v;
+            }
+            info.getMetrics().put(name, values);
+        }
+        return info;
+    }
+
+    /**
+     * 在逻辑下标 [low, high) 中查找第一个时间戳大于等于 timestamp 的位置
+     */
+    private long lowerBound(long low, long high, long timestamp) {
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps[(int) (mid % capacity)] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
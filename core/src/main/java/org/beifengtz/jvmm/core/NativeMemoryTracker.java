@@ -0,0 +1,155 @@
+package org.beifengtz.jvmm.core;
+
+import org.beifengtz.jvmm.core.driver.DiagnosticCommandDriver;
+import org.beifengtz.jvmm.core.entity.info.JvmNativeMemoryInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmNativeMemoryInfo.NativeMemoryCategory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Description: Native Memory Tracking 采集，在当前进程内执行 VM.native_memory summary 并解析为各分类的 reserved/committed，
+ * 同时保存一份基线用于计算变化量。
+ * </p>
+ * <p>
+ * 基线保存在 jvmm 内存中而不是使用 VM.native_memory baseline，这样不会覆盖用户通过 jcmd 设置的基线。
+ * 首次采集时自动以本次结果作为基线，之后可以通过 {@link #baseline()} 重置。
+ * </p>
+ * <p>
+ * Created in 10:50 2023/10/21
+ *
+ * @author beifengtz
+ */
+public final class NativeMemoryTracker {
+
+    private static final String NOT_ENABLED = "Native memory tracking is not enabled";
+    /**
+     * 匹配 Total: reserved=1459806KB, committed=166742KB
+     */
+    private static final Pattern TOTAL_PATTERN = Pattern.compile("^Total:\\s*reserved=(\\d+)(\\w*),\\s*committed=(\\d+)(\\w*)");
+    /**
+     * 匹配 -                 Java Heap (reserved=262144KB, committed=65536KB)
+     */
+    private static final Pattern CATEGORY_PATTERN = Pattern.compile("^-\\s+(.+?)\\s+\\(reserved=(\\d+)(\\w*),\\s*committed=(\\d+)(\\w*)");
+
+    private volatile JvmNativeMemoryInfo baseline;
+
+    NativeMemoryTracker() {
+    }
+
+    /**
+     * 采集当前的 NMT 汇总信息，并计算相对基线的变化量
+     *
+     * @return {@link JvmNativeMemoryInfo}
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    public JvmNativeMemoryInfo getInfo() throws Exception {
+        JvmNativeMemoryInfo info = parse(DiagnosticCommandDriver.get().vmNativeMemory("summary", "scale=KB"));
+        if (!info.isEnabled()) {
+            return info;
+        }
+        JvmNativeMemoryInfo base = baseline;
+        if (base == null) {
+            synchronized (this) {
+                if (baseline == null) {
+                    baseline = info;
+                }
+                base = baseline;
+            }
+        }
+        return diff(info, base);
+    }
+
+    /**
+     * 以当前的 NMT 汇总信息重置基线
+     *
+     * @return 新的基线
+     * @throws Exception 当前 JVM 不支持 DiagnosticCommand 或执行失败
+     */
+    public synchronized JvmNativeMemoryInfo baseline() throws Exception {
+        JvmNativeMemoryInfo info = parse(DiagnosticCommandDriver.get().vmNativeMemory("summary", "scale=KB"));
+        if (info.isEnabled()) {
+            baseline = info;
+        }
+        return info;
+    }
+
+    public synchronized void clearBaseline() {
+        baseline = null;
+    }
+
+    private static JvmNativeMemoryInfo diff(JvmNativeMemoryInfo info, JvmNativeMemoryInfo base) {
+        Map<String, NativeMemoryCategory> baseCategories = new HashMap<>();
+        for (NativeMemoryCategory category : base.getCategories()) {
+            baseCategories.put(category.getName(), category);
+        }
+        JvmNativeMemoryInfo result = JvmNativeMemoryInfo.create()
+                .setEnabled(true)
+                .setTimestamp(info.getTimestamp())
+                .setBaselineTime(base.getTimestamp())
+                .setReserved(info.getReserved())
+                .setCommitted(info.getCommitted())
+                .setReservedDiff(info.getReserved() - base.getReserved())
+                .setCommittedDiff(info.getCommitted() - base.getCommitted());
+        for (NativeMemoryCategory category : info.getCategories()) {
+            NativeMemoryCategory pre = baseCategories.get(category.getName());
+            result.getCategories().add(NativeMemoryCategory.create()
+                    .setName(category.getName())
+                    .setReserved(category.getReserved())
+                    .setCommitted(category.getCommitted())
+                    .setReservedDiff(pre == null ? category.getReserved() : category.getReserved() - pre.getReserved())
+                    .setCommittedDiff(pre == null ? category.getCommitted() : category.getCommitted() - pre.getCommitted()));
+        }
+        return result;
+    }
+
+    /**
+     * 解析 VM.native_memory summary 的输出，兼容 JDK 8 ~ 21 的格式，忽略分类下的 malloc、mmap、arena 等明细行
+     *
+     * @param output 命令输出
+     * @return {@link JvmNativeMemoryInfo}，diff 字段均为0
+     */
+    static JvmNativeMemoryInfo parse(String output) {
+        JvmNativeMemoryInfo info = JvmNativeMemoryInfo.create().setTimestamp(System.currentTimeMillis());
+        if (output == null || output.contains(NOT_ENABLED)) {
+            return info;
+        }
+        for (String line : output.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("Total:")) {
+                Matcher m = TOTAL_PATTERN.matcher(trimmed);
+                if (m.find()) {
+                    info.setEnabled(true)
+                            .setReserved(toBytes(m.group(1), m.group(2)))
+                            .setCommitted(toBytes(m.group(3), m.group(4)));
+                }
+            } else if (trimmed.startsWith("-")) {
+                Matcher m = CATEGORY_PATTERN.matcher(trimmed);
+                if (m.find()) {
+                    info.getCategories().add(NativeMemoryCategory.create()
+                            .setName(m.group(1))
+                            .setReserved(toBytes(m.group(2), m.group(3)))
+                            .setCommitted(toBytes(m.group(4), m.group(5))));
+                }
+            }
+        }
+        return info;
+    }
+
+    private static long toBytes(String value, String unit) {
+        long v = Long.parseLong(value);
+        switch (unit.toUpperCase()) {
+            case "KB":
+                return v << 10;
+            case "MB":
+                return v << 20;
+            case "GB":
+                return v << 30;
+            default:
+                return v;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.core.entity.info.JvmBufferPoolInfo.NettyArena;
+import org.beifengtz.jvmm.core.entity.info.JvmBufferPoolInfo.NettyMemory;
+import org.beifengtz.jvmm.core.entity.info.JvmBufferPoolInfo.PooledAllocator;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Description: 读取当前 JVM 中所有 Netty 的直接内存使用量和 PooledByteBufAllocator.DEFAULT 的统计。
+ * </p>
+ * <p>
+ * 以 agent 方式运行时应用和 jvmm 各自加载一份 Netty，因此通过 {@link ClassLoaderRegistry} 查找所有已加载的 PlatformDependent，
+ * 在其 ClassLoader 中通过反射读取。方法均从 Netty 的公开接口上获取，避免实现类不可访问。
+ * 未被加载过的 PooledByteBufAllocator 不会被主动加载，避免在应用中创建分配器。
+ * </p>
+ * <p>
+ * Created in 11:50 2023/10/22
+ *
+ * @author beifengtz
+ */
+final class NettyMemoryReader {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(NettyMemoryReader.class);
+
+    private static final String PLATFORM_DEPENDENT = "io.netty.util.internal.PlatformDependent";
+    private static final String POOLED_ALLOCATOR = "io.netty.buffer.PooledByteBufAllocator";
+    private static final String POOLED_ALLOCATOR_METRIC = "io.netty.buffer.PooledByteBufAllocatorMetric";
+    private static final String ARENA_METRIC = "io.netty.buffer.PoolArenaMetric";
+    private static final String CHUNK_METRIC = "io.netty.buffer.PoolChunkMetric";
+
+    private NettyMemoryReader() {
+    }
+
+    static List<NettyMemory> read() {
+        Map<Class<?>, Boolean> classes = new IdentityHashMap<>();
+        classes.put(PlatformDependent.class, Boolean.TRUE);
+        try {
+            for (Class<?> clazz : JvmmFactory.getClassLoaderRegistry().findLoadedClasses(PLATFORM_DEPENDENT)) {
+                classes.put(clazz, Boolean.TRUE);
+            }
+        } catch (Exception e) {
+            logger.debug("Find loaded netty failed: {}", e.getMessage());
+        }
+
+        List<NettyMemory> result = new ArrayList<>(classes.size());
+        for (Class<?> clazz : classes.keySet()) {
+            try {
+                result.add(read(clazz));
+            } catch (Throwable e) {
+                logger.debug("Read netty memory from {} failed: {}", clazz.getClassLoader(), e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private static NettyMemory read(Class<?> platformDependent) throws Exception {
+        ClassLoader loader = platformDependent.getClassLoader();
+        NettyMemory memory = NettyMemory.create()
+                .setClassLoader(loader == null ? null : loader.getClass().getName())
+                .setClassLoaderHash(loader == null ? 0 : loader.hashCode())
+                .setUsedDirectMemory((long) platformDependent.getMethod("usedDirectMemory").invoke(null))
+                .setMaxDirectMemory((long) platformDependent.getMethod("maxDirectMemory").invoke(null));
+
+        Class<?> allocatorClass = loader == null ? null : Unsafe.findLoadedClass(loader, POOLED_ALLOCATOR);
+        if (allocatorClass != null) {
+            Object allocator = allocatorClass.getField("DEFAULT").get(null);
+            Object metric = allocatorClass.getMethod("metric").invoke(allocator);
+            memory.setAllocator(readAllocator(loader, metric));
+        }
+        return memory;
+    }
+
+    private static PooledAllocator readAllocator(ClassLoader loader, Object metric) throws Exception {
+        Class<?> metricClass = Class.forName(POOLED_ALLOCATOR_METRIC, false, loader);
+        PooledAllocator allocator = PooledAllocator.create()
+                .setNumHeapArenas((int) metricClass.getMethod("numHeapArenas").invoke(metric))
+                .setNumDirectArenas((int) metricClass.getMethod("numDirectArenas").invoke(metric))
+                .setNumThreadLocalCaches((int) metricClass.getMethod("numThreadLocalCaches").invoke(metric))
+                .setSmallCacheSize((int) metricClass.getMethod("smallCacheSize").invoke(metric))
+                .setNormalCacheSize((int) metricClass.getMethod("normalCacheSize").invoke(metric))
+                .setChunkSize((int) metricClass.getMethod("chunkSize").invoke(metric))
+                .setUsedHeapMemory((long) metricClass.getMethod("usedHeapMemory").invoke(metric))
+                .setUsedDirectMemory((long) metricClass.getMethod("usedDirectMemory").invoke(metric));
+
+        Class<?> arenaClass = Class.forName(ARENA_METRIC, false, loader);
+        Method[] arenaMethods = {
+                arenaClass.getMethod("numThreadCaches"),
+                arenaClass.getMethod("numAllocations"),
+                arenaClass.getMethod("numDeallocations"),
+                arenaClass.getMethod("numActiveAllocations"),
+                arenaClass.getMethod("numActiveBytes"),
+                arenaClass.getMethod("chunkLists")
+        };
+        Method usage = Class.forName(CHUNK_METRIC, false, loader).getMethod("usage");
+        for (Object arena : (List<?>) metricClass.getMethod("heapArenas").invoke(metric)) {
+            allocator.getArenas().add(readArena(arena, false, arenaMethods, usage));
+        }
+        for (Object arena : (List<?>) metricClass.getMethod("directArenas").invoke(metric)) {
+            allocator.getArenas().add(readArena(arena, true, arenaMethods, usage));
+        }
+        return allocator;
+    }
+
+    private static NettyArena readArena(Object arena, boolean direct, Method[] methods, Method usage) throws Exception {
+        NettyArena info = NettyArena.create()
+                .setDirect(direct)
+                .setNumThreadCaches((int) methods[0].invoke(arena))
+                .setNumAllocations((long) methods[1].invoke(arena))
+                .setNumDeallocations((long) methods[2].invoke(arena))
+                .setNumActiveAllocations((long) methods[3].invoke(arena))
+                .setNumActiveBytes((long) methods[4].invoke(arena));
+        int chunks = 0;
+        long usageSum = 0;
+        for (Object chunkList : (List<?>) methods[5].invoke(arena)) {
+            for (Object chunk : (Iterable<?>) chunkList) {
+                chunks++;
+                usageSum += (int) usage.invoke(chunk);
+            }
+        }
+        return info.setNumChunks(chunks).setChunkUsage(chunks == 0 ? 0 : (int) (usageSum / chunks));
+    }
+}
@@ -0,0 +1,522 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.common.util.meta.ListenableFuture;
+import org.beifengtz.jvmm.core.entity.info.ProfilerSessionInfo;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerAction;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerCommander;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Description: profiler 采样会话管理，async-profiler 在进程内只有一个实例，多个请求同时启动时后者会覆盖前者的采样。
+ * </p>
+ * <p>
+ * 所有定时采样请求都提交到这里：启动参数完全相同的请求合并到同一次采样中，各自到期时通过 dump 输出自己需要的格式，
+ * 最后一个到期的请求结束采样；启动参数不同的请求按提交顺序排队，当前会话结束后再启动。jfr 需要在启动时指定输出文件，
+ * 不与其他请求合并。手动 start/stop 的采样独占 profiler，期间提交的请求排队等待，超过最大时长仍未 stop 时自动停止采样，
+ * 之后的 stop 仍可输出这段数据。
+ * </p>
+ * <p>
+ * 持续采集通过 {@link #claimContinuous()} 在空闲时占用 profiler，占用期间拒绝新的请求和手动 start；
+ * 外部直接执行的原始命令在 profiler 被占用时只允许查询类命令。
+ * </p>
+ * <p>
+ * 合并到已有会话中的请求得到的是会话开始以来的数据，因此只有在加入后会话总时长不超过上限、且没有其他请求排队时才会合并，避免排队的请求被一直推迟。
+ * </p>
+ * <p>
+ * Created in 16:50 2023/10/24
+ *
+ * @author beifengtz
+ */
+public final class ProfilerSessionManager {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ProfilerSessionManager.class);
+
+    /**
+     * 单个请求以及合并后会话的默认最大时长，单位秒
+     */
+    public static final int DEFAULT_MAX_DURATION = 600;
+    /**
+     * 默认最多同时存在的请求数，包括采样中和排队中的
+     */
+    public static final int DEFAULT_MAX_REQUESTS = 16;
+    /**
+     * 保留的已结束请求数，用于状态查询
+     */
+    private static final int HISTORY_SIZE = 32;
+
+    private final JvmmProfiler profiler;
+    private final Deque<Ticket> pending = new ArrayDeque<>();
+    private final List<Ticket> running = new ArrayList<>();
+    private final Deque<Ticket> history = new ArrayDeque<>();
+
+    private int maxDuration = DEFAULT_MAX_DURATION;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private long lastId = 0;
+    private long lastSessionId = 0;
+
+    /**
+     * 当前会话的启动命令，没有会话时为 null
+     */
+    private String sessionCommand;
+    private long sessionId;
+    private long sessionStart;
+    private boolean sessionExclusive;
+    /**
+     * 是否被手动 start 占用
+     */
+    private boolean manual;
+    /**
+     * 手动 start 超过最大时长后被自动停止，profiler 仍保留这段数据，等待 stop 输出
+     */
+    private boolean manualExpired;
+    private ScheduledFuture<?> manualTimer;
+    /**
+     * 是否被持续采集占用
+     */
+    private boolean continuous;
+
+    ProfilerSessionManager(JvmmProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public synchronized int getMaxDuration() {
+        return maxDuration;
+    }
+
+    /**
+     * @param maxDuration 单个请求以及合并后会话的最大时长，单位秒
+     * @return this
+     */
+    public synchronized ProfilerSessionManager setMaxDuration(int maxDuration) {
+        this.maxDuration = Math.max(1, maxDuration);
+        return this;
+    }
+
+    public synchronized int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     * @param maxRequests 最多同时存在的请求数，包括采样中和排队中的，超出时拒绝新的请求
+     * @return this
+     */
+    public synchronized ProfilerSessionManager setMaxRequests(int maxRequests) {
+        this.maxRequests = Math.max(1, maxRequests);
+        return this;
+    }
+
+    /**
+     * @return 没有采样中、排队中的请求且没有被手动 start 或持续采集占用
+     */
+    public synchronized boolean isIdle() {
+        return !manual && !continuous && sessionCommand == null && pending.isEmpty();
+    }
+
+    /**
+     * 空闲时由持续采集占用 profiler，判断和占用在同一次加锁中完成
+     *
+     * @return 是否占用成功，不空闲时返回 false
+     */
+    public synchronized boolean claimContinuous() {
+        if (!isIdle()) {
+            return false;
+        }
+        continuous = true;
+        manualExpired = false;
+        return true;
+    }
+
+    /**
+     * 持续采集结束后释放占用，之后开始排队中的请求
+     */
+    public synchronized void releaseContinuous() {
+        if (continuous) {
+            continuous = false;
+            startNext();
+        }
+    }
+
+    /**
+     * 直接执行 async-profiler 的原始命令。profiler 被占用时只允许 list、version、status、check 这类不改变采样状态的命令，
+     * 避免外部命令停止或覆盖正在进行的采样
+     *
+     * @param command 原始命令
+     * @return async-profiler 的输出
+     * @throws IOException 执行失败
+     */
+    public synchronized String execute(String command) throws IOException {
+        if (!isIdle() && !isQueryCommand(command)) {
+            throw new IllegalStateException("Profiler is busy, only list, version, status and check commands are allowed");
+        }
+        return profiler.execute(command);
+    }
+
+    public synchronized boolean isStartedManually() {
+        return manual;
+    }
+
+    /**
+     * 提交一个定时采样请求
+     *
+     * @param executor 执行器，用于在到期时输出结果
+     * @param start    启动参数，无需设置 action，启动参数完全相同的请求会被合并。设置了 file 时（jfr）独占会话
+     * @param output   输出参数，无需设置 action，例如 file、collapsed、traces、flat
+     * @param time     采样时间
+     * @param timeUnit 采样时间单位
+     * @return future，完成时输出已写入文件或以字符串返回
+     */
+    public synchronized ListenableFuture<String> submit(ScheduledExecutorService executor, ProfilerCommander start,
+                                                        ProfilerCommander output, long time, TimeUnit timeUnit) {
+        long duration = timeUnit.toMillis(time);
+        if (duration > maxDuration * 1000L) {
+            throw new IllegalArgumentException("Profiling time exceeds the limit of " + maxDuration + " seconds");
+        }
+        if (continuous) {
+            throw new IllegalStateException("Continuous profiler is running");
+        }
+        if (running.size() + pending.size() >= maxRequests) {
+            throw new IllegalStateException("Too many profiler requests, the limit is " + maxRequests);
+        }
+        start.setAction(ProfilerAction.start);
+        Ticket ticket = new Ticket(++lastId, executor, start, output, duration);
+
+        long now = System.currentTimeMillis();
+        if (canJoin(ticket, now)) {
+            begin(ticket, now);
+            logger.info("Profiler request {} joined session {}", ticket.id, sessionId);
+        } else {
+            pending.add(ticket);
+            startNext();
+            if (ticket.state == State.queued) {
+                logger.info("Profiler request {} queued at position {}", ticket.id, pending.size());
+            }
+        }
+        return ticket.future;
+    }
+
+    /**
+     * 手动开始采样，结束前其他请求排队等待，超过最大时长时自动停止采样
+     *
+     * @param start 启动参数，无需设置 action
+     * @return async-profiler 的输出
+     */
+    public synchronized String start(ProfilerCommander start) {
+        if (continuous) {
+            throw new IllegalStateException("Continuous profiler is running");
+        }
+        if (manual || sessionCommand != null) {
+            throw new IllegalStateException("Profiler is busy, " + (manual ? "it has been started manually" : "session " + sessionId + " is running"));
+        }
+        String result = profiler.execute(start.setAction(ProfilerAction.start));
+        manual = true;
+        manualExpired = false;
+        try {
+            manualTimer = ExecutorFactory.getThreadPool().schedule(this::expireManual, maxDuration, TimeUnit.SECONDS);
+        } catch (Throwable e) {
+            //  无法保证按时停止时不允许启动
+            manual = false;
+            profiler.execute(ProfilerCommander.newInstance().setAction(ProfilerAction.stop));
+            throw new IllegalStateException("Can not schedule profiler max duration timer: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * 结束手动开始的采样并输出，之后开始排队中的请求
+     *
+     * @param output 输出参数，无需设置 action
+     * @return async-profiler 的输出
+     */
+    public synchronized String stop(ProfilerCommander output) {
+        if (sessionCommand != null) {
+            throw new IllegalStateException("Profiler is running session " + sessionId + ", it will be stopped automatically");
+        }
+        if (continuous) {
+            throw new IllegalStateException("Continuous profiler is running");
+        }
+        try {
+            if (!manual && manualExpired) {
+                //  已被自动停止，profiler 会保留这段数据直到下一次启动
+                return profiler.execute(output.setAction(ProfilerAction.dump));
+            }
+            return profiler.execute(output.setAction(ProfilerAction.stop));
+        } finally {
+            cancelManualTimer();
+            manual = false;
+            manualExpired = false;
+            startNext();
+        }
+    }
+
+    /**
+     * 手动 start 超过最大时长，停止采样并开始排队中的请求
+     */
+    private synchronized void expireManual() {
+        if (!manual) {
+            return;
+        }
+        manualTimer = null;
+        manual = false;
+        manualExpired = true;
+        try {
+            profiler.execute(ProfilerCommander.newInstance().setAction(ProfilerAction.stop));
+        } catch (Throwable e) {
+            logger.debug("Stop manually started profiler failed: {}", e.getMessage());
+        }
+        logger.warn("Manually started profiler exceeded the limit of {} seconds and was stopped", maxDuration);
+        startNext();
+    }
+
+    private void cancelManualTimer() {
+        if (manualTimer != null) {
+            manualTimer.cancel(false);
+            manualTimer = null;
+        }
+    }
+
+    private static boolean isQueryCommand(String command) {
+        boolean query = false;
+        for (String arg : command.split(",")) {
+            String name = arg.trim();
+            for (ProfilerAction action : ProfilerAction.values()) {
+                if (action.name().equals(name)) {
+                    if (action != ProfilerAction.list && action != ProfilerAction.version
+                            && action != ProfilerAction.status && action != ProfilerAction.check) {
+                        return false;
+                    }
+                    query = true;
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * @return 采样中、排队中以及最近结束的请求，已结束的按结束时间从新到旧排列
+     */
+    public synchronized List<ProfilerSessionInfo> list() {
+        List<ProfilerSessionInfo> result = new ArrayList<>(running.size() + pending.size() + history.size());
+        for (Ticket ticket : running) {
+            result.add(ticket.toInfo(0));
+        }
+        int position = 0;
+        for (Ticket ticket : pending) {
+            result.add(ticket.toInfo(++position));
+        }
+        Iterator<Ticket> it = history.descendingIterator();
+        while (it.hasNext()) {
+            result.add(it.next().toInfo(0));
+        }
+        return result;
+    }
+
+    private boolean canJoin(Ticket ticket, long now) {
+        return sessionCommand != null && !sessionExclusive && !ticket.exclusive && pending.isEmpty()
+                && sessionCommand.equals(ticket.command)
+                && now + ticket.duration <= sessionStart + maxDuration * 1000L;
+    }
+
+    /**
+     * 当前没有会话时启动队首的请求，并把队列中启动参数相同的请求合并进来
+     */
+    private void startNext() {
+        while (!manual && sessionCommand == null && !pending.isEmpty()) {
+            Ticket head = pending.poll();
+            if (continuous) {
+                fail(head, new IllegalStateException("Continuous profiler is running"));
+                continue;
+            }
+            try {
+                profiler.execute(head.start);
+            } catch (Throwable e) {
+                fail(head, e);
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            manualExpired = false;
+            sessionCommand = head.command;
+            sessionId = ++lastSessionId;
+            sessionStart = now;
+            sessionExclusive = head.exclusive;
+            begin(head, now);
+            if (!head.exclusive) {
+                Iterator<Ticket> it = pending.iterator();
+                while (it.hasNext()) {
+                    Ticket ticket = it.next();
+                    if (!ticket.exclusive && sessionCommand.equals(ticket.command)) {
+                        it.remove();
+                        begin(ticket, now);
+                    }
+                }
+            }
+            logger.info("Profiler session {} started with {} request(s)", sessionId, running.size());
+        }
+    }
+
+    private void begin(Ticket ticket, long now) {
+        ticket.state = State.running;
+        ticket.sessionId = sessionId;
+        ticket.startTime = now;
+        ticket.endTime = now + ticket.duration;
+        running.add(ticket);
+        try {
+            ticket.executor.schedule(() -> finish(ticket), ticket.duration, TimeUnit.MILLISECONDS);
+        } catch (Throwable e) {
+            running.remove(ticket);
+            fail(ticket, e);
+            if (running.isEmpty()) {
+                endSession();
+            }
+        }
+    }
+
+    /**
+     * 请求到期，会话中还有其他请求时只输出当前数据，否则结束会话
+     */
+    private synchronized void finish(Ticket ticket) {
+        if (ticket.state != State.running) {
+            return;
+        }
+        running.remove(ticket);
+        try {
+            String result;
+            if (!running.isEmpty()) {
+                result = profiler.execute(ticket.output.setAction(ProfilerAction.dump));
+            } else if (sessionExclusive) {
+                //  jfr 在启动时已指定文件，结束时写入
+                sessionCommand = null;
+                result = profiler.execute(ticket.output.setAction(ProfilerAction.stop));
+            } else {
+                endSession();
+                //  profiler 会保留本次的数据直到下一次启动
+                result = profiler.execute(ticket.output.setAction(ProfilerAction.dump));
+            }
+            complete(ticket, result);
+        } catch (Throwable e) {
+            fail(ticket, e);
+        } finally {
+            if (running.isEmpty()) {
+                sessionCommand = null;
+            }
+            startNext();
+        }
+    }
+
+    private void endSession() {
+        sessionCommand = null;
+        try {
+            profiler.execute(ProfilerCommander.newInstance().setAction(ProfilerAction.stop));
+        } catch (Throwable e) {
+            //  输出失败时 profiler 已被停止，数据仍然保留，不影响最后一个请求的输出
+            logger.debug("Stop profiler session {} failed: {}", sessionId, e.getMessage());
+        }
+        logger.info("Profiler session {} finished", sessionId);
+    }
+
+    private void complete(Ticket ticket, String result) {
+        ticket.state = State.finished;
+        ticket.endTime = System.currentTimeMillis();
+        archive(ticket);
+        ticket.future.complete(result);
+    }
+
+    private void fail(Ticket ticket, Throwable cause) {
+        ticket.state = State.failed;
+        ticket.endTime = System.currentTimeMillis();
+        ticket.message = cause.getMessage();
+        archive(ticket);
+        logger.warn("Profiler request {} failed: {}", ticket.id, cause.getMessage());
+        ticket.future.cause(cause);
+    }
+
+    private void archive(Ticket ticket) {
+        history.add(ticket);
+        while (history.size() > HISTORY_SIZE) {
+            history.poll();
+        }
+    }
+
+    private enum State {
+        queued,
+        running,
+        finished,
+        failed
+    }
+
+    private static final class Ticket {
+        private final long id;
+        private final ScheduledExecutorService executor;
+        private final ProfilerCommander start;
+        private final ProfilerCommander output;
+        /**
+         * 启动命令，相同时可以合并
+         */
+        private final String command;
+        private final boolean exclusive;
+        private final long duration;
+        private final long submitTime = System.currentTimeMillis();
+        private final ListenableFuture<String> future = new ListenableFuture<>();
+
+        private State state = State.queued;
+        private long sessionId;
+        private long startTime;
+        private long endTime;
+        private String message;
+
+        private Ticket(long id, ScheduledExecutorService executor, ProfilerCommander start, ProfilerCommander output, long duration) {
+            this.id = id;
+            this.executor = executor;
+            this.start = start;
+            this.output = output;
+            this.command = start.build();
+            this.exclusive = start.getFile() != null;
+            this.duration = duration;
+        }
+
+        private String outputType() {
+            if (output.getFile() != null) {
+                String name = new File(output.getFile()).getName();
+                int dotIdx = name.lastIndexOf('.');
+                return dotIdx >= 0 ? name.substring(dotIdx + 1) : name;
+            } else if (output.isCollapsed()) {
+                return "collapsed";
+            } else if (output.getTraces() != null) {
+                return "traces";
+            } else if (output.getFlat() != null) {
+                return "flat";
+            }
+            return null;
+        }
+
+        private ProfilerSessionInfo toInfo(int position) {
+            return ProfilerSessionInfo.create()
+                    .setId(id)
+                    .setState(state.name())
+                    .setPosition(position)
+                    .setSessionId(sessionId)
+                    .setEvent(start.getEvent())
+                    .setCounter(start.getCounter() == null ? null : start.getCounter().name())
+                    .setInterval(start.getInterval())
+                    .setOutput(outputType())
+                    .setDuration(duration)
+                    .setSubmitTime(submitTime)
+                    .setStartTime(startTime)
+                    .setEndTime(endTime)
+                    .setMessage(message);
+        }
+    }
+}
@@ -0,0 +1,880 @@
+package org.beifengtz.jvmm.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ * Description: 调用栈聚合模型，将 collapsed 格式的调用栈解析为前缀树，用于合并多次采集、对比两次采集、查询热点帧以及渲染火焰图。
+ * </p>
+ * <p>
+ * 帧名只在第一次出现时登记到名称表并分配一个 int id，树节点按列保存在父节点、帧 id、自身样本数、总样本数等基本类型数组中，
+ * 子节点通过 (父节点, 帧 id) 为键的开放寻址哈希表查找。节点总是在父节点之后创建，因此下标顺序即为父节点优先的遍历顺序，
+ * 合并、裁剪、序列化都只需要按下标顺序扫描一遍。
+ * </p>
+ * <p>
+ * 对比时以基线采集的样本数保存在 baseSelf、baseTotal 两列中，当前采集的样本数保存在 self、total 中，渲染的火焰图以颜色表示占比的变化。
+ * </p>
+ * <p>
+ * 非线程安全，多线程访问时需要外部同步。
+ * </p>
+ * <p>
+ * 二进制格式（jprof）：magic(int) + version(byte) + flags(byte)，之后为变长整数编码的帧名表和节点表，节点按下标顺序写出父节点下标、
+ * 帧 id 和计数，可以直接在多个实例之间传输后合并。
+ * </p>
+ * <p>
+ * Created in 14:20 2023/10/24
+ *
+ * @author beifengtz
+ */
+public final class StackProfile {
+
+    public static final int MAGIC = 0x4A505246;
+    private static final byte VERSION = 1;
+    private static final byte FLAG_BASELINE = 1;
+    /**
+     * 火焰图中默认不渲染总样本数小于根节点该比例的节点
+     */
+    public static final double DEFAULT_MIN_RATIO = 0.0005;
+    private static final int ROOT = 0;
+    private static final int FRAME_HEIGHT = 17;
+
+    private final Map<String, Integer> frameIds = new HashMap<>();
+    private final List<String> frames = new ArrayList<>();
+
+    private int size;
+    private int[] parents;
+    private int[] frameOf;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private long[] self;
+    private long[] total;
+    private long[] baseSelf;
+    private long[] baseTotal;
+
+    //  (父节点, 帧 id) -> 子节点，值为0表示空槽，根节点不会作为子节点
+    private long[] indexKeys;
+    private int[] indexValues;
+
+    //  解析调用栈时复用的帧 id 缓冲区
+    private int[] path = new int[64];
+
+    public StackProfile() {
+        this(64);
+    }
+
+    private StackProfile(int capacity) {
+        //  哈希表长度需要为2的幂
+        capacity = Integer.highestOneBit(Math.max(64, capacity) - 1) << 1;
+        parents = new int[capacity];
+        frameOf = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        self = new long[capacity];
+        total = new long[capacity];
+        indexKeys = new long[capacity * 2];
+        indexValues = new int[capacity * 2];
+        parents[ROOT] = -1;
+        frameOf[ROOT] = -1;
+        size = 1;
+    }
+
+    /**
+     * 解析 collapsed 格式的文本，每行为以分号分隔的调用栈 + 空格 + 样本数，调用栈从栈底到栈顶
+     *
+     * @param text collapsed 文本
+     * @return {@link StackProfile}
+     */
+    public static StackProfile parseCollapsed(CharSequence text) {
+        StackProfile profile = new StackProfile();
+        profile.addCollapsed(text);
+        return profile;
+    }
+
+    /**
+     * 累加 collapsed 格式的文本，格式错误的行忽略
+     *
+     * @param text collapsed 文本
+     * @return this
+     */
+    public StackProfile addCollapsed(CharSequence text) {
+        int len = text.length();
+        int pos = 0;
+        while (pos < len) {
+            int end = pos;
+            while (end < len && text.charAt(end) != '\n') {
+                end++;
+            }
+            addLine(text, pos, end);
+            pos = end + 1;
+        }
+        return this;
+    }
+
+    /**
+     * 累加一个调用栈的样本数
+     *
+     * @param stack 以分号分隔的调用栈，从栈底到栈顶
+     * @param count 样本数
+     * @return this
+     */
+    public StackProfile add(CharSequence stack, long count) {
+        int len = parseStack(stack, 0, stack.length());
+        addPath(path, len, count);
+        return this;
+    }
+
+    /**
+     * 累加一个调用栈的样本数
+     *
+     * @param stack 调用栈帧名，从栈底到栈顶
+     * @param count 样本数
+     * @return this
+     */
+    public StackProfile add(String[] stack, long count) {
+        int[] ids = new int[stack.length];
+        for (int i = 0; i < stack.length; i++) {
+            ids[i] = intern(stack[i]);
+        }
+        addPath(ids, ids.length, count);
+        return this;
+    }
+
+    /**
+     * 累加一个由帧 id 组成的调用栈，帧 id 需要通过 {@link #intern(String)} 获取，用于采样时避免拼接字符串
+     *
+     * @param path  帧 id，从栈底到栈顶
+     * @param len   帧数量
+     * @param count 样本数
+     */
+    void add(int[] path, int len, long count) {
+        addPath(path, len, count);
+    }
+
+    private void addLine(CharSequence s, int start, int end) {
+        while (end > start && Character.isWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        int space = end - 1;
+        while (space > start && s.charAt(space) != ' ') {
+            space--;
+        }
+        if (space <= start) {
+            return;
+        }
+        long count = 0;
+        for (int i = space + 1; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return;
+            }
+            count = count * 10 + (c - '0');
+        }
+        //  parseStack 可能扩容 path，需要在其返回后再读取
+        int len = parseStack(s, start, space);
+        addPath(path, len, count);
+    }
+
+    /**
+     * 将调用栈按分号切分并登记帧名，帧 id 写入 path 缓冲区
+     *
+     * @return 帧数量
+     */
+    private int parseStack(CharSequence s, int start, int end) {
+        int n = 0;
+        int pos = start;
+        while (pos < end) {
+            int next = pos;
+            while (next < end && s.charAt(next) != ';') {
+                next++;
+            }
+            if (next > pos) {
+                if (n == path.length) {
+                    path = Arrays.copyOf(path, n << 1);
+                }
+                path[n++] = intern(s.subSequence(pos, next).toString());
+            }
+            pos = next + 1;
+        }
+        return n;
+    }
+
+    private void addPath(int[] path, int len, long count) {
+        int node = ROOT;
+        total[ROOT] += count;
+        for (int i = 0; i < len; i++) {
+            node = child(node, path[i]);
+            total[node] += count;
+        }
+        self[node] += count;
+    }
+
+    /**
+     * 将另一个采集的样本数累加到当前采集中，另一个采集带有基线时基线也会累加
+     *
+     * @param other 另一个采集
+     * @return this
+     */
+    public StackProfile merge(StackProfile other) {
+        int[] nodes = mapNodes(other);
+        for (int i = 0; i < other.size; i++) {
+            self[nodes[i]] += other.self[i];
+            total[nodes[i]] += other.total[i];
+        }
+        if (other.baseSelf != null) {
+            ensureBaseline();
+            for (int i = 0; i < other.size; i++) {
+                baseSelf[nodes[i]] += other.baseSelf[i];
+                baseTotal[nodes[i]] += other.baseTotal[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 对比两次采集，返回的采集以 current 的样本数作为当前值，以 base 的样本数作为基线
+     *
+     * @param base    基线采集，例如发布前
+     * @param current 当前采集，例如发布后
+     * @return 新的 {@link StackProfile}
+     */
+    public static StackProfile diff(StackProfile base, StackProfile current) {
+        StackProfile profile = new StackProfile(current.size + base.size);
+        int[] nodes = profile.mapNodes(current);
+        for (int i = 0; i < current.size; i++) {
+            profile.self[nodes[i]] += current.self[i];
+            profile.total[nodes[i]] += current.total[i];
+        }
+        nodes = profile.mapNodes(base);
+        profile.ensureBaseline();
+        for (int i = 0; i < base.size; i++) {
+            profile.baseSelf[nodes[i]] += base.self[i];
+            profile.baseTotal[nodes[i]] += base.total[i];
+        }
+        return profile;
+    }
+
+    /**
+     * 返回只保留总样本数（对比时为当前值与基线的较大者）不小于阈值的节点的新采集，被裁剪节点的样本数仍计入父节点的总样本数
+     *
+     * @param minTotal 最小总样本数
+     * @return 新的 {@link StackProfile}
+     */
+    public StackProfile prune(long minTotal) {
+        StackProfile profile = new StackProfile();
+        if (baseSelf != null) {
+            profile.ensureBaseline();
+        }
+        int[] nodes = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (i != ROOT) {
+                int parent = nodes[parents[i]];
+                if (parent < 0 || Math.max(total[i], baseSelf == null ? 0 : baseTotal[i]) < minTotal) {
+                    nodes[i] = -1;
+                    continue;
+                }
+                nodes[i] = profile.child(parent, profile.intern(frames.get(frameOf[i])));
+            }
+            profile.self[nodes[i]] = self[i];
+            profile.total[nodes[i]] = total[i];
+            if (baseSelf != null) {
+                profile.baseSelf[nodes[i]] = baseSelf[i];
+                profile.baseTotal[nodes[i]] = baseTotal[i];
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * 按帧统计样本数，返回排名前 N 的帧。总样本数对递归调用只统计最外层，不会重复计算。
+     * 对比时按当前值相对基线的增长量排序
+     *
+     * @param top    返回的帧数量，小于等于0时返回全部
+     * @param bySelf 为true时按自身样本数排序，否则按总样本数排序
+     * @return {@link FrameStat} 列表
+     */
+    public List<FrameStat> top(int top, boolean bySelf) {
+        int frameCount = frames.size();
+        long[] frameSelf = new long[frameCount];
+        long[] frameTotal = new long[frameCount];
+        long[] frameBaseSelf = baseSelf == null ? null : new long[frameCount];
+        long[] frameBaseTotal = baseSelf == null ? null : new long[frameCount];
+        for (int i = 1; i < size; i++) {
+            int f = frameOf[i];
+            frameSelf[f] += self[i];
+            if (frameBaseSelf != null) {
+                frameBaseSelf[f] += baseSelf[i];
+            }
+            boolean outermost = true;
+            for (int p = parents[i]; p > ROOT; p = parents[p]) {
+                if (frameOf[p] == f) {
+                    outermost = false;
+                    break;
+                }
+            }
+            if (outermost) {
+                frameTotal[f] += total[i];
+                if (frameBaseTotal != null) {
+                    frameBaseTotal[f] += baseTotal[i];
+                }
+            }
+        }
+
+        long[] key = new long[frameCount];
+        for (int f = 0; f < frameCount; f++) {
+            key[f] = bySelf ? frameSelf[f] : frameTotal[f];
+            if (frameBaseSelf != null) {
+                key[f] -= bySelf ? frameBaseSelf[f] : frameBaseTotal[f];
+            }
+        }
+        Integer[] order = new Integer[frameCount];
+        int count = 0;
+        for (int f = 0; f < frameCount; f++) {
+            if (key[f] != 0 || (frameBaseSelf == null && frameTotal[f] > 0)) {
+                order[count++] = f;
+            }
+        }
+        Arrays.sort(order, 0, count, (o1, o2) -> Long.compare(key[o2], key[o1]));
+
+        int n = top > 0 ? Math.min(top, count) : count;
+        List<FrameStat> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int f = order[i];
+            result.add(new FrameStat(frames.get(f), frameSelf[f], frameTotal[f],
+                    frameBaseSelf == null ? 0 : frameBaseSelf[f], frameBaseTotal == null ? 0 : frameBaseTotal[f]));
+        }
+        return result;
+    }
+
+    public long getTotal() {
+        return total[ROOT];
+    }
+
+    public long getBaseTotal() {
+        return baseTotal == null ? 0 : baseTotal[ROOT];
+    }
+
+    public boolean hasBaseline() {
+        return baseSelf != null;
+    }
+
+    public int getFrameCount() {
+        return frames.size();
+    }
+
+    public int getNodeCount() {
+        return size - 1;
+    }
+
+    /**
+     * 以 collapsed 格式输出，带有基线时每行为调用栈 + 基线样本数 + 当前样本数，与 difffolded 格式相同
+     *
+     * @param out 输出
+     */
+    public void writeCollapsed(Appendable out) throws IOException {
+        int[] path = new int[64];
+        for (int i = 1; i < size; i++) {
+            if (self[i] == 0 && (baseSelf == null || baseSelf[i] == 0)) {
+                continue;
+            }
+            int depth = 0;
+            for (int p = i; p > ROOT; p = parents[p]) {
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth << 1);
+                }
+                path[depth++] = frameOf[p];
+            }
+            for (int d = depth - 1; d >= 0; d--) {
+                out.append(frames.get(path[d]));
+                if (d > 0) {
+                    out.append(';');
+                }
+            }
+            if (baseSelf != null) {
+                out.append(' ').append(Long.toString(baseSelf[i]));
+            }
+            out.append(' ').append(Long.toString(self[i])).append('\n');
+        }
+    }
+
+    /**
+     * 以文本输出样本数最多的调用栈和自身样本数最多的帧，格式与 async-profiler 的 summary 输出相近
+     *
+     * @param out    输出
+     * @param traces 输出的调用栈数量，小于等于0时不输出
+     * @param flat   输出的帧数量，小于等于0时不输出
+     */
+    public void writeSummary(Appendable out, int traces, int flat) throws IOException {
+        long rootTotal = total[ROOT];
+        out.append("--- Execution profile ---\n")
+                .append("Total samples       : ").append(Long.toString(rootTotal)).append("\n\n");
+        if (traces > 0) {
+            Integer[] order = new Integer[size];
+            int count = 0;
+            for (int i = 1; i < size; i++) {
+                if (self[i] > 0) {
+                    order[count++] = i;
+                }
+            }
+            Arrays.sort(order, 0, count, (o1, o2) -> Long.compare(self[o2], self[o1]));
+            for (int i = 0; i < Math.min(traces, count); i++) {
+                int node = order[i];
+                out.append("--- ").append(Long.toString(self[node])).append(" samples (")
+                        .append(String.format(Locale.ROOT, "%.2f%%", self[node] * 100.0 / rootTotal)).append(")\n");
+                int d = 0;
+                for (int p = node; p > ROOT; p = parents[p]) {
+                    out.append(String.format(Locale.ROOT, "  [%2d] ", d++)).append(frames.get(frameOf[p])).append('\n');
+                }
+                out.append('\n');
+            }
+        }
+        if (flat > 0) {
+            out.append(String.format(Locale.ROOT, "%13s  %7s  %s\n", "samples", "percent", "top"))
+                    .append(String.format(Locale.ROOT, "%13s  %7s  %s\n", "-----------", "-------", "---"));
+            for (FrameStat stat : top(flat, true)) {
+                if (stat.self == 0) {
+                    break;
+                }
+                out.append(String.format(Locale.ROOT, "%13d  %6.2f%%  %s\n", stat.self, stat.self * 100.0 / rootTotal, stat.frame));
+            }
+        }
+    }
+
+    /**
+     * 以 jprof 二进制格式输出
+     *
+     * @param os 输出流，不会被关闭
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(baseSelf == null ? 0 : FLAG_BASELINE);
+        writeVarLong(out, frames.size());
+        for (String frame : frames) {
+            byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes);
+        }
+        writeVarLong(out, size);
+        for (int i = 0; i < size; i++) {
+            if (i != ROOT) {
+                writeVarLong(out, parents[i]);
+                writeVarLong(out, frameOf[i]);
+            }
+            //  裁剪后总样本数不等于子节点之和，需要与自身样本数一起保存
+            writeVarLong(out, self[i]);
+            writeVarLong(out, total[i]);
+            if (baseSelf != null) {
+                writeVarLong(out, baseSelf[i]);
+                writeVarLong(out, baseTotal[i]);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * 读取 jprof 二进制格式
+     *
+     * @param is 输入流，不会被关闭
+     * @return {@link StackProfile}
+     * @throws IOException 读取失败或格式错误
+     */
+    public static StackProfile readFrom(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Invalid jprof data: bad magic");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported jprof version: " + version);
+        }
+        boolean hasBaseline = (in.readByte() & FLAG_BASELINE) != 0;
+        int frameCount = readVarInt(in);
+        StackProfile profile = new StackProfile();
+        //  文件中的帧和节点编号映射到当前 profile 的编号，重复的帧名或节点会被合并，不能直接使用文件中的编号。
+        //  数量来自文件内容，映射表按实际读取的数量扩容，避免错误的数量导致一次性分配过大的数组
+        int[] frameIndex = new int[Math.min(frameCount, 1024)];
+        for (int i = 0; i < frameCount; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            if (i == frameIndex.length) {
+                frameIndex = Arrays.copyOf(frameIndex, i << 1);
+            }
+            frameIndex[i] = profile.intern(new String(bytes, StandardCharsets.UTF_8));
+        }
+        if (hasBaseline) {
+            profile.ensureBaseline();
+        }
+        int nodeCount = readVarInt(in);
+        int[] nodes = new int[Math.max(1, Math.min(nodeCount, 1024))];
+        for (int i = 0; i < nodeCount; i++) {
+            int node = ROOT;
+            if (i != ROOT) {
+                int parent = readVarInt(in);
+                int frame = readVarInt(in);
+                if (parent >= i || frame >= frameCount) {
+                    throw new IOException("Invalid jprof data: bad node " + i + ", parent " + parent + ", frame " + frame);
+                }
+                node = profile.child(nodes[parent], frameIndex[frame]);
+                if (i == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, i << 1);
+                }
+            }
+            nodes[i] = node;
+            profile.self[node] += readVarLong(in);
+            profile.total[node] += readVarLong(in);
+            if (hasBaseline) {
+                profile.baseSelf[node] += readVarLong(in);
+                profile.baseTotal[node] += readVarLong(in);
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * 渲染火焰图 html，不依赖 js，每个帧为一个按百分比定位的 div，鼠标悬停显示样本数。
+     * 带有基线时以红色表示占比增加，蓝色表示占比减少，颜色深浅与变化量成正比
+     *
+     * @param out      输出
+     * @param title    标题
+     * @param minRatio 不渲染总样本数小于根节点该比例的节点，控制输出大小
+     */
+    public void writeFlameGraph(Appendable out, String title, double minRatio) throws IOException {
+        long rootTotal = total[ROOT];
+        long baseRootTotal = getBaseTotal();
+        long minTotal = Math.max(1, (long) Math.ceil(rootTotal * minRatio));
+
+        //  只布局可见的节点，子节点按帧名排序使相同调用栈在多次采集中位置一致
+        int[] depth = new int[size];
+        long[] offset = new long[size];
+        int maxDepth = 0;
+        Comparator<Integer> byName = Comparator.comparing(o -> frames.get(frameOf[o]));
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int node = queue[head++];
+            maxDepth = Math.max(maxDepth, depth[node]);
+            List<Integer> list = new ArrayList<>();
+            for (int c = firstChild[node]; c != 0; c = nextSibling[c]) {
+                if (total[c] >= minTotal) {
+                    list.add(c);
+                }
+            }
+            list.sort(byName);
+            long x = offset[node];
+            for (int c : list) {
+                depth[c] = depth[node] + 1;
+                offset[c] = x;
+                x += total[c];
+                queue[tail++] = c;
+            }
+        }
+
+        double maxDelta = 0;
+        if (baseSelf != null) {
+            for (int i = 0; i < tail; i++) {
+                maxDelta = Math.max(maxDelta, Math.abs(delta(queue[i], rootTotal, baseRootTotal)));
+            }
+        }
+
+        out.append("<!DOCTYPE html>\n<html lang='en'>\n<head>\n<meta charset='utf-8'>\n<title>")
+                .append(escape(title)).append("</title>\n<style>\n")
+                .append("body {margin: 0; padding: 10px; font: 12px Verdana, sans-serif; background: #ffffff}\n")
+                .append("h1 {font-size: 16px; text-align: center}\n")
+                .append("h2 {font-size: 14px}\n")
+                .append("#graph {position: relative; width: 100%; height: ").append(Integer.toString((maxDepth + 1) * FRAME_HEIGHT)).append("px}\n")
+                .append("#graph div {position: absolute; height: ").append(Integer.toString(FRAME_HEIGHT - 1))
+                .append("px; line-height: ").append(Integer.toString(FRAME_HEIGHT - 1))
+                .append("px; overflow: hidden; white-space: nowrap; font-size: 11px; box-sizing: border-box; border-right: 1px solid #ffffff; padding-left: 2px}\n")
+                .append("#graph div:hover {outline: 1px solid #000000}\n")
+                .append("table {border-collapse: collapse} td, th {border: 1px solid #cccccc; padding: 2px 6px; text-align: right} td:first-child {text-align: left}\n")
+                .append("</style>\n</head>\n<body>\n<h1>").append(escape(title)).append("</h1>\n");
+        if (rootTotal == 0) {
+            out.append("<p>No samples</p>\n</body>\n</html>\n");
+            return;
+        }
+        out.append("<div id='graph'>\n");
+        for (int i = 0; i < tail; i++) {
+            int node = queue[i];
+            String name = node == ROOT ? "all" : frames.get(frameOf[node]);
+            out.append("<div style='left: ").append(percent(offset[node], rootTotal))
+                    .append("%; width: ").append(percent(total[node], rootTotal))
+                    .append("%; bottom: ").append(Integer.toString(depth[node] * FRAME_HEIGHT))
+                    .append("px; background: ").append(color(node, name, rootTotal, baseRootTotal, maxDelta))
+                    .append("' title='").append(escape(name)).append(" (")
+                    .append(Long.toString(total[node])).append(" samples, ").append(percent(total[node], rootTotal)).append("%");
+            if (baseSelf != null) {
+                out.append(", base ").append(Long.toString(baseTotal[node])).append(" samples, ")
+                        .append(percent(baseTotal[node], baseRootTotal)).append("%");
+            }
+            out.append(")'>").append(escape(name)).append("</div>\n");
+        }
+        out.append("</div>\n<h2>").append(baseSelf == null ? "Top self frames" : "Top self growth frames").append("</h2>\n<table>\n<tr><th>Frame</th><th>Self</th><th>Self %</th><th>Total</th><th>Total %</th>");
+        if (baseSelf != null) {
+            out.append("<th>Base self</th><th>Base self %</th>");
+        }
+        out.append("</tr>\n");
+        for (FrameStat stat : top(20, true)) {
+            out.append("<tr><td>").append(escape(stat.frame)).append("</td><td>")
+                    .append(Long.toString(stat.self)).append("</td><td>").append(percent(stat.self, rootTotal)).append("</td><td>")
+                    .append(Long.toString(stat.total)).append("</td><td>").append(percent(stat.total, rootTotal)).append("</td>");
+            if (baseSelf != null) {
+                out.append("<td>").append(Long.toString(stat.baseSelf)).append("</td><td>")
+                        .append(percent(stat.baseSelf, baseRootTotal)).append("</td>");
+            }
+            out.append("</tr>\n");
+        }
+        out.append("</table>\n</body>\n</html>\n");
+    }
+
+    /**
+     * 节点在当前采集中的占比相对基线的变化量
+     */
+    private double delta(int node, long rootTotal, long baseRootTotal) {
+        double current = rootTotal == 0 ? 0 : (double) total[node] / rootTotal;
+        double base = baseRootTotal == 0 ? 0 : (double) baseTotal[node] / baseRootTotal;
+        return current - base;
+    }
+
+    private String color(int node, String name, long rootTotal, long baseRootTotal, double maxDelta) {
+        if (baseSelf != null) {
+            double delta = delta(node, rootTotal, baseRootTotal);
+            int v = maxDelta == 0 ? 0 : (int) (Math.abs(delta) / maxDelta * 200);
+            if (delta > 0) {
+                return rgb(255, 235 - v, 235 - v);
+            } else if (delta < 0) {
+                return rgb(235 - v, 235 - v, 255);
+            }
+            return rgb(235, 235, 235);
+        }
+        int h = name.hashCode();
+        return rgb(205 + ((h & 0x7fffffff) % 50), (h >>> 8) % 230 & 0xff, (h >>> 16) % 55 & 0xff);
+    }
+
+    private static String rgb(int r, int g, int b) {
+        return "rgb(" + r + "," + g + "," + b + ")";
+    }
+
+    private static String percent(long value, long rootTotal) {
+        return rootTotal == 0 ? "0" : String.format(Locale.ROOT, "%.4f", value * 100.0 / rootTotal);
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '\'':
+                    sb.append("&#39;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 将另一个采集的所有节点映射到当前采集中，不存在的节点会被创建
+     *
+     * @return 另一个采集的节点下标到当前采集节点下标的映射
+     */
+    private int[] mapNodes(StackProfile other) {
+        int[] frameMap = new int[other.frames.size()];
+        for (int f = 0; f < frameMap.length; f++) {
+            frameMap[f] = intern(other.frames.get(f));
+        }
+        int[] nodes = new int[other.size];
+        for (int i = 1; i < other.size; i++) {
+            nodes[i] = child(nodes[other.parents[i]], frameMap[other.frameOf[i]]);
+        }
+        return nodes;
+    }
+
+    /**
+     * 登记帧名
+     *
+     * @return 帧 id
+     */
+    int intern(String frame) {
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            id = frames.size();
+            frames.add(frame);
+            frameIds.put(frame, id);
+        }
+        return id;
+    }
+
+    /**
+     * 查找子节点，不存在时创建
+     */
+    private int child(int parent, int frame) {
+        if ((size + 1) * 2 > indexKeys.length) {
+            rehash(indexKeys.length * 2);
+        }
+        long key = ((long) parent << 32) | (frame & 0xFFFFFFFFL);
+        int mask = indexKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (indexValues[slot] != 0) {
+            if (indexKeys[slot] == key) {
+                return indexValues[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        int node = newNode(parent, frame);
+        indexKeys[slot] = key;
+        indexValues[slot] = node;
+        return node;
+    }
+
+    private int newNode(int parent, int frame) {
+        if (size == parents.length) {
+            int capacity = size << 1;
+            parents = Arrays.copyOf(parents, capacity);
+            frameOf = Arrays.copyOf(frameOf, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            self = Arrays.copyOf(self, capacity);
+            total = Arrays.copyOf(total, capacity);
+            if (baseSelf != null) {
+                baseSelf = Arrays.copyOf(baseSelf, capacity);
+                baseTotal = Arrays.copyOf(baseTotal, capacity);
+            }
+        }
+        int node = size++;
+        parents[node] = parent;
+        frameOf[node] = frame;
+        nextSibling[node] = firstChild[parent];
+        firstChild[parent] = node;
+        return node;
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = new long[capacity];
+        int[] values = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < indexValues.length; i++) {
+            if (indexValues[i] != 0) {
+                int slot = mix(indexKeys[i]) & mask;
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = indexKeys[i];
+                values[slot] = indexValues[i];
+            }
+        }
+        indexKeys = keys;
+        indexValues = values;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void ensureBaseline() {
+        if (baseSelf == null) {
+            baseSelf = new long[parents.length];
+            baseTotal = new long[parents.length];
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid jprof data: varint too long");
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid jprof data: bad length " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * 按帧统计的样本数
+     */
+    public static final class FrameStat {
+        private final String frame;
+        private final long self;
+        private final long total;
+        private final long baseSelf;
+        private final long baseTotal;
+
+        private FrameStat(String frame, long self, long total, long baseSelf, long baseTotal) {
+            this.frame = frame;
+            this.self = self;
+            this.total = total;
+            this.baseSelf = baseSelf;
+            this.baseTotal = baseTotal;
+        }
+
+        public String getFrame() {
+            return frame;
+        }
+
+        public long getSelf() {
+            return self;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getBaseSelf() {
+            return baseSelf;
+        }
+
+        public long getBaseTotal() {
+            return baseTotal;
+        }
+
+        @Override
+        public String toString() {
+            return frame + " self=" + self + " total=" + total + (baseSelf == 0 && baseTotal == 0 ? "" : " baseSelf=" + baseSelf + " baseTotal=" + baseTotal);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.common.util.meta.LongLongHashMap;
+import org.beifengtz.jvmm.common.util.meta.TopNSelector;
+import org.beifengtz.jvmm.core.entity.info.JvmThreadAllocationInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmThreadAllocationInfo.ThreadAllocation;
+import org.beifengtz.jvmm.core.entity.info.ThreadTimedInfo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Description: 常驻后台的线程CPU采样器，每秒批量采集一次所有线程的 CPU Time、User Time 和累计分配字节数，保存在定长环形缓冲区中。
+ * 查询最近一个窗口（1s/10s/60s等）内 CPU 占用或内存分配最高的 N 个线程时直接对比窗口起止两次采样，不需要阻塞等待，
+ * 统计起点只由采样器推进，多个查询方之间互不影响。
+ * </p>
+ * <p>
+ * 每次采样的 线程id -> 数组下标 映射使用 {@link LongLongHashMap}，槽位对象循环复用，稳定运行时采样过程不产生新的对象。
+ * 采样只由一个线程写入，读取方读完后校验窗口起点没有被覆盖，不需要加锁。
+ * </p>
+ * <p>
+ * Created in 11:46 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class ThreadCpuSampler {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ThreadCpuSampler.class);
+
+    /**
+     * 支持的最大窗口长度，单位秒
+     */
+    public static final int MAX_WINDOW = 60;
+    public static final int DEFAULT_TOP = 10;
+    /**
+     * 多留两个槽位，读取期间即使发生一次写入也不会覆盖窗口起点
+     */
+    private static final int CAPACITY = MAX_WINDOW + 2;
+    private static final int MAX_READ_RETRY = 3;
+
+    private static int cpuTimeHolders = 0;
+    private static boolean cpuTimeEnabledByHolder = false;
+    private static int allocatedMemoryHolders = 0;
+    private static boolean allocatedMemoryEnabledByHolder = false;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Snapshot[] ring = new Snapshot[CAPACITY];
+    private volatile long count = 0;
+    private volatile int window = 10;
+
+    private ScheduledFuture<?> task;
+    private boolean allocatedMemoryRetained;
+
+    ThreadCpuSampler() {
+    }
+
+    /**
+     * 申请开启 ThreadCpuTime 统计，多个使用方同时申请时只在第一个申请时开启，全部释放后恢复原状态，
+     * 避免并发的统计任务互相关闭对方依赖的开关。
+     *
+     * @return 当前 JVM 是否支持线程 CPU 时间统计
+     */
+    static synchronized boolean retainCpuTime() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!mx.isThreadCpuTimeSupported()) {
+            return false;
+        }
+        if (cpuTimeHolders++ == 0 && !mx.isThreadCpuTimeEnabled()) {
+            mx.setThreadCpuTimeEnabled(true);
+            cpuTimeEnabledByHolder = true;
+        }
+        return true;
+    }
+
+    /**
+     * 释放 {@link #retainCpuTime()} 的申请
+     */
+    static synchronized void releaseCpuTime() {
+        if (cpuTimeHolders <= 0) {
+            return;
+        }
+        if (--cpuTimeHolders == 0 && cpuTimeEnabledByHolder) {
+            ManagementFactory.getThreadMXBean().setThreadCpuTimeEnabled(false);
+            cpuTimeEnabledByHolder = false;
+        }
+    }
+
+    /**
+     * 申请开启 ThreadAllocatedMemory 统计，规则与 {@link #retainCpuTime()} 相同，全部释放后恢复原状态
+     *
+     * @return 当前 JVM 是否支持线程分配内存统计
+     */
+    static synchronized boolean retainAllocatedMemory() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!isAllocatedMemorySupported(mx)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) mx;
+        if (allocatedMemoryHolders++ == 0 && !sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+            sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+            allocatedMemoryEnabledByHolder = true;
+        }
+        return true;
+    }
+
+    /**
+     * 释放 {@link #retainAllocatedMemory()} 的申请
+     */
+    static synchronized void releaseAllocatedMemory() {
+        if (allocatedMemoryHolders <= 0) {
+            return;
+        }
+        if (--allocatedMemoryHolders == 0 && allocatedMemoryEnabledByHolder) {
+            ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).setThreadAllocatedMemoryEnabled(false);
+            allocatedMemoryEnabledByHolder = false;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null && !task.isDone();
+    }
+
+    /**
+     * 启动采样器，如果已经启动仅修改默认窗口长度
+     *
+     * @param window 默认统计窗口，单位秒，范围 [1, {@link #MAX_WINDOW}]
+     */
+    public synchronized void start(int window) {
+        setWindow(window);
+        if (isRunning()) {
+            return;
+        }
+        if (!retainCpuTime()) {
+            logger.warn("Current JVM does not support thread cpu time measurement, thread cpu sampler will not start");
+            return;
+        }
+        allocatedMemoryRetained = retainAllocatedMemory();
+        count = 0;
+        task = ExecutorFactory.getThreadPool().scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+        logger.debug("Thread cpu sampler started with window {}s", this.window);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            releaseCpuTime();
+            if (allocatedMemoryRetained) {
+                releaseAllocatedMemory();
+                allocatedMemoryRetained = false;
+            }
+            logger.debug("Thread cpu sampler stopped");
+        }
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = Math.max(1, Math.min(MAX_WINDOW, window));
+    }
+
+    /**
+     * 采样器是否已经积累了至少两次采样，可以计算出窗口内的CPU时间
+     */
+    public boolean isReady() {
+        return isRunning() && count > 1;
+    }
+
+    private void sample() {
+        try {
+            long c = count;
+            int slot = (int) (c % CAPACITY);
+            Snapshot snapshot = ring[slot];
+            if (snapshot == null) {
+                snapshot = new Snapshot();
+                ring[slot] = snapshot;
+            }
+            long[] ids = threadMXBean.getAllThreadIds();
+            snapshot.fill(System.nanoTime(), ids, getThreadCpuTime(ids), getThreadUserTime(ids), getThreadAllocatedBytes(threadMXBean, ids));
+            count = c + 1;
+        } catch (Throwable t) {
+            logger.warn("Thread cpu sampler sample failed: " + t.getMessage(), t);
+        }
+    }
+
+    private long[] getThreadCpuTime(long[] ids) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadCpuTime(ids);
+        }
+        long[] times = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            times[i] = threadMXBean.getThreadCpuTime(ids[i]);
+        }
+        return times;
+    }
+
+    static boolean isAllocatedMemorySupported(ThreadMXBean threadMXBean) {
+        return threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * 批量获取线程累计分配字节数，JVM 不支持或未开启时返回null
+     */
+    private static long[] getThreadAllocatedBytes(ThreadMXBean threadMXBean, long[] ids) {
+        if (isAllocatedMemorySupported(threadMXBean)
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled()) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(ids);
+        }
+        return null;
+    }
+
+    private long[] getThreadUserTime(long[] ids) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadUserTime(ids);
+        }
+        long[] times = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            times[i] = threadMXBean.getThreadUserTime(ids[i]);
+        }
+        return times;
+    }
+
+    public List<ThreadTimedInfo> getTopThreads(int top) {
+        return getTopThreads(window, top);
+    }
+
+    /**
+     * 获取最近窗口内 CPU Time 最高的线程，窗口内新创建的线程从 0 开始计算
+     *
+     * @param window 统计窗口，单位秒，超出 [1, {@link #MAX_WINDOW}] 时取边界值
+     * @param top    返回的线程数量，小于等于0时返回所有线程
+     * @return 根据 CPU Time 从大到小排序的 {@link ThreadTimedInfo} 列表，采样不足时返回null
+     */
+    public List<ThreadTimedInfo> getTopThreads(int window, int top) {
+        window = Math.max(1, Math.min(MAX_WINDOW, window));
+        for (int retry = 0; retry < MAX_READ_RETRY; retry++) {
+            long c = count;
+            if (c < 2) {
+                return null;
+            }
+            long last = c - 1;
+            long first = Math.max(0, last - window);
+            Snapshot end = ring[(int) (last % CAPACITY)];
+            Snapshot begin = ring[(int) (first % CAPACITY)];
+            if (end == null || begin == null) {
+                return null;
+            }
+            long windowNanos = end.nanoTime - begin.nanoTime;
+            TopNSelector selector = selectTop(begin, end, top);
+
+            //  读取期间写入方追上了窗口起点，槽位内容已经被复用
+            if (count > first + CAPACITY - 1 || windowNanos <= 0) {
+                continue;
+            }
+            return toInfos(selector, windowNanos);
+        }
+        return null;
+    }
+
+    /**
+     * 获取最近窗口内分配内存最多的线程以及进程整体分配速率，窗口内新创建的线程从 0 开始计算
+     *
+     * @param window 统计窗口，单位秒，超出 [1, {@link #MAX_WINDOW}] 时取边界值
+     * @param top    返回的线程数量，小于等于0时返回所有线程
+     * @return {@link JvmThreadAllocationInfo}，采样不足或 JVM 不支持时返回null
+     */
+    public JvmThreadAllocationInfo getTopAllocation(int window, int top) {
+        window = Math.max(1, Math.min(MAX_WINDOW, window));
+        for (int retry = 0; retry < MAX_READ_RETRY; retry++) {
+            long c = count;
+            if (c < 2) {
+                return null;
+            }
+            long last = c - 1;
+            long first = Math.max(0, last - window);
+            Snapshot end = ring[(int) (last % CAPACITY)];
+            Snapshot begin = ring[(int) (first % CAPACITY)];
+            if (end == null || begin == null) {
+                return null;
+            }
+            if (!end.hasAllocation || !begin.hasAllocation) {
+                return null;
+            }
+            long windowNanos = end.nanoTime - begin.nanoTime;
+            TopNSelector selector = new TopNSelector(top <= 0 || top > end.size ? end.size : top);
+            long total = selectAllocation(begin, end, selector);
+
+            if (count > first + CAPACITY - 1 || windowNanos <= 0) {
+                continue;
+            }
+            return toAllocationInfo(threadMXBean, selector, total, windowNanos);
+        }
+        return null;
+    }
+
+    /**
+     * 采样器没有运行时的一次性分配速率统计：以本次调用为起点，等待 windowNanos 后再次采样计算，
+     * 起止采样只属于本次调用，不影响其他调用方和后台采样器。
+     *
+     * @param windowNanos 统计窗口，单位纳秒
+     * @param top         返回的线程数量，小于等于0时返回所有线程
+     * @return {@link JvmThreadAllocationInfo}，它将以 {@link CompletableFuture} 返回
+     */
+    static CompletableFuture<JvmThreadAllocationInfo> measureAllocation(long windowNanos, int top) {
+        CompletableFuture<JvmThreadAllocationInfo> future = new CompletableFuture<>();
+        if (!retainAllocatedMemory()) {
+            future.completeExceptionally(new UnsupportedOperationException("Current JVM does not support thread allocated memory measurement"));
+            return future;
+        }
+        //  统计结束后释放开关，最后一个使用方释放时恢复开关原来的状态
+        future.whenComplete((info, t) -> releaseAllocatedMemory());
+        try {
+            ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) mx;
+            Snapshot begin = new Snapshot();
+            long[] beginIds = mx.getAllThreadIds();
+            begin.fill(System.nanoTime(), beginIds, null, null, sunThreadMXBean.getThreadAllocatedBytes(beginIds));
+            ExecutorFactory.getThreadPool().schedule(() -> {
+                try {
+                    Snapshot end = new Snapshot();
+                    long[] endIds = mx.getAllThreadIds();
+                    end.fill(System.nanoTime(), endIds, null, null, sunThreadMXBean.getThreadAllocatedBytes(endIds));
+                    TopNSelector selector = new TopNSelector(top <= 0 || top > end.size ? end.size : top);
+                    long total = selectAllocation(begin, end, selector);
+                    future.complete(toAllocationInfo(mx, selector, total, end.nanoTime - begin.nanoTime));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }, windowNanos, TimeUnit.NANOSECONDS);
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+
+    /**
+     * 计算窗口内每个线程的分配字节数并筛选，返回所有线程的分配总量
+     */
+    private static long selectAllocation(Snapshot begin, Snapshot end, TopNSelector selector) {
+        long total = 0;
+        for (int i = 0; i < end.size; i++) {
+            long bytes = end.allocatedBytes[i];
+            if (bytes < 0) {
+                continue;
+            }
+            int idx = (int) begin.index.get(end.ids[i]);
+            long pre = idx >= 0 && idx < begin.size && begin.allocatedBytes[idx] >= 0 ? begin.allocatedBytes[idx] : 0;
+            long delta = Math.max(0, bytes - pre);
+            total += delta;
+            selector.offer(end.ids[i], delta, 0);
+        }
+        return total;
+    }
+
+    private static JvmThreadAllocationInfo toAllocationInfo(ThreadMXBean threadMXBean, TopNSelector selector, long total, long windowNanos) {
+        double seconds = windowNanos / 1e9;
+        JvmThreadAllocationInfo info = JvmThreadAllocationInfo.create()
+                .setWindow(TimeUnit.NANOSECONDS.toMillis(windowNanos))
+                .setAllocatedBytes(total)
+                .setAllocationRate(seconds > 0 ? total / seconds : 0);
+        selector.sortDescending();
+        if (selector.size() == 0) {
+            return info;
+        }
+        long[] ids = selector.getIds();
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(ids, 0);
+        Map<Long, Thread> threadIndex = Unsafe.getThreadIndex();
+        for (int i = 0; i < ids.length; i++) {
+            ThreadInfo ti = infos[i];
+            if (ti == null) {
+                continue;
+            }
+            Thread thread = threadIndex.get(ids[i]);
+            long allocated = selector.getValue(i);
+            info.getThreads().add(ThreadAllocation.create()
+                    .setId(ids[i])
+                    .setName(ti.getThreadName())
+                    .setGroup(thread == null || thread.getThreadGroup() == null ? null : thread.getThreadGroup().getName())
+                    .setState(ti.getThreadState())
+                    .setAllocatedBytes(allocated)
+                    .setAllocationRate(seconds > 0 ? allocated / seconds : 0));
+        }
+        return info;
+    }
+
+    private static TopNSelector selectTop(Snapshot begin, Snapshot end, int top) {
+        int n = end.size;
+        TopNSelector selector = new TopNSelector(top <= 0 || top > n ? n : top);
+        for (int i = 0; i < n; i++) {
+            long cpu = end.cpuTimes[i];
+            if (cpu < 0) {
+                continue;
+            }
+            long id = end.ids[i];
+            long user = end.userTimes[i];
+            int idx = (int) begin.index.get(id);
+            long preCpu = 0, preUser = 0;
+            if (idx >= 0 && idx < begin.size && begin.cpuTimes[idx] >= 0) {
+                preCpu = begin.cpuTimes[idx];
+                preUser = begin.userTimes[idx];
+            }
+            selector.offer(id, cpu - preCpu, Math.max(0, user - preUser));
+        }
+        return selector;
+    }
+
+    private List<ThreadTimedInfo> toInfos(TopNSelector selector, long windowNanos) {
+        selector.sortDescending();
+        int n = selector.size();
+        if (n == 0) {
+            return Collections.emptyList();
+        }
+        long[] ids = selector.getIds();
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(ids, 0);
+        Map<Long, Thread> threadIndex = Unsafe.getThreadIndex();
+        List<ThreadTimedInfo> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ThreadInfo ti = infos[i];
+            if (ti == null) {
+                continue;
+            }
+            Thread thread = threadIndex.get(ids[i]);
+            long cpuTime = selector.getValue(i);
+            result.add(new ThreadTimedInfo()
+                    .setId(ids[i])
+                    .setName(ti.getThreadName())
+                    .setGroup(thread == null || thread.getThreadGroup() == null ? null : thread.getThreadGroup().getName())
+                    .setState(ti.getThreadState())
+                    .setCpuTime(cpuTime)
+                    .setUserTime(selector.getAttachment(i))
+                    .setCpuUsage(cpuTime * 100.0 / windowNanos));
+        }
+        return result;
+    }
+
+    /**
+     * 一次采样结果，数组按需扩容后复用
+     */
+    private static final class Snapshot {
+        private long nanoTime;
+        private int size;
+        private long[] ids = new long[0];
+        private long[] cpuTimes = new long[0];
+        private long[] userTimes = new long[0];
+        private long[] allocatedBytes = new long[0];
+        private boolean hasAllocation;
+        private final LongLongHashMap index = new LongLongHashMap(256, -1L);
+
+        /**
+         * 不需要的指标传入null，对应数组填充 -1
+         */
+        private void fill(long nanoTime, long[] ids, long[] cpuTimes, long[] userTimes, long[] allocatedBytes) {
+            int n = ids.length;
+            if (this.ids.length < n) {
+                int capacity = Math.max(n, this.ids.length * 2);
+                this.ids = new long[capacity];
+                this.cpuTimes = new long[capacity];
+                this.userTimes = new long[capacity];
+                this.allocatedBytes = new long[capacity];
+            }
+            System.arraycopy(ids, 0, this.ids, 0, n);
+            copy(cpuTimes, this.cpuTimes, n);
+            copy(userTimes, this.userTimes, n);
+            copy(allocatedBytes, this.allocatedBytes, n);
+            this.hasAllocation = allocatedBytes != null;
+            index.clear();
+            for (int i = 0; i < n; i++) {
+                index.put(ids[i], i);
+            }
+            this.size = n;
+            this.nanoTime = nanoTime;
+        }
+
+        private static void copy(long[] src, long[] dest, int n) {
+            if (src == null) {
+                Arrays.fill(dest, 0, n, -1L);
+            } else {
+                System.arraycopy(src, 0, dest, 0, n);
+            }
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package org.beifengtz.jvmm.core;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.common.util.meta.LogLinearHistogram;
+import org.beifengtz.jvmm.core.entity.info.ThreadPoolInfo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Description: 线程池注册表，按名称登记需要长期监控的线程池，并由后台采样器周期性记录队列长度、活跃线程数的分布以及任务完成速率。
+ * </p>
+ * <p>
+ * 通过 类名 + 字段名 定位的线程池只在第一次解析时反射查找字段，之后使用缓存的 {@link MethodHandle} 读取，
+ * 每次采样都重新读取字段，字段被替换为新的线程池实例时也能跟踪到。
+ * </p>
+ * <p>
+ * 支持 {@link ThreadPoolExecutor}、{@link ForkJoinPool} 和 Netty 的 EventExecutorGroup（按 EventLoop 的 pendingTasks 汇总队列长度）。
+ * {@link ThreadPoolExecutor} 注册时会用计数的 {@link RejectedExecutionHandler} 包装原拒绝策略，注销时还原。
+ * </p>
+ * <p>
+ * Created in 11:05 2023/10/20
+ *
+ * @author beifengtz
+ */
+public final class ThreadPoolRegistry {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ThreadPoolRegistry.class);
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    /**
+     * 解析缓存的最大数量，超出后清空重建。缓存的 {@link MethodHandle} 会间接引用其 ClassLoader，弱引用键不足以让其被回收，
+     * 因此仍需要数量上限避免动态加载的 ClassLoader 被缓存长期持有
+     */
+    private static final int MAX_ACCESSOR_CACHE = 256;
+    private static final String NETTY_EXECUTOR_GROUP = "netty.util.concurrent.EventExecutorGroup";
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class);
+
+    private static final ClassValue<MethodHandle> pendingTasksHandles = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                Method method = type.getMethod("pendingTasks");
+                method.setAccessible(true);
+                return MethodHandles.lookup().unreflect(method).asType(MethodType.methodType(int.class, Object.class));
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+    };
+
+    /**
+     * ClassLoader -> (类名|单例字段|字段 -> getter)，按 ClassLoader 对象区分，读写都需要持有该对象的锁
+     */
+    private final Map<ClassLoader, Map<String, MethodHandle>> accessors = new WeakHashMap<>();
+    private int accessorCount = 0;
+    private final ConcurrentHashMap<String, PoolHandle> pools = new ConcurrentHashMap<>();
+    private volatile int interval = 1;
+
+    private ScheduledFuture<?> task;
+
+    ThreadPoolRegistry() {
+    }
+
+    /**
+     * 通过类的静态字段或者静态单例的实例字段定位线程池对象，字段解析结果会被缓存
+     *
+     * @param classLoader   目标类的 ClassLoader，为null时使用当前 ClassLoader
+     * @param clazz         类全路径
+     * @param instanceField 静态单例字段名，为空表示 field 本身是静态字段
+     * @param field         线程池字段名
+     * @return 线程池对象，字段值为null时返回null
+     * @throws IllegalArgumentException 类或字段不存在、字段不可访问
+     */
+    public Object resolve(ClassLoader classLoader, String clazz, String instanceField, String field) {
+        MethodHandle getter = getAccessor(classLoader, clazz, instanceField, field);
+        try {
+            return (Object) getter.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Read thread pool field failed: " + e.getMessage(), e);
+        }
+    }
+
+    private MethodHandle getAccessor(ClassLoader classLoader, String clazz, String instanceField, String field) {
+        ClassLoader loader = classLoader == null ? getClass().getClassLoader() : classLoader;
+        boolean hasInstance = instanceField != null && !instanceField.isEmpty();
+        String key = clazz + "|" + (hasInstance ? instanceField : "") + "|" + field;
+        MethodHandle getter;
+        synchronized (accessors) {
+            Map<String, MethodHandle> cache = accessors.get(loader);
+            getter = cache == null ? null : cache.get(key);
+        }
+        if (getter != null) {
+            return getter;
+        }
+        try {
+            Class<?> aClass = Class.forName(clazz, false, loader);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Field f = aClass.getDeclaredField(field);
+            f.setAccessible(true);
+            if (hasInstance) {
+                Field instanceF = aClass.getDeclaredField(instanceField);
+                if (!Modifier.isStatic(instanceF.getModifiers()) || !aClass.isAssignableFrom(instanceF.getType())) {
+                    throw new IllegalArgumentException("Instance field '" + instanceField + "' is not a static instance of " + clazz);
+                }
+                instanceF.setAccessible(true);
+                getter = MethodHandles.filterReturnValue(lookup.unreflectGetter(instanceF), lookup.unreflectGetter(f));
+            } else {
+                if (!Modifier.isStatic(f.getModifiers())) {
+                    throw new IllegalArgumentException("Field '" + field + "' is not static, instance field is required");
+                }
+                getter = lookup.unreflectGetter(f);
+            }
+            getter = getter.asType(GETTER_TYPE);
+        } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Resolve thread pool field failed: " + e.getMessage(), e);
+        }
+        synchronized (accessors) {
+            if (accessorCount >= MAX_ACCESSOR_CACHE) {
+                accessors.clear();
+                accessorCount = 0;
+            }
+            if (accessors.computeIfAbsent(loader, o -> new HashMap<>()).put(key, getter) == null) {
+                accessorCount++;
+            }
+        }
+        return getter;
+    }
+
+    /**
+     * 注册线程池对象，同名的线程池会被替换
+     *
+     * @param name 线程池名称
+     * @param pool {@link ThreadPoolExecutor}、{@link ForkJoinPool} 或 Netty EventExecutorGroup
+     */
+    public void register(String name, Object pool) {
+        if (!isSupported(pool)) {
+            throw new IllegalArgumentException("Unsupported thread pool type: " + (pool == null ? null : pool.getClass().getName()));
+        }
+        register(name, MethodHandles.constant(Object.class, pool));
+    }
+
+    /**
+     * 通过类字段注册线程池，参数含义见 {@link #resolve(ClassLoader, String, String, String)}，同名的线程池会被替换
+     */
+    public void register(String name, ClassLoader classLoader, String clazz, String instanceField, String field) {
+        MethodHandle getter = getAccessor(classLoader, clazz, instanceField, field);
+        Object pool;
+        try {
+            pool = (Object) getter.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Read thread pool field failed: " + e.getMessage(), e);
+        }
+        if (pool != null && !isSupported(pool)) {
+            throw new IllegalArgumentException("Unsupported thread pool type: " + pool.getClass().getName());
+        }
+        register(name, getter);
+    }
+
+    private synchronized void register(String name, MethodHandle getter) {
+        PoolHandle handle = new PoolHandle(name, getter);
+        PoolHandle old = pools.put(name, handle);
+        if (old != null) {
+            old.release();
+        }
+        handle.sample(System.nanoTime());
+        if (task == null) {
+            task = ExecutorFactory.getThreadPool().scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.SECONDS);
+            logger.debug("Thread pool sampler started with interval {}s", interval);
+        }
+    }
+
+    public synchronized boolean unregister(String name) {
+        PoolHandle handle = pools.remove(name);
+        if (handle == null) {
+            return false;
+        }
+        handle.release();
+        if (pools.isEmpty()) {
+            stop();
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        for (PoolHandle handle : pools.values()) {
+            handle.release();
+        }
+        pools.clear();
+        synchronized (accessors) {
+            accessors.clear();
+            accessorCount = 0;
+        }
+        stop();
+    }
+
+    private void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            logger.debug("Thread pool sampler stopped");
+        }
+    }
+
+    public boolean isRegistered(String name) {
+        return pools.containsKey(name);
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * 修改采样周期，下一次注册或重新启动采样时生效
+     *
+     * @param interval 采样周期，单位秒，最小为1
+     */
+    public void setInterval(int interval) {
+        this.interval = Math.max(1, interval);
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        for (PoolHandle handle : pools.values()) {
+            try {
+                handle.sample(now);
+            } catch (Throwable t) {
+                logger.warn("Sample thread pool '" + handle.name + "' failed: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * @param name 线程池名称
+     * @return 线程池当前状态以及注册后的统计信息，未注册或线程池字段为null时返回null
+     */
+    public ThreadPoolInfo getInfo(String name) {
+        PoolHandle handle = pools.get(name);
+        return handle == null ? null : handle.toInfo();
+    }
+
+    /**
+     * @return 所有已注册线程池的信息，线程池字段为null的会被跳过
+     */
+    public List<ThreadPoolInfo> getInfos() {
+        List<ThreadPoolInfo> infos = new ArrayList<>(pools.size());
+        for (PoolHandle handle : pools.values()) {
+            ThreadPoolInfo info = handle.toInfo();
+            if (info != null) {
+                infos.add(info);
+            }
+        }
+        return infos;
+    }
+
+    public static boolean isSupported(Object pool) {
+        return pool instanceof ThreadPoolExecutor || pool instanceof ForkJoinPool || isNettyExecutorGroup(pool);
+    }
+
+    private static boolean isNettyExecutorGroup(Object pool) {
+        if (!(pool instanceof ExecutorService) || !(pool instanceof Iterable)) {
+            return false;
+        }
+        //  按名称后缀判断，兼容被 shade 重定位的 Netty
+        for (Class<?> c = pool.getClass(); c != null; c = c.getSuperclass()) {
+            for (Class<?> i : c.getInterfaces()) {
+                if (implementsByName(i)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean implementsByName(Class<?> type) {
+        if (type.getName().endsWith(NETTY_EXECUTOR_GROUP)) {
+            return true;
+        }
+        for (Class<?> i : type.getInterfaces()) {
+            if (implementsByName(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取线程池的即时状态，不包含注册后的统计信息
+     *
+     * @param pool {@link ThreadPoolExecutor}、{@link ForkJoinPool} 或 Netty EventExecutorGroup
+     * @return {@link ThreadPoolInfo}，pool 为null时返回null
+     */
+    public static ThreadPoolInfo snapshot(Object pool) {
+        if (pool == null) {
+            return null;
+        }
+        if (pool instanceof ThreadPoolExecutor) {
+            return JvmmFactory.getCollector().getThreadPoolInfo((ThreadPoolExecutor) pool).setType("ThreadPoolExecutor");
+        }
+        ExecutorService executor = (ExecutorService) pool;
+        ThreadPoolInfo info = ThreadPoolInfo.create().setState(executor.isTerminated() ? "Terminated" :
+                executor.isShutdown() ? "Shutdown" : "Running");
+        if (pool instanceof ForkJoinPool) {
+            ForkJoinPool fjp = (ForkJoinPool) pool;
+            info.setType("ForkJoinPool")
+                    .setThreadFactory(fjp.getFactory().getClass().getName())
+                    .setCorePoolSize(fjp.getParallelism())
+                    .setMaximumPoolSize(fjp.getParallelism())
+                    .setQueueSize((int) Math.min(Integer.MAX_VALUE, fjp.getQueuedTaskCount() + fjp.getQueuedSubmissionCount()))
+                    .setThreadCount(fjp.getPoolSize())
+                    .setActiveThreadCount(fjp.getActiveThreadCount());
+            if (fjp.isTerminating()) {
+                info.setState("Shutting down");
+            }
+        } else if (isNettyExecutorGroup(pool)) {
+            int executors = 0;
+            long pending = 0;
+            for (Object e : (Iterable<?>) pool) {
+                executors++;
+                MethodHandle handle = pendingTasksHandles.get(e.getClass());
+                if (handle != null) {
+                    try {
+                        pending += (int) handle.invokeExact(e);
+                    } catch (Throwable ignored) {
+                    }
+                }
+            }
+            info.setType("EventExecutorGroup")
+                    .setCorePoolSize(executors)
+                    .setMaximumPoolSize(executors)
+                    .setThreadCount(executors)
+                    .setQueueSize((int) Math.min(Integer.MAX_VALUE, pending));
+        } else {
+            throw new IllegalArgumentException("Unsupported thread pool type: " + pool.getClass().getName());
+        }
+        return info;
+    }
+
+    /**
+     * 包装原拒绝策略，统计被拒绝的任务数
+     */
+    private static final class CountingRejectedHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+        private final AtomicLong count = new AtomicLong();
+
+        private CountingRejectedHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            count.incrementAndGet();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+
+    private static final class PoolHandle {
+        private final String name;
+        private final MethodHandle getter;
+        private final LogLinearHistogram queueSizes = new LogLinearHistogram();
+        private final LogLinearHistogram activeThreads = new LogLinearHistogram();
+
+        /**
+         * 以下字段只在 sample 和 release 中写入，两者在同一个 PoolHandle 上互斥执行
+         */
+        private Object lastPool;
+        private volatile CountingRejectedHandler rejectedHandler;
+        private long lastCompleted = -1;
+        private long lastSampleNanos;
+        private volatile double completedRate;
+
+        private PoolHandle(String name, MethodHandle getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+
+        private Object getPool() {
+            try {
+                return (Object) getter.invokeExact();
+            } catch (Throwable e) {
+                logger.debug("Read thread pool '{}' failed: {}", name, e.getMessage());
+                return null;
+            }
+        }
+
+        private synchronized void sample(long now) {
+            Object pool = getPool();
+            if (pool == null || !isSupported(pool)) {
+                return;
+            }
+            if (pool != lastPool) {
+                //  字段指向了新的线程池实例，重新挂载拒绝计数并重置速率基准
+                release();
+                lastPool = pool;
+                lastCompleted = -1;
+                if (pool instanceof ThreadPoolExecutor) {
+                    ThreadPoolExecutor tpe = (ThreadPoolExecutor) pool;
+                    RejectedExecutionHandler origin = tpe.getRejectedExecutionHandler();
+                    rejectedHandler = origin instanceof CountingRejectedHandler ? (CountingRejectedHandler) origin
+                            : new CountingRejectedHandler(origin);
+                    tpe.setRejectedExecutionHandler(rejectedHandler);
+                }
+            }
+            if (pool instanceof ThreadPoolExecutor) {
+                ThreadPoolExecutor tpe = (ThreadPoolExecutor) pool;
+                queueSizes.record(tpe.getQueue().size());
+                activeThreads.record(tpe.getActiveCount());
+                long completed = tpe.getCompletedTaskCount();
+                if (lastCompleted >= 0 && now > lastSampleNanos) {
+                    completedRate = (completed - lastCompleted) * 1e9 / (now - lastSampleNanos);
+                }
+                lastCompleted = completed;
+                lastSampleNanos = now;
+            } else {
+                ThreadPoolInfo info = snapshot(pool);
+                queueSizes.record(info.getQueueSize());
+                activeThreads.record(info.getActiveThreadCount());
+            }
+        }
+
+        private synchronized void release() {
+            if (lastPool instanceof ThreadPoolExecutor && rejectedHandler != null) {
+                ThreadPoolExecutor tpe = (ThreadPoolExecutor) lastPool;
+                if (tpe.getRejectedExecutionHandler() == rejectedHandler) {
+                    tpe.setRejectedExecutionHandler(rejectedHandler.delegate);
+                }
+            }
+            rejectedHandler = null;
+            lastPool = null;
+        }
+
+        private ThreadPoolInfo toInfo() {
+            ThreadPoolInfo info = snapshot(getPool());
+            if (info == null) {
+                return null;
+            }
+            long[] queue = queueSizes.getQuantiles(QUANTILES);
+            long[] active = activeThreads.getQuantiles(QUANTILES);
+            CountingRejectedHandler handler = rejectedHandler;
+            return info.setName(name)
+                    .setRejectedCount(handler == null ? 0 : handler.count.get())
+                    .setCompletedTaskRate(completedRate)
+                    .setSamples(queueSizes.getCount())
+                    .setQueueSizeP50(queue[0])
+                    .setQueueSizeP90(queue[1])
+                    .setQueueSizeP99(queue[2])
+                    .setQueueSizeMax(queueSizes.getMax())
+                    .setActiveThreadP50(active[0])
+                    .setActiveThreadP90(active[1])
+                    .setActiveThreadP99(active[2])
+                    .setActiveThreadMax(activeThreads.getMax());
+        }
+    }
+}
@@ -5,13 +5,13 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.beifengtz.jvmm.common.exception.ExecutionException;
 import org.beifengtz.jvmm.core.entity.info.JvmClassLoaderInfo;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * Description: 此类中的方法是不安全的，无法保证方法是否能一定成功调用，也不能保证调用后会不会对程序造成影响，因此不建议使用者直接调用此类中的方法！
@@ -30,7 +30,8 @@ public final class Unsafe {
 
     static {
         try {
-            //  sun.management.ThreadImpl#getThreads()
+            //  sun.management.ThreadImpl#getThreads() 是本地方法，需要先初始化 ManagementFactory 加载 management 本地库
+            ManagementFactory.getThreadMXBean();
             Method method = Class.forName("sun.management.ThreadImpl").getDeclaredMethod("getThreads");
             method.setAccessible(true);
             threadsMethod = method;
@@ -76,6 +77,20 @@ public final class Unsafe {
         return null;
     }
 
+    /**
+     * 获取当前所有线程的快照索引，在需要批量根据线程id查找线程对象时使用，避免每次查找都遍历一次所有线程
+     *
+     * @return 线程tid -> Thread实例
+     */
+    public static Map<Long, Thread> getThreadIndex() {
+        Thread[] threads = getThreads();
+        Map<Long, Thread> index = new HashMap<>((int) (threads.length / 0.75f) + 1);
+        for (Thread thread : threads) {
+            index.put(thread.getId(), thread);
+        }
+        return index;
+    }
+
     public static int getThreadNativeStatus(Thread thread) {
         try {
             return (int) threadStatusFiled.get(thread);
@@ -92,21 +107,7 @@ public final class Unsafe {
      * @throws ExecutionException 调用异常
      */
     public static List<ClassLoader> findLoadedClassLoader(String className) throws Exception {
-        List<ClassLoader> classLoaders = new ArrayList<>();
-        Set<ClassLoader> scannedClassLoader = new HashSet<>();
-        for (Thread thread : getThreads()) {
-            ClassLoader classLoader = thread.getContextClassLoader();
-            if (classLoader == null) {
-                continue;
-            }
-            if (scannedClassLoader.add(classLoader)) {
-                Class<?> clazz = (Class<?>) findLoadedClassMethod.invoke(classLoader, className);
-                if (clazz != null) {
-                    classLoaders.add(classLoader);
-                }
-            }
-        }
-        return classLoaders;
+        return JvmmFactory.getClassLoaderRegistry().findLoadedClassLoaders(className);
     }
 
     /**
@@ -117,21 +118,7 @@ public final class Unsafe {
      * @throws ExecutionException 调用异常
      */
     public static List<Class<?>> findLoadedClasses(String className) throws Exception {
-        List<Class<?>> classes = new ArrayList<>();
-        Set<ClassLoader> scannedClassLoader = new HashSet<>();
-        for (Thread thread : getThreads()) {
-            ClassLoader classLoader = thread.getContextClassLoader();
-            if (classLoader == null) {
-                continue;
-            }
-            if (scannedClassLoader.add(classLoader)) {
-                Class<?> clazz = (Class<?>) findLoadedClassMethod.invoke(classLoader, className);
-                if (clazz != null) {
-                    classes.add(clazz);
-                }
-            }
-        }
-        return classes;
+        return JvmmFactory.getClassLoaderRegistry().findLoadedClasses(className);
     }
 
     /**
@@ -143,19 +130,7 @@ public final class Unsafe {
      * @throws Exception 调用异常
      */
     public static Class<?> findLoadedClass(int classLoaderHash, String className) throws Exception {
-        for (Thread thread : getThreads()) {
-            ClassLoader classLoader = thread.getContextClassLoader();
-            if (classLoader == null) {
-                continue;
-            }
-            if (classLoader.hashCode() == classLoaderHash) {
-                Class<?> clazz = (Class<?>) findLoadedClassMethod.invoke(classLoader, className);
-                if (clazz != null) {
-                    return clazz;
-                }
-            }
-        }
-        return null;
+        return JvmmFactory.getClassLoaderRegistry().findLoadedClass(classLoaderHash, className);
     }
 
     /**
@@ -171,31 +146,12 @@ public final class Unsafe {
     }
 
     /**
-     * 获取所有 ClassLoader信息
+     * 获取所有 ClassLoader信息，数据来自 {@link ClassLoaderRegistry}
      *
      * @return list of {@link JvmClassLoaderInfo}
      */
     public static List<JvmClassLoaderInfo> getClassLoaders() {
-        List<JvmClassLoaderInfo> list = new ArrayList<>();
-        Set<ClassLoader> scannedClassLoader = new HashSet<>();
-        for (Thread thread : getThreads()) {
-            ClassLoader classLoader = thread.getContextClassLoader();
-            if (classLoader == null) {
-                continue;
-            }
-            if (scannedClassLoader.add(classLoader)) {
-                JvmClassLoaderInfo info = JvmClassLoaderInfo.create(classLoader.hashCode()).setName(classLoader.getClass().getName());
-
-                ClassLoader parent = classLoader.getParent();
-                while (parent != null) {
-                    info.addParents(parent.getClass().getName());
-                    parent = parent.getParent();
-                }
-
-                list.add(info);
-            }
-        }
-        return list;
+        return JvmmFactory.getClassLoaderRegistry().getClassLoaderInfos();
     }
 
     /**
@@ -205,18 +161,6 @@ public final class Unsafe {
      * @return {@link ClassLoader}实例
      */
     public static ClassLoader getClassLoader(int hash) {
-        if (hash == 0) {
-            return null;
-        }
-        for (Thread thread : getThreads()) {
-            ClassLoader classLoader = thread.getContextClassLoader();
-            if (classLoader == null) {
-                continue;
-            }
-            if (classLoader.hashCode() == hash) {
-                return classLoader;
-            }
-        }
-        return null;
+        return JvmmFactory.getClassLoaderRegistry().getClassLoader(hash);
     }
 }
@@ -50,10 +50,30 @@ public enum CollectionType {
      * support prometheus
      */
     jvm_gc,
+    /**
+     * support prometheus
+     */
+    jvm_gc_pause,
+    /**
+     * support prometheus
+     */
+    jvm_perf,
+    /**
+     * support prometheus
+     */
+    jvm_native_memory,
+    /**
+     * 相对首次采集增长最快的类，只统计存活对象，每次采集会触发一次 Full GC
+     */
+    jvm_class_histogram,
     /**
      * support prometheus
      */
     jvm_memory,
+    /**
+     * support prometheus
+     */
+    jvm_buffer_pool,
     jvm_memory_manager,
     /**
      * support prometheus
@@ -65,5 +85,17 @@ public enum CollectionType {
     jvm_thread,
     jvm_thread_stack,
     jvm_thread_detail,
-    jvm_thread_pool;
+    jvm_thread_pool,
+    /**
+     * 最近一个窗口内 CPU 占用最高的线程，需开启后台线程采样器才能立即返回
+     */
+    jvm_thread_cpu_top,
+    /**
+     * support prometheus
+     */
+    jvm_thread_allocation,
+    /**
+     * 锁竞争热点和等待关系，需开启后台锁竞争采样器才能立即返回
+     */
+    jvm_lock_contention;
 }
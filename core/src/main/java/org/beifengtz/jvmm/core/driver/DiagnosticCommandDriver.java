@@ -0,0 +1,84 @@
+package org.beifengtz.jvmm.core.driver;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * <p>
+ * Description: 通过 com.sun.management:type=DiagnosticCommand MBean 在当前进程内执行 jcmd 诊断命令，
+ * 不需要 Attach API 和 tools.jar，也不会产生子进程。
+ * </p>
+ * <p>
+ * 诊断命令对应的 MBean 操作名为命令名去掉 '.' 和 '_' 后的驼峰形式，例如 VM.native_memory 对应 vmNativeMemory，
+ * GC.class_histogram 对应 gcClassHistogram。
+ * </p>
+ * <p>
+ * Created in 10:20 2023/10/21
+ *
+ * @author beifengtz
+ */
+public class DiagnosticCommandDriver {
+
+    private static final String DIAGNOSTIC_COMMAND_MBEAN = "com.sun.management:type=DiagnosticCommand";
+    private static final String[] SIGNATURE = {String[].class.getName()};
+
+    private static volatile DiagnosticCommandDriver INSTANCE;
+
+    private final MBeanServer server;
+    private final ObjectName name;
+
+    private DiagnosticCommandDriver() throws Exception {
+        server = ManagementFactory.getPlatformMBeanServer();
+        name = new ObjectName(DIAGNOSTIC_COMMAND_MBEAN);
+        if (!server.isRegistered(name)) {
+            throw new UnsupportedOperationException("Current JVM does not support DiagnosticCommand MBean");
+        }
+    }
+
+    public static DiagnosticCommandDriver get() throws Exception {
+        if (INSTANCE == null) {
+            synchronized (DiagnosticCommandDriver.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DiagnosticCommandDriver();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * 执行诊断命令
+     *
+     * @param operation MBean 操作名，例如 vmNativeMemory
+     * @param args      命令参数，例如 summary、scale=KB
+     * @return 命令输出文本
+     * @throws Exception 命令不存在或执行失败
+     */
+    public String execute(String operation, String... args) throws Exception {
+        Object result = server.invoke(name, operation, new Object[]{args}, SIGNATURE);
+        return result == null ? "" : result.toString();
+    }
+
+    /**
+     * 执行 VM.native_memory 命令
+     *
+     * @param args 命令参数，例如 summary、scale=KB
+     * @return 命令输出文本，未开启 NMT 时返回 "Native memory tracking is not enabled"
+     * @throws Exception 执行失败
+     */
+    public String vmNativeMemory(String... args) throws Exception {
+        return execute("vmNativeMemory", args);
+    }
+
+    /**
+     * 执行 GC.class_histogram 命令，不带 -all 参数时会先触发一次 Full GC 只统计存活对象
+     *
+     * @param args 命令参数，例如 -all
+     * @return 命令输出文本
+     * @throws Exception 执行失败
+     */
+    public String gcClassHistogram(String... args) throws Exception {
+        return execute("gcClassHistogram", args);
+    }
+}
@@ -1,5 +1,10 @@
 package org.beifengtz.jvmm.core.driver;
 
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.procfs.MemInfo;
+import org.beifengtz.jvmm.common.procfs.ProcFs;
+import org.beifengtz.jvmm.common.procfs.ProcNetStat;
 import org.beifengtz.jvmm.common.util.ExecuteNativeUtil;
 import org.beifengtz.jvmm.core.entity.info.CPUInfo;
 import org.beifengtz.jvmm.core.entity.info.DiskIOInfo;
@@ -19,9 +24,12 @@ import oshi.software.os.FileSystem;
 import oshi.software.os.InternetProtocolStats;
 import oshi.software.os.InternetProtocolStats.IPConnection;
 import oshi.software.os.InternetProtocolStats.TcpState;
+import oshi.software.os.InternetProtocolStats.TcpStats;
+import oshi.software.os.InternetProtocolStats.UdpStats;
 import oshi.software.os.OSFileStore;
 import oshi.software.os.OperatingSystem;
 
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -41,9 +49,11 @@ import java.util.concurrent.TimeUnit;
  */
 public final class OSDriver {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(OSDriver.class);
     private static volatile OSDriver INSTANCE;
     private static final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
     private final SystemInfo si;
+    private final OSRateSampler rateSampler;
 
     static {
         Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdown));
@@ -52,6 +62,7 @@ public final class OSDriver {
     private OSDriver() {
         System.setProperty("oshi.os.windows.loadaverage", "true");
         si = new SystemInfo();
+        rateSampler = new OSRateSampler(si, executor);
     }
 
     public static OSDriver get() {
@@ -65,6 +76,38 @@ public final class OSDriver {
         return INSTANCE;
     }
 
+    /**
+     * 开启后台速率采样，开启后 CPU、网卡、磁盘IO 的速率直接从最近的采样窗口中计算，不再需要每次等待1秒
+     *
+     * @param window 速率计算的窗口长度，单位秒，最大为 {@link OSRateSampler#MAX_WINDOW}
+     */
+    public void startRateSampler(int window) {
+        rateSampler.start(window);
+    }
+
+    public void stopRateSampler() {
+        rateSampler.stop();
+    }
+
+    public OSRateSampler getRateSampler() {
+        return rateSampler;
+    }
+
+    /**
+     * 获取可同时计算 CPU、网卡、磁盘IO 速率的窗口，开启后台采样时直接使用最近的窗口，否则等待1秒采集一个新的窗口
+     *
+     * @return {@link OSRateSampler.RateWindow} future
+     */
+    public CompletableFuture<OSRateSampler.RateWindow> getRateWindow() {
+        if (rateSampler.isReady()) {
+            OSRateSampler.RateWindow window = rateSampler.getLatestWindow();
+            if (window != null) {
+                return CompletableFuture.completedFuture(window);
+            }
+        }
+        return rateSampler.sampleWindow();
+    }
+
     public List<DiskInfo> getDiskInfo() {
         List<HWDiskStore> hwDisks = si.getHardware().getDiskStores();
         List<DiskInfo> disks = new ArrayList<>(hwDisks.size());
@@ -92,6 +135,12 @@ public final class OSDriver {
      * @return {@link DiskIOInfo} list future
      */
     public CompletableFuture<List<DiskIOInfo>> getDiskIOInfo() {
+        if (rateSampler.isReady()) {
+            List<DiskIOInfo> disks = rateSampler.getDiskIOInfos(null);
+            if (disks != null) {
+                return CompletableFuture.completedFuture(disks);
+            }
+        }
         List<HWDiskStore> preHwDisks = si.getHardware().getDiskStores();
         CompletableFuture<List<DiskIOInfo>> future = new CompletableFuture<>();
         executor.schedule(() -> {
@@ -128,6 +177,12 @@ public final class OSDriver {
      * @return 计算完成时返回 {@link DiskIOInfo} 信息，如果未找到对应磁盘名返回null
      */
     public CompletableFuture<DiskIOInfo> getDiskIOInfo(String name) {
+        if (rateSampler.isReady()) {
+            List<DiskIOInfo> disks = rateSampler.getDiskIOInfos(name);
+            if (disks != null) {
+                return CompletableFuture.completedFuture(disks.isEmpty() ? null : disks.get(0));
+            }
+        }
         List<HWDiskStore> hwDisks = si.getHardware().getDiskStores();
         HWDiskStore pre = hwDisks.stream().filter(o -> o.getName().contains(name)).findAny().orElse(null);
         if (pre == null) {
@@ -187,33 +242,18 @@ public final class OSDriver {
      * @return {@link CPUInfo} of {@link CompletableFuture}
      */
     public CompletableFuture<CPUInfo> getCPUInfo() {
+        if (rateSampler.isReady()) {
+            CPUInfo info = rateSampler.getCPUInfo();
+            if (info != null) {
+                return CompletableFuture.completedFuture(info);
+            }
+        }
         CentralProcessor processor = si.getHardware().getProcessor();
         long[] prevTicks = processor.getSystemCpuLoadTicks();
         CompletableFuture<CPUInfo> future = new CompletableFuture<>();
         executor.schedule(() -> {
             try {
-                long[] ticks = processor.getSystemCpuLoadTicks();
-
-                long nice = ticks[TickType.NICE.getIndex()] - prevTicks[TickType.NICE.getIndex()];
-                long irq = ticks[TickType.IRQ.getIndex()] - prevTicks[TickType.IRQ.getIndex()];
-                long softIrq = ticks[TickType.SOFTIRQ.getIndex()] - prevTicks[TickType.SOFTIRQ.getIndex()];
-                long steal = ticks[TickType.STEAL.getIndex()] - prevTicks[TickType.STEAL.getIndex()];
-                long sys = ticks[TickType.SYSTEM.getIndex()] - prevTicks[TickType.SYSTEM.getIndex()];
-                long user = ticks[TickType.USER.getIndex()] - prevTicks[TickType.USER.getIndex()];
-                long ioWait = ticks[TickType.IOWAIT.getIndex()] - prevTicks[TickType.IOWAIT.getIndex()];
-                long idle = ticks[TickType.IDLE.getIndex()] - prevTicks[TickType.IDLE.getIndex()];
-
-                long total = nice + irq + softIrq + steal + sys + user + ioWait + idle;
-                if (total == 0) {
-                    total = 1;
-                }
-
-                future.complete(CPUInfo.create()
-                        .setCpuNum(processor.getLogicalProcessorCount())
-                        .setSys((double) sys / total)
-                        .setUser((double) user / total)
-                        .setIoWait((double) ioWait / total)
-                        .setIdle((double) idle / total));
+                future.complete(calculateCPUInfo(processor, prevTicks, processor.getSystemCpuLoadTicks()));
             } catch (Throwable t) {
                 future.completeExceptionally(t);
             }
@@ -221,6 +261,29 @@ public final class OSDriver {
         return future;
     }
 
+    static CPUInfo calculateCPUInfo(CentralProcessor processor, long[] prevTicks, long[] ticks) {
+        long nice = ticks[TickType.NICE.getIndex()] - prevTicks[TickType.NICE.getIndex()];
+        long irq = ticks[TickType.IRQ.getIndex()] - prevTicks[TickType.IRQ.getIndex()];
+        long softIrq = ticks[TickType.SOFTIRQ.getIndex()] - prevTicks[TickType.SOFTIRQ.getIndex()];
+        long steal = ticks[TickType.STEAL.getIndex()] - prevTicks[TickType.STEAL.getIndex()];
+        long sys = ticks[TickType.SYSTEM.getIndex()] - prevTicks[TickType.SYSTEM.getIndex()];
+        long user = ticks[TickType.USER.getIndex()] - prevTicks[TickType.USER.getIndex()];
+        long ioWait = ticks[TickType.IOWAIT.getIndex()] - prevTicks[TickType.IOWAIT.getIndex()];
+        long idle = ticks[TickType.IDLE.getIndex()] - prevTicks[TickType.IDLE.getIndex()];
+
+        long total = nice + irq + softIrq + steal + sys + user + ioWait + idle;
+        if (total == 0) {
+            total = 1;
+        }
+
+        return CPUInfo.create()
+                .setCpuNum(processor.getLogicalProcessorCount())
+                .setSys((double) sys / total)
+                .setUser((double) user / total)
+                .setIoWait((double) ioWait / total)
+                .setIdle((double) idle / total);
+    }
+
     /**
      * @return 一分钟内的CPU平均负载，如果无效返回负数
      */
@@ -235,8 +298,22 @@ public final class OSDriver {
      * @return {@link LinuxMemResult}
      */
     public LinuxMemResult getLinuxMemoryInfo() {
-        List<String> results = ExecuteNativeUtil.execute("free -b");
         LinuxMemResult result = new LinuxMemResult();
+        if (ProcFs.isSupported()) {
+            try {
+                MemInfo memInfo = ProcFs.readMemInfo();
+                result.setTotal(memInfo.getTotal())
+                        .setUsed(memInfo.getUsed())
+                        .setFree(memInfo.getFree())
+                        .setShared(memInfo.getShmem())
+                        .setBuffCache(memInfo.getBuffCache())
+                        .setAvailable(memInfo.getAvailable());
+                return result;
+            } catch (IOException e) {
+                logger.debug("Read /proc/meminfo failed, fallback to 'free' command: {}", e.getMessage());
+            }
+        }
+        List<String> results = ExecuteNativeUtil.execute("free -b");
         if (results.size() > 1) {
             String[] split = results.get(1).split("\\s+");
             if (split.length > 6) {
@@ -252,11 +329,86 @@ public final class OSDriver {
     }
 
     /**
-     * 获取网卡信息，包含连接数、TCP和UDP在IPv4和IPv6连接信息、各个网卡信息（mac地址、状态、上下行速度）
-     *
-     * @return {@link NetInfo} of {@link CompletableFuture}
+     * 流式扫描 /proc/net 汇总连接数和协议计数，连接数量很大时也不会为每个连接创建对象，也不需要 fork netstat 子进程
      */
-    public CompletableFuture<NetInfo> getNetInfo() {
+    private NetInfo getNetInfoFromProcFs() throws IOException {
+        ProcNetStat stat = ProcFs.readNetStat();
+        NetInfo info = NetInfo.create()
+                .setConnections(stat.getConnections())
+                .setTcpV4Connections(stat.getTcpV4Connections())
+                .setTcpV6Connections(stat.getTcpV6Connections())
+                .setUdpV4Connections(stat.getUdpV4Connections())
+                .setUdpV6Connections(stat.getUdpV6Connections())
+                .setTcpV4(new TcpStats(stat.getCurrEstab(), stat.getActiveOpens(), stat.getPassiveOpens(),
+                        stat.getAttemptFails(), stat.getEstabResets(), stat.getOutSegs(), stat.getInSegs(),
+                        stat.getRetransSegs(), stat.getInErrs(), stat.getOutRsts()))
+                //  Linux 的 TCP 计数不区分 IPv4 和 IPv6，与 oshi 保持一致 IPv6 部分为0
+                .setTcpV6(new TcpStats(0, 0, 0, 0, 0, 0, 0, 0, 0, 0))
+                .setUdpV4(new UdpStats(stat.getUdpOutDatagrams(), stat.getUdpInDatagrams(), stat.getUdpNoPorts(), stat.getUdpInErrors()))
+                .setUdpV6(new UdpStats(stat.getUdp6OutDatagrams(), stat.getUdp6InDatagrams(), stat.getUdp6NoPorts(), stat.getUdp6InErrors()))
+                .setSockets(stat.getSocketsUsed())
+                .setTcpInUse(stat.getTcpInUse() + stat.getTcp6InUse())
+                .setTcpOrphan(stat.getTcpOrphan())
+                .setTcpTimeWait(stat.getTcpTimeWait())
+                .setUdpInUse(stat.getUdpInUse() + stat.getUdp6InUse());
+
+        Map<TcpState, Integer> tcpStateConnections = info.getTcpStateConnections();
+        for (int state = 0; state < ProcNetStat.TCP_MAX_STATES; state++) {
+            long count = stat.getTcpStateCount(state);
+            if (count > 0) {
+                tcpStateConnections.merge(toTcpState(state), (int) count, Integer::sum);
+            }
+        }
+        long udp = stat.getUdpV4Connections() + stat.getUdpV6Connections();
+        if (udp > 0) {
+            //  与 oshi 一致，UDP socket 的状态记为 NONE
+            tcpStateConnections.merge(TcpState.NONE, (int) udp, Integer::sum);
+        }
+        return info;
+    }
+
+    private static TcpState toTcpState(int state) {
+        switch (state) {
+            case ProcNetStat.TCP_ESTABLISHED:
+                return TcpState.ESTABLISHED;
+            case ProcNetStat.TCP_SYN_SENT:
+                return TcpState.SYN_SENT;
+            case ProcNetStat.TCP_SYN_RECV:
+            case ProcNetStat.TCP_NEW_SYN_RECV:
+                return TcpState.SYN_RECV;
+            case ProcNetStat.TCP_FIN_WAIT1:
+                return TcpState.FIN_WAIT_1;
+            case ProcNetStat.TCP_FIN_WAIT2:
+                return TcpState.FIN_WAIT_2;
+            case ProcNetStat.TCP_TIME_WAIT:
+                return TcpState.TIME_WAIT;
+            case ProcNetStat.TCP_CLOSE:
+                return TcpState.CLOSED;
+            case ProcNetStat.TCP_CLOSE_WAIT:
+                return TcpState.CLOSE_WAIT;
+            case ProcNetStat.TCP_LAST_ACK:
+                return TcpState.LAST_ACK;
+            case ProcNetStat.TCP_LISTEN:
+                return TcpState.LISTEN;
+            case ProcNetStat.TCP_CLOSING:
+                return TcpState.CLOSING;
+            default:
+                return TcpState.UNKNOWN;
+        }
+    }
+
+    private NetInfo getConnectionInfo() {
+        if (ProcFs.isSupported()) {
+            try {
+                return getNetInfoFromProcFs();
+            } catch (IOException e) {
+                logger.debug("Read /proc/net failed, fallback to oshi: {}", e.getMessage());
+            }
+        }
+        return getNetInfoFromOshi();
+    }
+
+    private NetInfo getNetInfoFromOshi() {
         OperatingSystem os = si.getOperatingSystem();
         InternetProtocolStats ips = os.getInternetProtocolStats();
         List<IPConnection> connections = ips.getConnections();
@@ -299,6 +451,37 @@ public final class OSDriver {
         info.setTcpV6Connections(tcpV6);
         info.setUdpV4Connections(udpV4);
         info.setUdpV6Connections(udpV6);
+        return info;
+    }
+
+    /**
+     * 根据已有的速率窗口获取网络信息
+     *
+     * @param window {@link #getRateWindow()} 得到的速率窗口
+     * @return {@link NetInfo}
+     */
+    public NetInfo getNetInfo(OSRateSampler.RateWindow window) {
+        NetInfo info = getConnectionInfo();
+        window.getNetworkIFInfos().forEach(info::addNetworkIFInfo);
+        return info;
+    }
+
+    /**
+     * 获取网卡信息，包含连接数、TCP和UDP在IPv4和IPv6连接信息、各个网卡信息（mac地址、状态、上下行速度）
+     *
+     * @return {@link NetInfo} of {@link CompletableFuture}
+     */
+    public CompletableFuture<NetInfo> getNetInfo() {
+        NetInfo info = getConnectionInfo();
+
+        if (rateSampler.isReady()) {
+            List<NetworkIFInfo> ifInfos = rateSampler.getNetworkIFInfos();
+            if (ifInfos != null) {
+                ifInfos.forEach(info::addNetworkIFInfo);
+                return CompletableFuture.completedFuture(info);
+            }
+        }
+
         List<NetworkIF> networkIFs = si.getHardware().getNetworkIFs();
         Map<String, NetworkIF> networkIFMap = new HashMap<>(networkIFs.size());
         for (NetworkIF networkIF : networkIFs) {
@@ -0,0 +1,345 @@
+package org.beifengtz.jvmm.core.driver;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.core.entity.info.CPUInfo;
+import org.beifengtz.jvmm.core.entity.info.DiskIOInfo;
+import org.beifengtz.jvmm.core.entity.info.NetInfo.NetworkIFInfo;
+import oshi.SystemInfo;
+import oshi.hardware.CentralProcessor;
+import oshi.hardware.CentralProcessor.TickType;
+import oshi.hardware.HWDiskStore;
+import oshi.hardware.NetworkIF;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 常驻后台的速率采样器，每秒采集一次CPU ticks、网卡和磁盘的累计计数，保存在一个定长环形缓冲区中。
+ * 调用方直接读取最近一个窗口（1s/5s/60s等）内的速率，无需再等待1秒，并发请求共享同一份采样结果。
+ * <p>
+ * 采样只由一个线程写入，读取方通过 volatile 的采样计数获取可见性，不需要加锁。
+ * <p>
+ * 未开启后台采样时可以通过 {@link #sampleWindow()} 一次性采集一个1秒的窗口，CPU、网卡、磁盘IO 共用这一个窗口。
+ * <p>
+ * date 10:21 2023/10/18
+ *
+ * @author beifengtz
+ */
+public final class OSRateSampler {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(OSRateSampler.class);
+
+    /**
+     * 支持的最大窗口长度，单位秒
+     */
+    public static final int MAX_WINDOW = 60;
+    /**
+     * 网卡、磁盘列表重新枚举的周期（采样次数），用于发现新增的设备
+     */
+    private static final int REFRESH_DEVICES_TICKS = 60;
+    /**
+     * 多留两个槽位，保证读取窗口起点时不会与正在写入的槽位重叠
+     */
+    private static final int CAPACITY = MAX_WINDOW + 2;
+
+    private final SystemInfo si;
+    private final ScheduledExecutorService executor;
+    private final Snapshot[] ring = new Snapshot[CAPACITY];
+    private volatile long count = 0;
+    private volatile int window = 1;
+
+    private ScheduledFuture<?> task;
+    private List<NetworkIF> networkIFs;
+    private List<HWDiskStore> diskStores;
+
+    OSRateSampler(SystemInfo si, ScheduledExecutorService executor) {
+        this.si = si;
+        this.executor = executor;
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null && !task.isDone();
+    }
+
+    /**
+     * 启动采样器，如果已经启动仅修改窗口长度
+     *
+     * @param window 速率计算窗口，单位秒，范围 [1, {@link #MAX_WINDOW}]
+     */
+    public synchronized void start(int window) {
+        setWindow(window);
+        if (isRunning()) {
+            return;
+        }
+        count = 0;
+        networkIFs = null;
+        diskStores = null;
+        task = executor.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+        logger.debug("OS rate sampler started with window {}s", this.window);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            logger.debug("OS rate sampler stopped");
+        }
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = Math.max(1, Math.min(MAX_WINDOW, window));
+    }
+
+    /**
+     * 采样器是否已经积累了至少两次采样，可以计算出速率
+     */
+    public boolean isReady() {
+        return isRunning() && count > 1;
+    }
+
+    private void sample() {
+        try {
+            long c = count;
+            if (c % REFRESH_DEVICES_TICKS == 0 || networkIFs == null || diskStores == null) {
+                networkIFs = si.getHardware().getNetworkIFs();
+                diskStores = si.getHardware().getDiskStores();
+            } else {
+                for (NetworkIF nif : networkIFs) {
+                    nif.updateAttributes();
+                }
+                for (HWDiskStore disk : diskStores) {
+                    disk.updateAttributes();
+                }
+            }
+
+            ring[(int) (c % CAPACITY)] = snapshot(networkIFs, diskStores);
+            count = c + 1;
+        } catch (Throwable t) {
+            logger.warn("OS rate sampler sample failed: " + t.getMessage(), t);
+        }
+    }
+
+    private Snapshot snapshot(List<NetworkIF> networkIFs, List<HWDiskStore> diskStores) {
+        Snapshot snapshot = new Snapshot(System.nanoTime(), si.getHardware().getProcessor().getSystemCpuLoadTicks(),
+                networkIFs.size(), diskStores.size());
+        for (NetworkIF nif : networkIFs) {
+            snapshot.netIFs.put(nif.getName(), new NetIFSample(nif));
+        }
+        for (HWDiskStore disk : diskStores) {
+            snapshot.disks.put(disk.getName(), new DiskSample(disk));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return 后台采样的最近一个窗口，采样不足两次时返回null
+     */
+    public RateWindow getLatestWindow() {
+        long c = count;
+        if (c < 2) {
+            return null;
+        }
+        long last = c - 1;
+        long first = Math.max(0, last - window);
+        Snapshot end = ring[(int) (last % CAPACITY)];
+        Snapshot begin = ring[(int) (first % CAPACITY)];
+        if (end == null || begin == null || end.nanoTime <= begin.nanoTime) {
+            return null;
+        }
+        return new RateWindow(si.getHardware().getProcessor(), begin, end);
+    }
+
+    /**
+     * 不依赖后台采样，立即采样一次并在1秒后再采样一次，得到的窗口可同时计算 CPU、网卡、磁盘IO 的速率
+     *
+     * @return 1秒后完成的 {@link RateWindow}
+     */
+    public CompletableFuture<RateWindow> sampleWindow() {
+        CompletableFuture<RateWindow> future = new CompletableFuture<>();
+        try {
+            List<NetworkIF> nifs = si.getHardware().getNetworkIFs();
+            List<HWDiskStore> disks = si.getHardware().getDiskStores();
+            Snapshot begin = snapshot(nifs, disks);
+            executor.schedule(() -> {
+                try {
+                    for (NetworkIF nif : nifs) {
+                        nif.updateAttributes();
+                    }
+                    for (HWDiskStore disk : disks) {
+                        disk.updateAttributes();
+                    }
+                    future.complete(new RateWindow(si.getHardware().getProcessor(), begin, snapshot(nifs, disks)));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }, 1, TimeUnit.SECONDS);
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+
+    /**
+     * @return 最近窗口内的CPU使用率，采样不足时返回null
+     */
+    public CPUInfo getCPUInfo() {
+        RateWindow w = getLatestWindow();
+        return w == null ? null : w.getCPUInfo();
+    }
+
+    /**
+     * @return 最近窗口内各个网卡的速率信息，采样不足时返回null
+     */
+    public List<NetworkIFInfo> getNetworkIFInfos() {
+        RateWindow w = getLatestWindow();
+        return w == null ? null : w.getNetworkIFInfos();
+    }
+
+    /**
+     * @param name 磁盘名，为null时返回所有磁盘
+     * @return 最近窗口内磁盘IO速率信息，采样不足时返回null
+     */
+    public List<DiskIOInfo> getDiskIOInfos(String name) {
+        RateWindow w = getLatestWindow();
+        return w == null ? null : w.getDiskIOInfos(name);
+    }
+
+    /**
+     * 由起止两次采样组成的速率窗口
+     */
+    public static final class RateWindow {
+        private final CentralProcessor processor;
+        private final Snapshot begin;
+        private final Snapshot end;
+
+        private RateWindow(CentralProcessor processor, Snapshot begin, Snapshot end) {
+            this.processor = processor;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        public CPUInfo getCPUInfo() {
+            return OSDriver.calculateCPUInfo(processor, begin.cpuTicks, end.cpuTicks);
+        }
+
+        public List<NetworkIFInfo> getNetworkIFInfos() {
+            double seconds = begin.secondsTo(end);
+            List<NetworkIFInfo> infos = new ArrayList<>(end.netIFs.size());
+            for (NetIFSample cur : end.netIFs.values()) {
+                NetIFSample pre = begin.netIFs.get(cur.name);
+                if (pre == null) continue;
+                infos.add(NetworkIFInfo.create()
+                        .setName(cur.name)
+                        .setAlias(cur.alias)
+                        .setMtu(cur.mtu)
+                        .setMac(cur.mac)
+                        .setStatus(cur.status)
+                        .setIpV4(cur.ipV4)
+                        .setIpV6(cur.ipV6)
+                        .setRecvBytes(cur.recvBytes)
+                        .setRecvCount(cur.recvCount)
+                        .setSentBytes(cur.sentBytes)
+                        .setSentCount(cur.sentCount)
+                        .setRecvBytesPerSecond((cur.recvBytes - pre.recvBytes) / seconds)
+                        .setSentBytesPerSecond((cur.sentBytes - pre.sentBytes) / seconds));
+            }
+            return infos;
+        }
+
+        /**
+         * @param name 磁盘名，为null时返回所有磁盘
+         */
+        public List<DiskIOInfo> getDiskIOInfos(String name) {
+            double seconds = begin.secondsTo(end);
+            List<DiskIOInfo> infos = new ArrayList<>(end.disks.size());
+            for (DiskSample cur : end.disks.values()) {
+                if (name != null && !cur.name.contains(name)) continue;
+                DiskSample pre = begin.disks.get(cur.name);
+                if (pre == null) continue;
+                infos.add(DiskIOInfo.create()
+                        .setName(cur.name.replaceAll("\\\\|\\.", ""))
+                        .setCurrentQueueLength(cur.queueLength)
+                        .setReadPerSecond((cur.reads - pre.reads) / seconds)
+                        .setReadBytesPerSecond((cur.readBytes - pre.readBytes) / seconds)
+                        .setWritePerSecond((cur.writes - pre.writes) / seconds)
+                        .setWriteBytesPerSecond((cur.writeBytes - pre.writeBytes) / seconds));
+            }
+            return infos;
+        }
+    }
+
+    private static final class Snapshot {
+        private final long nanoTime;
+        private final long[] cpuTicks;
+        private final Map<String, NetIFSample> netIFs;
+        private final Map<String, DiskSample> disks;
+
+        private Snapshot(long nanoTime, long[] cpuTicks, int netIFSize, int diskSize) {
+            this.nanoTime = nanoTime;
+            this.cpuTicks = cpuTicks;
+            this.netIFs = new HashMap<>(netIFSize * 2);
+            this.disks = new HashMap<>(diskSize * 2);
+        }
+
+        private double secondsTo(Snapshot next) {
+            return (next.nanoTime - nanoTime) / 1e9;
+        }
+    }
+
+    private static final class NetIFSample {
+        private final String name;
+        private final String alias;
+        private final long mtu;
+        private final String mac;
+        private final String status;
+        private final String[] ipV4;
+        private final String[] ipV6;
+        private final long recvBytes;
+        private final long recvCount;
+        private final long sentBytes;
+        private final long sentCount;
+
+        private NetIFSample(NetworkIF nif) {
+            this.name = nif.getName();
+            this.alias = nif.getIfAlias();
+            this.mtu = nif.getMTU();
+            this.mac = nif.getMacaddr();
+            this.status = nif.getIfOperStatus().toString();
+            this.ipV4 = nif.getIPv4addr();
+            this.ipV6 = nif.getIPv6addr();
+            this.recvBytes = nif.getBytesRecv();
+            this.recvCount = nif.getPacketsRecv();
+            this.sentBytes = nif.getBytesSent();
+            this.sentCount = nif.getPacketsSent();
+        }
+    }
+
+    private static final class DiskSample {
+        private final String name;
+        private final long queueLength;
+        private final long reads;
+        private final long readBytes;
+        private final long writes;
+        private final long writeBytes;
+
+        private DiskSample(HWDiskStore disk) {
+            this.name = disk.getName();
+            this.queueLength = disk.getCurrentQueueLength();
+            this.reads = disk.getReads();
+            this.readBytes = disk.getReadBytes();
+            this.writes = disk.getWrites();
+            this.writeBytes = disk.getWriteBytes();
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package org.beifengtz.jvmm.core.driver;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.util.PidUtil;
+import org.beifengtz.jvmm.common.util.PlatformUtil;
+import org.beifengtz.jvmm.core.entity.info.JvmPerfInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmPerfInfo.GenerationInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * Description: HotSpot jvmstat 性能计数器（hsperfdata）读取驱动。
+ * </p>
+ * <p>
+ * HotSpot 会把数百个性能计数器（safepoint次数与耗时、类加载耗时、JIT统计、各代容量等）发布在
+ * {@code <tmpdir>/hsperfdata_<user>/<pid>} 文件中，jstat 就是读取该文件实现的。
+ * 当前 JVM 的文件通过 {@link java.nio.MappedByteBuffer} 只读映射，首次打开时扫描一遍条目建立 名称 -> 偏移 索引，
+ * 之后通过 {@link Counter} 直接按偏移读取内存中的值，每次采样只有几次内存读，不经过 JMX 也不产生对象分配。
+ * </p>
+ * <p>
+ * 其他本地 JVM 的文件每次读取一份快照到堆内存中解析，避免映射无法主动释放。
+ * 目标 JVM 使用了 -XX:-UsePerfData 或 -XX:+PerfDisableSharedMem 时文件不存在，打开会抛出 {@link IOException}。
+ * </p>
+ * <p>
+ * Created in 10:20 2023/10/19
+ *
+ * @author beifengtz
+ */
+public final class PerfDataDriver {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(PerfDataDriver.class);
+
+    private static final int MAGIC = 0xcafec0c0;
+    private static final byte BYTE_ORDER_LITTLE_ENDIAN = 1;
+
+    /**
+     * PerfDataPrologue 字段偏移
+     */
+    private static final int PROLOGUE_BYTE_ORDER = 4;
+    private static final int PROLOGUE_MAJOR_VERSION = 5;
+    private static final int PROLOGUE_ACCESSIBLE = 7;
+    private static final int PROLOGUE_USED = 8;
+    private static final int PROLOGUE_ENTRY_OFFSET = 24;
+    private static final int PROLOGUE_NUM_ENTRIES = 28;
+
+    /**
+     * PerfDataEntry 字段偏移
+     */
+    private static final int ENTRY_LENGTH = 0;
+    private static final int ENTRY_NAME_OFFSET = 4;
+    private static final int ENTRY_VECTOR_LENGTH = 8;
+    private static final int ENTRY_DATA_TYPE = 12;
+    private static final int ENTRY_DATA_UNITS = 14;
+    private static final int ENTRY_DATA_VARIABILITY = 15;
+    private static final int ENTRY_DATA_OFFSET = 16;
+
+    public static final int UNITS_NONE = 1;
+    public static final int UNITS_BYTES = 2;
+    public static final int UNITS_TICKS = 3;
+    public static final int UNITS_EVENTS = 4;
+    public static final int UNITS_STRING = 5;
+    public static final int UNITS_HERTZ = 6;
+
+    public static final int VARIABILITY_CONSTANT = 1;
+    public static final int VARIABILITY_MONOTONIC = 2;
+    public static final int VARIABILITY_VARIABLE = 3;
+
+    private static final String HRT_FREQUENCY = "sun.os.hrt.frequency";
+
+    private static volatile PerfDataDriver SELF;
+
+    private final long pid;
+    private final ByteBuffer buffer;
+    private final Map<String, Counter> index = new HashMap<>();
+    /**
+     * 下一个待索引条目的位置及已索引数量，JVM 运行过程中会追加新的计数器
+     */
+    private int nextEntry;
+    private int indexedEntries;
+    private final long hrtFrequency;
+    private volatile PerfCounters perfCounters;
+
+    private PerfDataDriver(long pid, ByteBuffer buffer) throws IOException {
+        this.pid = pid;
+        if (buffer.limit() < PROLOGUE_NUM_ENTRIES + 4 || buffer.order(ByteOrder.BIG_ENDIAN).getInt(0) != MAGIC) {
+            throw new IOException("Illegal hsperfdata file of process " + pid);
+        }
+        this.buffer = buffer.order(buffer.get(PROLOGUE_BYTE_ORDER) == BYTE_ORDER_LITTLE_ENDIAN
+                ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        if (buffer.get(PROLOGUE_MAJOR_VERSION) < 2) {
+            throw new IOException("Unsupported hsperfdata version " + buffer.get(PROLOGUE_MAJOR_VERSION));
+        }
+        this.nextEntry = buffer.getInt(PROLOGUE_ENTRY_OFFSET);
+        refresh();
+        Counter frequency = index.get(HRT_FREQUENCY);
+        this.hrtFrequency = frequency == null ? 0 : frequency.get();
+    }
+
+    /**
+     * 获取当前 JVM 的计数器驱动，首次调用时映射文件并建立索引
+     *
+     * @return {@link PerfDataDriver}
+     * @throws IOException 当前 JVM 没有发布 hsperfdata
+     */
+    public static PerfDataDriver self() throws IOException {
+        if (SELF == null) {
+            synchronized (PerfDataDriver.class) {
+                if (SELF == null) {
+                    long pid = PidUtil.currentPid();
+                    File file = findFile(pid);
+                    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                        //  映射在 channel 关闭后依然有效
+                        SELF = new PerfDataDriver(pid, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                    }
+                    logger.debug("Mapped hsperfdata {}, {} counters indexed", file, SELF.indexedEntries);
+                }
+            }
+        }
+        return SELF;
+    }
+
+    /**
+     * 打开指定进程的计数器，当前 JVM 返回 {@link #self()}，其他进程读取一份快照
+     *
+     * @param pid 本机 JVM 进程id，小于等于0表示当前 JVM
+     * @return {@link PerfDataDriver}
+     * @throws IOException 进程不存在或没有发布 hsperfdata
+     */
+    public static PerfDataDriver open(long pid) throws IOException {
+        if (pid <= 0 || pid == PidUtil.currentPid()) {
+            return self();
+        }
+        File file = findFile(pid);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return new PerfDataDriver(pid, buffer);
+        }
+    }
+
+    /**
+     * HotSpot 在 Linux 上固定使用 /tmp，忽略 java.io.tmpdir
+     */
+    private static File tmpDir() {
+        return new File(PlatformUtil.isLinux() ? "/tmp" : System.getProperty("java.io.tmpdir"));
+    }
+
+    private static File findFile(long pid) throws IOException {
+        File tmp = tmpDir();
+        File file = new File(tmp, "hsperfdata_" + System.getProperty("user.name") + File.separator + pid);
+        if (file.isFile()) {
+            return file;
+        }
+        File[] dirs = tmp.listFiles((dir, name) -> name.startsWith("hsperfdata_"));
+        if (dirs != null) {
+            for (File dir : dirs) {
+                file = new File(dir, String.valueOf(pid));
+                if (file.isFile()) {
+                    return file;
+                }
+            }
+        }
+        throw new IOException("Can not find hsperfdata of process " + pid + ", maybe -XX:-UsePerfData is set");
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    /**
+     * 索引 JVM 运行期间新追加的条目，已索引的条目不会重复扫描
+     */
+    public synchronized void refresh() {
+        if (buffer.get(PROLOGUE_ACCESSIBLE) == 0) {
+            return;
+        }
+        int numEntries = buffer.getInt(PROLOGUE_NUM_ENTRIES);
+        int used = Math.min(buffer.getInt(PROLOGUE_USED), buffer.limit());
+        while (indexedEntries < numEntries && nextEntry + ENTRY_DATA_OFFSET + 4 <= used) {
+            int start = nextEntry;
+            int length = buffer.getInt(start + ENTRY_LENGTH);
+            if (length <= 0) {
+                break;
+            }
+            Counter counter = new Counter(buffer,
+                    decodeString(buffer, start + buffer.getInt(start + ENTRY_NAME_OFFSET), start + length),
+                    (char) buffer.get(start + ENTRY_DATA_TYPE),
+                    buffer.get(start + ENTRY_DATA_UNITS),
+                    buffer.get(start + ENTRY_DATA_VARIABILITY),
+                    start + buffer.getInt(start + ENTRY_DATA_OFFSET),
+                    buffer.getInt(start + ENTRY_VECTOR_LENGTH));
+            index.put(counter.name, counter);
+            nextEntry = start + length;
+            indexedEntries++;
+        }
+    }
+
+    /**
+     * 解码以 '\0' 结尾的字符串
+     */
+    private static String decodeString(ByteBuffer buffer, int from, int limit) {
+        int end = from;
+        while (end < limit && buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 获取计数器句柄，句柄可以长期持有并反复读取
+     *
+     * @param name 计数器名，例如 sun.rt.safepoints
+     * @return {@link Counter}，不存在时返回null
+     */
+    public Counter getCounter(String name) {
+        Counter counter;
+        synchronized (this) {
+            counter = index.get(name);
+            if (counter == null && indexedEntries < buffer.getInt(PROLOGUE_NUM_ENTRIES)) {
+                refresh();
+                counter = index.get(name);
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * @return long 类型的计数器句柄，不存在或类型不符时返回null
+     */
+    private Counter getLongCounter(String name) {
+        Counter counter = getCounter(name);
+        return counter != null && counter.isLong() ? counter : null;
+    }
+
+    /**
+     * @return 计数器的 long 值，不存在或不是数值类型时返回 defaultValue
+     */
+    public long getLong(String name, long defaultValue) {
+        Counter counter = getLongCounter(name);
+        return counter == null ? defaultValue : counter.get();
+    }
+
+    public String getString(String name) {
+        Counter counter = getCounter(name);
+        return counter == null ? null : counter.getString();
+    }
+
+    /**
+     * 将 {@link #UNITS_TICKS} 单位的计数转换为毫秒
+     */
+    public double ticksToMillis(long ticks) {
+        return hrtFrequency <= 0 ? ticks : ticks * 1000.0 / hrtFrequency;
+    }
+
+    /**
+     * @return tick 计数器换算后的毫秒值，不存在时返回-1
+     */
+    public double getMillis(String name) {
+        long ticks = getLong(name, -1);
+        return ticks < 0 ? -1 : ticksToMillis(ticks);
+    }
+
+    /**
+     * 获取所有名称以 prefix 开头的计数器当前值
+     *
+     * @param prefix 名称前缀，为空时返回全部
+     * @return 按名称排序的 名称 -> 值，值为 {@link Long} 或 {@link String}
+     */
+    public Map<String, Object> getCounters(String prefix) {
+        Map<String, Object> result = new TreeMap<>();
+        synchronized (this) {
+            refresh();
+            for (Counter counter : index.values()) {
+                if (prefix != null && !prefix.isEmpty() && !counter.name.startsWith(prefix)) {
+                    continue;
+                }
+                if (counter.isLong()) {
+                    result.put(counter.name, counter.get());
+                } else if (counter.isString()) {
+                    result.put(counter.name, counter.getString());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取常用计数器，计数器句柄只在首次调用时查找一次
+     *
+     * @return {@link JvmPerfInfo}
+     */
+    public JvmPerfInfo getPerfInfo() {
+        PerfCounters c = perfCounters;
+        if (c == null) {
+            perfCounters = c = new PerfCounters(this);
+        }
+        JvmPerfInfo info = JvmPerfInfo.create()
+                .setPid(pid)
+                .setSafepoints(value(c.safepoints))
+                .setSafepointTime(millis(c.safepointTime))
+                .setSafepointSyncTime(millis(c.safepointSyncTime))
+                .setApplicationTime(millis(c.applicationTime))
+                .setLoadedClasses(value(c.loadedClasses))
+                .setUnloadedClasses(value(c.unloadedClasses))
+                .setClassLoadTime(millis(c.classLoadTime))
+                .setClassInitTime(millis(c.classInitTime))
+                .setClassVerifyTime(millis(c.classVerifyTime))
+                .setClassLinkTime(millis(c.classLinkTime))
+                .setCompileTime(millis(c.compileTime))
+                .setCompiles(value(c.compiles))
+                .setBailouts(value(c.bailouts))
+                .setInvalidates(value(c.invalidates))
+                .setMetaspaceUsed(value(c.metaspaceUsed))
+                .setMetaspaceCapacity(value(c.metaspaceCapacity))
+                .setMetaspaceMaxCapacity(value(c.metaspaceMaxCapacity));
+        for (GenerationCounters gen : c.generations) {
+            long used = 0;
+            for (Counter space : gen.spacesUsed) {
+                used += space.get();
+            }
+            info.getGenerations().add(GenerationInfo.create()
+                    .setName(gen.name)
+                    .setCapacity(value(gen.capacity))
+                    .setMaxCapacity(value(gen.maxCapacity))
+                    .setUsed(used));
+        }
+        return info;
+    }
+
+    private static long value(Counter counter) {
+        return counter == null ? -1 : counter.get();
+    }
+
+    private long millis(Counter counter) {
+        return counter == null ? -1 : (long) ticksToMillis(counter.get());
+    }
+
+    /**
+     * {@link #getPerfInfo()} 用到的计数器句柄，不同 JVM 版本和垃圾回收器发布的计数器不同，不存在的为null
+     */
+    private static final class PerfCounters {
+        private final Counter safepoints;
+        private final Counter safepointTime;
+        private final Counter safepointSyncTime;
+        private final Counter applicationTime;
+        private final Counter loadedClasses;
+        private final Counter unloadedClasses;
+        private final Counter classLoadTime;
+        private final Counter classInitTime;
+        private final Counter classVerifyTime;
+        private final Counter classLinkTime;
+        private final Counter compileTime;
+        private final Counter compiles;
+        private final Counter bailouts;
+        private final Counter invalidates;
+        private final Counter metaspaceUsed;
+        private final Counter metaspaceCapacity;
+        private final Counter metaspaceMaxCapacity;
+        private final List<GenerationCounters> generations = new ArrayList<>();
+
+        private PerfCounters(PerfDataDriver driver) {
+            safepoints = driver.getLongCounter("sun.rt.safepoints");
+            safepointTime = driver.getLongCounter("sun.rt.safepointTime");
+            safepointSyncTime = driver.getLongCounter("sun.rt.safepointSyncTime");
+            applicationTime = driver.getLongCounter("sun.rt.applicationTime");
+            loadedClasses = driver.getLongCounter("java.cls.loadedClasses");
+            unloadedClasses = driver.getLongCounter("java.cls.unloadedClasses");
+            classLoadTime = driver.getLongCounter("sun.cls.time");
+            classInitTime = driver.getLongCounter("sun.cls.classInitTime");
+            classVerifyTime = driver.getLongCounter("sun.cls.classVerifyTime");
+            classLinkTime = driver.getLongCounter("sun.cls.classLinkedTime");
+            compileTime = driver.getLongCounter("java.ci.totalTime");
+            compiles = driver.getLongCounter("sun.ci.totalCompiles");
+            bailouts = driver.getLongCounter("sun.ci.totalBailouts");
+            invalidates = driver.getLongCounter("sun.ci.totalInvalidates");
+            metaspaceUsed = driver.getLongCounter("sun.gc.metaspace.used");
+            metaspaceCapacity = driver.getLongCounter("sun.gc.metaspace.capacity");
+            metaspaceMaxCapacity = driver.getLongCounter("sun.gc.metaspace.maxCapacity");
+            for (int i = 0; ; i++) {
+                String prefix = "sun.gc.generation." + i + ".";
+                String name = driver.getString(prefix + "name");
+                if (name == null) {
+                    break;
+                }
+                GenerationCounters gen = new GenerationCounters(name, driver.getLongCounter(prefix + "capacity"),
+                        driver.getLongCounter(prefix + "maxCapacity"));
+                for (int j = 0; ; j++) {
+                    Counter used = driver.getLongCounter(prefix + "space." + j + ".used");
+                    if (used == null) {
+                        break;
+                    }
+                    gen.spacesUsed.add(used);
+                }
+                generations.add(gen);
+            }
+        }
+    }
+
+    private static final class GenerationCounters {
+        private final String name;
+        private final Counter capacity;
+        private final Counter maxCapacity;
+        private final List<Counter> spacesUsed = new ArrayList<>();
+
+        private GenerationCounters(String name, Counter capacity, Counter maxCapacity) {
+            this.name = name;
+            this.capacity = capacity;
+            this.maxCapacity = maxCapacity;
+        }
+    }
+
+    /**
+     * 单个计数器的句柄，保存了计数器在缓冲区中的位置，读取时不需要再查找
+     */
+    public static final class Counter {
+        private final ByteBuffer buffer;
+        private final String name;
+        private final char type;
+        private final int units;
+        private final int variability;
+        private final int dataOffset;
+        private final int vectorLength;
+
+        private Counter(ByteBuffer buffer, String name, char type, int units, int variability, int dataOffset, int vectorLength) {
+            this.buffer = buffer;
+            this.name = name;
+            this.type = type;
+            this.units = units;
+            this.variability = variability;
+            this.dataOffset = dataOffset;
+            this.vectorLength = vectorLength;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getUnits() {
+            return units;
+        }
+
+        public int getVariability() {
+            return variability;
+        }
+
+        public boolean isLong() {
+            return type == 'J' && vectorLength == 0;
+        }
+
+        public boolean isString() {
+            return type == 'B' && vectorLength > 0;
+        }
+
+        /**
+         * 直接读取缓冲区中的当前值，不产生对象分配
+         */
+        public long get() {
+            return buffer.getLong(dataOffset);
+        }
+
+        public String getString() {
+            if (!isString()) {
+                return isLong() ? String.valueOf(get()) : null;
+            }
+            return decodeString(buffer, dataOffset, dataOffset + vectorLength);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.beifengtz.jvmm.common.JsonParsable;
 import org.beifengtz.jvmm.core.entity.info.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Description: TODO
@@ -28,13 +29,29 @@ public class JvmmData implements JsonParsable {
     private List<JvmClassLoaderInfo> jvmClassLoader;
     private JvmCompilationInfo jvmCompilation;
     private List<JvmGCInfo> jvmGc;
+    private JvmGCPauseInfo jvmGcPause;
+    private JvmPerfInfo jvmPerf;
+    private JvmNativeMemoryInfo jvmNativeMemory;
+    private JvmClassHistogramInfo jvmClassHistogram;
     private JvmMemoryInfo jvmMemory;
+    private JvmBufferPoolInfo jvmBufferPool;
     private List<JvmMemoryManagerInfo> jvmMemoryManager;
     private List<JvmMemoryPoolInfo> jvmMemoryPool;
     private JvmThreadInfo jvmThread;
     private String[] jvmStack;
     private JvmThreadDetailInfo[] jvmThreadDetail;
     private List<ThreadPoolInfo> threadPool;
+    private List<ThreadTimedInfo> jvmThreadCpuTop;
+    private JvmThreadAllocationInfo jvmThreadAllocation;
+    private JvmLockContentionInfo jvmLockContention;
+    /**
+     * 每个采集项的耗时，单位ms
+     */
+    private Map<String, Long> collectCosts;
+    /**
+     * 失败或超时的采集项及原因，对应的数据字段为null
+     */
+    private Map<String, String> collectErrors;
 
     public String getNode() {
         return node;
@@ -162,6 +179,42 @@ public class JvmmData implements JsonParsable {
         return this;
     }
 
+    public JvmGCPauseInfo getJvmGcPause() {
+        return jvmGcPause;
+    }
+
+    public JvmmData setJvmGcPause(JvmGCPauseInfo jvmGcPause) {
+        this.jvmGcPause = jvmGcPause;
+        return this;
+    }
+
+    public JvmPerfInfo getJvmPerf() {
+        return jvmPerf;
+    }
+
+    public JvmmData setJvmPerf(JvmPerfInfo jvmPerf) {
+        this.jvmPerf = jvmPerf;
+        return this;
+    }
+
+    public JvmNativeMemoryInfo getJvmNativeMemory() {
+        return jvmNativeMemory;
+    }
+
+    public JvmmData setJvmNativeMemory(JvmNativeMemoryInfo jvmNativeMemory) {
+        this.jvmNativeMemory = jvmNativeMemory;
+        return this;
+    }
+
+    public JvmClassHistogramInfo getJvmClassHistogram() {
+        return jvmClassHistogram;
+    }
+
+    public JvmmData setJvmClassHistogram(JvmClassHistogramInfo jvmClassHistogram) {
+        this.jvmClassHistogram = jvmClassHistogram;
+        return this;
+    }
+
     public JvmMemoryInfo getJvmMemory() {
         return jvmMemory;
     }
@@ -171,6 +224,15 @@ public class JvmmData implements JsonParsable {
         return this;
     }
 
+    public JvmBufferPoolInfo getJvmBufferPool() {
+        return jvmBufferPool;
+    }
+
+    public JvmmData setJvmBufferPool(JvmBufferPoolInfo jvmBufferPool) {
+        this.jvmBufferPool = jvmBufferPool;
+        return this;
+    }
+
     public List<JvmMemoryManagerInfo> getJvmMemoryManager() {
         return jvmMemoryManager;
     }
@@ -225,6 +287,51 @@ public class JvmmData implements JsonParsable {
         return this;
     }
 
+    public List<ThreadTimedInfo> getJvmThreadCpuTop() {
+        return jvmThreadCpuTop;
+    }
+
+    public JvmmData setJvmThreadCpuTop(List<ThreadTimedInfo> jvmThreadCpuTop) {
+        this.jvmThreadCpuTop = jvmThreadCpuTop;
+        return this;
+    }
+
+    public JvmThreadAllocationInfo getJvmThreadAllocation() {
+        return jvmThreadAllocation;
+    }
+
+    public JvmmData setJvmThreadAllocation(JvmThreadAllocationInfo jvmThreadAllocation) {
+        this.jvmThreadAllocation = jvmThreadAllocation;
+        return this;
+    }
+
+    public JvmLockContentionInfo getJvmLockContention() {
+        return jvmLockContention;
+    }
+
+    public JvmmData setJvmLockContention(JvmLockContentionInfo jvmLockContention) {
+        this.jvmLockContention = jvmLockContention;
+        return this;
+    }
+
+    public Map<String, Long> getCollectCosts() {
+        return collectCosts;
+    }
+
+    public JvmmData setCollectCosts(Map<String, Long> collectCosts) {
+        this.collectCosts = collectCosts;
+        return this;
+    }
+
+    public Map<String, String> getCollectErrors() {
+        return collectErrors;
+    }
+
+    public JvmmData setCollectErrors(Map<String, String> collectErrors) {
+        this.collectErrors = collectErrors;
+        return this;
+    }
+
     @Override
     public String toString() {
         return toJsonStr();
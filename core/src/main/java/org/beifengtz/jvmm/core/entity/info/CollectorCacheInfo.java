@@ -0,0 +1,108 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: 采集结果缓存的配置及命中统计，只包含配置了缓存或已经产生统计的采集项
+ * </p>
+ * <p>
+ * Created in 16:52 2023/10/19
+ *
+ * @author beifengtz
+ */
+public class CollectorCacheInfo implements JsonParsable {
+    private List<CacheItem> items;
+
+    private CollectorCacheInfo() {
+        items = new ArrayList<>();
+    }
+
+    public static CollectorCacheInfo create() {
+        return new CollectorCacheInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public List<CacheItem> getItems() {
+        return items;
+    }
+
+    public CollectorCacheInfo setItems(List<CacheItem> items) {
+        this.items = items;
+        return this;
+    }
+
+    public static class CacheItem implements JsonParsable {
+        /**
+         * 采集项
+         */
+        private String type;
+        /**
+         * 缓存时间，单位ms，0表示不缓存
+         */
+        private long ttl;
+        /**
+         * 命中次数，等待进行中的采集也计为命中
+         */
+        private long hits;
+        /**
+         * 未命中次数，即实际采集次数
+         */
+        private long misses;
+
+        private CacheItem() {
+        }
+
+        public static CacheItem create() {
+            return new CacheItem();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public CacheItem setType(String type) {
+            this.type = type;
+            return this;
+        }
+
+        public long getTtl() {
+            return ttl;
+        }
+
+        public CacheItem setTtl(long ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public CacheItem setHits(long hits) {
+            this.hits = hits;
+            return this;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public CacheItem setMisses(long misses) {
+            this.misses = misses;
+            return this;
+        }
+    }
+}
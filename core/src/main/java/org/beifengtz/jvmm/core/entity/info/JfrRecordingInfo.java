@@ -0,0 +1,151 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+/**
+ * <p>
+ * Description: JVM 中一次 JFR 录制的状态，包括通过启动参数或其他工具开启的录制
+ * </p>
+ * <p>
+ * Created in 10:35 2023/10/26
+ *
+ * @author beifengtz
+ */
+public class JfrRecordingInfo implements JsonParsable {
+    private long id;
+    private String name;
+    /**
+     * 状态：NEW、DELAYED、RUNNING、STOPPED、CLOSED
+     */
+    private String state;
+    /**
+     * 开始时间戳，单位ms，未开始时为0
+     */
+    private long startTime;
+    /**
+     * 停止时间戳，单位ms，未停止时为0
+     */
+    private long stopTime;
+    /**
+     * 设定的录制时长，单位ms，为0时需要手动停止
+     */
+    private long duration;
+    /**
+     * 已录制的数据大小，单位字节
+     */
+    private long size;
+    /**
+     * 磁盘上保留数据的最长时间，单位ms，为0时不限制
+     */
+    private long maxAge;
+    /**
+     * 磁盘上保留数据的最大字节数，为0时不限制
+     */
+    private long maxSize;
+    /**
+     * 是否由 jvmm 开启
+     */
+    private boolean managed;
+
+    private JfrRecordingInfo() {
+    }
+
+    public static JfrRecordingInfo create() {
+        return new JfrRecordingInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public JfrRecordingInfo setId(long id) {
+        this.id = id;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JfrRecordingInfo setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public JfrRecordingInfo setState(String state) {
+        this.state = state;
+        return this;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public JfrRecordingInfo setStartTime(long startTime) {
+        this.startTime = startTime;
+        return this;
+    }
+
+    public long getStopTime() {
+        return stopTime;
+    }
+
+    public JfrRecordingInfo setStopTime(long stopTime) {
+        this.stopTime = stopTime;
+        return this;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public JfrRecordingInfo setDuration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public JfrRecordingInfo setSize(long size) {
+        this.size = size;
+        return this;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public JfrRecordingInfo setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public JfrRecordingInfo setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public boolean isManaged() {
+        return managed;
+    }
+
+    public JfrRecordingInfo setManaged(boolean managed) {
+        this.managed = managed;
+        return this;
+    }
+}
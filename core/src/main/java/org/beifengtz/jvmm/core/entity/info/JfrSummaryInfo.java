@@ -0,0 +1,426 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: 在服务端逐个事件解析 JFR 录制得到的摘要：分配热点、监视器竞争热点、GC 各阶段耗时以及 Socket I/O，
+ * 不需要下载 .jfr 文件即可定位问题
+ * </p>
+ * <p>
+ * Created in 10:50 2023/10/26
+ *
+ * @author beifengtz
+ */
+public class JfrSummaryInfo implements JsonParsable {
+    /**
+     * 录制id，对所有录制做快照时为0
+     */
+    private long recordingId;
+    /**
+     * 最早、最晚事件的时间戳，单位ms
+     */
+    private long startTime;
+    private long endTime;
+    /**
+     * 解析的事件总数
+     */
+    private long events;
+    /**
+     * 为 true 时聚合条目过多，部分低总量的条目被淘汰，排名和统计值是近似值
+     */
+    private boolean truncated;
+    /**
+     * 按 对象类型 + 栈顶方法 聚合的分配热点，按分配字节数从大到小排序
+     */
+    private List<AllocationSite> allocations;
+    /**
+     * 按 监视器类型 + 栈顶方法 聚合的竞争热点，按等待总时长从大到小排序
+     */
+    private List<MonitorSite> monitors;
+    /**
+     * 按 事件类型 + 阶段名称 聚合的 GC 阶段耗时，按总耗时从大到小排序
+     */
+    private List<GcPhase> gcPhases;
+    /**
+     * 按 远端地址 + 读写 聚合的 Socket I/O，按总耗时从大到小排序
+     */
+    private List<SocketSite> sockets;
+
+    private JfrSummaryInfo() {
+        allocations = new ArrayList<>();
+        monitors = new ArrayList<>();
+        gcPhases = new ArrayList<>();
+        sockets = new ArrayList<>();
+    }
+
+    public static JfrSummaryInfo create() {
+        return new JfrSummaryInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getRecordingId() {
+        return recordingId;
+    }
+
+    public JfrSummaryInfo setRecordingId(long recordingId) {
+        this.recordingId = recordingId;
+        return this;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public JfrSummaryInfo setStartTime(long startTime) {
+        this.startTime = startTime;
+        return this;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public JfrSummaryInfo setEndTime(long endTime) {
+        this.endTime = endTime;
+        return this;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public JfrSummaryInfo setEvents(long events) {
+        this.events = events;
+        return this;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public JfrSummaryInfo setTruncated(boolean truncated) {
+        this.truncated = truncated;
+        return this;
+    }
+
+    public List<AllocationSite> getAllocations() {
+        return allocations;
+    }
+
+    public JfrSummaryInfo setAllocations(List<AllocationSite> allocations) {
+        this.allocations = allocations;
+        return this;
+    }
+
+    public List<MonitorSite> getMonitors() {
+        return monitors;
+    }
+
+    public JfrSummaryInfo setMonitors(List<MonitorSite> monitors) {
+        this.monitors = monitors;
+        return this;
+    }
+
+    public List<GcPhase> getGcPhases() {
+        return gcPhases;
+    }
+
+    public JfrSummaryInfo setGcPhases(List<GcPhase> gcPhases) {
+        this.gcPhases = gcPhases;
+        return this;
+    }
+
+    public List<SocketSite> getSockets() {
+        return sockets;
+    }
+
+    public JfrSummaryInfo setSockets(List<SocketSite> sockets) {
+        this.sockets = sockets;
+        return this;
+    }
+
+    public static class AllocationSite implements JsonParsable {
+        private String objectClass;
+        /**
+         * 栈顶方法，格式为 类名.方法名:行号
+         */
+        private String frame;
+        private long count;
+        /**
+         * 分配的字节数，采样事件为 JFR 估算的权重
+         */
+        private long bytes;
+
+        private AllocationSite() {
+        }
+
+        public static AllocationSite create() {
+            return new AllocationSite();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getObjectClass() {
+            return objectClass;
+        }
+
+        public AllocationSite setObjectClass(String objectClass) {
+            this.objectClass = objectClass;
+            return this;
+        }
+
+        public String getFrame() {
+            return frame;
+        }
+
+        public AllocationSite setFrame(String frame) {
+            this.frame = frame;
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public AllocationSite setCount(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public AllocationSite setBytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+    }
+
+    public static class MonitorSite implements JsonParsable {
+        private String monitorClass;
+        private String frame;
+        private long count;
+        /**
+         * 等待进入监视器的总时长和最长时长，单位ns
+         */
+        private long totalTime;
+        private long maxTime;
+
+        private MonitorSite() {
+        }
+
+        public static MonitorSite create() {
+            return new MonitorSite();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getMonitorClass() {
+            return monitorClass;
+        }
+
+        public MonitorSite setMonitorClass(String monitorClass) {
+            this.monitorClass = monitorClass;
+            return this;
+        }
+
+        public String getFrame() {
+            return frame;
+        }
+
+        public MonitorSite setFrame(String frame) {
+            this.frame = frame;
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public MonitorSite setCount(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        public MonitorSite setTotalTime(long totalTime) {
+            this.totalTime = totalTime;
+            return this;
+        }
+
+        public long getMaxTime() {
+            return maxTime;
+        }
+
+        public MonitorSite setMaxTime(long maxTime) {
+            this.maxTime = maxTime;
+            return this;
+        }
+    }
+
+    public static class GcPhase implements JsonParsable {
+        /**
+         * 事件类型，例如 jdk.GCPhasePause、jdk.GCPhaseConcurrent、jdk.GarbageCollection
+         */
+        private String event;
+        /**
+         * 阶段名称，jdk.GarbageCollection 为收集器名称
+         */
+        private String name;
+        private long count;
+        /**
+         * 总耗时和最长耗时，单位ns
+         */
+        private long totalTime;
+        private long maxTime;
+
+        private GcPhase() {
+        }
+
+        public static GcPhase create() {
+            return new GcPhase();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        public GcPhase setEvent(String event) {
+            this.event = event;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public GcPhase setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public GcPhase setCount(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        public GcPhase setTotalTime(long totalTime) {
+            this.totalTime = totalTime;
+            return this;
+        }
+
+        public long getMaxTime() {
+            return maxTime;
+        }
+
+        public GcPhase setMaxTime(long maxTime) {
+            this.maxTime = maxTime;
+            return this;
+        }
+    }
+
+    public static class SocketSite implements JsonParsable {
+        /**
+         * 远端地址，格式为 host:port
+         */
+        private String address;
+        /**
+         * read 或 write
+         */
+        private String operation;
+        private long count;
+        private long bytes;
+        /**
+         * 阻塞在读写上的总时长，单位ns
+         */
+        private long totalTime;
+
+        private SocketSite() {
+        }
+
+        public static SocketSite create() {
+            return new SocketSite();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public SocketSite setAddress(String address) {
+            this.address = address;
+            return this;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public SocketSite setOperation(String operation) {
+            this.operation = operation;
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public SocketSite setCount(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public SocketSite setBytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        public SocketSite setTotalTime(long totalTime) {
+            this.totalTime = totalTime;
+            return this;
+        }
+    }
+}
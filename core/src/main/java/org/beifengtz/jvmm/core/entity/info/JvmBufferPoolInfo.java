@@ -0,0 +1,457 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: 直接内存和映射内存缓冲池信息，以及 Netty 的直接内存和池化分配器统计
+ * </p>
+ * <p>
+ * Created in 11:30 2023/10/22
+ *
+ * @author beifengtz
+ */
+public class JvmBufferPoolInfo implements JsonParsable {
+    /**
+     * BufferPoolMXBean 统计的缓冲池，通常为 direct 和 mapped
+     */
+    private List<BufferPool> pools;
+    /**
+     * 当前 JVM 中每一份 Netty 的内存统计，应用和 jvmm 使用不同 ClassLoader 加载的 Netty 分别统计
+     */
+    private List<NettyMemory> netty;
+
+    private JvmBufferPoolInfo() {
+        pools = new ArrayList<>();
+        netty = new ArrayList<>();
+    }
+
+    public static JvmBufferPoolInfo create() {
+        return new JvmBufferPoolInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public List<BufferPool> getPools() {
+        return pools;
+    }
+
+    public JvmBufferPoolInfo setPools(List<BufferPool> pools) {
+        this.pools = pools;
+        return this;
+    }
+
+    public List<NettyMemory> getNetty() {
+        return netty;
+    }
+
+    public JvmBufferPoolInfo setNetty(List<NettyMemory> netty) {
+        this.netty = netty;
+        return this;
+    }
+
+    public static class BufferPool implements JsonParsable {
+        /**
+         * 缓冲池名称
+         */
+        private String name;
+        /**
+         * 缓冲区数量
+         */
+        private long count;
+        /**
+         * JVM 为缓冲区使用的内存，单位byte
+         */
+        private long memoryUsed;
+        /**
+         * 缓冲区总容量，单位byte
+         */
+        private long totalCapacity;
+
+        private BufferPool() {
+        }
+
+        public static BufferPool create() {
+            return new BufferPool();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public BufferPool setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public BufferPool setCount(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public long getMemoryUsed() {
+            return memoryUsed;
+        }
+
+        public BufferPool setMemoryUsed(long memoryUsed) {
+            this.memoryUsed = memoryUsed;
+            return this;
+        }
+
+        public long getTotalCapacity() {
+            return totalCapacity;
+        }
+
+        public BufferPool setTotalCapacity(long totalCapacity) {
+            this.totalCapacity = totalCapacity;
+            return this;
+        }
+    }
+
+    public static class NettyMemory implements JsonParsable {
+        /**
+         * 加载 Netty 的 ClassLoader 类名，Bootstrap ClassLoader 为 null
+         */
+        private String classLoader;
+        /**
+         * 加载 Netty 的 ClassLoader hashcode
+         */
+        private int classLoaderHash;
+        /**
+         * PlatformDependent 统计的直接内存使用量，单位byte，未开启统计时为-1
+         */
+        private long usedDirectMemory;
+        /**
+         * Netty 可使用的最大直接内存，单位byte
+         */
+        private long maxDirectMemory;
+        /**
+         * PooledByteBufAllocator.DEFAULT 的统计，未使用池化分配器时为 null
+         */
+        private PooledAllocator allocator;
+
+        private NettyMemory() {
+        }
+
+        public static NettyMemory create() {
+            return new NettyMemory();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getClassLoader() {
+            return classLoader;
+        }
+
+        public NettyMemory setClassLoader(String classLoader) {
+            this.classLoader = classLoader;
+            return this;
+        }
+
+        public int getClassLoaderHash() {
+            return classLoaderHash;
+        }
+
+        public NettyMemory setClassLoaderHash(int classLoaderHash) {
+            this.classLoaderHash = classLoaderHash;
+            return this;
+        }
+
+        public long getUsedDirectMemory() {
+            return usedDirectMemory;
+        }
+
+        public NettyMemory setUsedDirectMemory(long usedDirectMemory) {
+            this.usedDirectMemory = usedDirectMemory;
+            return this;
+        }
+
+        public long getMaxDirectMemory() {
+            return maxDirectMemory;
+        }
+
+        public NettyMemory setMaxDirectMemory(long maxDirectMemory) {
+            this.maxDirectMemory = maxDirectMemory;
+            return this;
+        }
+
+        public PooledAllocator getAllocator() {
+            return allocator;
+        }
+
+        public NettyMemory setAllocator(PooledAllocator allocator) {
+            this.allocator = allocator;
+            return this;
+        }
+    }
+
+    public static class PooledAllocator implements JsonParsable {
+        /**
+         * 堆内存 Arena 数量
+         */
+        private int numHeapArenas;
+        /**
+         * 直接内存 Arena 数量
+         */
+        private int numDirectArenas;
+        /**
+         * 线程本地缓存数量
+         */
+        private int numThreadLocalCaches;
+        /**
+         * small 规格的线程缓存大小
+         */
+        private int smallCacheSize;
+        /**
+         * normal 规格的线程缓存大小
+         */
+        private int normalCacheSize;
+        /**
+         * Chunk 大小，单位byte
+         */
+        private int chunkSize;
+        /**
+         * 分配器使用的堆内存，单位byte
+         */
+        private long usedHeapMemory;
+        /**
+         * 分配器使用的直接内存，单位byte
+         */
+        private long usedDirectMemory;
+        /**
+         * 各 Arena 的统计
+         */
+        private List<NettyArena> arenas;
+
+        private PooledAllocator() {
+            arenas = new ArrayList<>();
+        }
+
+        public static PooledAllocator create() {
+            return new PooledAllocator();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public int getNumHeapArenas() {
+            return numHeapArenas;
+        }
+
+        public PooledAllocator setNumHeapArenas(int numHeapArenas) {
+            this.numHeapArenas = numHeapArenas;
+            return this;
+        }
+
+        public int getNumDirectArenas() {
+            return numDirectArenas;
+        }
+
+        public PooledAllocator setNumDirectArenas(int numDirectArenas) {
+            this.numDirectArenas = numDirectArenas;
+            return this;
+        }
+
+        public int getNumThreadLocalCaches() {
+            return numThreadLocalCaches;
+        }
+
+        public PooledAllocator setNumThreadLocalCaches(int numThreadLocalCaches) {
+            this.numThreadLocalCaches = numThreadLocalCaches;
+            return this;
+        }
+
+        public int getSmallCacheSize() {
+            return smallCacheSize;
+        }
+
+        public PooledAllocator setSmallCacheSize(int smallCacheSize) {
+            this.smallCacheSize = smallCacheSize;
+            return this;
+        }
+
+        public int getNormalCacheSize() {
+            return normalCacheSize;
+        }
+
+        public PooledAllocator setNormalCacheSize(int normalCacheSize) {
+            this.normalCacheSize = normalCacheSize;
+            return this;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public PooledAllocator setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public long getUsedHeapMemory() {
+            return usedHeapMemory;
+        }
+
+        public PooledAllocator setUsedHeapMemory(long usedHeapMemory) {
+            this.usedHeapMemory = usedHeapMemory;
+            return this;
+        }
+
+        public long getUsedDirectMemory() {
+            return usedDirectMemory;
+        }
+
+        public PooledAllocator setUsedDirectMemory(long usedDirectMemory) {
+            this.usedDirectMemory = usedDirectMemory;
+            return this;
+        }
+
+        public List<NettyArena> getArenas() {
+            return arenas;
+        }
+
+        public PooledAllocator setArenas(List<NettyArena> arenas) {
+            this.arenas = arenas;
+            return this;
+        }
+    }
+
+    public static class NettyArena implements JsonParsable {
+        /**
+         * 是否为直接内存 Arena
+         */
+        private boolean direct;
+        /**
+         * 使用该 Arena 的线程缓存数量
+         */
+        private int numThreadCaches;
+        /**
+         * 累计分配次数
+         */
+        private long numAllocations;
+        /**
+         * 累计释放次数
+         */
+        private long numDeallocations;
+        /**
+         * 当前未释放的分配数
+         */
+        private long numActiveAllocations;
+        /**
+         * 当前未释放的字节数
+         */
+        private long numActiveBytes;
+        /**
+         * Chunk 数量
+         */
+        private int numChunks;
+        /**
+         * Chunk 平均使用率，单位%
+         */
+        private int chunkUsage;
+
+        private NettyArena() {
+        }
+
+        public static NettyArena create() {
+            return new NettyArena();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public boolean isDirect() {
+            return direct;
+        }
+
+        public NettyArena setDirect(boolean direct) {
+            this.direct = direct;
+            return this;
+        }
+
+        public int getNumThreadCaches() {
+            return numThreadCaches;
+        }
+
+        public NettyArena setNumThreadCaches(int numThreadCaches) {
+            this.numThreadCaches = numThreadCaches;
+            return this;
+        }
+
+        public long getNumAllocations() {
+            return numAllocations;
+        }
+
+        public NettyArena setNumAllocations(long numAllocations) {
+            this.numAllocations = numAllocations;
+            return this;
+        }
+
+        public long getNumDeallocations() {
+            return numDeallocations;
+        }
+
+        public NettyArena setNumDeallocations(long numDeallocations) {
+            this.numDeallocations = numDeallocations;
+            return this;
+        }
+
+        public long getNumActiveAllocations() {
+            return numActiveAllocations;
+        }
+
+        public NettyArena setNumActiveAllocations(long numActiveAllocations) {
+            this.numActiveAllocations = numActiveAllocations;
+            return this;
+        }
+
+        public long getNumActiveBytes() {
+            return numActiveBytes;
+        }
+
+        public NettyArena setNumActiveBytes(long numActiveBytes) {
+            this.numActiveBytes = numActiveBytes;
+            return this;
+        }
+
+        public int getNumChunks() {
+            return numChunks;
+        }
+
+        public NettyArena setNumChunks(int numChunks) {
+            this.numChunks = numChunks;
+            return this;
+        }
+
+        public int getChunkUsage() {
+            return chunkUsage;
+        }
+
+        public NettyArena setChunkUsage(int chunkUsage) {
+            this.chunkUsage = chunkUsage;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: 类直方图信息，来自 GC.class_histogram 命令
+ * </p>
+ * <p>
+ * Created in 15:20 2023/10/21
+ *
+ * @author beifengtz
+ */
+public class JvmClassHistogramInfo implements JsonParsable {
+    /**
+     * 采集时间戳
+     */
+    private long timestamp;
+    /**
+     * 基线采集时间戳，仅对比结果有值
+     */
+    private long baselineTime;
+    /**
+     * 是否只统计存活对象，为true时会触发一次 Full GC
+     */
+    private boolean live;
+    /**
+     * 有实例的类数量
+     */
+    private int classes;
+    /**
+     * 实例总数
+     */
+    private long totalInstances;
+    /**
+     * 实例占用总字节数
+     */
+    private long totalBytes;
+    /**
+     * 相对基线的实例总数变化量
+     */
+    private long instancesDiff;
+    /**
+     * 相对基线的总字节数变化量
+     */
+    private long bytesDiff;
+    /**
+     * 类统计列表，普通查询按占用字节数从大到小排序，对比查询按字节数增长量从大到小排序
+     */
+    private List<ClassHistogramItem> items;
+
+    private JvmClassHistogramInfo() {
+        items = new ArrayList<>();
+    }
+
+    public static JvmClassHistogramInfo create() {
+        return new JvmClassHistogramInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public JvmClassHistogramInfo setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        return this;
+    }
+
+    public long getBaselineTime() {
+        return baselineTime;
+    }
+
+    public JvmClassHistogramInfo setBaselineTime(long baselineTime) {
+        this.baselineTime = baselineTime;
+        return this;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    public JvmClassHistogramInfo setLive(boolean live) {
+        this.live = live;
+        return this;
+    }
+
+    public int getClasses() {
+        return classes;
+    }
+
+    public JvmClassHistogramInfo setClasses(int classes) {
+        this.classes = classes;
+        return this;
+    }
+
+    public long getTotalInstances() {
+        return totalInstances;
+    }
+
+    public JvmClassHistogramInfo setTotalInstances(long totalInstances) {
+        this.totalInstances = totalInstances;
+        return this;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public JvmClassHistogramInfo setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+        return this;
+    }
+
+    public long getInstancesDiff() {
+        return instancesDiff;
+    }
+
+    public JvmClassHistogramInfo setInstancesDiff(long instancesDiff) {
+        this.instancesDiff = instancesDiff;
+        return this;
+    }
+
+    public long getBytesDiff() {
+        return bytesDiff;
+    }
+
+    public JvmClassHistogramInfo setBytesDiff(long bytesDiff) {
+        this.bytesDiff = bytesDiff;
+        return this;
+    }
+
+    public List<ClassHistogramItem> getItems() {
+        return items;
+    }
+
+    public JvmClassHistogramInfo setItems(List<ClassHistogramItem> items) {
+        this.items = items;
+        return this;
+    }
+
+    public static class ClassHistogramItem implements JsonParsable {
+        /**
+         * 类名，数组类型为 JVM 内部名，例如 [B、[Ljava.lang.Object;
+         */
+        private String className;
+        /**
+         * 实例数
+         */
+        private long instances;
+        /**
+         * 实例占用字节数
+         */
+        private long bytes;
+        /**
+         * 相对基线的实例数变化量
+         */
+        private long instancesDiff;
+        /**
+         * 相对基线的字节数变化量
+         */
+        private long bytesDiff;
+
+        private ClassHistogramItem() {
+        }
+
+        public static ClassHistogramItem create() {
+            return new ClassHistogramItem();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public ClassHistogramItem setClassName(String className) {
+            this.className = className;
+            return this;
+        }
+
+        public long getInstances() {
+            return instances;
+        }
+
+        public ClassHistogramItem setInstances(long instances) {
+            this.instances = instances;
+            return this;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public ClassHistogramItem setBytes(long bytes) {
+            this.bytes = bytes;
+            return this;
+        }
+
+        public long getInstancesDiff() {
+            return instancesDiff;
+        }
+
+        public ClassHistogramItem setInstancesDiff(long instancesDiff) {
+            this.instancesDiff = instancesDiff;
+            return this;
+        }
+
+        public long getBytesDiff() {
+            return bytesDiff;
+        }
+
+        public ClassHistogramItem setBytesDiff(long bytesDiff) {
+            this.bytesDiff = bytesDiff;
+            return this;
+        }
+    }
+}
@@ -16,6 +16,18 @@ public class JvmClassLoaderInfo implements JsonParsable {
     private String name;
     private int hash;
     private final List<String> parents = new ArrayList<>();
+    /**
+     * 该 ClassLoader 定义的类数量，无法统计时为-1
+     */
+    private int classCount;
+    /**
+     * 父加载器的 hashcode，父加载器为 Bootstrap ClassLoader 时为0
+     */
+    private int parentHash;
+    /**
+     * 子加载器，仅在以树形结构获取时有值
+     */
+    private List<JvmClassLoaderInfo> children;
 
     public static JvmClassLoaderInfo create(int hash) {
         return new JvmClassLoaderInfo().setHash(hash);
@@ -48,6 +60,33 @@ public class JvmClassLoaderInfo implements JsonParsable {
         return this;
     }
 
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public JvmClassLoaderInfo setClassCount(int classCount) {
+        this.classCount = classCount;
+        return this;
+    }
+
+    public int getParentHash() {
+        return parentHash;
+    }
+
+    public JvmClassLoaderInfo setParentHash(int parentHash) {
+        this.parentHash = parentHash;
+        return this;
+    }
+
+    public List<JvmClassLoaderInfo> getChildren() {
+        return children;
+    }
+
+    public JvmClassLoaderInfo setChildren(List<JvmClassLoaderInfo> children) {
+        this.children = children;
+        return this;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,241 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: GC停顿分布以及由GC前后内存池使用量推算的分配、晋升速率，停顿时间分位数单位为ms
+ * </p>
+ * <p>
+ * Created in 14:58 2023/10/18
+ *
+ * @author beifengtz
+ */
+public class JvmGCPauseInfo implements JsonParsable {
+    /**
+     * 自监听开始以来堆上累计分配的字节数，根据每次GC前后的堆使用量推算
+     */
+    private long allocatedBytes;
+    /**
+     * 自监听开始以来晋升到老年代的累计字节数
+     */
+    private long promotedBytes;
+    /**
+     * 最近两次GC之间的分配速率，单位 bytes/s
+     */
+    private double allocationRate;
+    /**
+     * 最近两次GC之间的晋升速率，单位 bytes/s
+     */
+    private double promotionRate;
+    /**
+     * 按回收器和触发原因分组的停顿统计，只包含 STW 停顿
+     */
+    private List<PauseInfo> pauses;
+    /**
+     * 并发回收周期（G1 Concurrent GC、ZGC/Shenandoah Cycles、CMS）的耗时统计，
+     * 其耗时大部分与应用线程并发执行，不是停顿时间
+     */
+    private List<PauseInfo> concurrentCycles;
+
+    private JvmGCPauseInfo() {
+        pauses = new ArrayList<>();
+        concurrentCycles = new ArrayList<>();
+    }
+
+    public static JvmGCPauseInfo create() {
+        return new JvmGCPauseInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public JvmGCPauseInfo setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+        return this;
+    }
+
+    public long getPromotedBytes() {
+        return promotedBytes;
+    }
+
+    public JvmGCPauseInfo setPromotedBytes(long promotedBytes) {
+        this.promotedBytes = promotedBytes;
+        return this;
+    }
+
+    public double getAllocationRate() {
+        return allocationRate;
+    }
+
+    public JvmGCPauseInfo setAllocationRate(double allocationRate) {
+        this.allocationRate = allocationRate;
+        return this;
+    }
+
+    public double getPromotionRate() {
+        return promotionRate;
+    }
+
+    public JvmGCPauseInfo setPromotionRate(double promotionRate) {
+        this.promotionRate = promotionRate;
+        return this;
+    }
+
+    public List<PauseInfo> getPauses() {
+        return pauses;
+    }
+
+    public JvmGCPauseInfo setPauses(List<PauseInfo> pauses) {
+        this.pauses = pauses;
+        return this;
+    }
+
+    public List<PauseInfo> getConcurrentCycles() {
+        return concurrentCycles;
+    }
+
+    public JvmGCPauseInfo setConcurrentCycles(List<PauseInfo> concurrentCycles) {
+        this.concurrentCycles = concurrentCycles;
+        return this;
+    }
+
+    public static class PauseInfo implements JsonParsable {
+        /**
+         * 垃圾回收器名
+         */
+        private String name;
+        /**
+         * GC触发原因
+         */
+        private String cause;
+        /**
+         * GC动作，如 end of minor GC
+         */
+        private String action;
+        private long count;
+        /**
+         * 累计停顿时间，单位ms
+         */
+        private long totalTime;
+        /**
+         * 最大停顿时间，单位ms
+         */
+        private long max;
+        private long p50;
+        private long p90;
+        private long p99;
+        private long p999;
+
+        private PauseInfo() {
+        }
+
+        public static PauseInfo create() {
+            return new PauseInfo();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public PauseInfo setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public String getCause() {
+            return cause;
+        }
+
+        public PauseInfo setCause(String cause) {
+            this.cause = cause;
+            return this;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public PauseInfo setAction(String action) {
+            this.action = action;
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public PauseInfo setCount(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        public PauseInfo setTotalTime(long totalTime) {
+            this.totalTime = totalTime;
+            return this;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public PauseInfo setMax(long max) {
+            this.max = max;
+            return this;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public PauseInfo setP50(long p50) {
+            this.p50 = p50;
+            return this;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public PauseInfo setP90(long p90) {
+            this.p90 = p90;
+            return this;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public PauseInfo setP99(long p99) {
+            this.p99 = p99;
+            return this;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public PauseInfo setP999(long p999) {
+            this.p999 = p999;
+            return this;
+        }
+    }
+}
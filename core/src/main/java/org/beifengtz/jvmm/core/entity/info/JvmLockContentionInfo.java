@@ -0,0 +1,330 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: 锁竞争热点，由周期性采样线程的等待锁信息聚合得到，用于定位生产环境中的锁护航（lock convoy）
+ * </p>
+ * <p>
+ * Created in 14:20 2023/10/20
+ *
+ * @author beifengtz
+ */
+public class JvmLockContentionInfo implements JsonParsable {
+    /**
+     * 统计开始时间戳，单位ms
+     */
+    private long startTime;
+    /**
+     * 统计时长，单位ms
+     */
+    private long duration;
+    /**
+     * 采样次数
+     */
+    private long samples;
+    /**
+     * 采样间隔，单位ms
+     */
+    private int interval;
+    /**
+     * 是否开启了线程竞争监控，未开启时 blockedTime 为0
+     */
+    private boolean contentionMonitoring;
+    /**
+     * 按 锁 + 栈顶方法 聚合的热点，按采样命中次数从大到小排序
+     */
+    private List<LockHotSpot> hotSpots;
+    /**
+     * 等待关系图的边，等待者 -> 持有者，按采样命中次数从大到小排序
+     */
+    private List<WaitEdge> waitsFor;
+
+    private JvmLockContentionInfo() {
+        hotSpots = new ArrayList<>();
+        waitsFor = new ArrayList<>();
+    }
+
+    public static JvmLockContentionInfo create() {
+        return new JvmLockContentionInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public JvmLockContentionInfo setStartTime(long startTime) {
+        this.startTime = startTime;
+        return this;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public JvmLockContentionInfo setDuration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public JvmLockContentionInfo setSamples(long samples) {
+        this.samples = samples;
+        return this;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public JvmLockContentionInfo setInterval(int interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    public boolean isContentionMonitoring() {
+        return contentionMonitoring;
+    }
+
+    public JvmLockContentionInfo setContentionMonitoring(boolean contentionMonitoring) {
+        this.contentionMonitoring = contentionMonitoring;
+        return this;
+    }
+
+    public List<LockHotSpot> getHotSpots() {
+        return hotSpots;
+    }
+
+    public JvmLockContentionInfo setHotSpots(List<LockHotSpot> hotSpots) {
+        this.hotSpots = hotSpots;
+        return this;
+    }
+
+    public List<WaitEdge> getWaitsFor() {
+        return waitsFor;
+    }
+
+    public JvmLockContentionInfo setWaitsFor(List<WaitEdge> waitsFor) {
+        this.waitsFor = waitsFor;
+        return this;
+    }
+
+    public static class LockHotSpot implements JsonParsable {
+        /**
+         * 锁对象，格式为 类名@identityHashCode
+         */
+        private String lockName;
+        /**
+         * 等待线程的状态，BLOCKED 表示等待进入 synchronized，WAITING/TIMED_WAITING 表示等待 j.u.c 锁
+         */
+        private String state;
+        /**
+         * 等待线程的栈顶方法
+         */
+        private String frame;
+        /**
+         * 命中的采样次数，同一次采样中多个线程等待计为多次
+         */
+        private long samples;
+        /**
+         * 平均每次采样的等待线程数
+         */
+        private double avgWaiters;
+        /**
+         * 单次采样中的最大等待线程数
+         */
+        private int maxWaiters;
+        /**
+         * 等待线程在 BLOCKED 状态累计的时间，单位ms，需开启线程竞争监控
+         */
+        private long blockedTime;
+        /**
+         * 最常持有该锁的线程名
+         */
+        private String topOwner;
+        /**
+         * 最常持有该锁的线程命中的采样次数
+         */
+        private long topOwnerSamples;
+
+        private LockHotSpot() {
+        }
+
+        public static LockHotSpot create() {
+            return new LockHotSpot();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getLockName() {
+            return lockName;
+        }
+
+        public LockHotSpot setLockName(String lockName) {
+            this.lockName = lockName;
+            return this;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public LockHotSpot setState(String state) {
+            this.state = state;
+            return this;
+        }
+
+        public String getFrame() {
+            return frame;
+        }
+
+        public LockHotSpot setFrame(String frame) {
+            this.frame = frame;
+            return this;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public LockHotSpot setSamples(long samples) {
+            this.samples = samples;
+            return this;
+        }
+
+        public double getAvgWaiters() {
+            return avgWaiters;
+        }
+
+        public LockHotSpot setAvgWaiters(double avgWaiters) {
+            this.avgWaiters = avgWaiters;
+            return this;
+        }
+
+        public int getMaxWaiters() {
+            return maxWaiters;
+        }
+
+        public LockHotSpot setMaxWaiters(int maxWaiters) {
+            this.maxWaiters = maxWaiters;
+            return this;
+        }
+
+        public long getBlockedTime() {
+            return blockedTime;
+        }
+
+        public LockHotSpot setBlockedTime(long blockedTime) {
+            this.blockedTime = blockedTime;
+            return this;
+        }
+
+        public String getTopOwner() {
+            return topOwner;
+        }
+
+        public LockHotSpot setTopOwner(String topOwner) {
+            this.topOwner = topOwner;
+            return this;
+        }
+
+        public long getTopOwnerSamples() {
+            return topOwnerSamples;
+        }
+
+        public LockHotSpot setTopOwnerSamples(long topOwnerSamples) {
+            this.topOwnerSamples = topOwnerSamples;
+            return this;
+        }
+    }
+
+    public static class WaitEdge implements JsonParsable {
+        private long waiterId;
+        private String waiter;
+        private long ownerId;
+        private String owner;
+        private String lockName;
+        private long samples;
+
+        private WaitEdge() {
+        }
+
+        public static WaitEdge create() {
+            return new WaitEdge();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public long getWaiterId() {
+            return waiterId;
+        }
+
+        public WaitEdge setWaiterId(long waiterId) {
+            this.waiterId = waiterId;
+            return this;
+        }
+
+        public String getWaiter() {
+            return waiter;
+        }
+
+        public WaitEdge setWaiter(String waiter) {
+            this.waiter = waiter;
+            return this;
+        }
+
+        public long getOwnerId() {
+            return ownerId;
+        }
+
+        public WaitEdge setOwnerId(long ownerId) {
+            this.ownerId = ownerId;
+            return this;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public WaitEdge setOwner(String owner) {
+            this.owner = owner;
+            return this;
+        }
+
+        public String getLockName() {
+            return lockName;
+        }
+
+        public WaitEdge setLockName(String lockName) {
+            this.lockName = lockName;
+            return this;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public WaitEdge setSamples(long samples) {
+            this.samples = samples;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Description: 进程内保存的指标历史数据，按列返回，同一下标的值属于同一次采样
+ * </p>
+ * <p>
+ * Created in 15:10 2023/10/22
+ *
+ * @author beifengtz
+ */
+public class JvmMetricHistoryInfo implements JsonParsable {
+    /**
+     * 采样间隔，单位ms
+     */
+    private long interval;
+    /**
+     * 环形缓冲区可保存的采样次数
+     */
+    private int capacity;
+    /**
+     * 查询范围内每次采样的时间戳
+     */
+    private long[] timestamps;
+    /**
+     * 指标名 -> 与 timestamps 一一对应的值，指标在该次采样时还未注册或读取失败时为null
+     */
+    private Map<String, Double[]> metrics;
+
+    private JvmMetricHistoryInfo() {
+        timestamps = new long[0];
+        metrics = new LinkedHashMap<>();
+    }
+
+    public static JvmMetricHistoryInfo create() {
+        return new JvmMetricHistoryInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public JvmMetricHistoryInfo setInterval(long interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public JvmMetricHistoryInfo setCapacity(int capacity) {
+        this.capacity = capacity;
+        return this;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public JvmMetricHistoryInfo setTimestamps(long[] timestamps) {
+        this.timestamps = timestamps;
+        return this;
+    }
+
+    public Map<String, Double[]> getMetrics() {
+        return metrics;
+    }
+
+    public JvmMetricHistoryInfo setMetrics(Map<String, Double[]> metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+}
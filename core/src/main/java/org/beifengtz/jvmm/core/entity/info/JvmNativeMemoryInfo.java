@@ -0,0 +1,215 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: Native Memory Tracking 汇总信息，来自 VM.native_memory summary 命令
+ * </p>
+ * <p>
+ * Created in 10:35 2023/10/21
+ *
+ * @author beifengtz
+ */
+public class JvmNativeMemoryInfo implements JsonParsable {
+    /**
+     * 是否开启了 NMT（-XX:NativeMemoryTracking=summary|detail），未开启时其他字段无意义
+     */
+    private boolean enabled;
+    /**
+     * 采集时间戳
+     */
+    private long timestamp;
+    /**
+     * 基线采集时间戳，diff 字段为相对基线的变化量
+     */
+    private long baselineTime;
+    /**
+     * 保留的虚拟内存总量，单位byte
+     */
+    private long reserved;
+    /**
+     * 已提交的内存总量，单位byte
+     */
+    private long committed;
+    /**
+     * 相对基线的保留内存变化量，单位byte
+     */
+    private long reservedDiff;
+    /**
+     * 相对基线的提交内存变化量，单位byte
+     */
+    private long committedDiff;
+    /**
+     * 各分类的内存使用，例如 Java Heap、Class、Thread、Code、GC、Internal 等
+     */
+    private List<NativeMemoryCategory> categories;
+
+    private JvmNativeMemoryInfo() {
+        categories = new ArrayList<>();
+    }
+
+    public static JvmNativeMemoryInfo create() {
+        return new JvmNativeMemoryInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public JvmNativeMemoryInfo setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public JvmNativeMemoryInfo setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        return this;
+    }
+
+    public long getBaselineTime() {
+        return baselineTime;
+    }
+
+    public JvmNativeMemoryInfo setBaselineTime(long baselineTime) {
+        this.baselineTime = baselineTime;
+        return this;
+    }
+
+    public long getReserved() {
+        return reserved;
+    }
+
+    public JvmNativeMemoryInfo setReserved(long reserved) {
+        this.reserved = reserved;
+        return this;
+    }
+
+    public long getCommitted() {
+        return committed;
+    }
+
+    public JvmNativeMemoryInfo setCommitted(long committed) {
+        this.committed = committed;
+        return this;
+    }
+
+    public long getReservedDiff() {
+        return reservedDiff;
+    }
+
+    public JvmNativeMemoryInfo setReservedDiff(long reservedDiff) {
+        this.reservedDiff = reservedDiff;
+        return this;
+    }
+
+    public long getCommittedDiff() {
+        return committedDiff;
+    }
+
+    public JvmNativeMemoryInfo setCommittedDiff(long committedDiff) {
+        this.committedDiff = committedDiff;
+        return this;
+    }
+
+    public List<NativeMemoryCategory> getCategories() {
+        return categories;
+    }
+
+    public JvmNativeMemoryInfo setCategories(List<NativeMemoryCategory> categories) {
+        this.categories = categories;
+        return this;
+    }
+
+    public static class NativeMemoryCategory implements JsonParsable {
+        /**
+         * 分类名
+         */
+        private String name;
+        /**
+         * 保留的虚拟内存，单位byte
+         */
+        private long reserved;
+        /**
+         * 已提交的内存，单位byte
+         */
+        private long committed;
+        /**
+         * 相对基线的保留内存变化量，单位byte，基线中不存在该分类时为当前值
+         */
+        private long reservedDiff;
+        /**
+         * 相对基线的提交内存变化量，单位byte，基线中不存在该分类时为当前值
+         */
+        private long committedDiff;
+
+        private NativeMemoryCategory() {
+        }
+
+        public static NativeMemoryCategory create() {
+            return new NativeMemoryCategory();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public NativeMemoryCategory setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public long getReserved() {
+            return reserved;
+        }
+
+        public NativeMemoryCategory setReserved(long reserved) {
+            this.reserved = reserved;
+            return this;
+        }
+
+        public long getCommitted() {
+            return committed;
+        }
+
+        public NativeMemoryCategory setCommitted(long committed) {
+            this.committed = committed;
+            return this;
+        }
+
+        public long getReservedDiff() {
+            return reservedDiff;
+        }
+
+        public NativeMemoryCategory setReservedDiff(long reservedDiff) {
+            this.reservedDiff = reservedDiff;
+            return this;
+        }
+
+        public long getCommittedDiff() {
+            return committedDiff;
+        }
+
+        public NativeMemoryCategory setCommittedDiff(long committedDiff) {
+            this.committedDiff = committedDiff;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: 从 hsperfdata 读取的 JVM 性能计数器，不存在的计数器值为-1
+ * </p>
+ * <p>
+ * Created in 11:05 2023/10/19
+ *
+ * @author beifengtz
+ */
+public class JvmPerfInfo implements JsonParsable {
+    /**
+     * 进程id
+     */
+    private long pid;
+    /**
+     * 进入 safepoint 的次数
+     */
+    private long safepoints;
+    /**
+     * safepoint 累计停顿时间，单位ms
+     */
+    private long safepointTime;
+    /**
+     * 到达 safepoint 的累计同步时间，单位ms
+     */
+    private long safepointSyncTime;
+    /**
+     * 应用线程累计运行时间，单位ms
+     */
+    private long applicationTime;
+    /**
+     * 已加载类数量
+     */
+    private long loadedClasses;
+    /**
+     * 已卸载类数量
+     */
+    private long unloadedClasses;
+    /**
+     * 类加载累计耗时，单位ms
+     */
+    private long classLoadTime;
+    /**
+     * 类初始化累计耗时，单位ms
+     */
+    private long classInitTime;
+    /**
+     * 类校验累计耗时，单位ms
+     */
+    private long classVerifyTime;
+    /**
+     * 类链接累计耗时，单位ms
+     */
+    private long classLinkTime;
+    /**
+     * JIT编译累计耗时，单位ms
+     */
+    private long compileTime;
+    /**
+     * JIT编译次数
+     */
+    private long compiles;
+    /**
+     * JIT编译放弃次数
+     */
+    private long bailouts;
+    /**
+     * JIT编译结果失效次数
+     */
+    private long invalidates;
+    /**
+     * Metaspace 已使用字节数
+     */
+    private long metaspaceUsed;
+    /**
+     * Metaspace 已提交字节数
+     */
+    private long metaspaceCapacity;
+    /**
+     * Metaspace 最大字节数
+     */
+    private long metaspaceMaxCapacity;
+    /**
+     * 各代容量
+     */
+    private List<GenerationInfo> generations;
+
+    private JvmPerfInfo() {
+        generations = new ArrayList<>();
+    }
+
+    public static JvmPerfInfo create() {
+        return new JvmPerfInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    public JvmPerfInfo setPid(long pid) {
+        this.pid = pid;
+        return this;
+    }
+
+    public long getSafepoints() {
+        return safepoints;
+    }
+
+    public JvmPerfInfo setSafepoints(long safepoints) {
+        this.safepoints = safepoints;
+        return this;
+    }
+
+    public long getSafepointTime() {
+        return safepointTime;
+    }
+
+    public JvmPerfInfo setSafepointTime(long safepointTime) {
+        this.safepointTime = safepointTime;
+        return this;
+    }
+
+    public long getSafepointSyncTime() {
+        return safepointSyncTime;
+    }
+
+    public JvmPerfInfo setSafepointSyncTime(long safepointSyncTime) {
+        this.safepointSyncTime = safepointSyncTime;
+        return this;
+    }
+
+    public long getApplicationTime() {
+        return applicationTime;
+    }
+
+    public JvmPerfInfo setApplicationTime(long applicationTime) {
+        this.applicationTime = applicationTime;
+        return this;
+    }
+
+    public long getLoadedClasses() {
+        return loadedClasses;
+    }
+
+    public JvmPerfInfo setLoadedClasses(long loadedClasses) {
+        this.loadedClasses = loadedClasses;
+        return this;
+    }
+
+    public long getUnloadedClasses() {
+        return unloadedClasses;
+    }
+
+    public JvmPerfInfo setUnloadedClasses(long unloadedClasses) {
+        this.unloadedClasses = unloadedClasses;
+        return this;
+    }
+
+    public long getClassLoadTime() {
+        return classLoadTime;
+    }
+
+    public JvmPerfInfo setClassLoadTime(long classLoadTime) {
+        this.classLoadTime = classLoadTime;
+        return this;
+    }
+
+    public long getClassInitTime() {
+        return classInitTime;
+    }
+
+    public JvmPerfInfo setClassInitTime(long classInitTime) {
+        this.classInitTime = classInitTime;
+        return this;
+    }
+
+    public long getClassVerifyTime() {
+        return classVerifyTime;
+    }
+
+    public JvmPerfInfo setClassVerifyTime(long classVerifyTime) {
+        this.classVerifyTime = classVerifyTime;
+        return this;
+    }
+
+    public long getClassLinkTime() {
+        return classLinkTime;
+    }
+
+    public JvmPerfInfo setClassLinkTime(long classLinkTime) {
+        this.classLinkTime = classLinkTime;
+        return this;
+    }
+
+    public long getCompileTime() {
+        return compileTime;
+    }
+
+    public JvmPerfInfo setCompileTime(long compileTime) {
+        this.compileTime = compileTime;
+        return this;
+    }
+
+    public long getCompiles() {
+        return compiles;
+    }
+
+    public JvmPerfInfo setCompiles(long compiles) {
+        this.compiles = compiles;
+        return this;
+    }
+
+    public long getBailouts() {
+        return bailouts;
+    }
+
+    public JvmPerfInfo setBailouts(long bailouts) {
+        this.bailouts = bailouts;
+        return this;
+    }
+
+    public long getInvalidates() {
+        return invalidates;
+    }
+
+    public JvmPerfInfo setInvalidates(long invalidates) {
+        this.invalidates = invalidates;
+        return this;
+    }
+
+    public long getMetaspaceUsed() {
+        return metaspaceUsed;
+    }
+
+    public JvmPerfInfo setMetaspaceUsed(long metaspaceUsed) {
+        this.metaspaceUsed = metaspaceUsed;
+        return this;
+    }
+
+    public long getMetaspaceCapacity() {
+        return metaspaceCapacity;
+    }
+
+    public JvmPerfInfo setMetaspaceCapacity(long metaspaceCapacity) {
+        this.metaspaceCapacity = metaspaceCapacity;
+        return this;
+    }
+
+    public long getMetaspaceMaxCapacity() {
+        return metaspaceMaxCapacity;
+    }
+
+    public JvmPerfInfo setMetaspaceMaxCapacity(long metaspaceMaxCapacity) {
+        this.metaspaceMaxCapacity = metaspaceMaxCapacity;
+        return this;
+    }
+
+    public List<GenerationInfo> getGenerations() {
+        return generations;
+    }
+
+    public JvmPerfInfo setGenerations(List<GenerationInfo> generations) {
+        this.generations = generations;
+        return this;
+    }
+
+    public static class GenerationInfo implements JsonParsable {
+        /**
+         * 代名称，例如 new、old
+         */
+        private String name;
+        /**
+         * 已提交字节数
+         */
+        private long capacity;
+        /**
+         * 最大字节数
+         */
+        private long maxCapacity;
+        /**
+         * 已使用字节数，即该代所有space使用量之和
+         */
+        private long used;
+
+        private GenerationInfo() {
+        }
+
+        public static GenerationInfo create() {
+            return new GenerationInfo();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public GenerationInfo setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public long getCapacity() {
+            return capacity;
+        }
+
+        public GenerationInfo setCapacity(long capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public long getMaxCapacity() {
+            return maxCapacity;
+        }
+
+        public GenerationInfo setMaxCapacity(long maxCapacity) {
+            this.maxCapacity = maxCapacity;
+            return this;
+        }
+
+        public long getUsed() {
+            return used;
+        }
+
+        public GenerationInfo setUsed(long used) {
+            this.used = used;
+            return this;
+        }
+    }
+}
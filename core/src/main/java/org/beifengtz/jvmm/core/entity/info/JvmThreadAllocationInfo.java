@@ -0,0 +1,165 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.lang.Thread.State;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Description: 线程堆内存分配速率，由两次采样之间每个线程累计分配字节数的差值计算得到
+ * </p>
+ * <p>
+ * Created in 16:20 2023/10/18
+ *
+ * @author beifengtz
+ */
+public class JvmThreadAllocationInfo implements JsonParsable {
+    /**
+     * 统计窗口，单位ms
+     */
+    private long window;
+    /**
+     * 窗口内所有存活线程分配的字节数之和，窗口内已经结束的线程不计入
+     */
+    private long allocatedBytes;
+    /**
+     * 进程分配速率，单位 bytes/s
+     */
+    private double allocationRate;
+    /**
+     * 窗口内分配最多的线程，按分配字节数从大到小排序
+     */
+    private List<ThreadAllocation> threads;
+
+    private JvmThreadAllocationInfo() {
+        threads = new ArrayList<>();
+    }
+
+    public static JvmThreadAllocationInfo create() {
+        return new JvmThreadAllocationInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public JvmThreadAllocationInfo setWindow(long window) {
+        this.window = window;
+        return this;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public JvmThreadAllocationInfo setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+        return this;
+    }
+
+    public double getAllocationRate() {
+        return allocationRate;
+    }
+
+    public JvmThreadAllocationInfo setAllocationRate(double allocationRate) {
+        this.allocationRate = allocationRate;
+        return this;
+    }
+
+    public List<ThreadAllocation> getThreads() {
+        return threads;
+    }
+
+    public JvmThreadAllocationInfo setThreads(List<ThreadAllocation> threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public static class ThreadAllocation implements JsonParsable {
+        private long id;
+        private String name;
+        private String group;
+        private State state;
+        /**
+         * 窗口内分配的字节数
+         */
+        private long allocatedBytes;
+        /**
+         * 单位 bytes/s
+         */
+        private double allocationRate;
+
+        private ThreadAllocation() {
+        }
+
+        public static ThreadAllocation create() {
+            return new ThreadAllocation();
+        }
+
+        @Override
+        public String toString() {
+            return toJsonStr();
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public ThreadAllocation setId(long id) {
+            this.id = id;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ThreadAllocation setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public ThreadAllocation setGroup(String group) {
+            this.group = group;
+            return this;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public ThreadAllocation setState(State state) {
+            this.state = state;
+            return this;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public ThreadAllocation setAllocatedBytes(long allocatedBytes) {
+            this.allocatedBytes = allocatedBytes;
+            return this;
+        }
+
+        public double getAllocationRate() {
+            return allocationRate;
+        }
+
+        public ThreadAllocation setAllocationRate(double allocationRate) {
+            this.allocationRate = allocationRate;
+            return this;
+        }
+    }
+}
@@ -20,6 +20,10 @@ public class JvmThreadDetailInfo implements JsonParsable {
     Integer priority;
     long userTime;
     long cpuTime;
+    /**
+     * 线程创建以来在堆上累计分配的字节数，JVM 不支持时为 -1
+     */
+    long allocatedBytes;
     long blockedCount;
     long blockedTime;
     long waitedCount;
@@ -114,6 +118,15 @@ public class JvmThreadDetailInfo implements JsonParsable {
         return this;
     }
 
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public JvmThreadDetailInfo setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+        return this;
+    }
+
     public long getBlockedCount() {
         return blockedCount;
     }
@@ -25,6 +25,26 @@ public class NetInfo implements JsonParsable {
     private long udpV4Connections;
     private long udpV6Connections;
     private final Map<TcpState, Integer> tcpStateConnections = new HashMap<>();
+    /**
+     * 已使用的 socket 数量，来自 /proc/net/sockstat，非 Linux 平台为0
+     */
+    private long sockets;
+    /**
+     * 处于使用中的 TCP socket 数量
+     */
+    private long tcpInUse;
+    /**
+     * 不再被进程持有但仍未关闭的 TCP socket 数量
+     */
+    private long tcpOrphan;
+    /**
+     * 处于 TIME_WAIT 状态的 TCP socket 数量
+     */
+    private long tcpTimeWait;
+    /**
+     * 处于使用中的 UDP socket 数量
+     */
+    private long udpInUse;
     /**
      * TCP IPV4 连接信息
      */
@@ -139,6 +159,51 @@ public class NetInfo implements JsonParsable {
         return this;
     }
 
+    public long getSockets() {
+        return sockets;
+    }
+
+    public NetInfo setSockets(long sockets) {
+        this.sockets = sockets;
+        return this;
+    }
+
+    public long getTcpInUse() {
+        return tcpInUse;
+    }
+
+    public NetInfo setTcpInUse(long tcpInUse) {
+        this.tcpInUse = tcpInUse;
+        return this;
+    }
+
+    public long getTcpOrphan() {
+        return tcpOrphan;
+    }
+
+    public NetInfo setTcpOrphan(long tcpOrphan) {
+        this.tcpOrphan = tcpOrphan;
+        return this;
+    }
+
+    public long getTcpTimeWait() {
+        return tcpTimeWait;
+    }
+
+    public NetInfo setTcpTimeWait(long tcpTimeWait) {
+        this.tcpTimeWait = tcpTimeWait;
+        return this;
+    }
+
+    public long getUdpInUse() {
+        return udpInUse;
+    }
+
+    public NetInfo setUdpInUse(long udpInUse) {
+        this.udpInUse = udpInUse;
+        return this;
+    }
+
     public NetInfo addNetworkIFInfo(NetworkIFInfo info) {
         this.networkIFInfos.add(info);
         return this;
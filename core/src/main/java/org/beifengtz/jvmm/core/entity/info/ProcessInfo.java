@@ -41,6 +41,20 @@ public class ProcessInfo implements JsonParsable {
     private List<String> inputArgs;
     private String workDir;
 
+    /**
+     * 进程资源信息，仅Linux下从procfs读取，单位 bytes
+     */
+    private long rss;
+    private long vmSize;
+    private long swap;
+    private long ioReadBytes;
+    private long ioWriteBytes;
+    /**
+     * 进程启动以来的缺页次数，仅Linux下从procfs读取
+     */
+    private long minorFaults;
+    private long majorFaults;
+
     private ProcessInfo() {
     }
 
@@ -174,6 +188,69 @@ public class ProcessInfo implements JsonParsable {
         return this;
     }
 
+    public long getRss() {
+        return rss;
+    }
+
+    public ProcessInfo setRss(long rss) {
+        this.rss = rss;
+        return this;
+    }
+
+    public long getVmSize() {
+        return vmSize;
+    }
+
+    public ProcessInfo setVmSize(long vmSize) {
+        this.vmSize = vmSize;
+        return this;
+    }
+
+    public long getSwap() {
+        return swap;
+    }
+
+    public ProcessInfo setSwap(long swap) {
+        this.swap = swap;
+        return this;
+    }
+
+    public long getIoReadBytes() {
+        return ioReadBytes;
+    }
+
+    public ProcessInfo setIoReadBytes(long ioReadBytes) {
+        this.ioReadBytes = ioReadBytes;
+        return this;
+    }
+
+    public long getIoWriteBytes() {
+        return ioWriteBytes;
+    }
+
+    public ProcessInfo setIoWriteBytes(long ioWriteBytes) {
+        this.ioWriteBytes = ioWriteBytes;
+        return this;
+    }
+
+    public long getMinorFaults() {
+        return minorFaults;
+    }
+
+    public ProcessInfo setMinorFaults(long minorFaults) {
+        this.minorFaults = minorFaults;
+        return this;
+    }
+
+    public long getMajorFaults() {
+        return majorFaults;
+    }
+
+    public ProcessInfo setMajorFaults(long majorFaults) {
+        this.majorFaults = majorFaults;
+        return this;
+    }
+
     @Override
     public String toString() {
         return toJsonStr();
@@ -0,0 +1,187 @@
+package org.beifengtz.jvmm.core.entity.info;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+/**
+ * <p>
+ * Description: profiler 采样请求的状态，包括排队位置、所在会话以及结果
+ * </p>
+ * <p>
+ * Created in 16:40 2023/10/24
+ *
+ * @author beifengtz
+ */
+public class ProfilerSessionInfo implements JsonParsable {
+    /**
+     * 请求id
+     */
+    private long id;
+    /**
+     * 状态：queued、running、finished、failed
+     */
+    private String state;
+    /**
+     * 排队位置，从1开始，不在排队中时为0
+     */
+    private int position;
+    /**
+     * 所在会话id，同一会话中的请求共用一次采样，排队中时为0
+     */
+    private long sessionId;
+    private String event;
+    private String counter;
+    /**
+     * 采样间隔，单位纳秒ns
+     */
+    private Long interval;
+    /**
+     * 输出类型，例如 html、jfr、collapsed、traces、flat
+     */
+    private String output;
+    /**
+     * 请求的采样时长，单位ms
+     */
+    private long duration;
+    private long submitTime;
+    /**
+     * 开始采样的时间戳，排队中时为0
+     */
+    private long startTime;
+    /**
+     * 结束时间戳，未结束时为预计结束时间，排队中时为0
+     */
+    private long endTime;
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    private ProfilerSessionInfo() {
+    }
+
+    public static ProfilerSessionInfo create() {
+        return new ProfilerSessionInfo();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ProfilerSessionInfo setId(long id) {
+        this.id = id;
+        return this;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public ProfilerSessionInfo setState(String state) {
+        this.state = state;
+        return this;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public ProfilerSessionInfo setPosition(int position) {
+        this.position = position;
+        return this;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public ProfilerSessionInfo setSessionId(long sessionId) {
+        this.sessionId = sessionId;
+        return this;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public ProfilerSessionInfo setEvent(String event) {
+        this.event = event;
+        return this;
+    }
+
+    public String getCounter() {
+        return counter;
+    }
+
+    public ProfilerSessionInfo setCounter(String counter) {
+        this.counter = counter;
+        return this;
+    }
+
+    public Long getInterval() {
+        return interval;
+    }
+
+    public ProfilerSessionInfo setInterval(Long interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public ProfilerSessionInfo setOutput(String output) {
+        this.output = output;
+        return this;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public ProfilerSessionInfo setDuration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public long getSubmitTime() {
+        return submitTime;
+    }
+
+    public ProfilerSessionInfo setSubmitTime(long submitTime) {
+        this.submitTime = submitTime;
+        return this;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public ProfilerSessionInfo setStartTime(long startTime) {
+        this.startTime = startTime;
+        return this;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public ProfilerSessionInfo setEndTime(long endTime) {
+        this.endTime = endTime;
+        return this;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public ProfilerSessionInfo setMessage(String message) {
+        this.message = message;
+        return this;
+    }
+}
@@ -10,6 +10,10 @@ import org.beifengtz.jvmm.common.JsonParsable;
  */
 public class ThreadPoolInfo implements JsonParsable {
     private String name;
+    /**
+     * 线程池类型：ThreadPoolExecutor、ForkJoinPool、EventExecutorGroup
+     */
+    private String type;
     //  配置信息
     private String threadFactory;
     private String rejectHandler;
@@ -34,6 +38,28 @@ public class ThreadPoolInfo implements JsonParsable {
     private long taskCount;
     private long completedTaskCount;
 
+    //  下面是注册后由后台采样得到的统计信息
+    /**
+     * 注册后被拒绝的任务数，仅 ThreadPoolExecutor 支持
+     */
+    private long rejectedCount;
+    /**
+     * 最近一个采样周期内的任务完成速率，单位 个/s，仅 ThreadPoolExecutor 支持
+     */
+    private double completedTaskRate;
+    /**
+     * 注册后的采样次数，以下分布均基于这些采样，未注册的线程池为0
+     */
+    private long samples;
+    private long queueSizeP50;
+    private long queueSizeP90;
+    private long queueSizeP99;
+    private long queueSizeMax;
+    private long activeThreadP50;
+    private long activeThreadP90;
+    private long activeThreadP99;
+    private long activeThreadMax;
+
     private ThreadPoolInfo() {
 
     }
@@ -181,4 +207,112 @@ public class ThreadPoolInfo implements JsonParsable {
     public String toString() {
         return toJsonStr();
     }
+
+    public String getType() {
+        return type;
+    }
+
+    public ThreadPoolInfo setType(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public ThreadPoolInfo setRejectedCount(long rejectedCount) {
+        this.rejectedCount = rejectedCount;
+        return this;
+    }
+
+    public double getCompletedTaskRate() {
+        return completedTaskRate;
+    }
+
+    public ThreadPoolInfo setCompletedTaskRate(double completedTaskRate) {
+        this.completedTaskRate = completedTaskRate;
+        return this;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public ThreadPoolInfo setSamples(long samples) {
+        this.samples = samples;
+        return this;
+    }
+
+    public long getQueueSizeP50() {
+        return queueSizeP50;
+    }
+
+    public ThreadPoolInfo setQueueSizeP50(long queueSizeP50) {
+        this.queueSizeP50 = queueSizeP50;
+        return this;
+    }
+
+    public long getQueueSizeP90() {
+        return queueSizeP90;
+    }
+
+    public ThreadPoolInfo setQueueSizeP90(long queueSizeP90) {
+        this.queueSizeP90 = queueSizeP90;
+        return this;
+    }
+
+    public long getQueueSizeP99() {
+        return queueSizeP99;
+    }
+
+    public ThreadPoolInfo setQueueSizeP99(long queueSizeP99) {
+        this.queueSizeP99 = queueSizeP99;
+        return this;
+    }
+
+    public long getQueueSizeMax() {
+        return queueSizeMax;
+    }
+
+    public ThreadPoolInfo setQueueSizeMax(long queueSizeMax) {
+        this.queueSizeMax = queueSizeMax;
+        return this;
+    }
+
+    public long getActiveThreadP50() {
+        return activeThreadP50;
+    }
+
+    public ThreadPoolInfo setActiveThreadP50(long activeThreadP50) {
+        this.activeThreadP50 = activeThreadP50;
+        return this;
+    }
+
+    public long getActiveThreadP90() {
+        return activeThreadP90;
+    }
+
+    public ThreadPoolInfo setActiveThreadP90(long activeThreadP90) {
+        this.activeThreadP90 = activeThreadP90;
+        return this;
+    }
+
+    public long getActiveThreadP99() {
+        return activeThreadP99;
+    }
+
+    public ThreadPoolInfo setActiveThreadP99(long activeThreadP99) {
+        this.activeThreadP99 = activeThreadP99;
+        return this;
+    }
+
+    public long getActiveThreadMax() {
+        return activeThreadMax;
+    }
+
+    public ThreadPoolInfo setActiveThreadMax(long activeThreadMax) {
+        this.activeThreadMax = activeThreadMax;
+        return this;
+    }
 }
@@ -17,6 +17,10 @@ public class ThreadTimedInfo implements JsonParsable {
     private State state;
     private long userTime;
     private long cpuTime;
+    /**
+     * 统计窗口内占用单个 CPU 核心的百分比
+     */
+    private double cpuUsage;
 
     @Override
     public String toString() {
@@ -76,4 +80,13 @@ public class ThreadTimedInfo implements JsonParsable {
         this.cpuTime = cpuTime;
         return this;
     }
+
+    public double getCpuUsage() {
+        return cpuUsage;
+    }
+
+    public ThreadTimedInfo setCpuUsage(double cpuUsage) {
+        this.cpuUsage = cpuUsage;
+        return this;
+    }
 }
@@ -0,0 +1,159 @@
+package org.beifengtz.jvmm.core.entity.profiler;
+
+import org.beifengtz.jvmm.common.JsonParsable;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * Description: JFR 录制参数，在预置配置（default、profile）的基础上开启对象分配采样、监视器竞争、GC 阶段、Socket I/O 等事件
+ * </p>
+ * <p>
+ * Created in 10:20 2023/10/26
+ *
+ * @author beifengtz
+ */
+public class JfrOptions implements JsonParsable {
+    /**
+     * 录制名称，为空时使用 jvmm-{id}
+     */
+    private String name;
+    /**
+     * 预置配置名称，JDK 自带 default（开销约1%）和 profile（开销约2%）
+     */
+    private String settings = "default";
+    /**
+     * 是否开启对象分配采样，JDK 16 及以上为 jdk.ObjectAllocationSample，更低的版本为 TLAB 内外的分配事件
+     */
+    private boolean allocation = false;
+    /**
+     * 监视器竞争事件 jdk.JavaMonitorEnter 的阈值，单位ms，为 null 时保持预置配置
+     */
+    private Long monitorThreshold;
+    /**
+     * 是否开启 GC 各阶段的停顿与并发事件
+     */
+    private boolean gc = false;
+    /**
+     * Socket 读写事件 jdk.SocketRead、jdk.SocketWrite 的阈值，单位ms，为 null 时保持预置配置
+     */
+    private Long socketThreshold;
+    /**
+     * 自定义的事件配置，最后生效，例如 jdk.ThreadSleep#threshold = 10 ms
+     */
+    private Map<String, String> custom;
+    /**
+     * 录制时长，单位秒，到时自动停止，小于等于0时需要手动停止
+     */
+    private long duration = 0;
+    /**
+     * 磁盘上保留数据的最长时间，单位秒，小于等于0时不限制
+     */
+    private long maxAge = 0;
+    /**
+     * 磁盘上保留数据的最大字节数，小于等于0时不限制
+     */
+    private long maxSize = 256 * 1024 * 1024;
+
+    private JfrOptions() {
+    }
+
+    public static JfrOptions create() {
+        return new JfrOptions();
+    }
+
+    @Override
+    public String toString() {
+        return toJsonStr();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JfrOptions setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public JfrOptions setSettings(String settings) {
+        this.settings = settings;
+        return this;
+    }
+
+    public boolean isAllocation() {
+        return allocation;
+    }
+
+    public JfrOptions setAllocation(boolean allocation) {
+        this.allocation = allocation;
+        return this;
+    }
+
+    public Long getMonitorThreshold() {
+        return monitorThreshold;
+    }
+
+    public JfrOptions setMonitorThreshold(Long monitorThreshold) {
+        this.monitorThreshold = monitorThreshold;
+        return this;
+    }
+
+    public boolean isGc() {
+        return gc;
+    }
+
+    public JfrOptions setGc(boolean gc) {
+        this.gc = gc;
+        return this;
+    }
+
+    public Long getSocketThreshold() {
+        return socketThreshold;
+    }
+
+    public JfrOptions setSocketThreshold(Long socketThreshold) {
+        this.socketThreshold = socketThreshold;
+        return this;
+    }
+
+    public Map<String, String> getCustom() {
+        return custom;
+    }
+
+    public JfrOptions setCustom(Map<String, String> custom) {
+        this.custom = custom;
+        return this;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public JfrOptions setDuration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public JfrOptions setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public JfrOptions setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+}
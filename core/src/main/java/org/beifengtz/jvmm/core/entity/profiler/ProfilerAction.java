@@ -18,5 +18,9 @@ public enum ProfilerAction {
     status,
     check,
     summary,
-    collapsed
+    collapsed,
+    /**
+     * 不停止采样输出当前已采集的数据，输出类型由 file、collapsed、traces、flat 等参数决定
+     */
+    dump
 }
@@ -25,6 +25,10 @@ public class ProfilerCommander {
     private Long interval;
     private Integer traces;
     private Integer flat;
+    /**
+     * 以 collapsed 格式输出，用于 {@link ProfilerAction#dump}
+     */
+    private boolean collapsed;
     /**
      * 如果生成的csv或html出现frame_buffer_overflow，需要扩大此值（默认值1_000_000）
      */
@@ -75,6 +79,9 @@ public class ProfilerCommander {
         if (this.flat != null) {
             sb.append("flat=").append(this.flat).append(',');
         }
+        if (this.collapsed) {
+            sb.append("collapsed,");
+        }
         if (this.frameBuf != null) {
             sb.append("framebuf=").append(this.frameBuf).append(',');
         }
@@ -193,6 +200,11 @@ public class ProfilerCommander {
         return this;
     }
 
+    public ProfilerCommander setCollapsed(boolean collapsed) {
+        this.collapsed = collapsed;
+        return this;
+    }
+
     public ProfilerAction getAction() {
         return action;
     }
@@ -221,6 +233,10 @@ public class ProfilerCommander {
         return flat;
     }
 
+    public boolean isCollapsed() {
+        return collapsed;
+    }
+
     public String getFrameBuf() {
         return frameBuf;
     }
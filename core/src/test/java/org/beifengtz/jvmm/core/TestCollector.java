@@ -1,20 +1,63 @@
 package org.beifengtz.jvmm.core;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.nio.NioEventLoopGroup;
 import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.common.procfs.ProcFs;
 import org.beifengtz.jvmm.common.util.IPUtil;
+import org.beifengtz.jvmm.core.contanstant.CollectionType;
 import org.beifengtz.jvmm.core.driver.OSDriver;
+import org.beifengtz.jvmm.core.driver.OSRateSampler;
+import org.beifengtz.jvmm.core.entity.info.CPUInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmBufferPoolInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmClassHistogramInfo;
+import org.beifengtz.jvmm.core.entity.info.CollectorCacheInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmClassLoaderInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmGCPauseInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmLockContentionInfo;
 import org.beifengtz.jvmm.core.entity.info.JvmMemoryInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmMetricHistoryInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmNativeMemoryInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmPerfInfo;
+import org.beifengtz.jvmm.core.entity.info.JvmThreadAllocationInfo;
+import org.beifengtz.jvmm.core.entity.info.ProcessInfo;
+import org.beifengtz.jvmm.core.entity.info.ThreadPoolInfo;
 import org.beifengtz.jvmm.core.entity.info.ThreadTimedInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import oshi.SystemInfo;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * <p>
@@ -41,6 +84,17 @@ public class TestCollector {
         System.out.println(Arrays.toString(split));
     }
 
+    @Test
+    public void testProcess() {
+        ProcessInfo info = JvmmFactory.getCollector().getProcess();
+        System.out.println(info);
+        if (ProcFs.isSupported()) {
+            Assertions.assertTrue(info.getRss() > 0);
+            //  JVM 启动过程中必然发生过缺页
+            Assertions.assertTrue(info.getMinorFaults() > 0);
+        }
+    }
+
     @Test
     public void testIp() {
         System.out.println(IPUtil.getLocalIP());
@@ -60,6 +114,37 @@ public class TestCollector {
         Thread.sleep(2000);
     }
 
+    @Test
+    public void testOSRateSampler() throws Exception {
+        OSDriver osDriver = OSDriver.get();
+        OSRateSampler sampler = osDriver.getRateSampler();
+        sampler.start(1);
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!sampler.isReady() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            Assertions.assertTrue(sampler.isReady());
+
+            //  已有后台窗口时直接返回，不再等待1秒的新采样
+            long start = System.nanoTime();
+            CompletableFuture<OSRateSampler.RateWindow> future = osDriver.getRateWindow();
+            Assertions.assertTrue(future.isDone());
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+
+            OSRateSampler.RateWindow window = future.get();
+            CPUInfo cpu = window.getCPUInfo();
+            Assertions.assertNotNull(cpu);
+            Assertions.assertTrue(cpu.getCpuNum() > 0);
+            SystemInfo si = new SystemInfo();
+            Assertions.assertEquals(si.getHardware().getNetworkIFs().isEmpty(), window.getNetworkIFInfos().isEmpty());
+            Assertions.assertEquals(si.getHardware().getDiskStores().isEmpty(), window.getDiskIOInfos(null).isEmpty());
+        } finally {
+            sampler.stop();
+        }
+        Assertions.assertFalse(sampler.isReady());
+    }
+
     @Test
     public void testThreadPool() {
         JvmmCollector collector = JvmmFactory.getCollector();
@@ -128,4 +213,660 @@ public class TestCollector {
         thread.start();
         System.out.println("started loop thread " + thread.getId());
     }
+
+    /**
+     * 观察线程数增长时 dumpAllThreads 和 getAllJvmThreadDetailInfo 的耗时变化，耗时应随线程数近似线性增长。
+     * 需要创建数千个线程，只在需要时手动运行
+     */
+    @Test
+    @Disabled("Benchmark, run manually")
+    public void benchmarkThreadScaling() throws InterruptedException {
+        JvmmCollector collector = JvmmFactory.getCollector();
+        CountDownLatch stop = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        try {
+            for (int target : new int[]{500, 1000, 2000, 4000}) {
+                while (threads.size() < target) {
+                    Thread thread = new Thread(() -> {
+                        try {
+                            stop.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                    });
+                    thread.setDaemon(true);
+                    thread.start();
+                    threads.add(thread);
+                }
+
+                //  预热
+                collector.dumpAllThreads();
+                collector.getAllJvmThreadDetailInfo();
+
+                int rounds = 5;
+                long start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    collector.dumpAllThreads();
+                }
+                long dumpCost = (System.nanoTime() - start) / rounds;
+
+                start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    collector.getAllJvmThreadDetailInfo();
+                }
+                long detailCost = (System.nanoTime() - start) / rounds;
+
+                System.out.printf("threads=%d dumpAllThreads=%.2fms getAllJvmThreadDetailInfo=%.2fms%n",
+                        target, dumpCost / 1e6, detailCost / 1e6);
+            }
+        } finally {
+            stop.countDown();
+        }
+    }
+
+    @Test
+    public void testThreadCpuSampler() throws Exception {
+        CountDownLatch stop = new CountDownLatch(1);
+        Thread busy = new Thread(() -> {
+            long x = 0;
+            while (stop.getCount() > 0) {
+                x += System.nanoTime() % 7;
+            }
+            System.out.println(x);
+        }, "jvmm-busy-thread");
+        busy.start();
+
+        ThreadCpuSampler sampler = JvmmFactory.getThreadCpuSampler();
+        sampler.start(2);
+        try {
+            Thread.sleep(3500);
+            Assertions.assertTrue(sampler.isReady());
+
+            //  其他用例遗留的线程也可能占用CPU，按线程id在完整列表中查找忙线程，不依赖其排名
+            List<ThreadTimedInfo> all = sampler.getTopThreads(2, 0);
+            ThreadTimedInfo busyInfo = all.stream().filter(o -> o.getId() == busy.getId()).findFirst().orElse(null);
+            Assertions.assertNotNull(busyInfo);
+            Assertions.assertTrue(busyInfo.getCpuUsage() > 10);
+            for (int i = 1; i < all.size(); i++) {
+                Assertions.assertTrue(all.get(i - 1).getCpuTime() >= all.get(i).getCpuTime());
+            }
+
+            long start = System.nanoTime();
+            List<ThreadTimedInfo> top = JvmmFactory.getCollector().getThreadCpuTop(2, 3).get();
+            System.out.println("Top threads cost " + (System.nanoTime() - start) / 1000 + " us: " + top);
+            Assertions.assertEquals(Math.min(3, all.size()), top.size());
+            for (int i = 1; i < top.size(); i++) {
+                Assertions.assertTrue(top.get(i - 1).getCpuTime() >= top.get(i).getCpuTime());
+            }
+
+            //  超出环形缓冲区的窗口取边界值，仍然立即返回
+            CompletableFuture<List<ThreadTimedInfo>> oversized = JvmmFactory.getCollector().getThreadCpuTop(3600, 3);
+            Assertions.assertTrue(oversized.isDone());
+        } finally {
+            sampler.stop();
+            stop.countDown();
+        }
+    }
+
+    @Test
+    public void testGCPause() throws Exception {
+        JvmmCollector collector = JvmmFactory.getCollector();
+        collector.getJvmGCPause();
+        List<byte[]> garbage = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 1000; j++) {
+                garbage.add(new byte[10240]);
+            }
+            garbage.clear();
+            System.gc();
+        }
+        //  GC 通知是异步发出的
+        Thread.sleep(500);
+        JvmGCPauseInfo info = collector.getJvmGCPause();
+        System.out.println(info);
+        Assertions.assertFalse(info.getPauses().isEmpty());
+        Assertions.assertTrue(info.getAllocatedBytes() > 0);
+        JvmmFactory.getGCPauseRecorder().uninstall();
+
+        //  并发周期的耗时不计入停顿
+        Assertions.assertTrue(GCPauseRecorder.isConcurrentCycle("G1 Concurrent GC", "end of concurrent GC"));
+        Assertions.assertTrue(GCPauseRecorder.isConcurrentCycle("ZGC Cycles", "end of GC cycle"));
+        Assertions.assertTrue(GCPauseRecorder.isConcurrentCycle("Shenandoah Cycles", "end of GC cycle"));
+        Assertions.assertTrue(GCPauseRecorder.isConcurrentCycle("ConcurrentMarkSweep", "end of major GC"));
+        Assertions.assertFalse(GCPauseRecorder.isConcurrentCycle("G1 Young Generation", "end of minor GC"));
+        Assertions.assertFalse(GCPauseRecorder.isConcurrentCycle("ZGC Pauses", "end of GC pause"));
+        Assertions.assertFalse(GCPauseRecorder.isConcurrentCycle("PS MarkSweep", "end of major GC"));
+    }
+
+    @Test
+    public void testClassLoaderRegistry() throws Exception {
+        ClassLoaderRegistry registry = JvmmFactory.getClassLoaderRegistry();
+        ClassLoader loader = TestCollector.class.getClassLoader();
+        Assertions.assertSame(loader, registry.getClassLoader(loader.hashCode()));
+        Assertions.assertSame(TestCollector.class, registry.findLoadedClass(loader.hashCode(), TestCollector.class.getName()));
+        Assertions.assertEquals(1, registry.findLoadedClasses(TestCollector.class.getName()).size());
+
+        List<JvmClassLoaderInfo> tree = registry.getClassLoaderTree();
+        System.out.println(tree);
+        //  从根节点沿着父加载器链向下应该能找到当前 ClassLoader
+        List<ClassLoader> chain = new ArrayList<>();
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            chain.add(0, l);
+        }
+        List<JvmClassLoaderInfo> level = tree;
+        for (ClassLoader l : chain) {
+            JvmClassLoaderInfo node = level.stream().filter(info -> info.getHash() == l.hashCode()).findFirst().orElse(null);
+            Assertions.assertNotNull(node);
+            level = node.getChildren();
+        }
+
+        //  hashcode 相同的两个 ClassLoader 各自登记，不会互相覆盖
+        ClassLoader a = new ClassLoader(loader) {
+            @Override
+            public int hashCode() {
+                return 20231019;
+            }
+        };
+        ClassLoader b = new ClassLoader(loader) {
+            @Override
+            public int hashCode() {
+                return 20231019;
+            }
+        };
+        ClassLoader origin = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(a);
+            registry.getClassLoaders();
+            Thread.currentThread().setContextClassLoader(b);
+            List<ClassLoader> loaders = registry.getClassLoaders();
+            Assertions.assertTrue(loaders.stream().anyMatch(l -> l == a));
+            Assertions.assertTrue(loaders.stream().anyMatch(l -> l == b));
+            //  按 hashcode 查找走索引，返回的是登记过的其中一个
+            ClassLoader found = registry.getClassLoader(20231019);
+            Assertions.assertTrue(found == a || found == b);
+        } finally {
+            Thread.currentThread().setContextClassLoader(origin);
+        }
+    }
+
+    @Test
+    public void testJvmPerf() throws Exception {
+        JvmmCollector collector = JvmmFactory.getCollector();
+        JvmPerfInfo before = collector.getJvmPerf(0);
+        System.out.println(before);
+        System.gc();
+        JvmPerfInfo after = collector.getJvmPerf(0);
+        Assertions.assertTrue(after.getLoadedClasses() > 0);
+        Assertions.assertTrue(after.getSafepoints() > before.getSafepoints());
+        Assertions.assertFalse(after.getGenerations().isEmpty());
+        Assertions.assertFalse(collector.getJvmPerfCounters(0, "sun.gc.").isEmpty());
+    }
+
+    @Test
+    public void testThreadAllocation() throws Exception {
+        CountDownLatch stop = new CountDownLatch(1);
+        Thread allocator = new Thread(() -> {
+            List<byte[]> holder = new ArrayList<>();
+            while (stop.getCount() > 0) {
+                holder.add(new byte[1024]);
+                if (holder.size() > 1000) {
+                    holder.clear();
+                }
+            }
+        }, "jvmm-allocator-thread");
+        allocator.start();
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean allocatedMemoryEnabled = mx.isThreadAllocatedMemoryEnabled();
+        mx.setThreadAllocatedMemoryEnabled(false);
+        try {
+            JvmmCollector collector = JvmmFactory.getCollector();
+            //  采样器未运行时两个并发调用各自统计，互不缩短对方的窗口
+            CompletableFuture<JvmThreadAllocationInfo> f1 = collector.getThreadAllocation(3);
+            CompletableFuture<JvmThreadAllocationInfo> f2 = collector.getThreadAllocation(3);
+            for (JvmThreadAllocationInfo info : new JvmThreadAllocationInfo[]{f1.get(), f2.get()}) {
+                System.out.println(info);
+                Assertions.assertTrue(info.getWindow() >= 1000);
+                Assertions.assertTrue(info.getThreads().size() <= 3);
+                Assertions.assertEquals(allocator.getId(), info.getThreads().get(0).getId());
+                Assertions.assertTrue(info.getAllocationRate() > 0);
+            }
+
+            ThreadCpuSampler sampler = JvmmFactory.getThreadCpuSampler();
+            sampler.start(2);
+            try {
+                while (!sampler.isReady()) {
+                    Thread.sleep(100);
+                }
+                Thread.sleep(1100);
+                CompletableFuture<JvmThreadAllocationInfo> f3 = collector.getThreadAllocation(3);
+                Assertions.assertTrue(f3.isDone());
+                JvmThreadAllocationInfo info = f3.get();
+                System.out.println(info);
+                Assertions.assertTrue(info.getWindow() >= 1500);
+                Assertions.assertEquals(allocator.getId(), info.getThreads().get(0).getId());
+                //  查询不推进统计起点，紧接着的第二次查询仍然得到同样长度的窗口
+                Assertions.assertTrue(collector.getThreadAllocation(3).get().getWindow() >= 1500);
+            } finally {
+                sampler.stop();
+            }
+            //  统计和采样器都结束后恢复开关原来的状态
+            Assertions.assertFalse(mx.isThreadAllocatedMemoryEnabled());
+        } finally {
+            stop.countDown();
+            mx.setThreadAllocatedMemoryEnabled(allocatedMemoryEnabled);
+        }
+    }
+
+    @Test
+    public void testCachedCollector() throws Exception {
+        CachedJvmmCollector collector = new CachedJvmmCollector(new DefaultJvmmCollector());
+        collector.setTtl(CollectionType.cpu, 10_000);
+        collector.setTtl(CollectionType.jvm_memory, 10_000);
+
+        //  进行中的采集被并发调用方共享
+        CompletableFuture<CPUInfo> first = collector.getCPU();
+        CompletableFuture<CPUInfo> second = collector.getCPU();
+        Assertions.assertSame(first, second);
+        Assertions.assertNotNull(first.get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(first, collector.getCPU());
+
+        //  cpu、network、disk_io 共用的速率窗口按其中配置的 TTL 缓存
+        CompletableFuture<OSRateSampler.RateWindow> window = collector.getRateWindow();
+        Assertions.assertSame(window, collector.getRateWindow());
+        Assertions.assertNotNull(window.get(5, TimeUnit.SECONDS).getCPUInfo());
+        collector.setTtl(CollectionType.cpu, 0);
+        Assertions.assertNotSame(window, collector.getRateWindow());
+        collector.setTtl(CollectionType.cpu, 10_000);
+
+        JvmMemoryInfo memory = collector.getJvmMemory();
+        Assertions.assertSame(memory, collector.getJvmMemory());
+        //  未配置缓存的采集项每次都重新采集
+        Assertions.assertNotSame(collector.getJvmThread(), collector.getJvmThread());
+
+        CollectorCacheInfo info = collector.getCacheInfo();
+        System.out.println(info);
+        for (CollectorCacheInfo.CacheItem item : info.getItems()) {
+            if (CollectionType.cpu.name().equals(item.getType())) {
+                Assertions.assertEquals(1, item.getMisses());
+                Assertions.assertEquals(2, item.getHits());
+            } else if (CollectionType.jvm_memory.name().equals(item.getType())) {
+                Assertions.assertEquals(1, item.getMisses());
+                Assertions.assertEquals(1, item.getHits());
+            }
+        }
+
+        collector.setTtl(CollectionType.jvm_memory, 0);
+        Assertions.assertNotSame(memory, collector.getJvmMemory());
+    }
+
+    @Test
+    public void testThreadPoolRegistry() throws Exception {
+        ThreadPoolRegistry registry = new ThreadPoolRegistry();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+        NioEventLoopGroup group = new NioEventLoopGroup(2);
+        CountDownLatch block = new CountDownLatch(1);
+        try {
+            registry.register("tpe", executor);
+            registry.register("fjp", forkJoinPool);
+            registry.register("netty", group);
+            registry.register("jvmm", null, ExecutorFactory.class.getName(), null, "SCHEDULE_THREAD_POOL");
+            Assertions.assertThrows(IllegalArgumentException.class, () -> registry.register("bad", "not a pool"));
+
+            executor.execute(() -> {
+                try {
+                    block.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            executor.execute(() -> {
+            });
+            Assertions.assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+            }));
+            group.next().execute(() -> {
+                try {
+                    block.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+
+            ThreadPoolInfo info = registry.getInfo("tpe");
+            System.out.println(info);
+            Assertions.assertEquals("ThreadPoolExecutor", info.getType());
+            Assertions.assertEquals(1, info.getRejectedCount());
+            Assertions.assertEquals(1, info.getQueueSize());
+            Assertions.assertTrue(info.getSamples() >= 1);
+
+            Assertions.assertEquals("ForkJoinPool", registry.getInfo("fjp").getType());
+            ThreadPoolInfo netty = registry.getInfo("netty");
+            Assertions.assertEquals("EventExecutorGroup", netty.getType());
+            Assertions.assertEquals(2, netty.getThreadCount());
+            Assertions.assertEquals(4, registry.getInfos().size());
+
+            //  注销后还原原有的拒绝策略
+            Assertions.assertTrue(registry.unregister("tpe"));
+            Assertions.assertTrue(executor.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+
+            //  不同 ClassLoader 加载的同名类使用各自的字段解析结果
+            URL classes = PoolHolder.class.getProtectionDomain().getCodeSource().getLocation();
+            try (URLClassLoader isolated = new URLClassLoader(new URL[]{classes}, null)) {
+                Object pool = registry.resolve(null, PoolHolder.class.getName(), null, "POOL");
+                Object isolatedPool = registry.resolve(isolated, PoolHolder.class.getName(), null, "POOL");
+                Assertions.assertSame(PoolHolder.POOL, pool);
+                Assertions.assertNotSame(pool, isolatedPool);
+                Assertions.assertSame(isolatedPool, registry.resolve(isolated, PoolHolder.class.getName(), null, "POOL"));
+            }
+        } finally {
+            block.countDown();
+            registry.clear();
+            executor.shutdownNow();
+            forkJoinPool.shutdownNow();
+            group.shutdownGracefully();
+        }
+    }
+
+    private static final class PoolHolder {
+        private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+    }
+
+    @Test
+    public void testLockContention() throws Exception {
+        Object monitor = new Object();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread owner = new Thread(() -> {
+            synchronized (monitor) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, "lock-owner");
+        Thread waiter = new Thread(() -> {
+            synchronized (monitor) {
+                monitor.hashCode();
+            }
+        }, "lock-waiter");
+        owner.start();
+        locked.await();
+        waiter.start();
+
+        LockContentionSampler sampler = new LockContentionSampler();
+        try {
+            sampler.start(10);
+            Thread.sleep(300);
+            sampler.stop();
+            JvmLockContentionInfo info = sampler.getContention(5, true);
+            System.out.println(info);
+            Assertions.assertTrue(info.getSamples() > 0);
+            JvmLockContentionInfo.LockHotSpot hotSpot = info.getHotSpots().get(0);
+            Assertions.assertEquals("BLOCKED", hotSpot.getState());
+            Assertions.assertEquals("lock-owner", hotSpot.getTopOwner());
+            Assertions.assertTrue(hotSpot.getFrame().contains("testLockContention"));
+            Assertions.assertTrue(info.getWaitsFor().stream().anyMatch(edge ->
+                    edge.getWaiterId() == waiter.getId() && edge.getOwnerId() == owner.getId()));
+            Assertions.assertEquals(0, sampler.getContention(5, false).getHotSpots().size());
+        } finally {
+            sampler.stop();
+            release.countDown();
+            owner.join();
+            waiter.join();
+        }
+
+        JvmLockContentionInfo temporary = new DefaultJvmmCollector().getLockContention(5).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(10, temporary.getSamples());
+    }
+
+    @Test
+    public void testNativeMemory() throws Exception {
+        String jdk8 = "\nNative Memory Tracking:\n\n" +
+                "Total: reserved=2866138KB, committed=120554KB\n" +
+                "-                 Java Heap (reserved=1540096KB, committed=96256KB)\n" +
+                "                            (mmap: reserved=1540096KB, committed=96256KB) \n \n" +
+                "-                     Class (reserved=1056956KB, committed=6972KB)\n" +
+                "                            (classes #1156)\n" +
+                "                            (malloc=188KB #747) \n \n" +
+                "-    Native Memory Tracking (reserved=71KB, committed=71KB)\n";
+        JvmNativeMemoryInfo info = NativeMemoryTracker.parse(jdk8);
+        Assertions.assertTrue(info.isEnabled());
+        Assertions.assertEquals(2866138L * 1024, info.getReserved());
+        Assertions.assertEquals(3, info.getCategories().size());
+        Assertions.assertEquals("Native Memory Tracking", info.getCategories().get(2).getName());
+        Assertions.assertEquals(6972L * 1024, info.getCategories().get(1).getCommitted());
+
+        String jdk21 = "Native Memory Tracking:\n\n(Omitting categories weighting less than 1KB)\n\n" +
+                "Total: reserved=2945854KB, committed=140686KB\n" +
+                "       malloc: 10222KB #51002\n" +
+                "       mmap:   reserved=2935632KB, committed=130464KB\n\n" +
+                "-                 Java Heap (reserved=1540096KB, committed=96256KB)\n" +
+                "                            (  Class space:)\n" +
+                "                            (    reserved=1048576KB, committed=1472KB)\n";
+        info = NativeMemoryTracker.parse(jdk21);
+        Assertions.assertEquals(140686L * 1024, info.getCommitted());
+        Assertions.assertEquals(1, info.getCategories().size());
+
+        Assertions.assertFalse(NativeMemoryTracker.parse("Native memory tracking is not enabled").isEnabled());
+        //  测试 JVM 未开启 NMT
+        Assertions.assertFalse(new DefaultJvmmCollector().getJvmNativeMemory().isEnabled());
+    }
+
+    @Test
+    public void testClassHistogram() throws Exception {
+        ClassHistogramRecorder recorder = new ClassHistogramRecorder();
+        String jdk17 = " num     #instances         #bytes  class name (module)\n" +
+                "-------------------------------------------------------\n" +
+                "   1:         12870         983048  [B (java.base@17.0.9)\n" +
+                "   2:          3125         372768  java.lang.Class (java.base@17.0.9)\n" +
+                "   3:             1             16  com.example.Foo$$Lambda$1/0x0000000800c01000\n" +
+                "Total         15996        1355832\n";
+        ClassHistogramRecorder.Snapshot snapshot = recorder.parse(jdk17, true);
+        Assertions.assertEquals(3, snapshot.size());
+        Assertions.assertEquals("[B", recorder.getClassName(snapshot.getClassId(0)));
+        Assertions.assertEquals("com.example.Foo$$Lambda$1/0x0000000800c01000", recorder.getClassName(snapshot.getClassId(2)));
+        Assertions.assertEquals(1355832, snapshot.getTotalBytes());
+
+        //  同名类复用名称 id
+        String next = "   1:         12870         983048  [B (java.base@17.0.9)\n" +
+                "   2:          4000         500000  java.lang.Class (java.base@17.0.9)\n" +
+                "   3:           100           2400  java.lang.String (java.base@17.0.9)\n" +
+                "Total         16970        1485448\n";
+        ClassHistogramRecorder.Snapshot current = recorder.parse(next, true);
+        Assertions.assertEquals(snapshot.getClassId(0), current.getClassId(0));
+        JvmClassHistogramInfo diff = recorder.diff(snapshot, current, 10);
+        Assertions.assertEquals(2, diff.getItems().size());
+        Assertions.assertEquals("java.lang.Class", diff.getItems().get(0).getClassName());
+        Assertions.assertEquals(127232, diff.getItems().get(0).getBytesDiff());
+        Assertions.assertEquals(100, diff.getItems().get(1).getInstancesDiff());
+        Assertions.assertEquals(129616, diff.getBytesDiff());
+
+        //  名称表超出上限后重建，基线快照转换到新表后仍然可以对比
+        ClassHistogramRecorder bounded = new ClassHistogramRecorder(4);
+        bounded.setBaseline(bounded.parse(jdk17, false));
+        StringBuilder generated = new StringBuilder();
+        for (int i = 1; i <= 8; i++) {
+            generated.append("   ").append(i).append(":   1   16  com.example.Foo$$Lambda$").append(i).append("/0x0000000800c0100").append(i).append('\n');
+        }
+        ClassHistogramRecorder.Snapshot stale = bounded.parse(generated, false);
+        Assertions.assertEquals(11, bounded.getClassNameCount());
+        ClassHistogramRecorder.Snapshot fresh = bounded.parse(next, false);
+        Assertions.assertEquals(4, bounded.getClassNameCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bounded.diff(stale, fresh, 10));
+        diff = bounded.diff(bounded.getBaseline(), fresh, 10);
+        Assertions.assertEquals("java.lang.Class", diff.getItems().get(0).getClassName());
+        Assertions.assertEquals(127232, diff.getItems().get(0).getBytesDiff());
+
+        JvmmCollector collector = new DefaultJvmmCollector();
+        JvmClassHistogramInfo info = collector.getJvmClassHistogram(5, false);
+        System.out.println(info);
+        Assertions.assertEquals(5, info.getItems().size());
+        Assertions.assertTrue(info.getTotalBytes() > 0);
+
+        List<LeakObject> leak = new ArrayList<>();
+        collector.getJvmClassHistogramDiff(5, true, false);
+        for (int i = 0; i < 1024; i++) {
+            leak.add(new LeakObject());
+        }
+        diff = collector.getJvmClassHistogramDiff(0, true, false);
+        Assertions.assertTrue(diff.getItems().stream().anyMatch(item ->
+                LeakObject.class.getName().equals(item.getClassName()) && item.getInstancesDiff() == 1024));
+        Assertions.assertEquals(1024, leak.size());
+    }
+
+    @Test
+    public void testBufferPool() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(1024);
+        ByteBuffer direct = ByteBuffer.allocateDirect(1024);
+        try {
+            JvmBufferPoolInfo info = JvmmFactory.getCollector().getJvmBufferPool();
+            System.out.println(info);
+            Assertions.assertTrue(info.getPools().stream().anyMatch(o -> "direct".equals(o.getName()) && o.getMemoryUsed() >= 1024));
+            Assertions.assertFalse(info.getNetty().isEmpty());
+            JvmBufferPoolInfo.PooledAllocator allocator = info.getNetty().get(0).getAllocator();
+            Assertions.assertNotNull(allocator);
+            Assertions.assertFalse(allocator.getArenas().isEmpty());
+            Assertions.assertEquals(1024, direct.capacity());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testMetricHistory() {
+        MetricHistory history = new MetricHistory();
+        history.resize(4);
+        long[] counter = {0};
+        history.register("test_counter", () -> counter[0]++);
+        for (int i = 1; i <= 6; i++) {
+            history.record(i * 1000L);
+        }
+
+        //  只保留最近4次采样
+        JvmMetricHistoryInfo all = history.query(0, 0, "test_counter", "jvm_heap_used", "not_exists");
+        System.out.println(all);
+        Assertions.assertArrayEquals(new long[]{3000, 4000, 5000, 6000}, all.getTimestamps());
+        Assertions.assertArrayEquals(new Double[]{2.0, 3.0, 4.0, 5.0}, all.getMetrics().get("test_counter"));
+        Assertions.assertTrue(all.getMetrics().get("jvm_heap_used")[0] > 0);
+        Assertions.assertFalse(all.getMetrics().containsKey("not_exists"));
+
+        JvmMetricHistoryInfo range = history.query(3500, 5000, "test_counter");
+        Assertions.assertArrayEquals(new long[]{4000, 5000}, range.getTimestamps());
+        Assertions.assertArrayEquals(new Double[]{3.0, 4.0}, range.getMetrics().get("test_counter"));
+
+        //  后注册的指标在注册之前的采样中为null
+        history.register("test_late", () -> 1);
+        history.record(7000L);
+        Double[] late = history.query(6000, 0, "test_late").getMetrics().get("test_late");
+        Assertions.assertArrayEquals(new Double[]{null, 1.0}, late);
+    }
+
+    @Test
+    public void testContinuousProfileChunks() throws Exception {
+        File dir = Files.createTempDirectory("jvmm-profile").toFile();
+        ContinuousProfiler profiler = new ContinuousProfiler().setDir(dir);
+        long now = System.currentTimeMillis();
+        String[] contents = {"a;b 1\na;c 2\n", "a;b 3\n", "a;c 4\nd 5\n"};
+        for (int i = 0; i < contents.length; i++) {
+            long start = now + i * 60000L;
+            File chunk = new File(dir, "profile-" + start + "-" + (start + 60000L) + ".collapsed.gz");
+            try (OutputStream os = new GZIPOutputStream(new FileOutputStream(chunk))) {
+                os.write(contents[i].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        //  与第2、3段有交集，相同调用栈的样本数累加
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Assertions.assertEquals(2, profiler.merge(now + 90000L, 0, ContinuousProfiler.FORMAT_COLLAPSED, os));
+        Map<String, Long> stacks = new HashMap<>();
+        for (String line : os.toString("UTF-8").split("\n")) {
+            int idx = line.lastIndexOf(' ');
+            stacks.put(line.substring(0, idx), Long.parseLong(line.substring(idx + 1)));
+        }
+        Assertions.assertEquals(3L, stacks.get("a;b"));
+        Assertions.assertEquals(4L, stacks.get("a;c"));
+        Assertions.assertEquals(5L, stacks.get("d"));
+        Assertions.assertEquals(15L, profiler.getProfile(0, 0).getTotal());
+
+        //  超过大小上限时从最旧的分段开始删除
+        profiler.setMaxSize(1).evict();
+        Assertions.assertEquals(0, profiler.getChunks(0, 0, null).size());
+        dir.delete();
+    }
+
+    @Test
+    public void testStackProfile() throws Exception {
+        StackProfile before = StackProfile.parseCollapsed("main;run;parse 30\nmain;run;write 60\nmain;gc 10\n");
+        StackProfile instance1 = StackProfile.parseCollapsed("main;run;parse 50\nmain;run;write 20\n");
+        StackProfile instance2 = StackProfile.parseCollapsed("main;run;parse 40\nmain;run;run;parse 5\nmain;idle 5\nbad line\n");
+
+        //  合并多个实例的采集，相同调用栈共用节点
+        StackProfile after = new StackProfile().merge(instance1).merge(instance2);
+        Assertions.assertEquals(120, after.getTotal());
+        Assertions.assertEquals(7, after.getNodeCount());
+        List<StackProfile.FrameStat> topSelf = after.top(2, true);
+        Assertions.assertEquals("parse", topSelf.get(0).getFrame());
+        Assertions.assertEquals(95, topSelf.get(0).getSelf());
+        //  递归调用只统计最外层
+        List<StackProfile.FrameStat> topTotal = after.top(3, false);
+        Assertions.assertEquals("run", topTotal.get(1).getFrame());
+        Assertions.assertEquals(115, topTotal.get(1).getTotal());
+        Assertions.assertEquals(95, topTotal.get(2).getTotal());
+
+        //  对比时按增长量排序
+        StackProfile diff = StackProfile.diff(before, after);
+        Assertions.assertTrue(diff.hasBaseline());
+        Assertions.assertEquals(100, diff.getBaseTotal());
+        StackProfile.FrameStat grown = diff.top(1, true).get(0);
+        Assertions.assertEquals("parse", grown.getFrame());
+        Assertions.assertEquals(30, grown.getBaseSelf());
+
+        //  二进制格式往返
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        diff.writeTo(bos);
+        StackProfile read = StackProfile.readFrom(new ByteArrayInputStream(bos.toByteArray()));
+        StringBuilder expected = new StringBuilder();
+        StringBuilder actual = new StringBuilder();
+        diff.writeCollapsed(expected);
+        read.writeCollapsed(actual);
+        Assertions.assertEquals(expected.toString(), actual.toString());
+        Assertions.assertTrue(expected.toString().contains("main;run;parse 30 90\n"));
+
+        //  文件中重复的帧和节点合并到同一个节点，之后的子节点仍然挂在正确的父节点下
+        bos.reset();
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeInt(StackProfile.MAGIC);
+        dos.write(new byte[]{1, 0, 3, 4, 'm', 'a', 'i', 'n', 3, 'r', 'u', 'n', 4, 'm', 'a', 'i', 'n', 5});
+        dos.write(new byte[]{0, 20, 0, 0, 0, 10, 1, 1, 10, 10, 0, 2, 0, 10, 3, 1, 10, 10});
+        StackProfile merged = StackProfile.readFrom(new ByteArrayInputStream(bos.toByteArray()));
+        Assertions.assertEquals(2, merged.getNodeCount());
+        StringBuilder collapsed = new StringBuilder();
+        merged.writeCollapsed(collapsed);
+        Assertions.assertEquals("main;run 20\n", collapsed.toString());
+        //  父节点编号不在当前节点之前时格式错误
+        byte[] corrupt = bos.toByteArray();
+        corrupt[corrupt.length - 4] = 4;
+        Assertions.assertThrows(IOException.class, () -> StackProfile.readFrom(new ByteArrayInputStream(corrupt)));
+
+        //  裁剪后父节点总数不变
+        StackProfile pruned = after.prune(10);
+        Assertions.assertEquals(120, pruned.getTotal());
+        Assertions.assertEquals(4, pruned.getNodeCount());
+
+        StringBuilder html = new StringBuilder();
+        diff.writeFlameGraph(html, "diff <test>", StackProfile.DEFAULT_MIN_RATIO);
+        Assertions.assertTrue(html.toString().contains("diff &lt;test&gt;"));
+        Assertions.assertTrue(html.toString().contains(">parse</div>"));
+
+        //  超过初始缓冲区深度的调用栈
+        StringBuilder deep = new StringBuilder("main");
+        for (int i = 0; i < 200; i++) {
+            deep.append(";f").append(i);
+        }
+        StackProfile deepProfile = StackProfile.parseCollapsed(deep.append(" 3\n").toString());
+        Assertions.assertEquals(201, deepProfile.getNodeCount());
+        Assertions.assertEquals(3, deepProfile.getTotal());
+    }
+
+    private static class LeakObject {
+        private final long value = System.nanoTime();
+    }
 }
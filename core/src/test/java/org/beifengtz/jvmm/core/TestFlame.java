@@ -1,12 +1,27 @@
 package org.beifengtz.jvmm.core;
 
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.beifengtz.jvmm.common.exception.ProfilerNotSupportedException;
+import org.beifengtz.jvmm.common.util.FileUtil;
 import org.beifengtz.jvmm.common.util.PidUtil;
 import org.beifengtz.jvmm.common.util.PlatformUtil;
+import org.beifengtz.jvmm.core.entity.info.JfrRecordingInfo;
+import org.beifengtz.jvmm.core.entity.info.JfrSummaryInfo;
+import org.beifengtz.jvmm.core.entity.info.ProfilerSessionInfo;
+import org.beifengtz.jvmm.core.entity.profiler.JfrOptions;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerCommander;
+import org.beifengtz.jvmm.core.entity.profiler.ProfilerCounter;
 import org.beifengtz.jvmm.core.entity.profiler.ProfilerEvent;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -39,4 +54,185 @@ public class TestFlame {
             System.out.println(s);
         }
     }
+
+    @Test
+    public void testProfilerSessions() throws Exception {
+        JvmmProfiler profiler = JvmmFactory.getProfiler();
+        if (!profiler.isSystemSupported()) {
+            return;
+        }
+        Thread busy = new Thread(() -> {
+            double x = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                x += Math.sqrt(x + 1);
+            }
+        });
+        busy.setDaemon(true);
+        busy.start();
+        try {
+            ProfilerSessionManager manager = JvmmFactory.getProfilerSessionManager();
+            //  itimer 不需要 perf_events 权限，启动参数相同的请求合并，不同的排队
+            Future<String> longer = profiler.dumpCollapsed(ProfilerCounter.samples, "itimer", 2, TimeUnit.SECONDS);
+            Future<String> shorter = profiler.dumpCollapsed(ProfilerCounter.samples, "itimer", 1, TimeUnit.SECONDS);
+            Future<String> queued = profiler.dumpTraces(5, "itimer", 1, TimeUnit.SECONDS);
+
+            List<ProfilerSessionInfo> sessions = manager.list();
+            Assertions.assertEquals("running", sessions.get(0).getState());
+            Assertions.assertEquals(sessions.get(0).getSessionId(), sessions.get(1).getSessionId());
+            Assertions.assertEquals("collapsed", sessions.get(1).getOutput());
+            Assertions.assertEquals("queued", sessions.get(2).getState());
+            Assertions.assertEquals(1, sessions.get(2).getPosition());
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> profiler.dumpFlat(5, "itimer", manager.getMaxDuration() + 1, TimeUnit.SECONDS));
+
+            Assertions.assertTrue(shorter.get(5, TimeUnit.SECONDS).contains("Thread.run"));
+            Assertions.assertTrue(longer.get(5, TimeUnit.SECONDS).contains("Thread.run"));
+            Assertions.assertTrue(queued.get(5, TimeUnit.SECONDS).contains("Total samples"));
+            Assertions.assertTrue(manager.isIdle());
+            for (ProfilerSessionInfo info : manager.list()) {
+                Assertions.assertEquals("finished", info.getState());
+            }
+        } finally {
+            busy.interrupt();
+        }
+    }
+
+    @Test
+    public void testProfilerSessionClaim() throws Exception {
+        JvmmProfiler profiler = JvmmFactory.getProfiler();
+        ProfilerSessionManager manager = new ProfilerSessionManager(profiler).setMaxDuration(1);
+        //  持续采集的占用是一次原子操作，占用期间拒绝手动 start 和改变采样状态的原始命令
+        Assertions.assertTrue(manager.claimContinuous());
+        Assertions.assertFalse(manager.claimContinuous());
+        Assertions.assertFalse(manager.isIdle());
+        String event = profiler.isSystemSupported() ? "itimer" : ProfilerEvent.cpu.name();
+        Assertions.assertThrows(IllegalStateException.class, () -> manager.start(ProfilerCommander.newInstance().setEvent(event)));
+        Assertions.assertThrows(IllegalStateException.class, () -> manager.execute("stop"));
+        Assertions.assertNotNull(manager.execute("status"));
+        manager.releaseContinuous();
+        Assertions.assertTrue(manager.isIdle());
+
+        //  手动 start 超过最大时长后自动停止，stop 仍然可以输出这段数据
+        manager.start(ProfilerCommander.newInstance().setEvent(event));
+        Assertions.assertTrue(manager.isStartedManually());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (manager.isStartedManually() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        Assertions.assertFalse(manager.isStartedManually());
+        Assertions.assertTrue(manager.isIdle());
+        Assertions.assertNotNull(manager.stop(ProfilerCommander.newInstance().setFlat(5)));
+    }
+
+    @Test
+    public void testJavaSamplingProfiler() throws Exception {
+        Thread busy = new Thread(() -> {
+            double x = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                x += Math.sqrt(x + 1);
+            }
+        }, "sampling-busy");
+        busy.setDaemon(true);
+        busy.start();
+        try {
+            JavaSamplingProfiler profiler = new JavaSamplingProfiler().setThreadFilter("sampling-.*");
+            Assertions.assertThrows(ProfilerNotSupportedException.class, () -> profiler.execute("start,event=alloc"));
+            Assertions.assertThrows(ProfilerNotSupportedException.class, () -> profiler.execute("start,event=cpu,file=test.jfr"));
+
+            profiler.execute("start,event=cpu,interval=10000000,threads,jstackdepth=2");
+            Assertions.assertThrows(IllegalStateException.class, () -> profiler.execute("start,event=cpu"));
+            Thread.sleep(300);
+            //  在独立的守护线程中采样
+            Assertions.assertTrue(Thread.getAllStackTraces().keySet().stream()
+                    .anyMatch(t -> "jvmm-java-sampler".equals(t.getName()) && t.isDaemon()));
+            String collapsed = profiler.execute("dump,collapsed");
+            Assertions.assertTrue(collapsed.startsWith("[sampling-busy tid="));
+            //  线程帧 + 最多2个栈帧
+            for (String line : collapsed.split("\n")) {
+                Assertions.assertTrue(line.split(";").length <= 3);
+            }
+            Assertions.assertTrue(profiler.execute("dump,flat=5").contains("Total samples"));
+
+            File html = new File(FileUtil.getTempPath(), "java_sampling.html");
+            Assertions.assertEquals("OK", profiler.execute("stop,file=" + html.getAbsolutePath()));
+            Assertions.assertTrue(html.length() > 0);
+            html.delete();
+            Assertions.assertEquals("Profiler is not active\n", profiler.execute("status"));
+
+            //  只保留包含 include 帧的调用栈，栈帧名与 async-profiler 一致
+            profiler.execute("start,event=wall,exclude=*Thread.sleep,include=org/beifengtz/jvmm/core/TestFlame*");
+            Thread.sleep(300);
+            profiler.execute("stop");
+            StackProfile profile = StackProfile.parseCollapsed(profiler.execute("collapsed"));
+            Assertions.assertTrue(profile.getTotal() > 0);
+            Assertions.assertTrue(profile.top(1, true).get(0).getFrame().startsWith("org/beifengtz/jvmm/core/TestFlame.lambda$testJavaSamplingProfiler"));
+        } finally {
+            busy.interrupt();
+        }
+    }
+
+    @Test
+    public void testJfrRecorder() throws Exception {
+        if (!JvmmFactory.isJfrAvailable()) {
+            return;
+        }
+        JfrRecorder recorder = JvmmFactory.getJfrRecorder();
+        JfrRecordingInfo info = recorder.start(JfrOptions.create().setName("jvmm-test").setAllocation(true)
+                .setMonitorThreshold(0L).setGc(true));
+        Assertions.assertEquals("RUNNING", info.getState());
+        Assertions.assertTrue(info.isManaged());
+        try {
+            Object lock = new Object();
+            Thread holder = new Thread(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+            holder.start();
+            Thread.sleep(50);
+            synchronized (lock) {
+                holder.join();
+            }
+            List<byte[]> garbage = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                garbage.add(new byte[64 * 1024]);
+                if (garbage.size() > 100) {
+                    garbage.clear();
+                }
+            }
+            System.gc();
+
+            //  运行中的录制导出和生成摘要都不影响录制继续运行
+            JfrSummaryInfo summary = recorder.summary(info.getId(), 5);
+            Assertions.assertEquals(info.getId(), summary.getRecordingId());
+            Assertions.assertTrue(summary.getEvents() > 0);
+            Assertions.assertFalse(summary.isTruncated());
+            Assertions.assertFalse(summary.getAllocations().isEmpty());
+            Assertions.assertTrue(summary.getAllocations().size() <= 5);
+            Assertions.assertEquals(Object.class.getName(), summary.getMonitors().get(0).getMonitorClass());
+            Assertions.assertTrue(summary.getMonitors().get(0).getMaxTime() > TimeUnit.MILLISECONDS.toNanos(100));
+            Assertions.assertFalse(summary.getGcPhases().isEmpty());
+
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            recorder.dump(info.getId(), os);
+            Assertions.assertEquals("FLR", new String(os.toByteArray(), 0, 3, StandardCharsets.US_ASCII));
+            Assertions.assertEquals("STOPPED", recorder.stop(info.getId()).getState());
+            Assertions.assertTrue(recorder.list().stream().anyMatch(r -> r.getId() == info.getId()));
+        } finally {
+            recorder.close(info.getId());
+        }
+        Assertions.assertTrue(recorder.list().stream().noneMatch(r -> r.getId() == info.getId()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> recorder.stop(info.getId()));
+
+        //  应用自己开启的录制不能通过 jvmm 停止或关闭
+        try (Recording recording = new Recording()) {
+            recording.start();
+            Assertions.assertThrows(IllegalArgumentException.class, () -> recorder.stop(recording.getId()));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> recorder.close(recording.getId()));
+            Assertions.assertEquals(RecordingState.RUNNING, recording.getState());
+        }
+    }
 }
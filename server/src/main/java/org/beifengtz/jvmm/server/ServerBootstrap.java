@@ -9,7 +9,15 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.beifengtz.jvmm.common.util.IPUtil;
 import org.beifengtz.jvmm.common.util.StringUtil;
 import org.beifengtz.jvmm.common.util.SystemPropertyUtil;
+import org.beifengtz.jvmm.core.CachedJvmmCollector;
+import org.beifengtz.jvmm.core.ContinuousProfiler;
+import org.beifengtz.jvmm.core.JvmmFactory;
+import org.beifengtz.jvmm.core.contanstant.CollectionType;
+import org.beifengtz.jvmm.core.driver.OSDriver;
+import org.beifengtz.jvmm.server.entity.conf.CacheConf;
 import org.beifengtz.jvmm.server.entity.conf.Configuration;
+import org.beifengtz.jvmm.server.entity.conf.ProfilerConf;
+import org.beifengtz.jvmm.server.entity.conf.SamplerConf;
 import org.beifengtz.jvmm.server.entity.conf.ServerConf;
 import org.beifengtz.jvmm.server.enums.ServerType;
 import org.beifengtz.jvmm.server.service.JvmmHttpServerService;
@@ -17,10 +25,12 @@ import org.beifengtz.jvmm.server.service.JvmmSentinelService;
 import org.beifengtz.jvmm.server.service.JvmmServerService;
 import org.beifengtz.jvmm.server.service.JvmmService;
 
+import java.io.File;
 import java.lang.instrument.ClassDefinition;
 import java.lang.instrument.Instrumentation;
 import java.lang.instrument.UnmodifiableClassException;
 import java.util.HashSet;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -166,6 +176,34 @@ public class ServerBootstrap {
                     callback.apply("end");
                     return;
                 }
+
+                SamplerConf samplerConf = ServerContext.getConfiguration().getSampler();
+                if (samplerConf != null && samplerConf.isOs()) {
+                    OSDriver.get().startRateSampler(samplerConf.getOsWindow());
+                } else {
+                    OSDriver.get().stopRateSampler();
+                }
+                applyCacheConf(ServerContext.getConfiguration().getCache());
+                //  尽早开始监听GC事件，否则首次采集前的停顿不会被统计
+                JvmmFactory.getGCPauseRecorder().install();
+                JvmmFactory.getClassLoaderRegistry().install(ServerContext.getInstrumentation());
+                if (samplerConf != null && samplerConf.isThreadCpu()) {
+                    JvmmFactory.getThreadCpuSampler().start(samplerConf.getThreadCpuWindow());
+                } else {
+                    JvmmFactory.getThreadCpuSampler().stop();
+                }
+                if (samplerConf != null && samplerConf.isLockContention()) {
+                    JvmmFactory.getLockContentionSampler().start(samplerConf.getLockContentionInterval());
+                } else {
+                    JvmmFactory.getLockContentionSampler().stop();
+                }
+                if (samplerConf != null && samplerConf.isHistory()) {
+                    JvmmFactory.getMetricHistory().start(samplerConf.getHistoryInterval(), samplerConf.getHistoryRetention());
+                } else {
+                    JvmmFactory.getMetricHistory().stop();
+                }
+                applyProfilerConf(ServerContext.getConfiguration().getProfiler());
+
                 String[] split = serverConf.getType().split(",");
 
                 Set<ServerType> argServers = new HashSet<>(split.length);
@@ -268,6 +306,55 @@ public class ServerBootstrap {
         }
     }
 
+    private static void applyCacheConf(CacheConf cacheConf) {
+        CachedJvmmCollector collector = JvmmFactory.getCachedCollector();
+        if (cacheConf == null) {
+            collector.setTtl(0);
+            return;
+        }
+        collector.setTtl(cacheConf.getTtl());
+        if (cacheConf.getTtls() != null) {
+            for (Entry<String, Long> entry : cacheConf.getTtls().entrySet()) {
+                try {
+                    collector.setTtl(CollectionType.valueOf(entry.getKey()), entry.getValue() == null ? 0 : entry.getValue());
+                } catch (IllegalArgumentException e) {
+                    logger().warn("Unknown collection type in cache config: {}", entry.getKey());
+                }
+            }
+        }
+    }
+
+    private static void applyProfilerConf(ProfilerConf profilerConf) {
+        if (profilerConf != null) {
+            JvmmFactory.getProfilerSessionManager()
+                    .setMaxDuration(profilerConf.getMaxDuration())
+                    .setMaxRequests(profilerConf.getMaxRequests());
+            JvmmFactory.getJavaSamplingProfiler()
+                    .setMaxDepth(profilerConf.getFallbackMaxDepth())
+                    .setThreadFilter(profilerConf.getFallbackThreadFilter());
+        }
+        ContinuousProfiler profiler = JvmmFactory.getContinuousProfiler();
+        if (profilerConf == null || !profilerConf.isContinuous()) {
+            profiler.stop();
+            return;
+        }
+        try {
+            profiler.setEvent(profilerConf.getEvent())
+                    .setInterval(profilerConf.getInterval())
+                    .setFormat(profilerConf.getFormat())
+                    .setChunk(profilerConf.getChunk())
+                    .setMaxSize(profilerConf.getMaxSize() * 1024L * 1024L)
+                    .setMaxAge(profilerConf.getMaxAge());
+            if (StringUtil.nonEmpty(profilerConf.getDir())) {
+                profiler.setDir(new File(profilerConf.getDir()));
+            }
+            profiler.start();
+        } catch (Throwable e) {
+            profiler.stop();
+            logger().warn("Start continuous profiler failed: " + e.getMessage(), e);
+        }
+    }
+
     public boolean redefineClass(ClassDefinition... definitions) throws ClassNotFoundException, UnmodifiableClassException {
         if (ServerContext.getInstrumentation() == null) {
             return false;
@@ -6,6 +6,8 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.beifengtz.jvmm.common.factory.ExecutorFactory;
 import org.beifengtz.jvmm.common.util.SystemPropertyUtil;
 import org.beifengtz.jvmm.convey.channel.ChannelUtil;
+import org.beifengtz.jvmm.core.JvmmFactory;
+import org.beifengtz.jvmm.core.driver.OSDriver;
 import org.beifengtz.jvmm.server.entity.conf.Configuration;
 import org.beifengtz.jvmm.server.enums.ServerType;
 import org.beifengtz.jvmm.server.service.JvmmService;
@@ -190,6 +192,14 @@ public class ServerContext {
     public static synchronized void unregisterService(ServerType type) {
         serviceContainer.remove(type);
         if (serviceContainer.isEmpty()) {
+            OSDriver.get().stopRateSampler();
+            JvmmFactory.getThreadCpuSampler().stop();
+            JvmmFactory.getLockContentionSampler().stop();
+            JvmmFactory.getMetricHistory().stop();
+            JvmmFactory.getContinuousProfiler().stop();
+            JvmmFactory.getGCPauseRecorder().uninstall();
+            JvmmFactory.getClassLoaderRegistry().uninstall();
+            JvmmFactory.getThreadPoolRegistry().clear();
             ExecutorFactory.releaseThreadPool();
             workerGroup.shutdownGracefully();
             workerGroup = null;
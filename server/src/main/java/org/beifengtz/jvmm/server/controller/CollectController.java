@@ -1,8 +1,8 @@
 package org.beifengtz.jvmm.server.controller;
 
-import com.google.gson.JsonArray;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
 import org.beifengtz.jvmm.common.util.StringUtil;
 import org.beifengtz.jvmm.convey.annotation.HttpController;
 import org.beifengtz.jvmm.convey.annotation.HttpRequest;
@@ -10,20 +10,30 @@ import org.beifengtz.jvmm.convey.annotation.JvmmController;
 import org.beifengtz.jvmm.convey.annotation.JvmmMapping;
 import org.beifengtz.jvmm.convey.annotation.RequestBody;
 import org.beifengtz.jvmm.convey.annotation.RequestParam;
+import org.beifengtz.jvmm.convey.entity.JvmmResponse;
 import org.beifengtz.jvmm.convey.entity.ResponseFuture;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
 import org.beifengtz.jvmm.convey.enums.Method;
+import org.beifengtz.jvmm.convey.enums.RpcStatus;
 import org.beifengtz.jvmm.convey.enums.RpcType;
+import org.beifengtz.jvmm.core.ClassHistogramRecorder;
 import org.beifengtz.jvmm.core.JvmmCollector;
 import org.beifengtz.jvmm.core.JvmmFactory;
-import org.beifengtz.jvmm.core.Unsafe;
+import org.beifengtz.jvmm.core.LockContentionSampler;
+import org.beifengtz.jvmm.core.ThreadCpuSampler;
+import org.beifengtz.jvmm.core.ThreadPoolRegistry;
 import org.beifengtz.jvmm.core.contanstant.CollectionType;
 import org.beifengtz.jvmm.core.entity.info.*;
 import org.beifengtz.jvmm.server.entity.dto.ThreadInfoDTO;
 import org.beifengtz.jvmm.server.service.JvmmService;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -97,8 +107,8 @@ public class CollectController {
 
     @JvmmMapping(RpcType.JVMM_COLLECT_JVM_CLASSLOADER_INFO)
     @HttpRequest("/collect/jvm/classloader")
-    public List<JvmClassLoaderInfo> getJvmClassLoaders() {
-        return JvmmFactory.getCollector().getJvmClassLoaders();
+    public List<JvmClassLoaderInfo> getJvmClassLoaders(@RequestParam boolean tree) {
+        return tree ? JvmmFactory.getCollector().getJvmClassLoaderTree() : JvmmFactory.getCollector().getJvmClassLoaders();
     }
 
     @JvmmMapping(RpcType.JVMM_COLLECT_JVM_COMPILATION_INFO)
@@ -113,6 +123,59 @@ public class CollectController {
         return JvmmFactory.getCollector().getJvmGC();
     }
 
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_GC_PAUSE_INFO)
+    @HttpRequest("/collect/jvm/gc_pause")
+    public JvmGCPauseInfo getJvmGCPauseInfo() {
+        return JvmmFactory.getCollector().getJvmGCPause();
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_PERF_INFO)
+    @HttpRequest("/collect/jvm/perf")
+    public JvmPerfInfo getJvmPerfInfo(@RequestParam long pid) throws IOException {
+        return JvmmFactory.getCollector().getJvmPerf(pid);
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_PERF_COUNTERS)
+    @HttpRequest("/collect/jvm/perf_counters")
+    public Map<String, Object> getJvmPerfCounters(@RequestParam long pid, @RequestParam String prefix) throws IOException {
+        return JvmmFactory.getCollector().getJvmPerfCounters(pid, prefix);
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_NATIVE_MEMORY)
+    @HttpRequest("/collect/jvm/native_memory")
+    public JvmNativeMemoryInfo getJvmNativeMemory(@RequestParam boolean baseline) throws Exception {
+        if (baseline) {
+            JvmmFactory.getNativeMemoryTracker().baseline();
+        }
+        return JvmmFactory.getCollector().getJvmNativeMemory();
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_CLASS_HISTOGRAM)
+    @HttpRequest("/collect/jvm/class_histogram")
+    public JvmClassHistogramInfo getJvmClassHistogram(@RequestParam int top, @RequestParam boolean all) throws Exception {
+        return JvmmFactory.getCollector().getJvmClassHistogram(top == 0 ? ClassHistogramRecorder.DEFAULT_TOP : top, !all);
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_CLASS_HISTOGRAM_DIFF)
+    @HttpRequest("/collect/jvm/class_histogram_diff")
+    public JvmClassHistogramInfo getJvmClassHistogramDiff(@RequestParam int top, @RequestParam boolean all,
+                                                          @RequestParam boolean reset) throws Exception {
+        return JvmmFactory.getCollector().getJvmClassHistogramDiff(top == 0 ? ClassHistogramRecorder.DEFAULT_TOP : top, !all, reset);
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_CACHE_STATS)
+    @HttpRequest("/collect/cache_stats")
+    public CollectorCacheInfo getCacheStats() {
+        return JvmmFactory.getCachedCollector().getCacheInfo();
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_METRIC_HISTORY)
+    @HttpRequest("/collect/metric_history")
+    public JvmMetricHistoryInfo getMetricHistory(@RequestParam long from, @RequestParam long to,
+                                                 @RequestParam String[] metrics) {
+        return JvmmFactory.getMetricHistory().query(from, to, metrics);
+    }
+
     @JvmmMapping(RpcType.JVMM_COLLECT_JVM_MEMORY_MANAGER_INFO)
     @HttpRequest("/collect/jvm/memory_manager")
     public List<JvmMemoryManagerInfo> getJvmMemoryManagerInfo() {
@@ -131,6 +194,12 @@ public class CollectController {
         return JvmmFactory.getCollector().getJvmMemory();
     }
 
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_BUFFER_POOL)
+    @HttpRequest("/collect/jvm/buffer_pool")
+    public JvmBufferPoolInfo getJvmBufferPool() {
+        return JvmmFactory.getCollector().getJvmBufferPool();
+    }
+
     @JvmmMapping(RpcType.JVMM_COLLECT_JVM_THREAD_INFO)
     @HttpRequest("/collect/jvm/thread")
     public JvmThreadInfo getJvmThreadInfo() {
@@ -164,15 +233,21 @@ public class CollectController {
 
     @JvmmMapping(RpcType.JVMM_COLLECT_JVM_DUMP_THREAD)
     @HttpRequest("/collect/jvm/dump_thread")
-    public JsonArray jvmDumpThread() {
-        String[] dump = JvmmFactory.getCollector().dumpAllThreads();
-        JsonArray result = new JsonArray();
-        for (String info : dump) {
-            if (info != null) {
-                result.add(info);
-            }
+    public void jvmDumpThread(ResponseStream stream) {
+        //  dump 过程会阻塞等待 channel 可写，线程数很多时持续较久，不能在 EventLoop 和共享的定时线程池中执行
+        try {
+            ExecutorFactory.getStreamThreadPool().execute(() -> {
+                try {
+                    JvmmFactory.getCollector().dumpAllThreads(stream);
+                    stream.close();
+                } catch (Throwable e) {
+                    logger.error("Dump thread failed: " + e.getMessage(), e);
+                    stream.fail(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stream.fail(e);
         }
-        return result;
     }
 
     @JvmmMapping(RpcType.JVMM_COLLECT_JVM_THREAD_ORDERED_CPU_TIME)
@@ -189,30 +264,98 @@ public class CollectController {
         }
     }
 
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_THREAD_CPU_TOP)
+    @HttpRequest("/collect/jvm/thread_cpu_top")
+    public void getJvmThreadCpuTop(@RequestParam int window, @RequestParam int top, ResponseFuture future) {
+        if (window <= 0) {
+            window = JvmmFactory.getThreadCpuSampler().getWindow();
+        }
+        if (top == 0) {
+            top = ThreadCpuSampler.DEFAULT_TOP;
+        }
+        JvmmFactory.getCollector().getThreadCpuTop(window, top).thenAccept(future::apply);
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_THREAD_ALLOCATION)
+    @HttpRequest("/collect/jvm/thread_allocation")
+    public void getJvmThreadAllocation(@RequestParam int top, ResponseFuture future) {
+        JvmmFactory.getCollector().getThreadAllocation(top == 0 ? ThreadCpuSampler.DEFAULT_TOP : top).whenComplete((info, e) -> {
+            if (e == null) {
+                future.apply(info);
+            } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                future.apply(JvmmResponse.create()
+                        .setType(RpcType.JVMM_COLLECT_JVM_THREAD_ALLOCATION)
+                        .setStatus(RpcStatus.JVMM_STATUS_EXECUTE_FAILED)
+                        .setMessage(cause.getMessage()));
+            }
+        });
+    }
+
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_LOCK_CONTENTION)
+    @HttpRequest("/collect/jvm/lock_contention")
+    public void getJvmLockContention(@RequestParam int top, @RequestParam boolean reset, ResponseFuture future) {
+        LockContentionSampler sampler = JvmmFactory.getLockContentionSampler();
+        if (top == 0) {
+            top = LockContentionSampler.DEFAULT_TOP;
+        }
+        if (sampler.isRunning()) {
+            future.apply(sampler.getContention(top, reset));
+            return;
+        }
+        JvmmFactory.getCollector().getLockContention(top).whenComplete((info, e) -> {
+            if (e == null) {
+                future.apply(info);
+            } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                future.apply(JvmmResponse.create()
+                        .setType(RpcType.JVMM_COLLECT_JVM_LOCK_CONTENTION)
+                        .setStatus(RpcStatus.JVMM_STATUS_EXECUTE_FAILED)
+                        .setMessage(cause.getMessage()));
+            }
+        });
+    }
+
     @JvmmMapping(RpcType.JVMM_COLLECT_JVM_THREAD_POOL)
     @HttpRequest("/collect/jvm/thread_pool")
     public ThreadPoolInfo getThreadPoolInfo(@RequestParam int classLoaderHash, @RequestParam String clazz,
-                                            @RequestParam String instanceField, @RequestParam String field) {
+                                            @RequestParam String instanceField, @RequestParam String field,
+                                            @RequestParam String name) {
         ClassLoader classLoader = null;
         if (classLoaderHash != 0) {
-            classLoader = Unsafe.getClassLoader(classLoaderHash);
+            classLoader = JvmmFactory.getClassLoaderRegistry().getClassLoader(classLoaderHash);
             if (classLoader == null) {
                 logger.debug("Can not found target ClassLoader by hashcode: {}", classLoaderHash);
             }
         }
         ThreadPoolInfo info = null;
-        if (StringUtil.isEmpty(instanceField)) {
-            info = JvmmFactory.getCollector().getThreadPoolInfo(classLoader, clazz, field);
+        if (StringUtil.isEmpty(name)) {
+            if (StringUtil.isEmpty(instanceField)) {
+                info = JvmmFactory.getCollector().getThreadPoolInfo(classLoader, clazz, field);
+            } else {
+                info = JvmmFactory.getCollector().getThreadPoolInfo(classLoader, clazz, instanceField, field);
+            }
         } else {
-            info = JvmmFactory.getCollector().getThreadPoolInfo(classLoader, clazz, instanceField, field);
+            //  指定了名称时注册到后台采样器，之后可以按名称查询统计信息
+            ThreadPoolRegistry registry = JvmmFactory.getThreadPoolRegistry();
+            if (!registry.isRegistered(name) || StringUtil.nonEmpty(clazz)) {
+                registry.register(name, classLoader, clazz, instanceField, field);
+            }
+            info = registry.getInfo(name);
         }
 
         if (info == null) {
-            throw new IllegalArgumentException("Target thread pool is null or is not a ThreadPoolExecutor instance");
+            throw new IllegalArgumentException("Target thread pool is null or is not a supported thread pool instance");
         }
         return info;
     }
 
+    @JvmmMapping(RpcType.JVMM_COLLECT_JVM_REGISTERED_THREAD_POOL)
+    @HttpRequest("/collect/jvm/registered_thread_pool")
+    public List<ThreadPoolInfo> getRegisteredThreadPoolInfo() {
+        return JvmmFactory.getThreadPoolRegistry().getInfos();
+    }
+
     @JvmmMapping(RpcType.JVMM_COLLECT_PORT_STATUS)
     @HttpRequest("/collect/port")
     public PortInfo getPortStatus(@RequestParam int[] ports) {
@@ -1,6 +1,9 @@
 package org.beifengtz.jvmm.server.controller;
 
 import com.google.gson.JsonArray;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
 import org.beifengtz.jvmm.common.util.CodingUtil;
 import org.beifengtz.jvmm.common.util.CommonUtil;
 import org.beifengtz.jvmm.common.util.meta.PairKey;
@@ -10,11 +13,11 @@ import org.beifengtz.jvmm.convey.annotation.JvmmController;
 import org.beifengtz.jvmm.convey.annotation.JvmmMapping;
 import org.beifengtz.jvmm.convey.annotation.RequestBody;
 import org.beifengtz.jvmm.convey.annotation.RequestParam;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
 import org.beifengtz.jvmm.convey.enums.RpcType;
 import org.beifengtz.jvmm.convey.enums.Method;
 import org.beifengtz.jvmm.core.JvmmExecutor;
 import org.beifengtz.jvmm.core.JvmmFactory;
-import org.beifengtz.jvmm.core.Unsafe;
 import org.beifengtz.jvmm.core.contanstant.Switches;
 import org.beifengtz.jvmm.core.entity.result.JpsResult;
 import org.beifengtz.jvmm.server.ServerBootstrap;
@@ -22,11 +25,15 @@ import org.beifengtz.jvmm.server.ServerContext;
 import org.beifengtz.jvmm.server.entity.dto.PatchDTO;
 import org.beifengtz.jvmm.server.entity.vo.PatchVO;
 
+import java.io.File;
 import java.lang.instrument.ClassDefinition;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <p>
@@ -41,6 +48,13 @@ import java.util.Map;
 @HttpController
 public class ExecuteController {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ExecuteController.class);
+
+    /**
+     * 同一时间只允许一个堆转储，避免多个 Full GC 和大文件同时占用磁盘
+     */
+    private static final AtomicBoolean heapDumping = new AtomicBoolean(false);
+
     @JvmmMapping(RpcType.JVMM_EXECUTE_GC)
     @HttpRequest("/execute/gc")
     public String gc() {
@@ -109,6 +123,41 @@ public class ExecuteController {
         }
     }
 
+    @JvmmMapping(RpcType.JVMM_EXECUTE_DUMP_HEAP)
+    @HttpRequest("/execute/dump_heap")
+    public void dumpHeap(@RequestParam boolean all, ResponseStream stream) {
+        if (!heapDumping.compareAndSet(false, true)) {
+            stream.fail(new IllegalStateException("Another heap dump is in progress"));
+            return;
+        }
+        //  转储和发送过程都很耗时，并且发送时会阻塞等待 channel 可写，不能在 EventLoop 和共享的定时线程池中执行
+        try {
+            ExecutorFactory.getStreamThreadPool().execute(() -> {
+                File file = null;
+                try {
+                    file = JvmmFactory.getExecutor().dumpHeap(!all);
+                    File dumpFile = file;
+                    stream.setBinary("application/gzip", file.getName() + ".gz");
+                    //  文件按固定大小读取压缩后写入响应流，不会整体加载到内存中
+                    if (!stream.writeAndClose(true, os -> Files.copy(dumpFile.toPath(), os))) {
+                        logger.warn("Send heap dump failed, response is terminated with error");
+                    }
+                } catch (Throwable e) {
+                    logger.error("Dump heap failed: " + e.getMessage(), e);
+                    stream.fail(e);
+                } finally {
+                    if (file != null && !file.delete()) {
+                        file.deleteOnExit();
+                    }
+                    heapDumping.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            heapDumping.set(false);
+            stream.fail(e);
+        }
+    }
+
     @JvmmMapping(RpcType.JVMM_EXECUTE_JAD)
     @HttpRequest("/execute/jad")
     public String jad(@RequestParam String className, @RequestParam String methodName) throws Throwable {
@@ -123,16 +172,16 @@ public class ExecuteController {
         for (PatchDTO patch : patchList) {
             byte[] classBytes = CodingUtil.hexStr2Bytes(patch.getHex());
             if (patch.getClassLoaderHash() == null) {
-                List<Class<?>> loadedClass = Unsafe.findLoadedClasses(patch.getClassName());
+                List<Class<?>> loadedClass = JvmmFactory.getClassLoaderRegistry().findLoadedClasses(patch.getClassName());
                 for (Class<?> clazz : loadedClass) {
                     definitions.add(new ClassDefinition(clazz, classBytes));
-                    resp.add(new PatchVO().setClassName(patch.getClassName()).setClassLoaderHash(clazz.getClassLoader().hashCode()));
+                    resp.add(new PatchVO().setClassName(patch.getClassName()).setClassLoaderHash(clazz.getClassLoader() == null ? 0 : clazz.getClassLoader().hashCode()));
                 }
             } else {
-                Class<?> clazz = Unsafe.findLoadedClass(patch.getClassLoaderHash(), patch.getClassName());
+                Class<?> clazz = JvmmFactory.getClassLoaderRegistry().findLoadedClass(patch.getClassLoaderHash(), patch.getClassName());
                 if (clazz != null) {
                     definitions.add(new ClassDefinition(clazz, classBytes));
-                    resp.add(new PatchVO().setClassName(patch.getClassName()).setClassLoaderHash(clazz.getClassLoader().hashCode()));
+                    resp.add(new PatchVO().setClassName(patch.getClassName()).setClassLoaderHash(clazz.getClassLoader() == null ? 0 : clazz.getClassLoader().hashCode()));
                 }
             }
         }
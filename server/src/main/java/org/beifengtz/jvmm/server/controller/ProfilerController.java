@@ -1,8 +1,8 @@
 package org.beifengtz.jvmm.server.controller;
 
-import com.google.gson.JsonPrimitive;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
 import org.beifengtz.jvmm.common.util.FileUtil;
 import org.beifengtz.jvmm.common.util.meta.ListenableFuture;
 import org.beifengtz.jvmm.convey.annotation.HttpController;
@@ -13,16 +13,30 @@ import org.beifengtz.jvmm.convey.annotation.RequestBody;
 import org.beifengtz.jvmm.convey.annotation.RequestParam;
 import org.beifengtz.jvmm.convey.entity.JvmmResponse;
 import org.beifengtz.jvmm.convey.entity.ResponseFuture;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
 import org.beifengtz.jvmm.convey.enums.Method;
 import org.beifengtz.jvmm.convey.enums.RpcStatus;
 import org.beifengtz.jvmm.convey.enums.RpcType;
+import org.beifengtz.jvmm.core.ContinuousProfiler;
+import org.beifengtz.jvmm.core.JfrRecorder;
 import org.beifengtz.jvmm.core.JvmmFactory;
+import org.beifengtz.jvmm.core.StackProfile;
+import org.beifengtz.jvmm.core.entity.info.JfrRecordingInfo;
+import org.beifengtz.jvmm.core.entity.info.ProfilerSessionInfo;
+import org.beifengtz.jvmm.core.entity.profiler.JfrOptions;
 import org.beifengtz.jvmm.core.entity.profiler.ProfilerCounter;
+import org.beifengtz.jvmm.server.ServerContext;
 import org.beifengtz.jvmm.server.entity.dto.ProfilerSampleDTO;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -39,22 +53,25 @@ import java.util.concurrent.TimeUnit;
 public class ProfilerController {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ProfilerController.class);
-    private static volatile boolean PROFILER_STARTED = false;
+    private static final String FORMAT_HTML = "html";
+    private static final String FORMAT_JPROF = "jprof";
 
     @JvmmMapping(RpcType.JVMM_PROFILER_EXECUTE)
     @HttpRequest(value = "/profiler/execute", method = Method.POST)
     public String execute(@RequestBody String command) throws IOException {
-        return JvmmFactory.getProfiler().execute(command);
+        //  经过会话管理器，profiler 被其他请求占用时不允许改变采样状态
+        try {
+            return JvmmFactory.getProfilerSessionManager().execute(command);
+        } catch (IllegalStateException e) {
+            return e.getMessage();
+        }
     }
 
     @JvmmMapping(RpcType.JVMM_PROFILER_SAMPLE)
     @HttpRequest(value = "/profiler/flame_graph", method = Method.POST)
-    public void flameGraph(@RequestBody ProfilerSampleDTO data, ResponseFuture respFuture) {
-        if (PROFILER_STARTED) {
-            respFuture.apply(JvmmResponse.create()
-                    .setType(RpcType.JVMM_PROFILER_SAMPLE)
-                    .setStatus(RpcStatus.JVMM_STATUS_PROFILER_FAILED)
-                    .setMessage("Profiler started"));
+    public void flameGraph(@RequestBody ProfilerSampleDTO data, ResponseStream stream) {
+        if (FORMAT_JPROF.equals(data.getFormat())) {
+            flameGraphProfile(data, stream);
             return;
         }
 
@@ -67,79 +84,110 @@ public class ProfilerController {
         ProfilerCounter counter = data.getCounter();
         int time = data.getTime();
 
+        //  profiler 正在被其他请求使用时排队或合并到同一次采样中，超出请求数上限时直接失败
         ListenableFuture<String> future;
-        if (data.getInterval() != null) {
-            future = JvmmFactory.getProfiler().sample(to, event, counter, data.getInterval(), time, TimeUnit.SECONDS);
-        } else {
-            future = JvmmFactory.getProfiler().sample(to, event, counter, time, TimeUnit.SECONDS);
+        try {
+            if (data.getInterval() != null) {
+                future = JvmmFactory.getProfiler().sample(to, event, counter, data.getInterval(), time, TimeUnit.SECONDS);
+            } else {
+                future = JvmmFactory.getProfiler().sample(to, event, counter, time, TimeUnit.SECONDS);
+            }
+        } catch (Throwable e) {
+            stream.fail(e);
+            return;
         }
-        PROFILER_STARTED = true;
         future.registerListener(f -> {
-            PROFILER_STARTED = false;
-            JvmmResponse response = JvmmResponse.create().setType(RpcType.JVMM_PROFILER_SAMPLE);
-
-            if (f.isSuccess()) {
-                String result = f.getNow();
-                if (to.exists()) {
-                    try {
-                        response.setData(new JsonPrimitive(FileUtil.readToHexStr(to))).setStatus(RpcStatus.JVMM_STATUS_OK);
-                    } catch (IOException e) {
-                        logger.error("Read profiler file failed: " + e.getMessage(), e);
-                        response.setStatus(RpcStatus.JVMM_STATUS_PROFILER_FAILED).setMessage(e.getMessage());
-                    } finally {
-                        to.delete();
+            //  发送时会阻塞等待 channel 可写，不能在 EventLoop 中执行
+            executeStream(stream, () -> {
+                try {
+                    if (!f.isSuccess()) {
+                        stream.fail(f.getCause());
+                    } else if (!to.exists()) {
+                        stream.fail(new IOException("Generate failed"));
+                    } else {
+                        transfer(to, data.getFormat(), data.isGzip(), stream);
                     }
-                } else {
-                    response.setStatus(RpcStatus.JVMM_STATUS_PROFILER_FAILED).setMessage("Generate failed");
+                } catch (Throwable e) {
+                    logger.error("Send profiler file failed: " + e.getMessage(), e);
+                    stream.fail(e);
+                } finally {
+                    to.delete();
                 }
-                response.setMessage(result);
+            });
+        });
+    }
+
+    /**
+     * 采集 collapsed 调用栈并以 jprof 格式返回，多个实例的采集可以在客户端合并
+     */
+    private void flameGraphProfile(ProfilerSampleDTO data, ResponseStream stream) {
+        ListenableFuture<String> future;
+        try {
+            if (data.getInterval() != null) {
+                future = JvmmFactory.getProfiler().dumpCollapsed(data.getCounter(), data.getEvent(), data.getInterval(), data.getTime(), TimeUnit.SECONDS);
             } else {
-                response.setStatus(RpcStatus.JVMM_STATUS_PROFILER_FAILED).setMessage(f.getCause().getMessage());
+                future = JvmmFactory.getProfiler().dumpCollapsed(data.getCounter(), data.getEvent(), data.getTime(), TimeUnit.SECONDS);
             }
-            respFuture.apply(response);
+        } catch (Throwable e) {
+            stream.fail(e);
+            return;
+        }
+        future.registerListener(f -> {
+            executeStream(stream, () -> {
+                try {
+                    if (f.isSuccess()) {
+                        sendProfile(StackProfile.parseCollapsed(f.getNow()), FORMAT_JPROF, null, data.isGzip(), stream);
+                    } else {
+                        stream.fail(f.getCause());
+                    }
+                } catch (Throwable e) {
+                    logger.error("Send profile failed: " + e.getMessage(), e);
+                    stream.fail(e);
+                }
+            });
         });
     }
 
     @JvmmMapping(RpcType.JVMM_PROFILER_SAMPLE_START)
     @HttpRequest(value = "/profiler/start", method = Method.POST)
     public String start(@RequestBody ProfilerSampleDTO data) {
-        if (PROFILER_STARTED) {
-            return "Profiler started";
+        if (JvmmFactory.getContinuousProfiler().isRunning()) {
+            return "Continuous profiler is running";
+        }
+        try {
+            return JvmmFactory.getProfiler().start(data.getEvent(), data.getCounter(), data.getInterval());
+        } catch (IllegalStateException e) {
+            return e.getMessage();
         }
-        String result = JvmmFactory.getProfiler().start(data.getEvent(), data.getCounter(), data.getInterval());
-        PROFILER_STARTED = true;
-        return result;
     }
 
     @JvmmMapping(RpcType.JVMM_PROFILER_SAMPLE_STOP)
     @HttpRequest(value = "/profiler/stop", method = Method.POST)
-    public JvmmResponse stop(@RequestParam String format) throws IOException {
-        JvmmResponse response = JvmmResponse.create().setType(RpcType.JVMM_PROFILER_SAMPLE_STOP);
-        if (!PROFILER_STARTED) {
-            return response.setStatus(RpcStatus.JVMM_STATUS_PROFILER_FAILED).setMessage("Profiler not start");
-        }
-        if (format == null || format.isEmpty()) {
-            format = "html";
-        }
-        File to = new File(FileUtil.getTempPath(), UUID.randomUUID() + "." + format);
-        if (to.getParentFile() != null && !to.getParentFile().exists()) {
-            to.getParentFile().mkdirs();
+    public void stop(@RequestParam String format, @RequestParam Boolean gzip, ResponseStream stream) {
+        if (!JvmmFactory.getProfilerSessionManager().isStartedManually()) {
+            stream.fail(new IllegalStateException("Profiler not start"));
+            return;
         }
-        try {
-            JvmmFactory.getProfiler().stop(to);
-            if (to.exists()) {
-                response.setData(new JsonPrimitive(FileUtil.readToHexStr(to))).setStatus(RpcStatus.JVMM_STATUS_OK);
-                to.delete();
-            } else {
-                response.setStatus(RpcStatus.JVMM_STATUS_PROFILER_FAILED).setMessage("Generate failed");
+        String f = format == null || format.isEmpty() ? FORMAT_HTML : format;
+        executeStream(stream, () -> {
+            File to = new File(FileUtil.getTempPath(), UUID.randomUUID() + "." + f);
+            if (to.getParentFile() != null && !to.getParentFile().exists()) {
+                to.getParentFile().mkdirs();
             }
-            return response;
-        } finally {
-            PROFILER_STARTED = false;
-            if (to.exists()) {
+            try {
+                JvmmFactory.getProfiler().stop(to);
+                if (to.exists()) {
+                    transfer(to, f, gzip != null && gzip, stream);
+                } else {
+                    stream.fail(new IOException("Generate failed"));
+                }
+            } catch (Throwable e) {
+                logger.error("Stop profiler failed: " + e.getMessage(), e);
+                stream.fail(e);
+            } finally {
                 to.delete();
             }
-        }
+        });
     }
 
     @JvmmMapping(RpcType.JVMM_PROFILER_STATUS)
@@ -153,4 +201,208 @@ public class ProfilerController {
     public String listEvents() {
         return JvmmFactory.getProfiler().enabledEvents();
     }
+
+    @JvmmMapping(RpcType.JVMM_PROFILER_SESSIONS)
+    @HttpRequest(value = "/profiler/sessions")
+    public List<ProfilerSessionInfo> sessions() {
+        return JvmmFactory.getProfilerSessionManager().list();
+    }
+
+    @JvmmMapping(RpcType.JVMM_PROFILER_JFR_START)
+    @HttpRequest(value = "/profiler/jfr/start", method = Method.POST)
+    public JfrRecordingInfo jfrStart(@RequestBody JfrOptions options) throws Exception {
+        return JvmmFactory.getJfrRecorder().start(options == null ? JfrOptions.create() : options);
+    }
+
+    @JvmmMapping(RpcType.JVMM_PROFILER_JFR_STOP)
+    @HttpRequest(value = "/profiler/jfr/stop", method = Method.POST)
+    public JfrRecordingInfo jfrStop(@RequestParam Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Missing parameter: id");
+        }
+        return JvmmFactory.getJfrRecorder().stop(id);
+    }
+
+    @JvmmMapping(RpcType.JVMM_PROFILER_JFR_CLOSE)
+    @HttpRequest(value = "/profiler/jfr/close", method = Method.POST)
+    public String jfrClose(@RequestParam Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Missing parameter: id");
+        }
+        JvmmFactory.getJfrRecorder().close(id);
+        return ServerContext.STATUS_OK;
+    }
+
+    @JvmmMapping(RpcType.JVMM_PROFILER_JFR_LIST)
+    @HttpRequest(value = "/profiler/jfr/list")
+    public List<JfrRecordingInfo> jfrList() {
+        return JvmmFactory.getJfrRecorder().list();
+    }
+
+    /**
+     * 以 .jfr 格式分块发送录制数据，不指定录制id时发送所有录制的快照
+     */
+    @JvmmMapping(RpcType.JVMM_PROFILER_JFR_DUMP)
+    @HttpRequest(value = "/profiler/jfr/dump")
+    public void jfrDump(@RequestParam Long id, @RequestParam Boolean gzip, ResponseStream stream) {
+        //  复制录制数据并发送，不能在 EventLoop 中执行
+        executeStream(stream, () -> {
+            try {
+                JfrRecorder recorder = JvmmFactory.getJfrRecorder();
+                String fileName = "recording-" + (id == null || id <= 0 ? "snapshot" : String.valueOf(id)) + ".jfr";
+                boolean compress = gzip != null && gzip;
+                if (compress) {
+                    stream.setBinary("application/gzip", fileName + ".gz");
+                } else {
+                    stream.setBinary("application/octet-stream", fileName);
+                }
+                if (!stream.writeAndClose(compress, os -> recorder.dump(id, os))) {
+                    logger.warn("Send jfr recording failed, response is terminated with error");
+                }
+            } catch (Throwable e) {
+                logger.error("Dump jfr recording failed: " + e.getMessage(), e);
+                stream.fail(e);
+            }
+        });
+    }
+
+    /**
+     * 在服务端解析录制数据，返回分配热点、监视器竞争热点、GC 阶段耗时和 Socket I/O 的摘要
+     */
+    @JvmmMapping(RpcType.JVMM_PROFILER_JFR_SUMMARY)
+    @HttpRequest(value = "/profiler/jfr/summary")
+    public void jfrSummary(@RequestParam Long id, @RequestParam Integer top, ResponseFuture future) {
+        //  解析录制可能比较耗时，与导出文件一样放在流式传输线程池中执行，不占用 EventLoop 和公共线程池
+        try {
+            ExecutorFactory.getStreamThreadPool().execute(() -> {
+                try {
+                    future.apply(JvmmFactory.getJfrRecorder().summary(id, top == null || top <= 0 ? JfrRecorder.DEFAULT_TOP : top));
+                } catch (Throwable e) {
+                    logger.error("Summarize jfr recording failed: " + e.getMessage(), e);
+                    future.apply(jfrSummaryFailed(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Summarize jfr recording rejected, stream thread pool is full");
+            future.apply(jfrSummaryFailed(e));
+        }
+    }
+
+    private static JvmmResponse jfrSummaryFailed(Throwable e) {
+        return JvmmResponse.create()
+                .setType(RpcType.JVMM_PROFILER_JFR_SUMMARY)
+                .setStatus(RpcStatus.JVMM_STATUS_EXECUTE_FAILED)
+                .setMessage(e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+    }
+
+    @JvmmMapping(RpcType.JVMM_PROFILER_CONTINUOUS)
+    @HttpRequest(value = "/profiler/continuous")
+    public void continuous(@RequestParam Long from, @RequestParam Long to, @RequestParam String format,
+                           @RequestParam Long baseFrom, @RequestParam Long baseTo, ResponseStream stream) {
+        ContinuousProfiler profiler = JvmmFactory.getContinuousProfiler();
+        String f = format == null || format.isEmpty() ? profiler.getFormat() : format;
+        long start = from == null ? 0 : from;
+        long end = to == null ? 0 : to;
+        //  指定基线时间范围时对比两个时间范围，例如发布前后
+        boolean diff = (baseFrom != null && baseFrom > 0) || (baseTo != null && baseTo > 0);
+        boolean jfr = ContinuousProfiler.FORMAT_JFR.equals(f);
+        if (!jfr && !ContinuousProfiler.FORMAT_COLLAPSED.equals(f) && !FORMAT_HTML.equals(f) && !FORMAT_JPROF.equals(f)) {
+            stream.fail(new IllegalArgumentException("Unsupported continuous profile format: " + f + ", expected: collapsed, jfr, html, jprof"));
+            return;
+        }
+        if (jfr && diff) {
+            stream.fail(new IllegalArgumentException("Diff is not supported for jfr format"));
+            return;
+        }
+        //  查询需要读取、合并多个分段文件，不能在 EventLoop 中执行
+        executeStream(stream, () -> {
+            try {
+                if (jfr) {
+                    stream.setBinary("application/octet-stream", "profile-" + start + "-" + end + ".jfr");
+                    if (!stream.writeAndClose(false, os -> profiler.merge(start, end, f, os))) {
+                        logger.warn("Send continuous profile failed, response is terminated with error");
+                    }
+                    return;
+                }
+                StackProfile profile = profiler.getProfile(start, end);
+                String title = "Continuous profile " + start + " - " + end;
+                if (diff) {
+                    long bs = baseFrom == null ? 0 : baseFrom;
+                    long be = baseTo == null ? 0 : baseTo;
+                    profile = StackProfile.diff(profiler.getProfile(bs, be), profile);
+                    title += " vs " + bs + " - " + be;
+                }
+                sendProfile(profile, f, title, false, stream);
+            } catch (Throwable e) {
+                logger.error("Merge continuous profile failed: " + e.getMessage(), e);
+                stream.fail(e);
+            }
+        });
+    }
+
+    /**
+     * 以指定格式发送 {@link StackProfile}，html 为服务端渲染的火焰图，jprof 为可以在多个实例之间合并的二进制格式
+     */
+    private static void sendProfile(StackProfile profile, String format, String title, boolean gzip, ResponseStream stream) {
+        String fileName = "profile-" + System.currentTimeMillis() + "." + format;
+        if (gzip) {
+            stream.setBinary("application/gzip", fileName + ".gz");
+        } else if (FORMAT_HTML.equals(format)) {
+            stream.setBinary("text/html;charset=utf-8", null);
+        } else if (FORMAT_JPROF.equals(format)) {
+            stream.setBinary("application/octet-stream", fileName);
+        }
+        boolean success = stream.writeAndClose(gzip, os -> {
+            if (FORMAT_JPROF.equals(format)) {
+                profile.writeTo(os);
+            } else {
+                Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+                if (FORMAT_HTML.equals(format)) {
+                    profile.writeFlameGraph(writer, title, StackProfile.DEFAULT_MIN_RATIO);
+                } else {
+                    profile.writeCollapsed(writer);
+                }
+                writer.flush();
+            }
+        });
+        if (!success) {
+            logger.warn("Send profile failed, response is terminated with error");
+        }
+    }
+
+    /**
+     * 以二进制流发送 profiler 生成的文件，不压缩时直接传输文件，http 下 html、txt 可以直接在浏览器中查看，其他格式作为附件下载。
+     * 读取或发送失败时响应以异常结束
+     */
+    private static void transfer(File file, String format, boolean gzip, ResponseStream stream) {
+        String fileName = "profile-" + System.currentTimeMillis() + "." + format;
+        boolean success;
+        if (gzip) {
+            stream.setBinary("application/gzip", fileName + ".gz");
+            success = stream.writeAndClose(true, os -> Files.copy(file.toPath(), os));
+        } else {
+            if (FORMAT_HTML.equals(format)) {
+                stream.setBinary("text/html;charset=utf-8", null);
+            } else if ("txt".equals(format) || "collapsed".equals(format)) {
+                stream.setBinary("text/plain;charset=utf-8", null);
+            } else {
+                stream.setBinary("application/octet-stream", fileName);
+            }
+            success = stream.writeAndClose(false, os -> stream.transferFile(file));
+        }
+        if (!success) {
+            logger.warn("Send profiler file failed, response is terminated with error");
+        }
+    }
+
+    /**
+     * 在流式传输线程池中执行发送任务，线程池已满时响应以异常结束
+     */
+    private static void executeStream(ResponseStream stream, Runnable task) {
+        try {
+            ExecutorFactory.getStreamThreadPool().execute(task);
+        } catch (RejectedExecutionException e) {
+            stream.fail(e);
+        }
+    }
 }
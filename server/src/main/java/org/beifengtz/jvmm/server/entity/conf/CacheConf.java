@@ -0,0 +1,41 @@
+package org.beifengtz.jvmm.server.entity.conf;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * Description: 采集结果缓存相关配置
+ * </p>
+ * <p>
+ * Created in 17:05 2023/10/19
+ *
+ * @author beifengtz
+ */
+public class CacheConf {
+    /**
+     * 所有采集项的默认缓存时间，单位ms，小于等于0表示不缓存
+     */
+    private long ttl = 0;
+    /**
+     * 按采集项单独配置的缓存时间，单位ms，覆盖默认值
+     */
+    private Map<String, Long> ttls;
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public CacheConf setTtl(long ttl) {
+        this.ttl = ttl;
+        return this;
+    }
+
+    public Map<String, Long> getTtls() {
+        return ttls;
+    }
+
+    public CacheConf setTtls(Map<String, Long> ttls) {
+        this.ttls = ttls;
+        return this;
+    }
+}
@@ -24,6 +24,9 @@ public final class Configuration {
     private String name = "jvmm-server";
     private ServerConf server = new ServerConf();
     private LogConf log = new LogConf();
+    private SamplerConf sampler = new SamplerConf();
+    private CacheConf cache = new CacheConf();
+    private ProfilerConf profiler = new ProfilerConf();
 
     private int workThread = 2;
 
@@ -107,6 +110,33 @@ public final class Configuration {
         return this;
     }
 
+    public SamplerConf getSampler() {
+        return sampler;
+    }
+
+    public Configuration setSampler(SamplerConf sampler) {
+        this.sampler = sampler;
+        return this;
+    }
+
+    public CacheConf getCache() {
+        return cache;
+    }
+
+    public Configuration setCache(CacheConf cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    public ProfilerConf getProfiler() {
+        return profiler;
+    }
+
+    public Configuration setProfiler(ProfilerConf profiler) {
+        this.profiler = profiler;
+        return this;
+    }
+
     public int getWorkThread() {
         return Math.max(2, workThread);
     }
@@ -0,0 +1,169 @@
+package org.beifengtz.jvmm.server.entity.conf;
+
+/**
+ * <p>
+ * Description: 性能分析相关配置，包括按需采样请求的限制和持续性能分析
+ * </p>
+ * <p>
+ * Created in 11:10 2023/10/23
+ *
+ * @author beifengtz
+ */
+public class ProfilerConf {
+    /**
+     * 是否开启持续性能分析
+     */
+    private boolean continuous = false;
+    /**
+     * 采样事件，例如 cpu、itimer、alloc、lock
+     */
+    private String event = "cpu";
+    /**
+     * 采样间隔，单位纳秒ns，小于等于0时使用 async-profiler 的默认值
+     */
+    private long interval = 0;
+    /**
+     * 分段格式，collapsed 或 jfr
+     */
+    private String format = "collapsed";
+    /**
+     * 分段时长，单位秒，最小10秒
+     */
+    private int chunk = 60;
+    /**
+     * 分段保存目录，为空时保存在 jvmm 临时目录下的 profile 目录
+     */
+    private String dir;
+    /**
+     * 所有分段的大小上限，单位MB
+     */
+    private int maxSize = 256;
+    /**
+     * 分段保留时长，单位分钟
+     */
+    private int maxAge = 1440;
+    /**
+     * 按需采样请求以及合并后的采样会话最大时长，单位秒
+     */
+    private int maxDuration = 600;
+    /**
+     * 按需采样最多同时存在的请求数，包括采样中和排队中的
+     */
+    private int maxRequests = 16;
+    /**
+     * async-profiler 不可用时使用纯 Java 采样，调用栈最大深度
+     */
+    private int fallbackMaxDepth = 256;
+    /**
+     * async-profiler 不可用时使用纯 Java 采样，只采样名称匹配该正则表达式的线程，为空时采样所有线程
+     */
+    private String fallbackThreadFilter;
+
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    public ProfilerConf setContinuous(boolean continuous) {
+        this.continuous = continuous;
+        return this;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public ProfilerConf setEvent(String event) {
+        this.event = event;
+        return this;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public ProfilerConf setInterval(long interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public ProfilerConf setFormat(String format) {
+        this.format = format;
+        return this;
+    }
+
+    public int getChunk() {
+        return chunk;
+    }
+
+    public ProfilerConf setChunk(int chunk) {
+        this.chunk = chunk;
+        return this;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    public ProfilerConf setDir(String dir) {
+        this.dir = dir;
+        return this;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public ProfilerConf setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    public ProfilerConf setMaxAge(int maxAge) {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    public int getMaxDuration() {
+        return maxDuration;
+    }
+
+    public ProfilerConf setMaxDuration(int maxDuration) {
+        this.maxDuration = maxDuration;
+        return this;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public ProfilerConf setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    public int getFallbackMaxDepth() {
+        return fallbackMaxDepth;
+    }
+
+    public ProfilerConf setFallbackMaxDepth(int fallbackMaxDepth) {
+        this.fallbackMaxDepth = fallbackMaxDepth;
+        return this;
+    }
+
+    public String getFallbackThreadFilter() {
+        return fallbackThreadFilter;
+    }
+
+    public ProfilerConf setFallbackThreadFilter(String fallbackThreadFilter) {
+        this.fallbackThreadFilter = fallbackThreadFilter;
+        return this;
+    }
+}
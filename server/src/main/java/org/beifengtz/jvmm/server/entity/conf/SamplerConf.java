@@ -0,0 +1,130 @@
+package org.beifengtz.jvmm.server.entity.conf;
+
+/**
+ * <p>
+ * Description: 后台采样器相关配置
+ * </p>
+ * <p>
+ * Created in 10:40 2023/10/18
+ *
+ * @author beifengtz
+ */
+public class SamplerConf {
+    /**
+     * 是否开启 CPU、网卡、磁盘IO 的后台速率采样
+     */
+    private boolean os = false;
+    /**
+     * 速率计算窗口，单位秒，范围 1~60
+     */
+    private int osWindow = 1;
+    /**
+     * 是否开启线程 CPU 时间的后台采样
+     */
+    private boolean threadCpu = false;
+    /**
+     * 线程 CPU 占用统计的默认窗口，单位秒，范围 1~60
+     */
+    private int threadCpuWindow = 10;
+    /**
+     * 是否开启锁竞争的后台采样
+     */
+    private boolean lockContention = false;
+    /**
+     * 锁竞争采样间隔，单位ms，最小10ms
+     */
+    private int lockContentionInterval = 200;
+    /**
+     * 是否开启指标历史的后台采样
+     */
+    private boolean history = false;
+    /**
+     * 指标历史采样间隔，单位秒，最小1秒
+     */
+    private int historyInterval = 1;
+    /**
+     * 指标历史保留时长，单位分钟，最小1分钟
+     */
+    private int historyRetention = 10;
+
+    public boolean isOs() {
+        return os;
+    }
+
+    public SamplerConf setOs(boolean os) {
+        this.os = os;
+        return this;
+    }
+
+    public int getOsWindow() {
+        return osWindow;
+    }
+
+    public SamplerConf setOsWindow(int osWindow) {
+        this.osWindow = osWindow;
+        return this;
+    }
+
+    public boolean isThreadCpu() {
+        return threadCpu;
+    }
+
+    public SamplerConf setThreadCpu(boolean threadCpu) {
+        this.threadCpu = threadCpu;
+        return this;
+    }
+
+    public int getThreadCpuWindow() {
+        return threadCpuWindow;
+    }
+
+    public SamplerConf setThreadCpuWindow(int threadCpuWindow) {
+        this.threadCpuWindow = threadCpuWindow;
+        return this;
+    }
+
+    public boolean isLockContention() {
+        return lockContention;
+    }
+
+    public SamplerConf setLockContention(boolean lockContention) {
+        this.lockContention = lockContention;
+        return this;
+    }
+
+    public int getLockContentionInterval() {
+        return lockContentionInterval;
+    }
+
+    public SamplerConf setLockContentionInterval(int lockContentionInterval) {
+        this.lockContentionInterval = lockContentionInterval;
+        return this;
+    }
+
+    public boolean isHistory() {
+        return history;
+    }
+
+    public SamplerConf setHistory(boolean history) {
+        this.history = history;
+        return this;
+    }
+
+    public int getHistoryInterval() {
+        return historyInterval;
+    }
+
+    public SamplerConf setHistoryInterval(int historyInterval) {
+        this.historyInterval = historyInterval;
+        return this;
+    }
+
+    public int getHistoryRetention() {
+        return historyRetention;
+    }
+
+    public SamplerConf setHistoryRetention(int historyRetention) {
+        this.historyRetention = historyRetention;
+        return this;
+    }
+}
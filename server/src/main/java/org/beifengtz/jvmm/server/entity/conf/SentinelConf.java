@@ -26,6 +26,10 @@ public class SentinelConf {
     private int interval = 10;
     private List<Integer> listenedPorts;
     private List<ThreadPoolConf> listenedThreadPools;
+    /**
+     * jvm_class_histogram 是否只统计存活对象，开启后每次采集都会触发一次 Full GC
+     */
+    private boolean classHistogramLive = false;
 
     public List<SentinelSubscriberConf> getSubscribers() {
         return subscribers;
@@ -91,4 +95,13 @@ public class SentinelConf {
         this.listenedThreadPools = listenedThreadPools;
         return this;
     }
+
+    public boolean isClassHistogramLive() {
+        return classHistogramLive;
+    }
+
+    public SentinelConf setClassHistogramLive(boolean classHistogramLive) {
+        this.classHistogramLive = classHistogramLive;
+        return this;
+    }
 }
@@ -18,6 +18,7 @@ public class ProfilerSampleDTO {
     private ProfilerCounter counter = ProfilerCounter.samples;
     private int time = 10; //  单位秒
     private Long interval = 10000000L;
+    private boolean gzip = false;   //  是否以 gzip 压缩后传输
 
     public String getFormat() {
         return format;
@@ -63,4 +64,13 @@ public class ProfilerSampleDTO {
         this.interval = interval;
         return this;
     }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public ProfilerSampleDTO setGzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
 }
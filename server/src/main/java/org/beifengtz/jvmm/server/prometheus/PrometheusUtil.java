@@ -51,9 +51,14 @@ public class PrometheusUtil {
         packJvmClassLoading(data.getJvmClassLoading(), now, labels, writeRequest);
         packJvmCompilation(data.getJvmCompilation(), now, labels, writeRequest);
         packJvmGc(data.getJvmGc(), now, labels, writeRequest);
+        packJvmGcPause(data.getJvmGcPause(), now, labels, writeRequest);
+        packJvmPerf(data.getJvmPerf(), now, labels, writeRequest);
+        packJvmNativeMemory(data.getJvmNativeMemory(), now, labels, writeRequest);
         packJvmMem(data.getJvmMemory(), now, labels, writeRequest);
+        packJvmBufferPool(data.getJvmBufferPool(), now, labels, writeRequest);
         packJvmMemPool(data.getJvmMemoryPool(), now, labels, writeRequest);
         packJvmThread(data.getJvmThread(), now, labels, writeRequest);
+        packJvmThreadAllocation(data.getJvmThreadAllocation(), now, labels, writeRequest);
         try {
             return Snappy.compress(writeRequest.build().toByteArray());
         } catch (IOException e) {
@@ -270,6 +275,18 @@ public class PrometheusUtil {
         netUdpV6ConnectionsTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(network.getUdpV6Connections()).build());
         writeRequest.addTimeseries(netUdpV6ConnectionsTimeSeries);
 
+        Types.TimeSeries.Builder netSocketsTimeSeries = Types.TimeSeries.newBuilder();
+        netSocketsTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("net_sockets").build());
+        netSocketsTimeSeries.addAllLabels(labels);
+        netSocketsTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(network.getSockets()).build());
+        writeRequest.addTimeseries(netSocketsTimeSeries);
+
+        Types.TimeSeries.Builder netTcpOrphanTimeSeries = Types.TimeSeries.newBuilder();
+        netTcpOrphanTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("net_tcp_orphan").build());
+        netTcpOrphanTimeSeries.addAllLabels(labels);
+        netTcpOrphanTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(network.getTcpOrphan()).build());
+        writeRequest.addTimeseries(netTcpOrphanTimeSeries);
+
         for (Entry<TcpState, Integer> entry : network.getTcpStateConnections().entrySet()) {
             Types.TimeSeries.Builder netStateTimeSeries = Types.TimeSeries.newBuilder();
             netStateTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("net_conn_" + entry.getKey()).build());
@@ -649,6 +666,106 @@ public class PrometheusUtil {
         }
     }
 
+    /**
+     * 组装JVM GC停顿分布和分配、晋升速率数据到Prometheus结构
+     *
+     * @param gcPause      GC停顿数据
+     * @param timestamp    统计时间戳
+     * @param labels       通用标签
+     * @param writeRequest Request
+     */
+    private static void packJvmGcPause(JvmGCPauseInfo gcPause, long timestamp, List<Types.Label> labels,
+                                       Remote.WriteRequest.Builder writeRequest) {
+        if (gcPause == null) {
+            return;
+        }
+        Types.TimeSeries.Builder allocationRateTimeSeries = Types.TimeSeries.newBuilder();
+        allocationRateTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_allocation_rate").build());
+        allocationRateTimeSeries.addAllLabels(labels);
+        allocationRateTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(gcPause.getAllocationRate()).build());
+        writeRequest.addTimeseries(allocationRateTimeSeries);
+
+        Types.TimeSeries.Builder promotionRateTimeSeries = Types.TimeSeries.newBuilder();
+        promotionRateTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_promotion_rate").build());
+        promotionRateTimeSeries.addAllLabels(labels);
+        promotionRateTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(gcPause.getPromotionRate()).build());
+        writeRequest.addTimeseries(promotionRateTimeSeries);
+
+        Types.TimeSeries.Builder allocatedTimeSeries = Types.TimeSeries.newBuilder();
+        allocatedTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_allocated_bytes").build());
+        allocatedTimeSeries.addAllLabels(labels);
+        allocatedTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(gcPause.getAllocatedBytes()).build());
+        writeRequest.addTimeseries(allocatedTimeSeries);
+
+        Types.TimeSeries.Builder promotedTimeSeries = Types.TimeSeries.newBuilder();
+        promotedTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_promoted_bytes").build());
+        promotedTimeSeries.addAllLabels(labels);
+        promotedTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(gcPause.getPromotedBytes()).build());
+        writeRequest.addTimeseries(promotedTimeSeries);
+
+        for (JvmGCPauseInfo.PauseInfo pause : gcPause.getPauses()) {
+            List<Types.Label> pauseLabels = new ArrayList<>(labels);
+            pauseLabels.add(Types.Label.newBuilder().setName("jvm_gc_name").setValue(pause.getName()).build());
+            pauseLabels.add(Types.Label.newBuilder().setName("cause").setValue(pause.getCause()).build());
+            pauseLabels.add(Types.Label.newBuilder().setName("action").setValue(pause.getAction()).build());
+
+            Types.TimeSeries.Builder countTimeSeries = Types.TimeSeries.newBuilder();
+            countTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_pause_count").build());
+            countTimeSeries.addAllLabels(pauseLabels);
+            countTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(pause.getCount()).build());
+            writeRequest.addTimeseries(countTimeSeries);
+
+            Types.TimeSeries.Builder sumTimeSeries = Types.TimeSeries.newBuilder();
+            sumTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_pause_sum").build());
+            sumTimeSeries.addAllLabels(pauseLabels);
+            sumTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(pause.getTotalTime()).build());
+            writeRequest.addTimeseries(sumTimeSeries);
+
+            Types.TimeSeries.Builder maxTimeSeries = Types.TimeSeries.newBuilder();
+            maxTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_pause_max").build());
+            maxTimeSeries.addAllLabels(pauseLabels);
+            maxTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(pause.getMax()).build());
+            writeRequest.addTimeseries(maxTimeSeries);
+
+            String[] quantiles = {"0.5", "0.9", "0.99", "0.999"};
+            long[] values = {pause.getP50(), pause.getP90(), pause.getP99(), pause.getP999()};
+            for (int i = 0; i < quantiles.length; i++) {
+                Types.TimeSeries.Builder quantileTimeSeries = Types.TimeSeries.newBuilder();
+                quantileTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_pause").build());
+                quantileTimeSeries.addAllLabels(pauseLabels);
+                quantileTimeSeries.addLabels(Types.Label.newBuilder().setName("quantile").setValue(quantiles[i]).build());
+                quantileTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(values[i]).build());
+                writeRequest.addTimeseries(quantileTimeSeries);
+            }
+        }
+
+        //  并发回收周期的耗时不是停顿时间，单独上报
+        for (JvmGCPauseInfo.PauseInfo cycle : gcPause.getConcurrentCycles()) {
+            List<Types.Label> cycleLabels = new ArrayList<>(labels);
+            cycleLabels.add(Types.Label.newBuilder().setName("jvm_gc_name").setValue(cycle.getName()).build());
+            cycleLabels.add(Types.Label.newBuilder().setName("cause").setValue(cycle.getCause()).build());
+            cycleLabels.add(Types.Label.newBuilder().setName("action").setValue(cycle.getAction()).build());
+
+            Types.TimeSeries.Builder countTimeSeries = Types.TimeSeries.newBuilder();
+            countTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_concurrent_cycle_count").build());
+            countTimeSeries.addAllLabels(cycleLabels);
+            countTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(cycle.getCount()).build());
+            writeRequest.addTimeseries(countTimeSeries);
+
+            Types.TimeSeries.Builder sumTimeSeries = Types.TimeSeries.newBuilder();
+            sumTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_concurrent_cycle_sum").build());
+            sumTimeSeries.addAllLabels(cycleLabels);
+            sumTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(cycle.getTotalTime()).build());
+            writeRequest.addTimeseries(sumTimeSeries);
+
+            Types.TimeSeries.Builder maxTimeSeries = Types.TimeSeries.newBuilder();
+            maxTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_gc_concurrent_cycle_max").build());
+            maxTimeSeries.addAllLabels(cycleLabels);
+            maxTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(cycle.getMax()).build());
+            writeRequest.addTimeseries(maxTimeSeries);
+        }
+    }
+
     /**
      * 组装JVM内存数据到Prometheus结构
      *
@@ -801,4 +918,168 @@ public class PrometheusUtil {
         }
     }
 
+    /**
+     * 组装JVM线程分配速率数据到Prometheus结构
+     *
+     * @param allocation   线程分配数据
+     * @param timestamp    统计时间戳
+     * @param labels       通用标签
+     * @param writeRequest Request
+     */
+    private static void packJvmThreadAllocation(JvmThreadAllocationInfo allocation, long timestamp, List<Types.Label> labels,
+                                                Remote.WriteRequest.Builder writeRequest) {
+        if (allocation == null) {
+            return;
+        }
+        Types.TimeSeries.Builder allocationRateTimeSeries = Types.TimeSeries.newBuilder();
+        allocationRateTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_thread_allocation_rate").build());
+        allocationRateTimeSeries.addAllLabels(labels);
+        allocationRateTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(allocation.getAllocationRate()).build());
+        writeRequest.addTimeseries(allocationRateTimeSeries);
+
+        for (JvmThreadAllocationInfo.ThreadAllocation thread : allocation.getThreads()) {
+            Types.TimeSeries.Builder threadTimeSeries = Types.TimeSeries.newBuilder();
+            threadTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_thread_top_allocation_rate").build());
+            threadTimeSeries.addLabels(Types.Label.newBuilder().setName("thread").setValue(thread.getName()).build());
+            threadTimeSeries.addAllLabels(labels);
+            threadTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(thread.getAllocationRate()).build());
+            writeRequest.addTimeseries(threadTimeSeries);
+        }
+    }
+
+    /**
+     * 组装 direct、mapped 缓冲池和 Netty 直接内存数据到Prometheus结构，进程中存在多个 Netty 时以 class_loader 标签区分
+     *
+     * @param bufferPool   缓冲池数据
+     * @param timestamp    统计时间戳
+     * @param labels       通用标签
+     * @param writeRequest Request
+     */
+    private static void packJvmBufferPool(JvmBufferPoolInfo bufferPool, long timestamp, List<Types.Label> labels,
+                                          Remote.WriteRequest.Builder writeRequest) {
+        if (bufferPool == null) {
+            return;
+        }
+        for (JvmBufferPoolInfo.BufferPool pool : bufferPool.getPools()) {
+            Types.Label poolLabel = Types.Label.newBuilder().setName("pool").setValue(pool.getName()).build();
+            packJvmBufferPoolSample("jvm_buffer_pool_count", pool.getCount(), poolLabel, timestamp, labels, writeRequest);
+            packJvmBufferPoolSample("jvm_buffer_pool_used", pool.getMemoryUsed(), poolLabel, timestamp, labels, writeRequest);
+            packJvmBufferPoolSample("jvm_buffer_pool_capacity", pool.getTotalCapacity(), poolLabel, timestamp, labels, writeRequest);
+        }
+        for (JvmBufferPoolInfo.NettyMemory netty : bufferPool.getNetty()) {
+            Types.Label loaderLabel = Types.Label.newBuilder().setName("class_loader")
+                    .setValue(Integer.toHexString(netty.getClassLoaderHash())).build();
+            packJvmBufferPoolSample("jvm_netty_direct_memory_used", netty.getUsedDirectMemory(), loaderLabel, timestamp, labels, writeRequest);
+            JvmBufferPoolInfo.PooledAllocator allocator = netty.getAllocator();
+            if (allocator != null) {
+                packJvmBufferPoolSample("jvm_netty_allocator_used_heap", allocator.getUsedHeapMemory(), loaderLabel, timestamp, labels, writeRequest);
+                packJvmBufferPoolSample("jvm_netty_allocator_used_direct", allocator.getUsedDirectMemory(), loaderLabel, timestamp, labels, writeRequest);
+                packJvmBufferPoolSample("jvm_netty_allocator_thread_caches", allocator.getNumThreadLocalCaches(), loaderLabel, timestamp, labels, writeRequest);
+            }
+        }
+    }
+
+    private static void packJvmBufferPoolSample(String name, double value, Types.Label label, long timestamp,
+                                                List<Types.Label> labels, Remote.WriteRequest.Builder writeRequest) {
+        Types.TimeSeries.Builder timeSeries = Types.TimeSeries.newBuilder();
+        timeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue(name).build());
+        timeSeries.addLabels(label);
+        timeSeries.addAllLabels(labels);
+        timeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(value).build());
+        writeRequest.addTimeseries(timeSeries);
+    }
+
+    /**
+     * 组装 Native Memory Tracking 数据到Prometheus结构，总量的 category 标签为 total
+     *
+     * @param nativeMemory NMT汇总数据
+     * @param timestamp    统计时间戳
+     * @param labels       通用标签
+     * @param writeRequest Request
+     */
+    private static void packJvmNativeMemory(JvmNativeMemoryInfo nativeMemory, long timestamp, List<Types.Label> labels,
+                                            Remote.WriteRequest.Builder writeRequest) {
+        if (nativeMemory == null || !nativeMemory.isEnabled()) {
+            return;
+        }
+        packJvmNativeMemoryCategory("total", nativeMemory.getReserved(), nativeMemory.getCommitted(), timestamp, labels, writeRequest);
+        for (JvmNativeMemoryInfo.NativeMemoryCategory category : nativeMemory.getCategories()) {
+            packJvmNativeMemoryCategory(category.getName(), category.getReserved(), category.getCommitted(), timestamp, labels, writeRequest);
+        }
+    }
+
+    private static void packJvmNativeMemoryCategory(String category, long reserved, long committed, long timestamp,
+                                                    List<Types.Label> labels, Remote.WriteRequest.Builder writeRequest) {
+        Types.Label categoryLabel = Types.Label.newBuilder().setName("category").setValue(category).build();
+
+        Types.TimeSeries.Builder reservedTimeSeries = Types.TimeSeries.newBuilder();
+        reservedTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_native_memory_reserved").build());
+        reservedTimeSeries.addLabels(categoryLabel);
+        reservedTimeSeries.addAllLabels(labels);
+        reservedTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(reserved).build());
+        writeRequest.addTimeseries(reservedTimeSeries);
+
+        Types.TimeSeries.Builder committedTimeSeries = Types.TimeSeries.newBuilder();
+        committedTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_native_memory_committed").build());
+        committedTimeSeries.addLabels(categoryLabel);
+        committedTimeSeries.addAllLabels(labels);
+        committedTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(committed).build());
+        writeRequest.addTimeseries(committedTimeSeries);
+    }
+
+    /**
+     * 组装 hsperfdata 性能计数器到Prometheus结构，不存在的计数器不上报
+     *
+     * @param perf         性能计数器数据
+     * @param timestamp    统计时间戳
+     * @param labels       通用标签
+     * @param writeRequest Request
+     */
+    private static void packJvmPerf(JvmPerfInfo perf, long timestamp, List<Types.Label> labels,
+                                    Remote.WriteRequest.Builder writeRequest) {
+        if (perf == null) {
+            return;
+        }
+        String[] names = {"jvm_perf_safepoints", "jvm_perf_safepoint_time", "jvm_perf_safepoint_sync_time",
+                "jvm_perf_class_load_time", "jvm_perf_compile_time", "jvm_perf_compiles", "jvm_perf_metaspace_used",
+                "jvm_perf_metaspace_capacity"};
+        long[] values = {perf.getSafepoints(), perf.getSafepointTime(), perf.getSafepointSyncTime(),
+                perf.getClassLoadTime(), perf.getCompileTime(), perf.getCompiles(), perf.getMetaspaceUsed(),
+                perf.getMetaspaceCapacity()};
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] < 0) {
+                continue;
+            }
+            Types.TimeSeries.Builder timeSeries = Types.TimeSeries.newBuilder();
+            timeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue(names[i]).build());
+            timeSeries.addAllLabels(labels);
+            timeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(values[i]).build());
+            writeRequest.addTimeseries(timeSeries);
+        }
+
+        for (JvmPerfInfo.GenerationInfo generation : perf.getGenerations()) {
+            Types.Label generationLabel = Types.Label.newBuilder().setName("generation").setValue(generation.getName()).build();
+
+            Types.TimeSeries.Builder usedTimeSeries = Types.TimeSeries.newBuilder();
+            usedTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_perf_generation_used").build());
+            usedTimeSeries.addLabels(generationLabel);
+            usedTimeSeries.addAllLabels(labels);
+            usedTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(generation.getUsed()).build());
+            writeRequest.addTimeseries(usedTimeSeries);
+
+            Types.TimeSeries.Builder capacityTimeSeries = Types.TimeSeries.newBuilder();
+            capacityTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_perf_generation_capacity").build());
+            capacityTimeSeries.addLabels(generationLabel);
+            capacityTimeSeries.addAllLabels(labels);
+            capacityTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(generation.getCapacity()).build());
+            writeRequest.addTimeseries(capacityTimeSeries);
+
+            Types.TimeSeries.Builder maxTimeSeries = Types.TimeSeries.newBuilder();
+            maxTimeSeries.addLabels(Types.Label.newBuilder().setName(PROMETHEUS_LABEL_NAME).setValue("jvm_perf_generation_max").build());
+            maxTimeSeries.addLabels(generationLabel);
+            maxTimeSeries.addAllLabels(labels);
+            maxTimeSeries.addSamples(Sample.newBuilder().setTimestamp(timestamp).setValue(generation.getMaxCapacity()).build());
+            writeRequest.addTimeseries(maxTimeSeries);
+        }
+    }
 }
@@ -0,0 +1,342 @@
+package org.beifengtz.jvmm.server.service;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.core.ClassHistogramRecorder;
+import org.beifengtz.jvmm.core.JvmmCollector;
+import org.beifengtz.jvmm.core.JvmmFactory;
+import org.beifengtz.jvmm.core.LockContentionSampler;
+import org.beifengtz.jvmm.core.ThreadCpuSampler;
+import org.beifengtz.jvmm.core.ThreadPoolRegistry;
+import org.beifengtz.jvmm.core.contanstant.CollectionType;
+import org.beifengtz.jvmm.core.driver.OSDriver;
+import org.beifengtz.jvmm.core.driver.OSRateSampler.RateWindow;
+import org.beifengtz.jvmm.core.entity.JvmmData;
+import org.beifengtz.jvmm.core.entity.info.PortInfo;
+import org.beifengtz.jvmm.core.entity.info.ThreadPoolInfo;
+import org.beifengtz.jvmm.server.entity.conf.ThreadPoolConf;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Description: 采集计划，将多个采集项并行提交到有界的采集线程池执行，所有采集项结束后返回一份 {@link JvmmData}。
+ * </p>
+ * <p>
+ * 所有采集项都通过 {@link JvmmFactory#getCollector()} 获取，与其他请求共享缓存和进行中的采集。
+ * cpu、network、disk_io 共用同一个速率窗口，开启后台速率采样时直接使用最近的窗口，否则整个计划只等待一次1秒的窗口。
+ * 每个采集项有独立的截止时间，失败或超时的采集项不会阻塞整个计划，超时仍在采集线程池中等待或执行的采集项会被取消，其数据字段为null，原因记录在
+ * {@link JvmmData#getCollectErrors()} 中，每个采集项的耗时记录在 {@link JvmmData#getCollectCosts()} 中。
+ * </p>
+ * <p>
+ * Created in 17:30 2023/10/22
+ *
+ * @author beifengtz
+ */
+public final class CollectionPlan {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(CollectionPlan.class);
+
+    /**
+     * 单个采集项的默认截止时间，单位ms
+     */
+    public static final long DEFAULT_DEADLINE = 5000;
+    /**
+     * 线程 CPU 后台采样未就绪时临时采样的窗口，单位秒，需要小于采集项的截止时间
+     */
+    private static final int ONE_SHOT_THREAD_CPU_WINDOW = 1;
+
+    private final Set<CollectionType> options;
+    private List<Integer> listenedPorts;
+    private List<ThreadPoolConf> listenedThreadPools;
+    private boolean classHistogramLive = false;
+    private long deadline = DEFAULT_DEADLINE;
+
+    private CollectionPlan(Set<CollectionType> options) {
+        this.options = options;
+    }
+
+    public static CollectionPlan of(List<CollectionType> options) {
+        Set<CollectionType> set = EnumSet.noneOf(CollectionType.class);
+        if (options != null) {
+            for (CollectionType type : options) {
+                if (type != null) {
+                    set.add(type);
+                }
+            }
+        }
+        return new CollectionPlan(set);
+    }
+
+    /**
+     * @param listenedPorts 如果 options 包含{@link CollectionType#port}，此参数表示需要监听的端口列表
+     */
+    public CollectionPlan setListenedPorts(List<Integer> listenedPorts) {
+        this.listenedPorts = listenedPorts;
+        return this;
+    }
+
+    /**
+     * @param listenedThreadPools 如果 options 包含了 {@link CollectionType#jvm_thread_pool}，此参数表示需要监听的线程池信息
+     */
+    public CollectionPlan setListenedThreadPools(List<ThreadPoolConf> listenedThreadPools) {
+        this.listenedThreadPools = listenedThreadPools;
+        return this;
+    }
+
+    /**
+     * @param classHistogramLive 如果 options 包含了 {@link CollectionType#jvm_class_histogram}，此参数表示是否只统计存活对象。
+     *                           默认为false，开启后每次采集都会触发一次 Full GC
+     */
+    public CollectionPlan setClassHistogramLive(boolean classHistogramLive) {
+        this.classHistogramLive = classHistogramLive;
+        return this;
+    }
+
+    /**
+     * @param deadline 单个采集项的截止时间，单位ms
+     */
+    public CollectionPlan setDeadline(long deadline) {
+        this.deadline = Math.max(1, deadline);
+        return this;
+    }
+
+    /**
+     * 执行采集计划
+     *
+     * @return 所有采集项完成、失败或超时后完成的 {@link JvmmData}，不会异常结束
+     */
+    public CompletableFuture<JvmmData> execute() {
+        JvmmData res = new JvmmData()
+                .setCollectCosts(new ConcurrentHashMap<>())
+                .setCollectErrors(new ConcurrentHashMap<>());
+        JvmmCollector collector = JvmmFactory.getCollector();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(options.size());
+
+        CompletableFuture<RateWindow> window = null;
+        if (options.contains(CollectionType.cpu) || options.contains(CollectionType.network) || options.contains(CollectionType.disk_io)) {
+            window = collector.getRateWindow();
+        }
+
+        for (CollectionType type : options) {
+            switch (type) {
+                case process:
+                    futures.add(sync(res, type, collector::getProcess, res::setProcess));
+                    break;
+                case disk:
+                    futures.add(sync(res, type, collector::getDisk, res::setDisk));
+                    break;
+                case disk_io:
+                    futures.add(async(res, type, window.thenApply(w -> w.getDiskIOInfos(null)), res::setDiskIO));
+                    break;
+                case cpu:
+                    futures.add(async(res, type, window.thenApply(RateWindow::getCPUInfo), res::setCpu));
+                    break;
+                case network:
+                    futures.add(async(res, type, window.thenApply(w -> OSDriver.get().getNetInfo(w)), res::setNetwork));
+                    break;
+                case sys:
+                    futures.add(sync(res, type, collector::getSys, res::setSys));
+                    break;
+                case sys_memory:
+                    futures.add(sync(res, type, collector::getSysMem, res::setSysMem));
+                    break;
+                case sys_file:
+                    futures.add(sync(res, type, collector::getSysFile, res::setSysFile));
+                    break;
+                case port:
+                    futures.add(sync(res, type, () -> listenedPorts == null || listenedPorts.isEmpty()
+                            ? new PortInfo() : collector.getPortInfo(listenedPorts), res::setPort));
+                    break;
+                case jvm_classloading:
+                    futures.add(sync(res, type, collector::getJvmClassLoading, res::setJvmClassLoading));
+                    break;
+                case jvm_classloader:
+                    futures.add(sync(res, type, collector::getJvmClassLoaders, res::setJvmClassLoader));
+                    break;
+                case jvm_compilation:
+                    futures.add(sync(res, type, collector::getJvmCompilation, res::setJvmCompilation));
+                    break;
+                case jvm_gc:
+                    futures.add(sync(res, type, collector::getJvmGC, res::setJvmGc));
+                    break;
+                case jvm_gc_pause:
+                    futures.add(sync(res, type, collector::getJvmGCPause, res::setJvmGcPause));
+                    break;
+                case jvm_perf:
+                    futures.add(sync(res, type, () -> collector.getJvmPerf(0), res::setJvmPerf));
+                    break;
+                case jvm_native_memory:
+                    futures.add(sync(res, type, collector::getJvmNativeMemory, res::setJvmNativeMemory));
+                    break;
+                case jvm_class_histogram:
+                    futures.add(sync(res, type, () -> collector.getJvmClassHistogramDiff(ClassHistogramRecorder.DEFAULT_TOP, classHistogramLive, false),
+                            res::setJvmClassHistogram));
+                    break;
+                case jvm_memory:
+                    futures.add(sync(res, type, collector::getJvmMemory, res::setJvmMemory));
+                    break;
+                case jvm_buffer_pool:
+                    futures.add(sync(res, type, collector::getJvmBufferPool, res::setJvmBufferPool));
+                    break;
+                case jvm_memory_manager:
+                    futures.add(sync(res, type, collector::getJvmMemoryManager, res::setJvmMemoryManager));
+                    break;
+                case jvm_memory_pool:
+                    futures.add(sync(res, type, collector::getJvmMemoryPool, res::setJvmMemoryPool));
+                    break;
+                case jvm_thread:
+                    futures.add(sync(res, type, collector::getJvmThread, res::setJvmThread));
+                    break;
+                case jvm_thread_stack:
+                    futures.add(sync(res, type, collector::dumpAllThreads, res::setJvmStack));
+                    break;
+                case jvm_thread_detail:
+                    futures.add(sync(res, type, collector::getAllJvmThreadDetailInfo, res::setJvmThreadDetail));
+                    break;
+                case jvm_thread_pool:
+                    if (listenedThreadPools != null && !listenedThreadPools.isEmpty()) {
+                        futures.add(sync(res, type, this::collectThreadPools, res::setThreadPool));
+                    }
+                    break;
+                case jvm_thread_cpu_top:
+                    futures.add(async(res, type, collector.getThreadCpuTop(threadCpuWindow(), ThreadCpuSampler.DEFAULT_TOP),
+                            res::setJvmThreadCpuTop));
+                    break;
+                case jvm_thread_allocation:
+                    futures.add(async(res, type, collector.getThreadAllocation(ThreadCpuSampler.DEFAULT_TOP), res::setJvmThreadAllocation));
+                    break;
+                case jvm_lock_contention:
+                    futures.add(async(res, type, collector.getLockContention(LockContentionSampler.DEFAULT_TOP), res::setJvmLockContention));
+                    break;
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> res);
+    }
+
+    private List<ThreadPoolInfo> collectThreadPools() {
+        List<ThreadPoolInfo> infos = new ArrayList<>(listenedThreadPools.size());
+        ThreadPoolRegistry registry = JvmmFactory.getThreadPoolRegistry();
+        for (ThreadPoolConf tp : listenedThreadPools) {
+            String name = threadPoolName(tp);
+            try {
+                //  首次采集时注册，之后由后台采样器持续统计
+                if (!registry.isRegistered(name)) {
+                    registry.register(name, null, tp.getClassPath(), tp.getInstanceFiled(), tp.getFiled());
+                }
+                ThreadPoolInfo info = registry.getInfo(name);
+                if (info != null) {
+                    infos.add(info);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Collect thread pool {} failed: {}", name, e.getMessage());
+            }
+        }
+        return infos;
+    }
+
+    /**
+     * 后台采样器就绪时直接读取其窗口，否则只临时采样一个短窗口，避免默认10秒的窗口超过截止时间导致该采集项必然超时
+     */
+    private static int threadCpuWindow() {
+        ThreadCpuSampler sampler = JvmmFactory.getThreadCpuSampler();
+        return sampler.isReady() ? sampler.getWindow() : ONE_SHOT_THREAD_CPU_WINDOW;
+    }
+
+    /**
+     * @return 线程池在 {@link ThreadPoolRegistry} 中的注册名，未配置名称时使用 类名.字段名
+     */
+    static String threadPoolName(ThreadPoolConf tp) {
+        return tp.getName() == null ? tp.getClassPath() + "." + tp.getFiled() : tp.getName();
+    }
+
+    /**
+     * 将同步采集项提交到采集线程池执行，超时后取消：未开始的采集项从队列中移除，执行中的采集项被中断
+     */
+    private <T> CompletableFuture<Void> sync(JvmmData res, CollectionType type, Callable<T> task, Consumer<T> setter) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ExecutorService pool = ExecutorFactory.getCollectThreadPool();
+        Future<?> submitted;
+        try {
+            submitted = pool.submit(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (Throwable e) {
+            //  采集线程池已满
+            future.completeExceptionally(e);
+            return async(res, type, future, setter, null);
+        }
+        return async(res, type, future, setter, () -> {
+            if (submitted.cancel(true) && pool instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) pool).remove((Runnable) submitted);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<Void> async(JvmmData res, CollectionType type, CompletableFuture<T> future, Consumer<T> setter) {
+        //  异步采集项可能是多个请求共享的 future，超时后不能取消
+        return async(res, type, future, setter, null);
+    }
+
+    /**
+     * 等待采集项结束或超时，记录耗时和失败原因。超时后执行 onTimeout 取消采集项，之后才完成时丢弃其结果
+     */
+    private <T> CompletableFuture<Void> async(JvmmData res, CollectionType type, CompletableFuture<T> future, Consumer<T> setter,
+                                              Runnable onTimeout) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        AtomicBoolean finished = new AtomicBoolean(false);
+        ScheduledFuture<?> timer = ExecutorFactory.getThreadPool().schedule(() -> {
+            if (finished.compareAndSet(false, true)) {
+                if (onTimeout != null) {
+                    onTimeout.run();
+                }
+                res.getCollectCosts().put(type.name(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                res.getCollectErrors().put(type.name(), "Timeout after " + deadline + "ms");
+                logger.warn("Collect {} timeout after {}ms", type, deadline);
+                done.complete(null);
+            }
+        }, deadline, TimeUnit.MILLISECONDS);
+
+        future.whenComplete((value, e) -> {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            timer.cancel(false);
+            res.getCollectCosts().put(type.name(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (e == null) {
+                try {
+                    setter.accept(value);
+                } catch (Throwable t) {
+                    e = t;
+                }
+            }
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                res.getCollectErrors().put(type.name(), cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                logger.warn("Collect {} failed: {}", type, cause.getMessage());
+            }
+            done.complete(null);
+        });
+        return done;
+    }
+}
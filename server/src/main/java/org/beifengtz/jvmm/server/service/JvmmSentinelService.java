@@ -4,11 +4,15 @@ import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.beifengtz.jvmm.common.factory.ExecutorFactory;
+import org.beifengtz.jvmm.core.JvmmFactory;
+import org.beifengtz.jvmm.core.ThreadPoolRegistry;
+import org.beifengtz.jvmm.core.contanstant.CollectionType;
 import org.beifengtz.jvmm.core.entity.JvmmData;
 import org.beifengtz.jvmm.server.ServerContext;
 import org.beifengtz.jvmm.server.entity.conf.SentinelConf;
 import org.beifengtz.jvmm.server.entity.conf.SentinelSubscriberConf;
 import org.beifengtz.jvmm.server.entity.conf.SentinelSubscriberConf.SubscriberType;
+import org.beifengtz.jvmm.server.entity.conf.ThreadPoolConf;
 import org.beifengtz.jvmm.server.exporter.HttpExporter;
 import org.beifengtz.jvmm.server.exporter.PrometheusExporter;
 import org.beifengtz.jvmm.server.prometheus.PrometheusUtil;
@@ -20,6 +24,7 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -45,6 +50,10 @@ public class JvmmSentinelService implements JvmmService {
     protected final Set<ShutdownListener> shutdownListeners = new HashSet<>();
 
     protected final Queue<SentinelTask> taskList = new ConcurrentLinkedQueue<>();
+    /**
+     * 哨兵配置中监听的线程池注册名，服务关闭时从 {@link ThreadPoolRegistry} 注销，配置变更后不再监听的线程池不会被继续采样
+     */
+    protected final Set<String> threadPools = ConcurrentHashMap.newKeySet();
 
     protected volatile HttpExporter httpExporter;
     protected volatile PrometheusExporter prometheusExporter;
@@ -65,6 +74,7 @@ public class JvmmSentinelService implements JvmmService {
 
             //  初始化任务
             taskList.clear();
+            threadPools.clear();
             httpExporter = null;
             prometheusExporter = null;
 
@@ -75,6 +85,11 @@ public class JvmmSentinelService implements JvmmService {
                 task.execTime = now;
                 minInterval = Math.min(minInterval, conf.getInterval());
                 taskList.add(task);
+                if (conf.getTasks().contains(CollectionType.jvm_thread_pool) && conf.getListenedThreadPools() != null) {
+                    for (ThreadPoolConf tp : conf.getListenedThreadPools()) {
+                        threadPools.add(CollectionPlan.threadPoolName(tp));
+                    }
+                }
             }
 
             scheduledFuture = executor.scheduleWithFixedDelay(() -> {
@@ -102,6 +117,11 @@ public class JvmmSentinelService implements JvmmService {
         if (scheduledFuture != null) {
             scheduledFuture.cancel(false);
         }
+        ThreadPoolRegistry registry = JvmmFactory.getThreadPoolRegistry();
+        for (String name : threadPools) {
+            registry.unregister(name);
+        }
+        threadPools.clear();
         for (ShutdownListener listener : shutdownListeners) {
             try {
                 listener.onShutdown();
@@ -152,41 +172,44 @@ public class JvmmSentinelService implements JvmmService {
             counter++;
             executor.execute(() -> {
                 try {
-                    JvmmService.collectByOptions(conf.getTasks(), conf.getListenedPorts(), conf.getListenedThreadPools(), pair -> {
-                        if (pair.getLeft().get() <= 0) {
-                            try {
-                                JvmmData data = pair.getRight().setNode(ServerContext.getConfiguration().getName());
-                                byte[] httpData = hasHttpSubscriber ? data.toJsonStr().getBytes(StandardCharsets.UTF_8) : null;
-                                byte[] prometheusData = hasPrometheusSubscriber ? PrometheusUtil.pack(data) : null;
-                                for (SentinelSubscriberConf subscriber : conf.getSubscribers()) {
-                                    if (subscriber.getType() == SubscriberType.http && httpExporter != null) {
-                                        CompletableFuture<String> future = httpExporter.export(subscriber, httpData);
-                                        future.whenComplete(((s, throwable) -> {
-                                            if (throwable == null) {
-                                                logger.debug("Sentinel published to http server[{}], task: {}", subscriber.getUrl(), conf.getTasks());
-                                            } else {
-                                                logger.warn("Sentinel publish to http server[{}] failed. {}: {}",
-                                                        subscriber.getUrl(), throwable.getClass(), throwable.getMessage());
-                                            }
-                                        }));
-                                    } else if (subscriber.getType() == SubscriberType.prometheus && prometheusExporter != null) {
-                                        CompletableFuture<byte[]> future = prometheusExporter.export(subscriber, prometheusData);
-                                        future.whenComplete(((bytes, throwable) -> {
-                                            if (throwable == null) {
-                                                logger.debug("Sentinel published to http server[{}], task: {}", subscriber.getUrl(), conf.getTasks());
-                                            } else {
-                                                logger.warn("Sentinel publish to prometheus server[{}] failed. {}: {}",
-                                                        subscriber.getUrl(), throwable.getClass(), throwable.getMessage());
-                                            }
-                                        }));
+                    CollectionPlan.of(conf.getTasks())
+                            .setListenedPorts(conf.getListenedPorts())
+                            .setListenedThreadPools(conf.getListenedThreadPools())
+                            .setClassHistogramLive(conf.isClassHistogramLive())
+                            .execute()
+                            .thenAccept(result -> {
+                                try {
+                                    JvmmData data = result.setNode(ServerContext.getConfiguration().getName());
+                                    byte[] httpData = hasHttpSubscriber ? data.toJsonStr().getBytes(StandardCharsets.UTF_8) : null;
+                                    byte[] prometheusData = hasPrometheusSubscriber ? PrometheusUtil.pack(data) : null;
+                                    for (SentinelSubscriberConf subscriber : conf.getSubscribers()) {
+                                        if (subscriber.getType() == SubscriberType.http && httpExporter != null) {
+                                            CompletableFuture<String> future = httpExporter.export(subscriber, httpData);
+                                            future.whenComplete(((s, throwable) -> {
+                                                if (throwable == null) {
+                                                    logger.debug("Sentinel published to http server[{}], task: {}", subscriber.getUrl(), conf.getTasks());
+                                                } else {
+                                                    logger.warn("Sentinel publish to http server[{}] failed. {}: {}",
+                                                            subscriber.getUrl(), throwable.getClass(), throwable.getMessage());
+                                                }
+                                            }));
+                                        } else if (subscriber.getType() == SubscriberType.prometheus && prometheusExporter != null) {
+                                            CompletableFuture<byte[]> future = prometheusExporter.export(subscriber, prometheusData);
+                                            future.whenComplete(((bytes, throwable) -> {
+                                                if (throwable == null) {
+                                                    logger.debug("Sentinel published to http server[{}], task: {}", subscriber.getUrl(), conf.getTasks());
+                                                } else {
+                                                    logger.warn("Sentinel publish to prometheus server[{}] failed. {}: {}",
+                                                            subscriber.getUrl(), throwable.getClass(), throwable.getMessage());
+                                                }
+                                            }));
+                                        }
                                     }
+                                } catch (Throwable e) {
+                                    logger.error("Sentinel publish failed", e);
                                 }
-                            } catch (Throwable e) {
-                                logger.error("Sentinel publish failed", e);
-                            }
-                            execTime = System.currentTimeMillis() + conf.getInterval() * 1000L;
-                        }
-                    });
+                                execTime = System.currentTimeMillis() + conf.getInterval() * 1000L;
+                            });
                 } catch (Throwable e) {
                     logger.error("Sentinel execute task failed: " + e.getMessage(), e);
                 }
@@ -0,0 +1,106 @@
+package org.beifengtz.jvmm.server.test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.beifengtz.jvmm.convey.entity.ResponseStream;
+import org.beifengtz.jvmm.server.controller.ExecuteController;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>
+ * Description: 流式响应接口测试，通过内存中的 {@link ResponseStream} 收集 controller 写出的内容
+ * </p>
+ * <p>
+ * Created in 11:05 2023/10/24
+ *
+ * @author beifengtz
+ */
+public class TestController {
+
+    @Test
+    public void testDumpHeap() throws Exception {
+        MemoryStream stream = new MemoryStream();
+        new ExecuteController().dumpHeap(false, stream);
+        Assertions.assertTrue(stream.await(120));
+        Assertions.assertNull(stream.error);
+        Assertions.assertTrue(stream.ended);
+        Assertions.assertEquals("application/gzip", stream.getContentType());
+        Assertions.assertTrue(stream.getFileName().endsWith(".gz"));
+
+        //  解压后是完整的 hprof 文件
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(stream.content.toByteArray()))) {
+            byte[] header = new byte[18];
+            int n = 0;
+            while (n < header.length) {
+                int len = is.read(header, n, header.length - n);
+                Assertions.assertTrue(len > 0);
+                n += len;
+            }
+            Assertions.assertEquals("JAVA PROFILE 1.0.2", new String(header, StandardCharsets.US_ASCII));
+            byte[] buffer = new byte[64 * 1024];
+            while (is.read(buffer) > 0) {
+                //  读到 gzip 结尾时校验 CRC，截断的内容会抛出异常
+            }
+        }
+    }
+
+    /**
+     * 把分块写入内存的响应流，记录结束方式
+     */
+    static class MemoryStream extends ResponseStream {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean ended;
+        volatile Throwable error;
+
+        MemoryStream() {
+            super(new EmbeddedChannel());
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        String getFileName() {
+            return fileName;
+        }
+
+        boolean await(int seconds) throws InterruptedException {
+            return done.await(seconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        protected ChannelFuture writeChunk(ByteBuf chunk) {
+            try {
+                byte[] bytes = new byte[chunk.readableBytes()];
+                chunk.readBytes(bytes);
+                content.write(bytes, 0, bytes.length);
+                return channel.newSucceededFuture();
+            } finally {
+                chunk.release();
+            }
+        }
+
+        @Override
+        protected void writeEnd() {
+            ended = true;
+            done.countDown();
+        }
+
+        @Override
+        protected void writeError(Throwable cause) {
+            error = cause;
+            done.countDown();
+        }
+    }
+}
@@ -1,18 +1,22 @@
 package org.beifengtz.jvmm.server.test;
 
+import org.beifengtz.jvmm.core.JvmmFactory;
 import org.beifengtz.jvmm.core.contanstant.CollectionType;
 import org.beifengtz.jvmm.core.entity.JvmmData;
 import org.beifengtz.jvmm.server.entity.conf.SentinelSubscriberConf;
 import org.beifengtz.jvmm.server.entity.conf.SentinelSubscriberConf.SubscriberType;
 import org.beifengtz.jvmm.server.exporter.PrometheusExporter;
 import org.beifengtz.jvmm.server.prometheus.PrometheusUtil;
+import org.beifengtz.jvmm.server.service.CollectionPlan;
 import org.beifengtz.jvmm.server.service.JvmmService;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * description: TODO
@@ -48,4 +52,41 @@ public class TestPrometheus {
 
         cdl.await();
     }
+
+    @Test
+    public void testCollectionPlan() throws Exception {
+        List<CollectionType> tasks = Arrays.asList(CollectionType.cpu, CollectionType.network, CollectionType.disk_io,
+                CollectionType.jvm_memory, CollectionType.jvm_thread, CollectionType.jvm_gc, CollectionType.jvm_thread_stack);
+        long start = System.currentTimeMillis();
+        JvmmData data = CollectionPlan.of(tasks).setDeadline(3000).execute().get(5, TimeUnit.SECONDS);
+        long cost = System.currentTimeMillis() - start;
+        System.out.println("Collect cost " + cost + "ms, costs: " + data.getCollectCosts() + ", errors: " + data.getCollectErrors());
+
+        //  cpu、network、disk_io 共用一个1秒窗口，其余采集项并行执行
+        Assertions.assertTrue(cost < 3000);
+        Assertions.assertEquals(tasks.size(), data.getCollectCosts().size());
+        Assertions.assertTrue(data.getCollectErrors().isEmpty());
+        Assertions.assertNotNull(data.getCpu());
+        Assertions.assertNotNull(data.getNetwork());
+        Assertions.assertNotNull(data.getJvmMemory());
+        Assertions.assertNotNull(data.getJvmStack());
+
+        //  超时的采集项返回部分数据并记录原因
+        data = CollectionPlan.of(tasks).setDeadline(200).execute().get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(data.getCollectErrors().containsKey(CollectionType.cpu.name()));
+        Assertions.assertNull(data.getCpu());
+        Assertions.assertNotNull(data.getJvmMemory());
+    }
+
+    @Test
+    public void testCollectionPlanThreadCpuTop() throws Exception {
+        //  后台线程 CPU 采样未开启时临时采样一个短窗口，在默认截止时间内完成
+        JvmmFactory.getThreadCpuSampler().stop();
+        long start = System.currentTimeMillis();
+        JvmmData data = CollectionPlan.of(Arrays.asList(CollectionType.jvm_thread_cpu_top)).execute().get(10, TimeUnit.SECONDS);
+        long cost = System.currentTimeMillis() - start;
+        Assertions.assertTrue(data.getCollectErrors().isEmpty(), String.valueOf(data.getCollectErrors()));
+        Assertions.assertNotNull(data.getJvmThreadCpuTop());
+        Assertions.assertTrue(cost < CollectionPlan.DEFAULT_DEADLINE);
+    }
 }